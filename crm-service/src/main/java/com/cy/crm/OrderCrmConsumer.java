@@ -1,29 +1,26 @@
 package com.cy.crm;
 
-import com.rabbitmq.client.Channel;
+import com.cy.common.mq.OrderEventProcessor;
+import com.cy.common.mq.OrderMessage;
+import com.cy.common.mq.OrderMessageCodec;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.support.AmqpHeaders;
-import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.stereotype.Component;
 
-import java.io.IOException;
-
 /**
  * 订单CRM消费者
  * 负责消费CRM相关的消息并进行处理
  */
 @Component
 @Slf4j
-public class OrderCrmConsumer {
+public class OrderCrmConsumer implements OrderEventProcessor {
+
+    public static final String QUEUE = "order.notify.queue.crm";
 
-    @RabbitListener(queues = "order.notify.queue.crm")
-    public void handleOrder(String message, Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long tag) {
-       try {
-           log.info("【消费者 CRM】收到订单通知: {}", message);
-           channel.basicAck(tag, false);
-       } catch (IOException ex) {
-           log.error("【消费者 CRM】处理订单通知失败: {}", message, ex);
-       }
+    @Override
+    public void process(OrderMessage order, MessageProperties properties) {
+        log.info("【消费者 CRM】收到订单通知: event={}, routingKey={}, orderId={}, userId={}, status={}, amount={}",
+                properties.getHeader(OrderMessageCodec.EVENT_TYPE_HEADER),
+                properties.getReceivedRoutingKey(), order.getId(), order.getUserId(), order.getStatus(), order.amountDecimal());
     }
-}
\ No newline at end of file
+}
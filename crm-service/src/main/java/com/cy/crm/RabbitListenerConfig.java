@@ -0,0 +1,54 @@
+package com.cy.crm;
+
+import com.cy.common.mq.DecompressingPostProcessor;
+import com.cy.common.mq.OrderEventConsumer;
+import com.cy.common.mq.config.MessageCompressionProperties;
+import com.cy.common.stream.config.OrderEventStreamConfig;
+import com.cy.common.transport.OrderEventTransport;
+import com.cy.common.transport.RabbitOrderEventTransport;
+import com.cy.common.transport.Subscription;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.amqp.SimpleRabbitListenerContainerFactoryConfigurer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+/**
+ * CRM服务RabbitMQ监听配置
+ * 在 Spring Boot 默认监听容器配置的基础上，压缩的订单消息在交给消费者前透明解压，解压后长度不超过 mq.compression 的上限；
+ * 订单通知经订单事件传输订阅，处理逻辑与传输无关，同一个消费者也可以挂在进程内传输上；
+ * 开启订单事件流（mq.stream.enabled）后改为消费事件流，不再订阅通知队列
+ */
+@Configuration
+@Import(OrderEventStreamConfig.class)
+@EnableConfigurationProperties(MessageCompressionProperties.class)
+public class RabbitListenerConfig {
+
+    @Bean
+    public SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory(
+            SimpleRabbitListenerContainerFactoryConfigurer configurer, ConnectionFactory connectionFactory,
+            MessageCompressionProperties compressionProperties) {
+        SimpleRabbitListenerContainerFactory factory = new SimpleRabbitListenerContainerFactory();
+        configurer.configure(factory, connectionFactory);
+        factory.setAfterReceivePostProcessors(new DecompressingPostProcessor(compressionProperties.getMaxDecompressedSize()));
+        return factory;
+    }
+
+    @Bean(destroyMethod = "close")
+    public OrderEventTransport orderEventTransport(AmqpAdmin amqpAdmin,
+                                                   SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory,
+                                                   RabbitTemplate rabbitTemplate) {
+        return new RabbitOrderEventTransport(amqpAdmin, rabbitListenerContainerFactory, rabbitTemplate);
+    }
+
+    @Bean
+    @ConditionalOnProperty(prefix = "mq.stream", name = "enabled", havingValue = "false", matchIfMissing = true)
+    public Subscription orderCrmSubscription(OrderEventTransport orderEventTransport, OrderCrmConsumer consumer) {
+        return orderEventTransport.subscribe(OrderCrmConsumer.QUEUE, new OrderEventConsumer("CRM", consumer));
+    }
+}
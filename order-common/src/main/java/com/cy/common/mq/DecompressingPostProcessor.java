@@ -0,0 +1,52 @@
+package com.cy.common.mq;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessagePostProcessor;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+/**
+ * 接收端解压后置处理器
+ * content-encoding 为 {@value MessageCompression#ENCODING_DEFLATE} 的消息在交给监听方法前解压，
+ * 解压失败或解压后超过长度上限时保留原消息，由消费者按无法解压处理
+ */
+@Slf4j
+public class DecompressingPostProcessor implements MessagePostProcessor {
+
+    private final int maxDecompressedSize;
+
+    public DecompressingPostProcessor() {
+        this(MessageCompression.DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    /**
+     * @param maxDecompressedSize 解压后长度上限（字节）
+     */
+    public DecompressingPostProcessor(int maxDecompressedSize) {
+        this.maxDecompressedSize = maxDecompressedSize;
+    }
+
+    @Override
+    public Message postProcessMessage(Message message) {
+        MessageProperties properties = message.getMessageProperties();
+        if (!MessageCompression.ENCODING_DEFLATE.equals(properties.getContentEncoding())) {
+            return message;
+        }
+        Object originalLength = properties.getHeader(MessageCompression.ORIGINAL_LENGTH_HEADER);
+        byte[] body;
+        try {
+            body = MessageCompression.decompress(message.getBody(),
+                    originalLength instanceof Number number ? number.intValue() : -1, maxDecompressedSize);
+        } catch (IllegalArgumentException e) {
+            return message;
+        } catch (MessageConversionException e) {
+            log.warn("消息解压后超过长度上限，不解压: messageId={}, cause={}", properties.getMessageId(), e.getMessage());
+            return message;
+        }
+        properties.setContentEncoding(null);
+        properties.getHeaders().remove(MessageCompression.ORIGINAL_LENGTH_HEADER);
+        properties.setContentLength(body.length);
+        return new Message(body, properties);
+    }
+}
@@ -0,0 +1,162 @@
+package com.cy.common.mq;
+
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.util.Arrays;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+
+/**
+ * MQ消息体压缩
+ * 使用 zlib 格式的 deflate，与 content-encoding {@value #ENCODING_DEFLATE} 的约定一致；
+ * Deflater、Inflater 和压缩输出缓冲区按线程复用，压缩一条消息只分配结果数组；
+ * 解压后长度有上限，声明长度或实际解压长度超过上限时拒绝，避免按伪造的长度头或压缩炸弹分配过大的内存
+ */
+public final class MessageCompression {
+
+    /**
+     * 压缩后消息的 content-encoding
+     */
+    public static final String ENCODING_DEFLATE = "deflate";
+
+    /**
+     * 压缩前消息体长度头，解压时据此一次分配结果数组
+     */
+    public static final String ORIGINAL_LENGTH_HEADER = "x-original-length";
+
+    /**
+     * 默认的解压后长度上限
+     */
+    public static final int DEFAULT_MAX_DECOMPRESSED_SIZE = 16 * 1024 * 1024;
+
+    /**
+     * 线程复用的缓冲区超过该大小时不再保留
+     */
+    private static final int MAX_RETAINED_BUFFER = 1024 * 1024;
+
+    private static final ThreadLocal<Deflater> DEFLATER = ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED));
+
+    private static final ThreadLocal<Inflater> INFLATER = ThreadLocal.withInitial(Inflater::new);
+
+    private static final ThreadLocal<byte[]> BUFFER = ThreadLocal.withInitial(() -> new byte[8192]);
+
+    private MessageCompression() {
+    }
+
+    /**
+     * 压缩消息体
+     *
+     * @param input 原始消息体
+     * @return 压缩后的消息体，压缩后不比原来小时返回null
+     */
+    public static byte[] compress(byte[] input) {
+        byte[] buffer = buffer(input.length);
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+        // 输出上限比原始长度小1，写满仍未结束说明压缩没有收益
+        int limit = input.length - 1;
+        int length = 0;
+        while (!deflater.finished() && length < limit) {
+            length += deflater.deflate(buffer, length, limit - length);
+        }
+        byte[] result = deflater.finished() ? Arrays.copyOf(buffer, length) : null;
+        release(buffer);
+        return result;
+    }
+
+    /**
+     * 按默认上限解压消息体
+     *
+     * @param input          压缩后的消息体
+     * @param originalLength 压缩前长度，未知时传负数
+     * @return 原始消息体
+     * @throws IllegalArgumentException   数据损坏或长度与声明不符
+     * @throws MessageConversionException 解压后长度超过 {@link #DEFAULT_MAX_DECOMPRESSED_SIZE}
+     */
+    public static byte[] decompress(byte[] input, int originalLength) {
+        return decompress(input, originalLength, DEFAULT_MAX_DECOMPRESSED_SIZE);
+    }
+
+    /**
+     * 解压消息体
+     *
+     * @param input          压缩后的消息体
+     * @param originalLength 压缩前长度，未知时传负数
+     * @param maxLength      解压后长度上限
+     * @return 原始消息体
+     * @throws IllegalArgumentException   数据损坏或长度与声明不符
+     * @throws MessageConversionException 声明长度或解压后长度超过上限
+     */
+    public static byte[] decompress(byte[] input, int originalLength, int maxLength) {
+        boolean knownLength = originalLength >= 0;
+        if (originalLength > maxLength) {
+            throw new MessageConversionException("声明的解压后长度超过上限: length=" + originalLength + ", max=" + maxLength);
+        }
+        Inflater inflater = INFLATER.get();
+        inflater.reset();
+        inflater.setInput(input);
+        // 未知长度时从压缩数据的4倍起按倍数扩容，不超过上限
+        int limit = knownLength ? originalLength : maxLength;
+        byte[] output = knownLength ? new byte[originalLength] : buffer((int) Math.min(input.length * 4L, maxLength));
+        int length = 0;
+        try {
+            while (!inflater.finished()) {
+                int capacity = Math.min(output.length, limit);
+                if (length == capacity) {
+                    if (capacity == limit) {
+                        // 已写到声明长度或上限，还有数据说明超出
+                        int extra = inflater.inflate(new byte[1]);
+                        if (extra == 0 && inflater.finished()) {
+                            break;
+                        }
+                        if (extra == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                            throw new IllegalArgumentException("压缩数据不完整: length=" + input.length);
+                        }
+                        if (knownLength) {
+                            throw new IllegalArgumentException("解压后长度超过声明: expected=" + originalLength);
+                        }
+                        throw new MessageConversionException("解压后长度超过上限: max=" + maxLength);
+                    }
+                    output = Arrays.copyOf(output, (int) Math.min(output.length * 2L, limit));
+                    capacity = output.length;
+                }
+                int n = inflater.inflate(output, length, capacity - length);
+                if (n == 0 && (inflater.needsInput() || inflater.needsDictionary())) {
+                    throw new IllegalArgumentException("压缩数据不完整: length=" + input.length);
+                }
+                length += n;
+            }
+        } catch (DataFormatException e) {
+            throw new IllegalArgumentException("压缩数据格式错误", e);
+        }
+        if (knownLength) {
+            if (length != originalLength) {
+                throw new IllegalArgumentException("解压后长度与声明不符: expected=" + originalLength + ", actual=" + length);
+            }
+            return output;
+        }
+        byte[] result = Arrays.copyOf(output, length);
+        release(output);
+        return result;
+    }
+
+    private static byte[] buffer(int minLength) {
+        byte[] buffer = BUFFER.get();
+        if (buffer.length < minLength) {
+            buffer = new byte[Math.max(minLength, buffer.length * 2)];
+            BUFFER.set(buffer);
+        }
+        return buffer;
+    }
+
+    private static void release(byte[] buffer) {
+        if (buffer.length > MAX_RETAINED_BUFFER) {
+            BUFFER.remove();
+        } else if (buffer != BUFFER.get()) {
+            BUFFER.set(buffer);
+        }
+    }
+}
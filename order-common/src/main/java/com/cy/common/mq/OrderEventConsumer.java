@@ -0,0 +1,67 @@
+package com.cy.common.mq;
+
+import com.cy.common.transport.Delivery;
+import com.cy.common.transport.DeliveryHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+
+/**
+ * 订单通知消费者
+ * 解码订单消息后交给 {@link OrderEventProcessor}，处理成功时确认；
+ * 无法解压、无法解码或处理失败的消息拒绝且不重新入队，避免反复投递；
+ * 升级前的订单服务发送的JSON消息只记录日志并确认
+ */
+@Slf4j
+public class OrderEventConsumer implements DeliveryHandler {
+
+    private final String name;
+
+    private final OrderEventProcessor processor;
+
+    /**
+     * @param name      消费者名，用于日志
+     * @param processor 订单事件处理逻辑
+     */
+    public OrderEventConsumer(String name, OrderEventProcessor processor) {
+        this.name = name;
+        this.processor = processor;
+    }
+
+    @Override
+    public void onDelivery(Delivery delivery) {
+        Message message = delivery.getMessage();
+        MessageProperties properties = message.getMessageProperties();
+        if (MessageCompression.ENCODING_DEFLATE.equals(properties.getContentEncoding())) {
+            // 解压失败
+            log.error("【消费者 {}】订单通知无法解压，丢弃: messageId={}, contentEncoding={}",
+                    name, properties.getMessageId(), properties.getContentEncoding());
+            delivery.reject(false);
+            return;
+        }
+        if (!OrderMessageCodec.CONTENT_TYPE.equals(properties.getContentType())) {
+            // 升级前的订单服务仍发送JSON
+            log.info("【消费者 {}】收到订单通知: {}", name, new String(message.getBody(), StandardCharsets.UTF_8));
+            delivery.ack();
+            return;
+        }
+        OrderMessage order;
+        try {
+            order = OrderMessageCodec.decode(message.getBody());
+        } catch (IllegalArgumentException e) {
+            log.error("【消费者 {}】订单通知无法解码，丢弃: messageId={}", name, properties.getMessageId(), e);
+            delivery.reject(false);
+            return;
+        }
+        try {
+            processor.process(order, properties);
+        } catch (RuntimeException e) {
+            log.error("【消费者 {}】处理订单通知失败: messageId={}", name, properties.getMessageId(), e);
+            delivery.reject(false);
+            return;
+        }
+        delivery.ack();
+    }
+}
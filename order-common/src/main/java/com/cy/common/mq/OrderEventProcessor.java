@@ -0,0 +1,20 @@
+package com.cy.common.mq;
+
+import org.springframework.amqp.core.MessageProperties;
+
+/**
+ * 订单事件处理逻辑
+ * 各消费服务只实现业务处理，解码、确认和拒绝由 {@link OrderEventConsumer} 负责，
+ * 因此同一份处理逻辑可以挂在 RabbitMQ 或进程内传输上
+ */
+@FunctionalInterface
+public interface OrderEventProcessor {
+
+    /**
+     * 处理一条订单事件，抛出异常时消息被拒绝
+     *
+     * @param order      订单消息
+     * @param properties 消息属性，可读取事件类型头和路由键
+     */
+    void process(OrderMessage order, MessageProperties properties);
+}
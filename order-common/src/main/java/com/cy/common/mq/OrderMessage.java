@@ -0,0 +1,77 @@
+package com.cy.common.mq;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+/**
+ * MQ中传递的订单消息
+ * 金额为最小货币单位（分），时间为epoch毫秒，由 {@link OrderMessageCodec} 编解码
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class OrderMessage {
+
+    private String id;
+
+    private String orderNumber;
+
+    private String userId;
+
+    private String storeId;
+
+    /**
+     * 订单金额（分）
+     */
+    private Long amount;
+
+    /**
+     * 订单状态名，如 PAID
+     */
+    private String status;
+
+    private List<Item> items;
+
+    /**
+     * 创建时间（epoch毫秒）
+     */
+    private Long createTime;
+
+    /**
+     * 更新时间（epoch毫秒）
+     */
+    private Long updateTime;
+
+    /**
+     * 订单金额（元）
+     */
+    public BigDecimal amountDecimal() {
+        return amount == null ? null : OrderMessageCodec.fromMinorUnits(amount);
+    }
+
+    /**
+     * 订单项
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Item {
+
+        private String productId;
+
+        private String productName;
+
+        private Integer quantity;
+
+        /**
+         * 单价（分）
+         */
+        private Long price;
+    }
+}
@@ -0,0 +1,364 @@
+package com.cy.common.mq;
+
+import java.math.BigDecimal;
+import java.math.RoundingMode;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * 订单消息二进制编解码器
+ * 消息体格式：
+ * <pre>
+ * version(1字节) | 消息体长度(varint) | 字段存在位图(varint) | 按位图顺序排列的字段
+ * 字符串：长度(varint) + UTF-8字节
+ * 整数：zigzag varint
+ * 订单项列表：个数(varint) + 每项 [长度(varint) + 字段存在位图(varint) + 字段]
+ * </pre>
+ * 同一版本内只在消息和订单项的末尾追加字段位，旧的解码器读完认识的字段后按长度跳过其余部分，因此可以先升级生产方；
+ * 不兼容的变更升级版本，解码器拒绝比 {@link #SCHEMA_VERSION} 新的版本
+ */
+public final class OrderMessageCodec {
+
+    /**
+     * 消息的 content-type
+     */
+    public static final String CONTENT_TYPE = "application/x-cy-order";
+
+    /**
+     * schema 标识头
+     */
+    public static final String SCHEMA_ID_HEADER = "x-schema-id";
+
+    /**
+     * schema 版本头
+     */
+    public static final String SCHEMA_VERSION_HEADER = "x-schema-version";
+
+    /**
+     * 订单事件类型头，值为事件代码，如 order_paid
+     */
+    public static final String EVENT_TYPE_HEADER = "x-event-type";
+
+    public static final String SCHEMA_ID = "order";
+
+    public static final int SCHEMA_VERSION = 1;
+
+    /**
+     * 金额的小数位数，金额按分传输
+     */
+    public static final int MINOR_UNIT_SCALE = 2;
+
+    private static final int ID = 1;
+    private static final int ORDER_NUMBER = 1 << 1;
+    private static final int USER_ID = 1 << 2;
+    private static final int STORE_ID = 1 << 3;
+    private static final int AMOUNT = 1 << 4;
+    private static final int STATUS = 1 << 5;
+    private static final int ITEMS = 1 << 6;
+    private static final int CREATE_TIME = 1 << 7;
+    private static final int UPDATE_TIME = 1 << 8;
+
+    private static final int ITEM_PRODUCT_ID = 1;
+    private static final int ITEM_PRODUCT_NAME = 1 << 1;
+    private static final int ITEM_QUANTITY = 1 << 2;
+    private static final int ITEM_PRICE = 1 << 3;
+
+    /**
+     * 线程复用的编码缓冲区超过该大小时不再保留，避免个别大订单长期占用内存
+     */
+    private static final int MAX_RETAINED_BUFFER = 64 * 1024;
+
+    private static final ThreadLocal<Writer> WRITERS = ThreadLocal.withInitial(Writer::new);
+
+    private OrderMessageCodec() {
+    }
+
+    /**
+     * 编码订单消息
+     *
+     * @param message 订单消息
+     * @return 消息体
+     */
+    public static byte[] encode(OrderMessage message) {
+        Writer writer = WRITERS.get();
+        writer.position = 0;
+        try {
+            writer.writeByte(SCHEMA_VERSION);
+            int body = writer.beginLength();
+            int mask = (message.getId() != null ? ID : 0)
+                    | (message.getOrderNumber() != null ? ORDER_NUMBER : 0)
+                    | (message.getUserId() != null ? USER_ID : 0)
+                    | (message.getStoreId() != null ? STORE_ID : 0)
+                    | (message.getAmount() != null ? AMOUNT : 0)
+                    | (message.getStatus() != null ? STATUS : 0)
+                    | (message.getItems() != null ? ITEMS : 0)
+                    | (message.getCreateTime() != null ? CREATE_TIME : 0)
+                    | (message.getUpdateTime() != null ? UPDATE_TIME : 0);
+            writer.writeVarint(mask);
+            writer.writeString(message.getId());
+            writer.writeString(message.getOrderNumber());
+            writer.writeString(message.getUserId());
+            writer.writeString(message.getStoreId());
+            writer.writeLong(message.getAmount());
+            writer.writeString(message.getStatus());
+            if (message.getItems() != null) {
+                writer.writeVarint(message.getItems().size());
+                for (OrderMessage.Item item : message.getItems()) {
+                    writeItem(writer, item);
+                }
+            }
+            writer.writeLong(message.getCreateTime());
+            writer.writeLong(message.getUpdateTime());
+            writer.endLength(body);
+            return Arrays.copyOf(writer.buffer, writer.position);
+        } finally {
+            if (writer.buffer.length > MAX_RETAINED_BUFFER) {
+                WRITERS.remove();
+            }
+        }
+    }
+
+    /**
+     * 解码订单消息
+     *
+     * @param body 消息体
+     * @return 订单消息
+     * @throws IllegalArgumentException 消息体不完整或版本不支持
+     */
+    public static OrderMessage decode(byte[] body) {
+        Reader reader = new Reader(body);
+        int version = reader.readByte();
+        if (version < 1 || version > SCHEMA_VERSION) {
+            throw new IllegalArgumentException("不支持的订单消息版本: " + version);
+        }
+        int end = reader.beginLength();
+        long mask = reader.readVarint();
+        OrderMessage message = new OrderMessage();
+        message.setId(has(mask, ID) ? reader.readString() : null);
+        message.setOrderNumber(has(mask, ORDER_NUMBER) ? reader.readString() : null);
+        message.setUserId(has(mask, USER_ID) ? reader.readString() : null);
+        message.setStoreId(has(mask, STORE_ID) ? reader.readString() : null);
+        message.setAmount(has(mask, AMOUNT) ? reader.readLong() : null);
+        message.setStatus(has(mask, STATUS) ? reader.readString() : null);
+        if (has(mask, ITEMS)) {
+            int size = reader.readLength();
+            List<OrderMessage.Item> items = new ArrayList<>(size);
+            for (int i = 0; i < size; i++) {
+                items.add(readItem(reader));
+            }
+            message.setItems(items);
+        }
+        message.setCreateTime(has(mask, CREATE_TIME) ? reader.readLong() : null);
+        message.setUpdateTime(has(mask, UPDATE_TIME) ? reader.readLong() : null);
+        reader.endLength(end);
+        return message;
+    }
+
+    /**
+     * 金额转为分，四舍五入
+     */
+    public static long toMinorUnits(BigDecimal amount) {
+        return amount.setScale(MINOR_UNIT_SCALE, RoundingMode.HALF_UP).unscaledValue().longValueExact();
+    }
+
+    /**
+     * 分转为金额
+     */
+    public static BigDecimal fromMinorUnits(long minorUnits) {
+        return BigDecimal.valueOf(minorUnits, MINOR_UNIT_SCALE);
+    }
+
+    private static void writeItem(Writer writer, OrderMessage.Item item) {
+        int mask = (item.getProductId() != null ? ITEM_PRODUCT_ID : 0)
+                | (item.getProductName() != null ? ITEM_PRODUCT_NAME : 0)
+                | (item.getQuantity() != null ? ITEM_QUANTITY : 0)
+                | (item.getPrice() != null ? ITEM_PRICE : 0);
+        int start = writer.beginLength();
+        writer.writeVarint(mask);
+        writer.writeString(item.getProductId());
+        writer.writeString(item.getProductName());
+        if (item.getQuantity() != null) {
+            writer.writeLong(item.getQuantity().longValue());
+        }
+        writer.writeLong(item.getPrice());
+        writer.endLength(start);
+    }
+
+    private static OrderMessage.Item readItem(Reader reader) {
+        int end = reader.beginLength();
+        long mask = reader.readVarint();
+        OrderMessage.Item item = new OrderMessage.Item();
+        item.setProductId(has(mask, ITEM_PRODUCT_ID) ? reader.readString() : null);
+        item.setProductName(has(mask, ITEM_PRODUCT_NAME) ? reader.readString() : null);
+        item.setQuantity(has(mask, ITEM_QUANTITY) ? Math.toIntExact(reader.readLong()) : null);
+        item.setPrice(has(mask, ITEM_PRICE) ? reader.readLong() : null);
+        reader.endLength(end);
+        return item;
+    }
+
+    private static boolean has(long mask, int field) {
+        return (mask & field) != 0;
+    }
+
+    /**
+     * 可增长的编码缓冲区，按线程复用
+     */
+    private static final class Writer {
+
+        private byte[] buffer = new byte[256];
+
+        private int position;
+
+        void writeByte(int value) {
+            ensure(1);
+            buffer[position++] = (byte) value;
+        }
+
+        void writeVarint(long value) {
+            ensure(10);
+            while ((value & ~0x7FL) != 0) {
+                buffer[position++] = (byte) ((value & 0x7F) | 0x80);
+                value >>>= 7;
+            }
+            buffer[position++] = (byte) value;
+        }
+
+        /**
+         * 为空时不写，是否存在由字段位图表示
+         */
+        void writeLong(Long value) {
+            if (value != null) {
+                writeVarint((value << 1) ^ (value >> 63));
+            }
+        }
+
+        void writeString(String value) {
+            if (value == null) {
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            writeVarint(bytes.length);
+            ensure(bytes.length);
+            System.arraycopy(bytes, 0, buffer, position, bytes.length);
+            position += bytes.length;
+        }
+
+        /**
+         * 开始一段带长度前缀的内容
+         *
+         * @return 内容的起始位置
+         */
+        int beginLength() {
+            return position;
+        }
+
+        /**
+         * 结束一段带长度前缀的内容，把内容长度以 varint 插到起始位置
+         */
+        void endLength(int start) {
+            int length = position - start;
+            int size = varintSize(length);
+            ensure(size);
+            System.arraycopy(buffer, start, buffer, start + size, length);
+            int end = position;
+            position = start;
+            writeVarint(length);
+            position = end + size;
+        }
+
+        private static int varintSize(long value) {
+            int size = 1;
+            while ((value & ~0x7FL) != 0) {
+                value >>>= 7;
+                size++;
+            }
+            return size;
+        }
+
+        private void ensure(int length) {
+            if (position + length > buffer.length) {
+                buffer = Arrays.copyOf(buffer, Math.max(buffer.length * 2, position + length));
+            }
+        }
+    }
+
+    private static final class Reader {
+
+        private final byte[] buffer;
+
+        private int position;
+
+        // 当前长度前缀内容的结束位置
+        private int limit;
+
+        Reader(byte[] buffer) {
+            this.buffer = buffer;
+            this.limit = buffer.length;
+        }
+
+        /**
+         * 读取长度前缀，之后的读取不超过这段内容
+         *
+         * @return 外层内容的结束位置，交给 {@link #endLength(int)} 恢复
+         */
+        int beginLength() {
+            int length = readLength();
+            int outer = limit;
+            limit = position + length;
+            return outer;
+        }
+
+        /**
+         * 跳过这段内容中不认识的字段，恢复外层内容的结束位置
+         */
+        void endLength(int outer) {
+            position = limit;
+            limit = outer;
+        }
+
+        int readByte() {
+            if (position >= limit) {
+                throw truncated();
+            }
+            return buffer[position++] & 0xFF;
+        }
+
+        long readVarint() {
+            long value = 0;
+            for (int shift = 0; shift < 64; shift += 7) {
+                int b = readByte();
+                value |= (long) (b & 0x7F) << shift;
+                if ((b & 0x80) == 0) {
+                    return value;
+                }
+            }
+            throw new IllegalArgumentException("订单消息varint过长: position=" + position);
+        }
+
+        long readLong() {
+            long value = readVarint();
+            return (value >>> 1) ^ -(value & 1);
+        }
+
+        int readLength() {
+            long length = readVarint();
+            if (length > limit - position) {
+                throw truncated();
+            }
+            return (int) length;
+        }
+
+        String readString() {
+            int length = readLength();
+            String value = new String(buffer, position, length, StandardCharsets.UTF_8);
+            position += length;
+            return value;
+        }
+
+        private IllegalArgumentException truncated() {
+            return new IllegalArgumentException("订单消息不完整: length=" + buffer.length + ", position=" + position);
+        }
+    }
+}
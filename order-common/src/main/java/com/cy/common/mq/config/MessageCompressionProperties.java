@@ -0,0 +1,18 @@
+package com.cy.common.mq.config;
+
+import com.cy.common.mq.MessageCompression;
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+/**
+ * 消息解压配置属性类
+ */
+@Data
+@ConfigurationProperties(prefix = "mq.compression")
+public class MessageCompressionProperties {
+
+    /**
+     * 解压后长度上限（字节），x-original-length 声明或实际解压长度超过时不解压，消息按无法解压拒绝
+     */
+    private int maxDecompressedSize = MessageCompression.DEFAULT_MAX_DECOMPRESSED_SIZE;
+}
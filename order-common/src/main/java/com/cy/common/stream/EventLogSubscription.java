@@ -0,0 +1,32 @@
+package com.cy.common.stream;
+
+/**
+ * 事件日志订阅句柄
+ */
+public interface EventLogSubscription {
+
+    /**
+     * @return 消费者名
+     */
+    String getConsumer();
+
+    /**
+     * @return 最后处理的偏移量，尚未处理时为-1
+     */
+    long getLastOffset();
+
+    /**
+     * @return 已记录的偏移量，尚未记录时为-1
+     */
+    long getCommittedOffset();
+
+    /**
+     * @return 本次订阅处理的事件数
+     */
+    long getProcessed();
+
+    /**
+     * 取消订阅并记录偏移量
+     */
+    void cancel();
+}
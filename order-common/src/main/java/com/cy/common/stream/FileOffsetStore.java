@@ -0,0 +1,68 @@
+package com.cy.common.stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.OptionalLong;
+
+/**
+ * 本地文件偏移量存储
+ * 每个消费者一个文件 {消费者名}.offset，内容为十进制偏移量；先写临时文件再原子替换，进程崩溃时不会留下半个偏移量
+ */
+@Slf4j
+public class FileOffsetStore implements OffsetStore {
+
+    private final Path directory;
+
+    public FileOffsetStore(Path directory) {
+        this.directory = directory;
+        try {
+            Files.createDirectories(directory);
+        } catch (IOException e) {
+            throw new UncheckedIOException("创建偏移量目录失败: " + directory, e);
+        }
+    }
+
+    @Override
+    public OptionalLong load(String consumer) {
+        Path file = file(consumer);
+        try {
+            return OptionalLong.of(Long.parseLong(Files.readString(file, StandardCharsets.US_ASCII).trim()));
+        } catch (NoSuchFileException e) {
+            return OptionalLong.empty();
+        } catch (IOException | NumberFormatException e) {
+            log.error("读取消费者偏移量失败，按没有记录处理: file={}", file, e);
+            return OptionalLong.empty();
+        }
+    }
+
+    @Override
+    public void store(String consumer, long offset) {
+        Path file = file(consumer);
+        Path temp = file.resolveSibling(file.getFileName() + ".tmp");
+        try {
+            Files.writeString(temp, Long.toString(offset), StandardCharsets.US_ASCII);
+            try {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } catch (AtomicMoveNotSupportedException e) {
+                Files.move(temp, file, StandardCopyOption.REPLACE_EXISTING);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("记录消费者偏移量失败: " + file, e);
+        }
+    }
+
+    private Path file(String consumer) {
+        if (!consumer.matches("[A-Za-z0-9._-]+")) {
+            throw new IllegalArgumentException("消费者名只能包含字母、数字和 . _ -: " + consumer);
+        }
+        return directory.resolve(consumer + ".offset");
+    }
+}
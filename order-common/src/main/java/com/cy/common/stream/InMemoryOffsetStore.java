@@ -0,0 +1,24 @@
+package com.cy.common.stream;
+
+import java.util.Map;
+import java.util.OptionalLong;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 内存中的偏移量存储，用于测试和进程内事件日志
+ */
+public class InMemoryOffsetStore implements OffsetStore {
+
+    private final Map<String, Long> offsets = new ConcurrentHashMap<>();
+
+    @Override
+    public OptionalLong load(String consumer) {
+        Long offset = offsets.get(consumer);
+        return offset == null ? OptionalLong.empty() : OptionalLong.of(offset);
+    }
+
+    @Override
+    public void store(String consumer, long offset) {
+        offsets.put(consumer, offset);
+    }
+}
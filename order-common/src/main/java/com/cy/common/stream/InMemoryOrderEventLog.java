@@ -0,0 +1,274 @@
+package com.cy.common.stream;
+
+import com.cy.common.transport.DeliveryHandler;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.time.Clock;
+import java.util.Date;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内订单事件日志
+ * 与 {@link RabbitStreamOrderEventLog} 相同的偏移量语义，用于测试和不依赖broker的压测：
+ * 事件按块追加在内存中（每块 {@value #CHUNK_SIZE} 条，扩容不复制已有事件），追加加锁、读取无锁；
+ * 每个订阅一个消费线程按偏移量顺序读取。按时间点重放时二分查找第一条追加时间不早于该时间点的事件。
+ * 不做过期清理，事件全部保留在内存中
+ */
+@Slf4j
+public class InMemoryOrderEventLog implements OrderEventLog {
+
+    static final int CHUNK_SIZE = 4096;
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final long PARK_NANOS = 50_000;
+
+    private final OffsetStore offsetStore;
+
+    private final int commitEvery;
+
+    // 追加时间的来源
+    private final Clock clock;
+
+    private final Object appendLock = new Object();
+
+    private final List<LocalSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService committer;
+
+    private final AtomicInteger consumerIndex = new AtomicInteger();
+
+    private volatile Record[][] chunks = new Record[16][];
+
+    // 已追加的事件数，即下一条事件的偏移量；写入事件后再更新，读到的位置之前的事件一定完整
+    private volatile long size;
+
+    // 追加时间单调不减，按时间点查找依赖这一点
+    private long lastTimestamp;
+
+    /**
+     * @param offsetStore    偏移量存储
+     * @param commitEvery    每处理多少条记录一次偏移量
+     * @param commitInterval 定时记录偏移量的间隔（毫秒）
+     */
+    public InMemoryOrderEventLog(OffsetStore offsetStore, int commitEvery, long commitInterval) {
+        this(offsetStore, commitEvery, commitInterval, Clock.systemUTC());
+    }
+
+    /**
+     * @param offsetStore    偏移量存储
+     * @param commitEvery    每处理多少条记录一次偏移量
+     * @param commitInterval 定时记录偏移量的间隔（毫秒）
+     * @param clock          追加时间的来源
+     */
+    InMemoryOrderEventLog(OffsetStore offsetStore, int commitEvery, long commitInterval, Clock clock) {
+        this.offsetStore = offsetStore;
+        this.commitEvery = commitEvery;
+        this.clock = clock;
+        this.committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "event-log-offset-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(() -> subscriptions.forEach(subscription -> subscription.tracker.commit()),
+                commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean append(String routingKey, Message message) {
+        synchronized (appendLock) {
+            long offset = size;
+            long timestamp = Math.max(lastTimestamp, clock.millis());
+            lastTimestamp = timestamp;
+            int chunk = (int) (offset / CHUNK_SIZE);
+            Record[][] current = chunks;
+            if (chunk >= current.length) {
+                Record[][] grown = new Record[current.length * 2][];
+                System.arraycopy(current, 0, grown, 0, current.length);
+                current = grown;
+                chunks = grown;
+            }
+            if (current[chunk] == null) {
+                current[chunk] = new Record[CHUNK_SIZE];
+            }
+            current[chunk][(int) (offset % CHUNK_SIZE)] = new Record(timestamp, copyOf(message, routingKey, offset, timestamp));
+            size = offset + 1;
+            return true;
+        }
+    }
+
+    @Override
+    public EventLogSubscription subscribe(String consumer, DeliveryHandler handler) {
+        long stored = offsetStore.load(consumer).orElse(-1);
+        long start = stored >= 0 ? Math.min(stored + 1, size) : size;
+        return start(new OffsetTracker(consumer, offsetStore, commitEvery, stored), start, handler);
+    }
+
+    @Override
+    public EventLogSubscription subscribe(String consumer, OffsetSpec start, DeliveryHandler handler) {
+        long position = switch (start.getType()) {
+            case FIRST -> 0;
+            case LAST -> Math.max(0, size - 1);
+            case NEXT -> size;
+            case OFFSET -> Math.min(start.getValue(), size);
+            case TIMESTAMP -> search(start.getValue());
+        };
+        log.info("从 {} 重放进程内事件日志: consumer={}, offset={}", start, consumer, position);
+        return start(new OffsetTracker(consumer, offsetStore, commitEvery, position - 1), position, handler);
+    }
+
+    @Override
+    public void close() {
+        subscriptions.forEach(LocalSubscription::cancel);
+        committer.shutdown();
+    }
+
+    /**
+     * @return 已追加的事件数
+     */
+    public long size() {
+        return size;
+    }
+
+    private EventLogSubscription start(OffsetTracker tracker, long position, DeliveryHandler handler) {
+        LocalSubscription subscription = new LocalSubscription(tracker, position, handler,
+                "event-log-" + tracker.getConsumer() + "-" + consumerIndex.incrementAndGet());
+        subscriptions.add(subscription);
+        subscription.thread.start();
+        log.info("已订阅进程内事件日志: consumer={}, offset={}", tracker.getConsumer(), position);
+        return subscription;
+    }
+
+    /**
+     * @return 第一条追加时间不早于 timestamp 的事件的偏移量，没有时为日志末尾
+     */
+    private long search(long timestamp) {
+        long low = 0;
+        long high = size;
+        while (low < high) {
+            long middle = (low + high) >>> 1;
+            if (record(middle).timestamp < timestamp) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+
+    private Record record(long offset) {
+        return chunks[(int) (offset / CHUNK_SIZE)][(int) (offset % CHUNK_SIZE)];
+    }
+
+    private static Message copyOf(Message message, String routingKey, long offset, long timestamp) {
+        MessageProperties source = message.getMessageProperties();
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(source.getMessageId());
+        properties.setContentType(source.getContentType());
+        properties.setContentEncoding(source.getContentEncoding());
+        properties.setContentLength(message.getBody().length);
+        properties.setTimestamp(source.getTimestamp() != null ? source.getTimestamp() : new Date(timestamp));
+        source.getHeaders().forEach(properties::setHeader);
+        properties.setHeader(OFFSET_HEADER, offset);
+        properties.setReceivedRoutingKey(routingKey);
+        return new Message(message.getBody(), properties);
+    }
+
+    private record Record(long timestamp, Message message) {
+    }
+
+    private final class LocalSubscription implements EventLogSubscription {
+
+        private final OffsetTracker tracker;
+
+        private final DeliveryHandler handler;
+
+        private final Thread thread;
+
+        private volatile boolean running = true;
+
+        // 下一条要读取的偏移量，只在消费线程中修改
+        private long position;
+
+        private LocalSubscription(OffsetTracker tracker, long position, DeliveryHandler handler, String threadName) {
+            this.tracker = tracker;
+            this.position = position;
+            this.handler = handler;
+            this.thread = new Thread(this::run, threadName);
+            this.thread.setDaemon(true);
+        }
+
+        @Override
+        public String getConsumer() {
+            return tracker.getConsumer();
+        }
+
+        @Override
+        public long getLastOffset() {
+            return tracker.getLastOffset();
+        }
+
+        @Override
+        public long getCommittedOffset() {
+            return tracker.getCommittedOffset();
+        }
+
+        @Override
+        public long getProcessed() {
+            return tracker.getProcessed();
+        }
+
+        @Override
+        public void cancel() {
+            running = false;
+            subscriptions.remove(this);
+            if (Thread.currentThread() != thread) {
+                LockSupport.unpark(thread);
+                try {
+                    thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+            tracker.commit();
+        }
+
+        private void run() {
+            int idle = 0;
+            while (running) {
+                if (position >= size) {
+                    if (++idle <= SPIN_TRIES) {
+                        Thread.onSpinWait();
+                    } else {
+                        LockSupport.parkNanos(this, PARK_NANOS);
+                    }
+                    continue;
+                }
+                idle = 0;
+                long offset = position++;
+                if (!tracker.isNew(offset)) {
+                    tracker.skip();
+                    continue;
+                }
+                StreamDelivery delivery = new StreamDelivery(record(offset).message, offset, tracker);
+                try {
+                    handler.onDelivery(delivery);
+                } catch (RuntimeException e) {
+                    log.error("事件日志消息处理异常，已跳过: consumer={}, offset={}", tracker.getConsumer(), offset, e);
+                }
+                if (!delivery.isSettled()) {
+                    // 未确认也未拒绝，视为处理完成，流不会重新投递
+                    tracker.processed(offset);
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,88 @@
+package com.cy.common.stream;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * 消费的起始位置
+ */
+public final class OffsetSpec {
+
+    enum Type {
+        // 最早一条仍保留的事件
+        FIRST,
+        // 最后一个块（RabbitMQ）或最后一条事件（进程内）
+        LAST,
+        // 订阅之后的新事件
+        NEXT,
+        // 指定偏移量
+        OFFSET,
+        // 指定时间点之后写入的事件
+        TIMESTAMP
+    }
+
+    private final Type type;
+
+    private final long value;
+
+    private OffsetSpec(Type type, long value) {
+        this.type = type;
+        this.value = value;
+    }
+
+    public static OffsetSpec first() {
+        return new OffsetSpec(Type.FIRST, 0);
+    }
+
+    public static OffsetSpec last() {
+        return new OffsetSpec(Type.LAST, 0);
+    }
+
+    public static OffsetSpec next() {
+        return new OffsetSpec(Type.NEXT, 0);
+    }
+
+    public static OffsetSpec offset(long offset) {
+        if (offset < 0) {
+            throw new IllegalArgumentException("偏移量不能小于0: " + offset);
+        }
+        return new OffsetSpec(Type.OFFSET, offset);
+    }
+
+    public static OffsetSpec timestamp(Instant timestamp) {
+        return new OffsetSpec(Type.TIMESTAMP, timestamp.toEpochMilli());
+    }
+
+    Type getType() {
+        return type;
+    }
+
+    /**
+     * @return 偏移量，或时间点的epoch毫秒
+     */
+    long getValue() {
+        return value;
+    }
+
+    /**
+     * @return 作为 RabbitMQ 消费参数 x-stream-offset 的值，时间点为AMQP timestamp（秒级）
+     */
+    Object toStreamArgument() {
+        return switch (type) {
+            case FIRST -> "first";
+            case LAST -> "last";
+            case NEXT -> "next";
+            case OFFSET -> value;
+            case TIMESTAMP -> new Date(value);
+        };
+    }
+
+    @Override
+    public String toString() {
+        return switch (type) {
+            case OFFSET -> "offset:" + value;
+            case TIMESTAMP -> "timestamp:" + Instant.ofEpochMilli(value);
+            default -> type.name().toLowerCase();
+        };
+    }
+}
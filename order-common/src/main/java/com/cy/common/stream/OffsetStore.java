@@ -0,0 +1,23 @@
+package com.cy.common.stream;
+
+import java.util.OptionalLong;
+
+/**
+ * 消费者偏移量存储
+ */
+public interface OffsetStore {
+
+    /**
+     * @param consumer 消费者名
+     * @return 已处理的最后一条偏移量
+     */
+    OptionalLong load(String consumer);
+
+    /**
+     * 记录已处理的最后一条偏移量
+     *
+     * @param consumer 消费者名
+     * @param offset   偏移量
+     */
+    void store(String consumer, long offset);
+}
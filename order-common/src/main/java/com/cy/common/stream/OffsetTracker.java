@@ -0,0 +1,110 @@
+package com.cy.common.stream;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 一个订阅的偏移量跟踪
+ * 消费线程逐条标记已处理的偏移量，偏移量不大于已处理位置的重复投递被跳过；
+ * 每处理 commitEvery 条，以及后台定时、取消订阅时记录一次偏移量，重启后最多重复投递最后一次记录之后的事件
+ */
+@Slf4j
+class OffsetTracker {
+
+    private final String consumer;
+
+    private final OffsetStore store;
+
+    private final int commitEvery;
+
+    private final LongAdder processed = new LongAdder();
+
+    private final LongAdder skipped = new LongAdder();
+
+    private volatile long lastOffset;
+
+    private volatile long committedOffset;
+
+    // 只在消费线程中修改
+    private int sinceCommit;
+
+    /**
+     * @param consumer    消费者名
+     * @param store       偏移量存储
+     * @param commitEvery 每处理多少条记录一次偏移量
+     * @param lastOffset  已处理的最后一条偏移量，从头开始时为-1
+     */
+    OffsetTracker(String consumer, OffsetStore store, int commitEvery, long lastOffset) {
+        this.consumer = consumer;
+        this.store = store;
+        this.commitEvery = Math.max(1, commitEvery);
+        this.lastOffset = lastOffset;
+        this.committedOffset = lastOffset;
+    }
+
+    String getConsumer() {
+        return consumer;
+    }
+
+    long getLastOffset() {
+        return lastOffset;
+    }
+
+    long getCommittedOffset() {
+        return committedOffset;
+    }
+
+    long getProcessed() {
+        return processed.sum();
+    }
+
+    long getSkipped() {
+        return skipped.sum();
+    }
+
+    /**
+     * @return 该偏移量是否尚未处理
+     */
+    boolean isNew(long offset) {
+        return offset > lastOffset;
+    }
+
+    /**
+     * 记录被跳过的事件（重复投递或早于重放时间点）
+     */
+    void skip() {
+        skipped.increment();
+    }
+
+    /**
+     * 标记偏移量已处理
+     */
+    void processed(long offset) {
+        if (offset <= lastOffset) {
+            return;
+        }
+        lastOffset = offset;
+        processed.increment();
+        if (++sinceCommit >= commitEvery) {
+            sinceCommit = 0;
+            commit();
+        }
+    }
+
+    /**
+     * 记录偏移量，没有新处理的事件时不写存储
+     */
+    synchronized void commit() {
+        long offset = lastOffset;
+        if (offset <= committedOffset) {
+            return;
+        }
+        try {
+            store.store(consumer, offset);
+            committedOffset = offset;
+        } catch (RuntimeException e) {
+            log.error("记录消费者偏移量失败: consumer={}, offset={}", consumer, offset, e);
+        }
+    }
+}
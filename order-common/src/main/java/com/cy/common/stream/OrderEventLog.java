@@ -0,0 +1,54 @@
+package com.cy.common.stream;
+
+import com.cy.common.transport.DeliveryHandler;
+import org.springframework.amqp.core.Message;
+
+/**
+ * 订单事件日志
+ * 只追加的订单事件流，每条事件有单调递增的偏移量，消费后不删除，按保留策略过期：
+ * 统计服务可以从头重放重建聚合，新加入的消费者可以回填历史事件。
+ * 每个消费者按名称记录已处理的偏移量，重启后从下一条继续；也可以从指定偏移量或时间点重放。
+ * 投递给处理器的消息带 {@value #OFFSET_HEADER} 头，确认（ack）后偏移量才计为已处理；
+ * 流中的消息不能重新入队，拒绝的消息记录后跳过
+ */
+public interface OrderEventLog extends AutoCloseable {
+
+    /**
+     * 偏移量头，值为long
+     */
+    String OFFSET_HEADER = "x-stream-offset";
+
+    /**
+     * 追加一条事件
+     *
+     * @param routingKey 路由键
+     * @param message    消息
+     * @return 是否已被接收
+     */
+    boolean append(String routingKey, Message message);
+
+    /**
+     * 从该消费者记录的偏移量的下一条继续消费，没有记录时只消费订阅之后的新事件
+     *
+     * @param consumer 消费者名，偏移量按消费者名记录
+     * @param handler  消息处理器
+     * @return 订阅句柄
+     */
+    EventLogSubscription subscribe(String consumer, DeliveryHandler handler);
+
+    /**
+     * 从指定位置开始消费（重放），忽略已记录的偏移量，之后处理的偏移量照常记录
+     *
+     * @param consumer 消费者名
+     * @param start    起始位置
+     * @param handler  消息处理器
+     * @return 订阅句柄
+     */
+    EventLogSubscription subscribe(String consumer, OffsetSpec start, DeliveryHandler handler);
+
+    /**
+     * 取消全部订阅，记录各消费者的偏移量
+     */
+    @Override
+    void close();
+}
@@ -0,0 +1,109 @@
+package com.cy.common.stream;
+
+import com.cy.common.transport.DeliveryHandler;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Instant;
+
+/**
+ * 按偏移量消费订单事件日志的消费者
+ * 启动时从记录的偏移量继续；重放时取消当前订阅，从指定位置重新订阅，之后的偏移量照常记录。
+ * 处理器需要能容忍重放带来的重复事件
+ */
+@Slf4j
+public class OrderEventStreamConsumer {
+
+    private final OrderEventLog eventLog;
+
+    private final String consumer;
+
+    private final DeliveryHandler handler;
+
+    private EventLogSubscription subscription;
+
+    // 最近一次重放的起始位置，未重放过时为null
+    private OffsetSpec replayedFrom;
+
+    /**
+     * @param eventLog 订单事件日志
+     * @param consumer 消费者名，偏移量按消费者名记录
+     * @param handler  消息处理器
+     */
+    public OrderEventStreamConsumer(OrderEventLog eventLog, String consumer, DeliveryHandler handler) {
+        this.eventLog = eventLog;
+        this.consumer = consumer;
+        this.handler = handler;
+    }
+
+    /**
+     * 从记录的偏移量继续消费
+     */
+    public synchronized void start() {
+        if (subscription == null) {
+            subscription = eventLog.subscribe(consumer, handler);
+        }
+    }
+
+    /**
+     * 从指定时间点重放
+     *
+     * @param from 起始时间
+     */
+    public void replayFrom(Instant from) {
+        replay(OffsetSpec.timestamp(from));
+    }
+
+    /**
+     * 从指定位置重放
+     *
+     * @param start 起始位置
+     */
+    public synchronized void replay(OffsetSpec start) {
+        stop();
+        log.info("重放订单事件流: consumer={}, from={}", consumer, start);
+        subscription = eventLog.subscribe(consumer, start, handler);
+        replayedFrom = start;
+    }
+
+    /**
+     * 取消订阅并记录偏移量
+     */
+    public synchronized void stop() {
+        if (subscription != null) {
+            subscription.cancel();
+            subscription = null;
+        }
+    }
+
+    public synchronized StreamConsumerStats getStats() {
+        if (subscription == null) {
+            return new StreamConsumerStats(consumer, false, -1, -1, 0, replayedFrom == null ? null : replayedFrom.toString());
+        }
+        return new StreamConsumerStats(consumer, true, subscription.getLastOffset(), subscription.getCommittedOffset(),
+                subscription.getProcessed(), replayedFrom == null ? null : replayedFrom.toString());
+    }
+
+    /**
+     * 事件流消费统计
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class StreamConsumerStats {
+        // 消费者名
+        private String consumer;
+        // 是否正在消费
+        private boolean running;
+        // 最后处理的偏移量
+        private long lastOffset;
+        // 已记录的偏移量
+        private long committedOffset;
+        // 本次订阅处理的事件数
+        private long processed;
+        // 最近一次重放的起始位置
+        private String replayedFrom;
+    }
+}
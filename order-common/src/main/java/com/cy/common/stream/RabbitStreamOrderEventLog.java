@@ -0,0 +1,237 @@
+package com.cy.common.stream;
+
+import com.cy.common.transport.DeliveryHandler;
+import com.cy.common.transport.RabbitOrderEventTransport;
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+
+import java.io.IOException;
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * 基于 RabbitMQ 流队列（x-queue-type=stream）的订单事件日志
+ * 通过 AMQP 0.9.1 消费流队列：消费参数 x-stream-offset 指定起始位置，每条消息带 x-stream-offset 偏移量头。
+ * broker 不为 AMQP 0.9.1 消费者保存偏移量，由 {@link OffsetStore} 在本地记录；
+ * 连接恢复重建消费者时从最后处理的偏移量的下一条继续，重复投递按偏移量跳过。
+ * 流队列要求手动确认和 prefetch，确认只用于补充信用，每处理半个 prefetch 批量确认一次。
+ * 按时间点重放时 broker 从包含该时间点的块开始投递，早于该时间点的消息按消息时间戳跳过。
+ * 流队列由订单服务声明并绑定到订单事件交换机，订单事件发布时同时写入流
+ */
+@Slf4j
+public class RabbitStreamOrderEventLog implements OrderEventLog {
+
+    private final String stream;
+
+    private final String exchange;
+
+    private final SimpleRabbitListenerContainerFactory containerFactory;
+
+    private final RabbitOrderEventTransport.Sender sender;
+
+    private final OffsetStore offsetStore;
+
+    private final int prefetch;
+
+    private final int commitEvery;
+
+    private final List<StreamSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final ScheduledExecutorService committer;
+
+    /**
+     * @param stream           流队列
+     * @param exchange         追加事件时发布到的交换机，流队列绑定在该交换机上
+     * @param containerFactory 监听容器工厂
+     * @param sender           消息发送方式
+     * @param offsetStore      偏移量存储
+     * @param prefetch         每个消费者未确认的消息上限
+     * @param commitEvery      每处理多少条记录一次偏移量
+     * @param commitInterval   定时记录偏移量的间隔（毫秒）
+     */
+    public RabbitStreamOrderEventLog(String stream,
+                                     String exchange,
+                                     SimpleRabbitListenerContainerFactory containerFactory,
+                                     RabbitOrderEventTransport.Sender sender,
+                                     OffsetStore offsetStore,
+                                     int prefetch,
+                                     int commitEvery,
+                                     long commitInterval) {
+        this.stream = stream;
+        this.exchange = exchange;
+        this.containerFactory = containerFactory;
+        this.sender = sender;
+        this.offsetStore = offsetStore;
+        this.prefetch = Math.max(1, prefetch);
+        this.commitEvery = commitEvery;
+        this.committer = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "stream-offset-committer");
+            thread.setDaemon(true);
+            return thread;
+        });
+        committer.scheduleWithFixedDelay(() -> subscriptions.forEach(StreamSubscription::commit),
+                commitInterval, commitInterval, TimeUnit.MILLISECONDS);
+    }
+
+    @Override
+    public boolean append(String routingKey, Message message) {
+        return sender.send(exchange, routingKey, message);
+    }
+
+    @Override
+    public EventLogSubscription subscribe(String consumer, DeliveryHandler handler) {
+        long stored = offsetStore.load(consumer).orElse(-1);
+        OffsetSpec start = stored >= 0 ? OffsetSpec.offset(stored + 1) : OffsetSpec.next();
+        log.info("订阅事件流: stream={}, consumer={}, storedOffset={}, start={}", stream, consumer, stored, start);
+        return start(new OffsetTracker(consumer, offsetStore, commitEvery, stored), start, handler);
+    }
+
+    @Override
+    public EventLogSubscription subscribe(String consumer, OffsetSpec start, DeliveryHandler handler) {
+        log.info("从 {} 重放事件流: stream={}, consumer={}", start, stream, consumer);
+        long lastOffset = start.getType() == OffsetSpec.Type.OFFSET ? start.getValue() - 1 : -1;
+        return start(new OffsetTracker(consumer, offsetStore, commitEvery, lastOffset), start, handler);
+    }
+
+    @Override
+    public void close() {
+        subscriptions.forEach(StreamSubscription::cancel);
+        committer.shutdown();
+    }
+
+    private EventLogSubscription start(OffsetTracker tracker, OffsetSpec start, DeliveryHandler handler) {
+        SimpleMessageListenerContainer container = containerFactory.createListenerContainer();
+        container.setQueueNames(stream);
+        container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        container.setPrefetchCount(prefetch);
+        // 流按偏移量顺序消费，每个订阅只有一个消费者
+        container.setConcurrentConsumers(1);
+        container.setMaxConcurrentConsumers(1);
+        container.setConsumerArguments(Map.of(OFFSET_HEADER, start.toStreamArgument()));
+        StreamSubscription subscription = new StreamSubscription(tracker, container,
+                start.getType() == OffsetSpec.Type.TIMESTAMP ? start.getValue() : 0, handler);
+        container.setMessageListener(subscription);
+        container.afterPropertiesSet();
+        subscriptions.add(subscription);
+        container.start();
+        return subscription;
+    }
+
+    private final class StreamSubscription implements EventLogSubscription, ChannelAwareMessageListener {
+
+        private final OffsetTracker tracker;
+
+        private final SimpleMessageListenerContainer container;
+
+        // 按时间点重放时，早于该时间（epoch毫秒）的消息跳过
+        private final long notBefore;
+
+        private final DeliveryHandler handler;
+
+        private final int ackEvery = Math.max(1, prefetch / 2);
+
+        // 尚未确认的消息数，只在消费线程中访问
+        private int unacked;
+
+        private StreamSubscription(OffsetTracker tracker, SimpleMessageListenerContainer container, long notBefore,
+                                   DeliveryHandler handler) {
+            this.tracker = tracker;
+            this.container = container;
+            this.notBefore = notBefore;
+            this.handler = handler;
+        }
+
+        @Override
+        public void onMessage(Message message, Channel channel) throws IOException {
+            Object header = message.getMessageProperties().getHeader(OFFSET_HEADER);
+            if (!(header instanceof Number number)) {
+                log.error("事件流消息缺少偏移量头，已跳过: stream={}, messageId={}", stream,
+                        message.getMessageProperties().getMessageId());
+                credit(message, channel);
+                return;
+            }
+            long offset = number.longValue();
+            if (!tracker.isNew(offset) || before(message)) {
+                tracker.skip();
+                credit(message, channel);
+                return;
+            }
+            StreamDelivery delivery = new StreamDelivery(message, offset, tracker);
+            try {
+                handler.onDelivery(delivery);
+            } catch (RuntimeException e) {
+                log.error("事件流消息处理异常，已跳过: stream={}, consumer={}, offset={}", stream, tracker.getConsumer(), offset, e);
+            }
+            if (!delivery.isSettled()) {
+                tracker.processed(offset);
+            }
+            credit(message, channel);
+        }
+
+        private boolean before(Message message) {
+            Date timestamp = message.getMessageProperties().getTimestamp();
+            return notBefore > 0 && timestamp != null && timestamp.getTime() < notBefore;
+        }
+
+        /**
+         * 流队列的确认只补充信用，批量确认减少往返
+         */
+        private void credit(Message message, Channel channel) throws IOException {
+            if (++unacked >= ackEvery) {
+                channel.basicAck(message.getMessageProperties().getDeliveryTag(), true);
+                unacked = 0;
+            }
+        }
+
+        /**
+         * 记录偏移量，并把消费参数推进到下一条，连接恢复重建消费者时从这里继续
+         */
+        void commit() {
+            tracker.commit();
+            long lastOffset = tracker.getLastOffset();
+            if (lastOffset >= 0) {
+                container.setConsumerArguments(Map.of(OFFSET_HEADER, lastOffset + 1));
+            }
+        }
+
+        @Override
+        public String getConsumer() {
+            return tracker.getConsumer();
+        }
+
+        @Override
+        public long getLastOffset() {
+            return tracker.getLastOffset();
+        }
+
+        @Override
+        public long getCommittedOffset() {
+            return tracker.getCommittedOffset();
+        }
+
+        @Override
+        public long getProcessed() {
+            return tracker.getProcessed();
+        }
+
+        @Override
+        public void cancel() {
+            subscriptions.remove(this);
+            container.stop();
+            container.destroy();
+            tracker.commit();
+            log.info("已取消事件流订阅: stream={}, consumer={}, offset={}", stream, tracker.getConsumer(),
+                    tracker.getCommittedOffset());
+        }
+    }
+}
@@ -0,0 +1,56 @@
+package com.cy.common.stream;
+
+import com.cy.common.transport.Delivery;
+import com.cy.common.transport.DeliveryHandler;
+import com.cy.common.transport.TopicPattern;
+
+import java.util.List;
+
+/**
+ * 按路由键筛选事件的消息处理器
+ * 事件流以 order.# 绑定，包含所有订单事件；各服务只处理与自己通知队列绑定相同的那部分，
+ * 路由键不匹配任何模式的事件直接确认跳过，偏移量照常推进
+ */
+public class RoutingKeyFilter implements DeliveryHandler {
+
+    private final List<TopicPattern> patterns;
+
+    private final DeliveryHandler delegate;
+
+    /**
+     * @param patterns 绑定模式，为空时不筛选
+     * @param delegate 处理匹配事件的处理器
+     */
+    public RoutingKeyFilter(List<String> patterns, DeliveryHandler delegate) {
+        this.patterns = patterns.stream().map(TopicPattern::compile).toList();
+        this.delegate = delegate;
+    }
+
+    @Override
+    public void onDelivery(Delivery delivery) {
+        if (matches(delivery.getMessage().getMessageProperties().getReceivedRoutingKey())) {
+            delegate.onDelivery(delivery);
+        } else {
+            delivery.ack();
+        }
+    }
+
+    /**
+     * @param routingKey 路由键
+     * @return 是否需要处理
+     */
+    boolean matches(String routingKey) {
+        if (patterns.isEmpty()) {
+            return true;
+        }
+        if (routingKey == null) {
+            return false;
+        }
+        for (TopicPattern pattern : patterns) {
+            if (pattern.matches(routingKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
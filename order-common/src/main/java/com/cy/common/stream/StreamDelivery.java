@@ -0,0 +1,58 @@
+package com.cy.common.stream;
+
+import com.cy.common.transport.Delivery;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+
+/**
+ * 事件日志中投递的一条事件
+ * 确认时标记偏移量已处理；流中的消息不能重新入队，拒绝时记录后同样跳过，避免一条坏消息阻塞整个流。
+ * 偏移量按顺序推进，须在消费线程中确认
+ */
+@Slf4j
+class StreamDelivery implements Delivery {
+
+    private final Message message;
+
+    private final long offset;
+
+    private final OffsetTracker tracker;
+
+    private boolean settled;
+
+    StreamDelivery(Message message, long offset, OffsetTracker tracker) {
+        this.message = message;
+        this.offset = offset;
+        this.tracker = tracker;
+    }
+
+    @Override
+    public Message getMessage() {
+        return message;
+    }
+
+    @Override
+    public void ack() {
+        settle();
+        tracker.processed(offset);
+    }
+
+    @Override
+    public void reject(boolean requeue) {
+        settle();
+        log.warn("事件日志中的消息被拒绝，已跳过: consumer={}, offset={}, messageId={}, requeue={}",
+                tracker.getConsumer(), offset, message.getMessageProperties().getMessageId(), requeue);
+        tracker.processed(offset);
+    }
+
+    boolean isSettled() {
+        return settled;
+    }
+
+    private void settle() {
+        if (settled) {
+            throw new IllegalStateException("消息已确认或拒绝: offset=" + offset);
+        }
+        settled = true;
+    }
+}
@@ -0,0 +1,56 @@
+package com.cy.common.stream.config;
+
+import com.cy.common.mq.OrderEventConsumer;
+import com.cy.common.mq.OrderEventProcessor;
+import com.cy.common.stream.FileOffsetStore;
+import com.cy.common.stream.OrderEventLog;
+import com.cy.common.stream.OrderEventStreamConsumer;
+import com.cy.common.stream.RabbitStreamOrderEventLog;
+import com.cy.common.stream.RoutingKeyFilter;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.context.properties.EnableConfigurationProperties;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Import;
+
+import java.nio.file.Path;
+
+/**
+ * 订单事件流消费配置，统计、CRM服务通过 @Import 引入
+ * 开启后服务改为按偏移量消费订单事件流，代替通知队列的订阅（服务的通知队列订阅须以 mq.stream.enabled=false 为条件），
+ * 每个事件只处理一次；只处理路由键匹配 binding-keys 的事件。偏移量记录在本地文件中，重启后从下一条继续；
+ * 可以通过 {@link StreamController} 从指定时间点重放
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mq.stream", name = "enabled", havingValue = "true")
+@EnableConfigurationProperties(StreamConsumerProperties.class)
+@Import(StreamController.class)
+public class OrderEventStreamConfig {
+
+    @Bean(destroyMethod = "close")
+    public OrderEventLog orderEventLog(StreamConsumerProperties properties,
+                                       SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory,
+                                       RabbitTemplate rabbitTemplate) {
+        return new RabbitStreamOrderEventLog(properties.getName(), properties.getExchange(), rabbitListenerContainerFactory,
+                (exchange, routingKey, message) -> {
+                    rabbitTemplate.send(exchange, routingKey, message);
+                    return true;
+                },
+                new FileOffsetStore(Path.of(properties.getOffsetDirectory())),
+                properties.getPrefetch(), properties.getCommitEvery(), properties.getCommitInterval());
+    }
+
+    @Bean(initMethod = "start", destroyMethod = "stop")
+    public OrderEventStreamConsumer orderEventStreamConsumer(OrderEventLog orderEventLog,
+                                                             StreamConsumerProperties properties,
+                                                             OrderEventProcessor processor) {
+        if (properties.getConsumerName() == null || properties.getConsumerName().isBlank()) {
+            throw new IllegalStateException("未配置事件流消费者名 mq.stream.consumer-name");
+        }
+        return new OrderEventStreamConsumer(orderEventLog, properties.getConsumerName(),
+                new RoutingKeyFilter(properties.getBindingKeys(),
+                        new OrderEventConsumer(properties.getConsumerName() + "事件流", processor)));
+    }
+}
@@ -0,0 +1,60 @@
+package com.cy.common.stream.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * 订单事件流消费配置属性类
+ */
+@Data
+@ConfigurationProperties(prefix = "mq.stream")
+public class StreamConsumerProperties {
+
+    /**
+     * 是否消费订单事件流，流队列由订单服务声明；开启后不再订阅本服务的通知队列
+     */
+    private boolean enabled = false;
+
+    /**
+     * 流队列名
+     */
+    private String name = "order.event.stream";
+
+    /**
+     * 流队列绑定的订单事件交换机
+     */
+    private String exchange = "order.event.exchange";
+
+    /**
+     * 消费者名，偏移量按消费者名记录，各服务必须不同
+     */
+    private String consumerName;
+
+    /**
+     * 只处理路由键匹配这些模式的事件，与本服务在订单服务 mq.routing.bindings 中的绑定一致；为空时处理全部事件
+     */
+    private List<String> bindingKeys = new ArrayList<>();
+
+    /**
+     * 偏移量文件目录
+     */
+    private String offsetDirectory = "data/stream-offsets";
+
+    /**
+     * 未确认消息上限，流队列要求设置prefetch
+     */
+    private int prefetch = 1000;
+
+    /**
+     * 每处理多少条记录一次偏移量
+     */
+    private int commitEvery = 1000;
+
+    /**
+     * 定时记录偏移量的间隔（毫秒）
+     */
+    private long commitInterval = 1000;
+}
@@ -0,0 +1,48 @@
+package com.cy.common.stream.config;
+
+import com.cy.common.stream.OrderEventStreamConsumer;
+import lombok.RequiredArgsConstructor;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.time.Instant;
+
+/**
+ * 订单事件流消费控制器
+ * 查看本服务的事件流消费进度，从指定时间点重放；由 {@link OrderEventStreamConfig} 引入
+ */
+@RestController
+@RequestMapping("/api/stream")
+@RequiredArgsConstructor
+public class StreamController {
+
+    private final OrderEventStreamConsumer orderEventStreamConsumer;
+
+    /**
+     * 获取事件流消费进度
+     *
+     * @return 最后处理、已记录的偏移量和处理数
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<OrderEventStreamConsumer.StreamConsumerStats> getStats() {
+        return ResponseEntity.ok(orderEventStreamConsumer.getStats());
+    }
+
+    /**
+     * 从指定时间点重放
+     *
+     * @param from 起始时间，如 2024-05-01T00:00:00Z
+     * @return 重放后的消费进度
+     */
+    @PostMapping("/replay")
+    public ResponseEntity<OrderEventStreamConsumer.StreamConsumerStats> replay(
+            @RequestParam @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) Instant from) {
+        orderEventStreamConsumer.replayFrom(from);
+        return ResponseEntity.ok(orderEventStreamConsumer.getStats());
+    }
+}
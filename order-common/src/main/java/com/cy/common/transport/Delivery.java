@@ -0,0 +1,27 @@
+package com.cy.common.transport;
+
+import org.springframework.amqp.core.Message;
+
+/**
+ * 投递给消费者的一条消息
+ * 每条消息必须且只能确认或拒绝一次，重复确认抛出 IllegalStateException（RabbitMQ 下为信道异常）
+ */
+public interface Delivery {
+
+    /**
+     * @return 消息，receivedExchange、receivedRoutingKey、deliveryTag、redelivered 等属性已填充
+     */
+    Message getMessage();
+
+    /**
+     * 确认消息已处理
+     */
+    void ack();
+
+    /**
+     * 拒绝消息
+     *
+     * @param requeue 是否重新入队；false 时消息被丢弃（RabbitMQ 下配置了死信交换机时进入死信队列）
+     */
+    void reject(boolean requeue);
+}
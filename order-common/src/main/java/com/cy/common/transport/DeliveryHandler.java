@@ -0,0 +1,16 @@
+package com.cy.common.transport;
+
+/**
+ * 消息处理器
+ * 处理器抛出异常且消息未确认时，消息重新入队
+ */
+@FunctionalInterface
+public interface DeliveryHandler {
+
+    /**
+     * 处理一条消息
+     *
+     * @param delivery 投递的消息
+     */
+    void onDelivery(Delivery delivery);
+}
@@ -0,0 +1,476 @@
+package com.cy.common.transport;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 进程内订单事件传输
+ * 在同一JVM内实现主题交换机、队列和逐条确认的语义，不依赖broker：
+ * <ul>
+ *     <li>每个队列是一个有界无锁环形队列，发布时按绑定路由到全部匹配的队列，
+ *     任一队列已满时返回false，与 RabbitMQ 队列 x-overflow=reject-publish 时的 nack 一致</li>
+ *     <li>每个订阅一个投递线程，未确认的消息达到 prefetch 时暂停投递</li>
+ *     <li>拒绝并重新入队的消息优先于新消息再次投递，redelivered 标记为true</li>
+ * </ul>
+ * 同一条消息路由到多个队列时共享消息体，各队列的消息属性相互独立，消费者不应修改消息体
+ */
+@Slf4j
+public class InProcessOrderEventTransport implements OrderEventTransport {
+
+    /**
+     * 路由结果缓存上限，路由键超过该数量时清空重建
+     */
+    private static final int MAX_ROUTE_CACHE = 10000;
+
+    private static final int SPIN_TRIES = 100;
+
+    private static final int YIELD_TRIES = 100;
+
+    private static final long PARK_NANOS = 50_000;
+
+    private final int queueCapacity;
+
+    private final int prefetch;
+
+    private final Map<String, LocalExchange> exchanges = new ConcurrentHashMap<>();
+
+    private final Map<String, LocalQueue> queues = new ConcurrentHashMap<>();
+
+    private final List<LocalSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    private final AtomicInteger consumerIndex = new AtomicInteger();
+
+    private final LongAdder published = new LongAdder();
+
+    private final LongAdder unroutable = new LongAdder();
+
+    private final LongAdder rejectedPublishes = new LongAdder();
+
+    private volatile boolean closed;
+
+    /**
+     * @param queueCapacity 每个队列的容量，向上取整为2的幂
+     * @param prefetch      每个订阅最多未确认的消息数
+     */
+    public InProcessOrderEventTransport(int queueCapacity, int prefetch) {
+        if (queueCapacity <= 0 || prefetch <= 0) {
+            throw new IllegalArgumentException("queueCapacity和prefetch必须大于0");
+        }
+        this.queueCapacity = queueCapacity;
+        this.prefetch = prefetch;
+    }
+
+    @Override
+    public void declareExchange(String exchange) {
+        exchanges.computeIfAbsent(exchange, LocalExchange::new);
+    }
+
+    @Override
+    public void declareQueue(String queue) {
+        queues.computeIfAbsent(queue, name -> new LocalQueue(name, queueCapacity));
+    }
+
+    @Override
+    public void bind(String queue, String exchange, String pattern) {
+        requireExchange(exchange).bind(requireQueue(queue), TopicPattern.compile(pattern));
+    }
+
+    @Override
+    public boolean publish(String exchange, String routingKey, Message message) {
+        if (closed) {
+            throw new IllegalStateException("进程内传输已关闭");
+        }
+        List<LocalQueue> targets = requireExchange(exchange).route(routingKey);
+        published.increment();
+        if (targets.isEmpty()) {
+            unroutable.increment();
+            return false;
+        }
+        boolean accepted = true;
+        for (LocalQueue queue : targets) {
+            if (!queue.ready.offer(new Envelope(copyOf(message, exchange, routingKey, queue.name)))) {
+                queue.rejectedPublishes.increment();
+                accepted = false;
+            }
+        }
+        if (!accepted) {
+            rejectedPublishes.increment();
+        }
+        return accepted;
+    }
+
+    @Override
+    public Subscription subscribe(String queue, DeliveryHandler handler) {
+        if (closed) {
+            throw new IllegalStateException("进程内传输已关闭");
+        }
+        LocalSubscription subscription = new LocalSubscription(requireQueue(queue), handler,
+                "inproc-" + queue + "-" + consumerIndex.incrementAndGet());
+        subscriptions.add(subscription);
+        subscription.start();
+        return subscription;
+    }
+
+    @Override
+    public void close() {
+        closed = true;
+        subscriptions.forEach(LocalSubscription::cancel);
+        subscriptions.clear();
+    }
+
+    /**
+     * 获取传输统计信息
+     *
+     * @return 传输统计信息
+     */
+    public TransportStats getStats() {
+        Map<String, QueueStats> queueStats = new LinkedHashMap<>();
+        queues.forEach((name, queue) -> queueStats.put(name, queue.stats()));
+        return new TransportStats(published.sum(), unroutable.sum(), rejectedPublishes.sum(), queueStats);
+    }
+
+    private LocalExchange requireExchange(String exchange) {
+        LocalExchange localExchange = exchanges.get(exchange);
+        if (localExchange == null) {
+            throw new IllegalArgumentException("交换机不存在: " + exchange);
+        }
+        return localExchange;
+    }
+
+    private LocalQueue requireQueue(String queue) {
+        LocalQueue localQueue = queues.get(queue);
+        if (localQueue == null) {
+            throw new IllegalArgumentException("队列不存在: " + queue);
+        }
+        return localQueue;
+    }
+
+    /**
+     * 每个队列一份独立的消息属性，消息体共享
+     */
+    private static Message copyOf(Message message, String exchange, String routingKey, String queue) {
+        MessageProperties source = message.getMessageProperties();
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(source.getMessageId());
+        properties.setContentType(source.getContentType());
+        properties.setContentEncoding(source.getContentEncoding());
+        properties.setContentLength(message.getBody().length);
+        properties.setCorrelationId(source.getCorrelationId());
+        properties.setTimestamp(source.getTimestamp());
+        source.getHeaders().forEach(properties::setHeader);
+        properties.setReceivedExchange(exchange);
+        properties.setReceivedRoutingKey(routingKey);
+        properties.setConsumerQueue(queue);
+        return new Message(message.getBody(), properties);
+    }
+
+    /**
+     * 主题交换机，路由结果按路由键缓存，绑定变化时清空
+     */
+    private static final class LocalExchange {
+
+        private final String name;
+
+        private final List<LocalBinding> bindings = new CopyOnWriteArrayList<>();
+
+        private final Map<String, List<LocalQueue>> routes = new ConcurrentHashMap<>();
+
+        private LocalExchange(String name) {
+            this.name = name;
+        }
+
+        void bind(LocalQueue queue, TopicPattern pattern) {
+            boolean exists = bindings.stream().anyMatch(binding ->
+                    binding.queue == queue && binding.pattern.getPattern().equals(pattern.getPattern()));
+            if (!exists) {
+                bindings.add(new LocalBinding(queue, pattern));
+                routes.clear();
+            }
+        }
+
+        List<LocalQueue> route(String routingKey) {
+            List<LocalQueue> targets = routes.get(routingKey);
+            if (targets != null) {
+                return targets;
+            }
+            List<LocalQueue> matched = new ArrayList<>();
+            for (LocalBinding binding : bindings) {
+                // 一个队列有多个绑定匹配时只投递一次
+                if (!matched.contains(binding.queue) && binding.pattern.matches(routingKey)) {
+                    matched.add(binding.queue);
+                }
+            }
+            if (routes.size() >= MAX_ROUTE_CACHE) {
+                routes.clear();
+            }
+            routes.put(routingKey, List.copyOf(matched));
+            return matched;
+        }
+
+        @Override
+        public String toString() {
+            return name;
+        }
+    }
+
+    private record LocalBinding(LocalQueue queue, TopicPattern pattern) {
+    }
+
+    /**
+     * 队列中的一条消息
+     */
+    private static final class Envelope {
+
+        private final Message message;
+
+        private boolean redelivered;
+
+        private Envelope(Message message) {
+            this.message = message;
+        }
+    }
+
+    private static final class LocalQueue {
+
+        private final String name;
+
+        private final BoundedMpmcQueue<Envelope> ready;
+
+        // 拒绝后重新入队的消息，不受容量限制，优先投递
+        private final Queue<Envelope> requeued = new ConcurrentLinkedQueue<>();
+
+        private final AtomicLong deliveryTags = new AtomicLong();
+
+        private final LongAdder delivered = new LongAdder();
+        private final LongAdder acked = new LongAdder();
+        private final LongAdder redelivered = new LongAdder();
+        private final LongAdder discarded = new LongAdder();
+        private final LongAdder rejectedPublishes = new LongAdder();
+        private final AtomicInteger unacked = new AtomicInteger();
+
+        private LocalQueue(String name, int capacity) {
+            this.name = name;
+            this.ready = new BoundedMpmcQueue<>(capacity);
+        }
+
+        Envelope poll() {
+            Envelope envelope = requeued.poll();
+            return envelope != null ? envelope : ready.poll();
+        }
+
+        QueueStats stats() {
+            return new QueueStats(ready.size() + requeued.size(), unacked.get(), delivered.sum(), acked.sum(),
+                    redelivered.sum(), discarded.sum(), rejectedPublishes.sum());
+        }
+    }
+
+    /**
+     * 订阅：一个投递线程按 prefetch 限制逐条投递
+     */
+    private final class LocalSubscription implements Subscription {
+
+        private final LocalQueue queue;
+
+        private final DeliveryHandler handler;
+
+        private final Thread thread;
+
+        // 本订阅已投递未确认的消息数
+        private final AtomicInteger unacked = new AtomicInteger();
+
+        private volatile boolean running = true;
+
+        private LocalSubscription(LocalQueue queue, DeliveryHandler handler, String threadName) {
+            this.queue = queue;
+            this.handler = handler;
+            this.thread = new Thread(this::run, threadName);
+            this.thread.setDaemon(true);
+        }
+
+        void start() {
+            thread.start();
+        }
+
+        @Override
+        public String getQueue() {
+            return queue.name;
+        }
+
+        @Override
+        public void cancel() {
+            running = false;
+            subscriptions.remove(this);
+            if (Thread.currentThread() != thread) {
+                LockSupport.unpark(thread);
+                try {
+                    thread.join(1000);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }
+
+        private void run() {
+            int idle = 0;
+            while (running) {
+                Envelope envelope = unacked.get() < prefetch ? queue.poll() : null;
+                if (envelope == null) {
+                    idle(++idle);
+                    continue;
+                }
+                idle = 0;
+                deliver(envelope);
+            }
+        }
+
+        private void deliver(Envelope envelope) {
+            MessageProperties properties = envelope.message.getMessageProperties();
+            properties.setDeliveryTag(queue.deliveryTags.incrementAndGet());
+            properties.setRedelivered(envelope.redelivered);
+            unacked.incrementAndGet();
+            queue.unacked.incrementAndGet();
+            queue.delivered.increment();
+            LocalDelivery delivery = new LocalDelivery(this, envelope);
+            try {
+                handler.onDelivery(delivery);
+            } catch (RuntimeException e) {
+                log.error("进程内队列消息处理异常，消息重新入队: queue={}, messageId={}",
+                        queue.name, properties.getMessageId(), e);
+                if (delivery.settle()) {
+                    requeue(envelope);
+                }
+            }
+        }
+
+        private void requeue(Envelope envelope) {
+            envelope.redelivered = true;
+            queue.redelivered.increment();
+            queue.requeued.add(envelope);
+        }
+
+        /**
+         * 空闲时先自旋、再让出CPU、最后短暂休眠，保证低延迟的同时不长期占用CPU
+         */
+        private void idle(int idle) {
+            if (idle <= SPIN_TRIES) {
+                Thread.onSpinWait();
+            } else if (idle <= SPIN_TRIES + YIELD_TRIES) {
+                Thread.yield();
+            } else {
+                LockSupport.parkNanos(this, PARK_NANOS);
+            }
+        }
+    }
+
+    private static final class LocalDelivery implements Delivery {
+
+        private final LocalSubscription subscription;
+
+        private final Envelope envelope;
+
+        private final AtomicBoolean settled = new AtomicBoolean();
+
+        private LocalDelivery(LocalSubscription subscription, Envelope envelope) {
+            this.subscription = subscription;
+            this.envelope = envelope;
+        }
+
+        @Override
+        public Message getMessage() {
+            return envelope.message;
+        }
+
+        @Override
+        public void ack() {
+            requireUnsettled();
+            subscription.queue.acked.increment();
+        }
+
+        @Override
+        public void reject(boolean requeue) {
+            requireUnsettled();
+            if (requeue) {
+                subscription.requeue(envelope);
+            } else {
+                subscription.queue.discarded.increment();
+            }
+        }
+
+        private void requireUnsettled() {
+            if (!settle()) {
+                throw new IllegalStateException("消息已确认或拒绝: deliveryTag="
+                        + envelope.message.getMessageProperties().getDeliveryTag());
+            }
+        }
+
+        /**
+         * @return 是否由本次调用完成确认
+         */
+        boolean settle() {
+            if (!settled.compareAndSet(false, true)) {
+                return false;
+            }
+            subscription.unacked.decrementAndGet();
+            subscription.queue.unacked.decrementAndGet();
+            return true;
+        }
+    }
+
+    /**
+     * 传输统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TransportStats {
+        // 发布的消息数
+        private long published;
+        // 无法路由的消息数
+        private long unroutable;
+        // 因队列已满被拒绝的发布数
+        private long rejectedPublishes;
+        // 各队列统计 key: 队列名
+        private Map<String, QueueStats> queues;
+    }
+
+    /**
+     * 队列统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class QueueStats {
+        // 待投递的消息数
+        private int ready;
+        // 已投递未确认的消息数
+        private int unacked;
+        // 投递次数（含重新投递）
+        private long delivered;
+        // 确认的消息数
+        private long acked;
+        // 重新入队的次数
+        private long redelivered;
+        // 拒绝且不重新入队的消息数
+        private long discarded;
+        // 因队列已满被拒绝的发布数
+        private long rejectedPublishes;
+    }
+}
@@ -0,0 +1,62 @@
+package com.cy.common.transport;
+
+import org.springframework.amqp.core.Message;
+
+/**
+ * 订单事件传输
+ * 订单服务与统计、CRM等消费者之间的消息通道，语义与 RabbitMQ 主题交换机一致：
+ * 消息发布到交换机，按绑定模式（* 匹配一段，# 匹配零或多段）路由到队列，
+ * 消费者逐条确认（ack）或拒绝（reject），拒绝时可重新入队。
+ * 生产环境使用 {@link RabbitOrderEventTransport}；{@link InProcessOrderEventTransport} 在同一JVM内实现相同语义，
+ * 用于不依赖broker的端到端压测和集成测试
+ */
+public interface OrderEventTransport extends AutoCloseable {
+
+    /**
+     * 声明主题交换机，已存在时无副作用
+     *
+     * @param exchange 交换机
+     */
+    void declareExchange(String exchange);
+
+    /**
+     * 声明队列，已存在时无副作用
+     *
+     * @param queue 队列
+     */
+    void declareQueue(String queue);
+
+    /**
+     * 把队列按路由模式绑定到交换机
+     *
+     * @param queue    队列
+     * @param exchange 交换机
+     * @param pattern  路由模式
+     */
+    void bind(String queue, String exchange, String pattern);
+
+    /**
+     * 发布消息
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由键
+     * @param message    消息
+     * @return 是否已被接收；无法路由或队列已满时返回false
+     */
+    boolean publish(String exchange, String routingKey, Message message);
+
+    /**
+     * 订阅队列，消息逐条交给处理器，处理器负责确认或拒绝
+     *
+     * @param queue   队列
+     * @param handler 消息处理器
+     * @return 订阅句柄，用于取消订阅
+     */
+    Subscription subscribe(String queue, DeliveryHandler handler);
+
+    /**
+     * 取消全部订阅并释放资源
+     */
+    @Override
+    void close();
+}
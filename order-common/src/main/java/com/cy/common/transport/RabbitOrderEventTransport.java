@@ -0,0 +1,173 @@
+package com.cy.common.transport;
+
+import com.rabbitmq.client.Channel;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpIOException;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareMessageListener;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+/**
+ * 基于 RabbitMQ 的订单事件传输
+ * 交换机、队列和绑定通过 AmqpAdmin 声明；每个订阅由监听容器工厂创建一个手动确认的监听容器，
+ * 并发数、prefetch 和接收端后置处理器（如解压）沿用工厂的配置；
+ * 发布方式由 {@link Sender} 决定，订单服务交给带发布确认和本地缓存的异步发布器
+ */
+@Slf4j
+public class RabbitOrderEventTransport implements OrderEventTransport {
+
+    private final AmqpAdmin amqpAdmin;
+
+    private final SimpleRabbitListenerContainerFactory containerFactory;
+
+    private final Sender sender;
+
+    private final List<RabbitSubscription> subscriptions = new CopyOnWriteArrayList<>();
+
+    /**
+     * 使用 RabbitTemplate 同步发送
+     */
+    public RabbitOrderEventTransport(AmqpAdmin amqpAdmin,
+                                     SimpleRabbitListenerContainerFactory containerFactory,
+                                     RabbitTemplate rabbitTemplate) {
+        this(amqpAdmin, containerFactory, (exchange, routingKey, message) -> {
+            rabbitTemplate.send(exchange, routingKey, message);
+            return true;
+        });
+    }
+
+    public RabbitOrderEventTransport(AmqpAdmin amqpAdmin,
+                                     SimpleRabbitListenerContainerFactory containerFactory,
+                                     Sender sender) {
+        this.amqpAdmin = amqpAdmin;
+        this.containerFactory = containerFactory;
+        this.sender = sender;
+    }
+
+    @Override
+    public void declareExchange(String exchange) {
+        amqpAdmin.declareExchange(new TopicExchange(exchange));
+    }
+
+    @Override
+    public void declareQueue(String queue) {
+        amqpAdmin.declareQueue(QueueBuilder.durable(queue).build());
+    }
+
+    @Override
+    public void bind(String queue, String exchange, String pattern) {
+        amqpAdmin.declareBinding(new Binding(queue, Binding.DestinationType.QUEUE, exchange, pattern, null));
+    }
+
+    @Override
+    public boolean publish(String exchange, String routingKey, Message message) {
+        return sender.send(exchange, routingKey, message);
+    }
+
+    @Override
+    public Subscription subscribe(String queue, DeliveryHandler handler) {
+        SimpleMessageListenerContainer container = containerFactory.createListenerContainer();
+        container.setQueueNames(queue);
+        container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        // 处理器抛出异常时容器拒绝并重新入队消息
+        container.setMessageListener((ChannelAwareMessageListener) (message, channel) ->
+                handler.onDelivery(new RabbitDelivery(message, channel)));
+        container.afterPropertiesSet();
+        container.start();
+        RabbitSubscription subscription = new RabbitSubscription(queue, container);
+        subscriptions.add(subscription);
+        log.info("已订阅RabbitMQ队列: queue={}", queue);
+        return subscription;
+    }
+
+    @Override
+    public void close() {
+        subscriptions.forEach(RabbitSubscription::cancel);
+        subscriptions.clear();
+    }
+
+    /**
+     * 消息发送方式
+     */
+    @FunctionalInterface
+    public interface Sender {
+
+        /**
+         * @param exchange   交换机
+         * @param routingKey 路由键
+         * @param message    消息
+         * @return 是否已被接收
+         */
+        boolean send(String exchange, String routingKey, Message message);
+    }
+
+    private final class RabbitSubscription implements Subscription {
+
+        private final String queue;
+
+        private final SimpleMessageListenerContainer container;
+
+        private RabbitSubscription(String queue, SimpleMessageListenerContainer container) {
+            this.queue = queue;
+            this.container = container;
+        }
+
+        @Override
+        public String getQueue() {
+            return queue;
+        }
+
+        @Override
+        public void cancel() {
+            subscriptions.remove(this);
+            container.stop();
+            container.destroy();
+        }
+    }
+
+    private static final class RabbitDelivery implements Delivery {
+
+        private final Message message;
+
+        private final Channel channel;
+
+        private RabbitDelivery(Message message, Channel channel) {
+            this.message = message;
+            this.channel = channel;
+        }
+
+        @Override
+        public Message getMessage() {
+            return message;
+        }
+
+        @Override
+        public void ack() {
+            try {
+                channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+            } catch (IOException e) {
+                throw new AmqpIOException(e);
+            }
+        }
+
+        @Override
+        public void reject(boolean requeue) {
+            try {
+                channel.basicReject(message.getMessageProperties().getDeliveryTag(), requeue);
+            } catch (IOException e) {
+                throw new AmqpIOException(e);
+            }
+        }
+    }
+}
@@ -0,0 +1,17 @@
+package com.cy.common.transport;
+
+/**
+ * 订阅句柄
+ */
+public interface Subscription {
+
+    /**
+     * @return 订阅的队列
+     */
+    String getQueue();
+
+    /**
+     * 取消订阅，不再投递新消息；已投递未确认的消息仍可确认或拒绝
+     */
+    void cancel();
+}
@@ -0,0 +1,58 @@
+package com.cy.common.transport;
+
+/**
+ * 主题交换机的路由模式
+ * 路由键和模式都以 . 分段，* 匹配恰好一段，# 匹配零或多段，规则与 RabbitMQ 主题交换机相同；
+ * 除进程内传输的路由外，发布方据此判断事件是否有队列绑定，消费方据此筛选自己关心的事件
+ */
+public final class TopicPattern {
+
+    private final String pattern;
+
+    private final String[] words;
+
+    private TopicPattern(String pattern) {
+        this.pattern = pattern;
+        this.words = pattern.isEmpty() ? new String[0] : pattern.split("\\.", -1);
+    }
+
+    public static TopicPattern compile(String pattern) {
+        if (pattern == null) {
+            throw new IllegalArgumentException("路由模式不能为空");
+        }
+        return new TopicPattern(pattern);
+    }
+
+    public String getPattern() {
+        return pattern;
+    }
+
+    /**
+     * @param routingKey 路由键
+     * @return 是否匹配
+     */
+    public boolean matches(String routingKey) {
+        String[] keys = routingKey.isEmpty() ? new String[0] : routingKey.split("\\.", -1);
+        // matched[j]：模式的前 i 段能否匹配路由键的前 j 段，逐段滚动计算
+        boolean[] matched = new boolean[keys.length + 1];
+        matched[0] = true;
+        for (String word : words) {
+            if ("#".equals(word)) {
+                for (int j = 1; j <= keys.length; j++) {
+                    matched[j] = matched[j] || matched[j - 1];
+                }
+            } else {
+                for (int j = keys.length; j >= 1; j--) {
+                    matched[j] = matched[j - 1] && ("*".equals(word) || word.equals(keys[j - 1]));
+                }
+                matched[0] = false;
+            }
+        }
+        return matched[keys.length];
+    }
+
+    @Override
+    public String toString() {
+        return pattern;
+    }
+}
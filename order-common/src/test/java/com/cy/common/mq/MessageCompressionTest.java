@@ -0,0 +1,58 @@
+package com.cy.common.mq;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageCompressionTest {
+
+    @Test
+    void testRoundTripWithAndWithoutDeclaredLength() {
+        // Given
+        byte[] input = "{\"productId\":\"P10001\",\"quantity\":2}".repeat(500).getBytes();
+        byte[] compressed = MessageCompression.compress(input);
+
+        // When / Then
+        assertNotNull(compressed);
+        assertArrayEquals(input, MessageCompression.decompress(compressed, input.length, input.length));
+        assertArrayEquals(input, MessageCompression.decompress(compressed, -1, input.length));
+    }
+
+    @Test
+    void testDeclaredLengthAboveLimitIsRejected() {
+        // Given 伪造的长度头
+        byte[] compressed = MessageCompression.compress(new byte[4096]);
+
+        // When / Then
+        assertThrows(MessageConversionException.class,
+                () -> MessageCompression.decompress(compressed, Integer.MAX_VALUE, 1024 * 1024));
+    }
+
+    @Test
+    void testUnknownLengthIsBoundedByLimit() {
+        // Given 压缩比很高的数据，没有长度头
+        byte[] compressed = MessageCompression.compress(new byte[1024 * 1024]);
+
+        // When / Then
+        assertThrows(MessageConversionException.class, () -> MessageCompression.decompress(compressed, -1, 64 * 1024));
+        assertEquals(1024 * 1024, MessageCompression.decompress(compressed, -1, 1024 * 1024).length);
+    }
+
+    @Test
+    void testOversizedMessageIsLeftCompressed() {
+        // Given
+        MessageProperties properties = new MessageProperties();
+        properties.setContentEncoding(MessageCompression.ENCODING_DEFLATE);
+        Message message = new Message(MessageCompression.compress(new byte[8192]), properties);
+
+        // When
+        Message result = new DecompressingPostProcessor(4096).postProcessMessage(message);
+
+        // Then 交给消费者按无法解压处理
+        assertSame(message, result);
+        assertEquals(MessageCompression.ENCODING_DEFLATE, result.getMessageProperties().getContentEncoding());
+    }
+}
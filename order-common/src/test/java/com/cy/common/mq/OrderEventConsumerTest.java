@@ -0,0 +1,89 @@
+package com.cy.common.mq;
+
+import com.cy.common.transport.Delivery;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.nio.charset.StandardCharsets;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderEventConsumerTest {
+
+    @Mock
+    private Delivery delivery;
+
+    @Mock
+    private OrderEventProcessor processor;
+
+    @Test
+    void testDecodedOrderIsProcessedAndAcked() {
+        // Given
+        OrderMessage order = OrderMessage.builder().id("o1").storeId("s1").amount(9999L).build();
+        Message message = orderMessage(OrderMessageCodec.encode(order));
+        when(delivery.getMessage()).thenReturn(message);
+
+        // When
+        new OrderEventConsumer("统计", processor).onDelivery(delivery);
+
+        // Then
+        verify(processor).process(order, message.getMessageProperties());
+        verify(delivery).ack();
+        verify(delivery, never()).reject(anyBoolean());
+    }
+
+    @Test
+    void testUndecodableMessageIsRejectedWithoutRequeue() {
+        // Given
+        when(delivery.getMessage()).thenReturn(orderMessage(new byte[]{(byte) 0xFF}));
+
+        // When
+        new OrderEventConsumer("统计", processor).onDelivery(delivery);
+
+        // Then
+        verify(delivery).reject(false);
+        verifyNoInteractions(processor);
+    }
+
+    @Test
+    void testProcessorFailureRejectsWithoutRequeue() {
+        // Given
+        when(delivery.getMessage()).thenReturn(orderMessage(OrderMessageCodec.encode(OrderMessage.builder().id("o1").build())));
+        doThrow(new IllegalStateException("boom")).when(processor).process(any(), any());
+
+        // When
+        new OrderEventConsumer("CRM", processor).onDelivery(delivery);
+
+        // Then
+        verify(delivery).reject(false);
+        verify(delivery, never()).ack();
+    }
+
+    @Test
+    void testLegacyJsonMessageIsAcked() {
+        // Given
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+        when(delivery.getMessage()).thenReturn(new Message("{\"id\":\"o1\"}".getBytes(StandardCharsets.UTF_8), properties));
+
+        // When
+        new OrderEventConsumer("CRM", processor).onDelivery(delivery);
+
+        // Then
+        verify(delivery).ack();
+        verifyNoInteractions(processor);
+    }
+
+    private static Message orderMessage(byte[] body) {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(OrderMessageCodec.CONTENT_TYPE);
+        properties.setMessageId("m1");
+        return new Message(body, properties);
+    }
+}
@@ -0,0 +1,113 @@
+package com.cy.common.mq;
+
+import org.junit.jupiter.api.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderMessageCodecTest {
+
+    @Test
+    void testRoundTrip() {
+        // Given
+        OrderMessage order = OrderMessage.builder()
+                .id("o1")
+                .storeId("s1")
+                .amount(12850L)
+                .status("PAID")
+                .items(List.of(new OrderMessage.Item("p1", "拿铁", 2, 6425L), new OrderMessage.Item("p2", null, 1, 0L)))
+                .createTime(1714537815123L)
+                .build();
+
+        // When / Then
+        assertEquals(order, OrderMessageCodec.decode(OrderMessageCodec.encode(order)));
+    }
+
+    @Test
+    void testFieldsAppendedByNewerProducerAreSkipped() {
+        // Given 新的生产方在订单项和消息末尾各追加了一个字段
+        Bytes firstItem = new Bytes().varint(1 | 1 << 2 | 1 << 4).string("p1").zigzag(2).string("未来的订单项字段");
+        Bytes secondItem = new Bytes().varint(1).string("p2");
+        Bytes body = new Bytes()
+                .varint(1 | 1 << 6 | 1 << 9)
+                .string("o1")
+                .varint(2).prefixed(firstItem).prefixed(secondItem)
+                .string("未来的消息字段");
+        byte[] payload = new Bytes().raw(OrderMessageCodec.SCHEMA_VERSION).prefixed(body).toByteArray();
+
+        // When
+        OrderMessage decoded = OrderMessageCodec.decode(payload);
+
+        // Then
+        assertEquals("o1", decoded.getId());
+        assertEquals(List.of(new OrderMessage.Item("p1", null, 2, null), new OrderMessage.Item("p2", null, null, null)),
+                decoded.getItems());
+        assertNull(decoded.getStatus());
+    }
+
+    @Test
+    void testNewerVersionIsRejected() {
+        // Given
+        byte[] payload = OrderMessageCodec.encode(OrderMessage.builder().id("o1").build());
+        payload[0] = OrderMessageCodec.SCHEMA_VERSION + 1;
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> OrderMessageCodec.decode(payload));
+    }
+
+    @Test
+    void testItemLengthBeyondBodyIsRejected() {
+        // Given 订单项长度超出消息体
+        Bytes body = new Bytes().varint(1 << 6).varint(1).varint(50).varint(1).string("p1");
+        byte[] payload = new Bytes().raw(OrderMessageCodec.SCHEMA_VERSION).prefixed(body).toByteArray();
+
+        // When / Then
+        assertThrows(IllegalArgumentException.class, () -> OrderMessageCodec.decode(payload));
+    }
+
+    /**
+     * 按编码格式手工拼装消息体
+     */
+    private static class Bytes {
+
+        private final ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        Bytes raw(int value) {
+            out.write(value);
+            return this;
+        }
+
+        Bytes varint(long value) {
+            while ((value & ~0x7FL) != 0) {
+                out.write((int) ((value & 0x7F) | 0x80));
+                value >>>= 7;
+            }
+            out.write((int) value);
+            return this;
+        }
+
+        Bytes zigzag(long value) {
+            return varint((value << 1) ^ (value >> 63));
+        }
+
+        Bytes string(String value) {
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            varint(bytes.length);
+            out.writeBytes(bytes);
+            return this;
+        }
+
+        Bytes prefixed(Bytes content) {
+            varint(content.out.size());
+            out.writeBytes(content.toByteArray());
+            return this;
+        }
+
+        byte[] toByteArray() {
+            return out.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,45 @@
+package com.cy.common.stream;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class FileOffsetStoreTest {
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void testStoredOffsetSurvivesRestart() {
+        // Given
+        new FileOffsetStore(directory).store("stat-service", 41);
+        new FileOffsetStore(directory).store("stat-service", 42);
+
+        // When
+        FileOffsetStore restarted = new FileOffsetStore(directory);
+
+        // Then
+        assertEquals(42, restarted.load("stat-service").getAsLong());
+        assertTrue(restarted.load("crm-service").isEmpty());
+        assertFalse(Files.exists(directory.resolve("stat-service.offset.tmp")));
+    }
+
+    @Test
+    void testCorruptOffsetFileIsTreatedAsMissing() throws Exception {
+        // Given
+        Files.writeString(directory.resolve("stat-service.offset"), "abc");
+
+        // When / Then
+        assertTrue(new FileOffsetStore(directory).load("stat-service").isEmpty());
+    }
+
+    @Test
+    void testConsumerNameMustBeSafeFileName() {
+        FileOffsetStore store = new FileOffsetStore(directory);
+        assertThrows(IllegalArgumentException.class, () -> store.store("../stat", 1));
+    }
+}
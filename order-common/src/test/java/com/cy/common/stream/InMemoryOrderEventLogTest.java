@@ -0,0 +1,217 @@
+package com.cy.common.stream;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.time.Clock;
+import java.time.Instant;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InMemoryOrderEventLogTest {
+
+    private static final String ROUTING_KEY = "order.order_paid.east";
+
+    private final InMemoryOffsetStore offsetStore = new InMemoryOffsetStore();
+
+    private final ManualClock clock = new ManualClock(1_700_000_000_000L);
+
+    // 定时记录间隔足够长，偏移量只在处理满 commitEvery 条或取消订阅时记录
+    private final InMemoryOrderEventLog eventLog = new InMemoryOrderEventLog(offsetStore, 100, 60_000, clock);
+
+    @AfterEach
+    void tearDown() {
+        eventLog.close();
+    }
+
+    @Test
+    void testConsumerResumesAfterCommittedOffset() throws Exception {
+        // Given
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        EventLogSubscription subscription = eventLog.subscribe("stat", delivery -> {
+            received.add(offsetOf(delivery.getMessage()));
+            delivery.ack();
+        });
+        append(0, 3);
+        assertEquals(List.of(0L, 1L, 2L), take(received, 3));
+        subscription.cancel();
+        assertEquals(2, offsetStore.load("stat").getAsLong());
+
+        // When 停止期间追加的事件在重新订阅后补上
+        append(3, 5);
+        eventLog.subscribe("stat", delivery -> {
+            received.add(offsetOf(delivery.getMessage()));
+            delivery.ack();
+        });
+
+        // Then
+        assertEquals(List.of(3L, 4L), take(received, 2));
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testNewConsumerStartsAtNextEvent() throws Exception {
+        // Given
+        append(0, 3);
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+
+        // When
+        eventLog.subscribe("crm", delivery -> {
+            received.add(offsetOf(delivery.getMessage()));
+            delivery.ack();
+        });
+        append(3, 4);
+
+        // Then
+        assertEquals(List.of(3L), take(received, 1));
+    }
+
+    @Test
+    void testReplayFromFirstIgnoresCommittedOffset() throws Exception {
+        // Given
+        append(0, 3);
+        offsetStore.store("stat", 2);
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+
+        // When
+        EventLogSubscription subscription = eventLog.subscribe("stat", OffsetSpec.first(), delivery -> {
+            received.add(offsetOf(delivery.getMessage()));
+            delivery.ack();
+        });
+
+        // Then
+        assertEquals(List.of(0L, 1L, 2L), take(received, 3));
+        subscription.cancel();
+        assertEquals(2, offsetStore.load("stat").getAsLong());
+    }
+
+    @Test
+    void testReplayFromTimestampSkipsEarlierEvents() throws Exception {
+        // Given
+        append(0, 3);
+        clock.advance(20);
+        Instant from = clock.instant();
+        clock.advance(20);
+        append(3, 5);
+        BlockingQueue<Message> received = new LinkedBlockingQueue<>();
+
+        // When
+        eventLog.subscribe("stat", OffsetSpec.timestamp(from), delivery -> {
+            received.add(delivery.getMessage());
+            delivery.ack();
+        });
+
+        // Then
+        Message first = received.poll(1, TimeUnit.SECONDS);
+        assertEquals(3L, offsetOf(first));
+        assertEquals("m3", first.getMessageProperties().getMessageId());
+        assertEquals(ROUTING_KEY, first.getMessageProperties().getReceivedRoutingKey());
+        assertFalse(first.getMessageProperties().getTimestamp().toInstant().isBefore(from));
+        assertEquals(4L, offsetOf(received.poll(1, TimeUnit.SECONDS)));
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testRejectedEventIsSkippedNotRedelivered() throws Exception {
+        // Given
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        EventLogSubscription subscription = eventLog.subscribe("stat", delivery -> {
+            received.add(offsetOf(delivery.getMessage()));
+            delivery.reject(true);
+        });
+
+        // When
+        append(0, 2);
+
+        // Then
+        assertEquals(List.of(0L, 1L), take(received, 2));
+        assertNull(received.poll(100, TimeUnit.MILLISECONDS));
+        subscription.cancel();
+        assertEquals(1, offsetStore.load("stat").getAsLong());
+    }
+
+    @Test
+    void testOffsetIsCommittedEveryCommitEveryEvents() throws Exception {
+        // Given
+        BlockingQueue<Long> received = new LinkedBlockingQueue<>();
+        EventLogSubscription subscription = eventLog.subscribe("stat", delivery -> {
+            delivery.ack();
+            received.add(offsetOf(delivery.getMessage()));
+        });
+
+        // When 跨越多个块
+        append(0, InMemoryOrderEventLog.CHUNK_SIZE + 50);
+        take(received, InMemoryOrderEventLog.CHUNK_SIZE + 50);
+
+        // Then 取消前只记录到最后一个整百
+        assertEquals(InMemoryOrderEventLog.CHUNK_SIZE + 50, subscription.getProcessed());
+        assertEquals(InMemoryOrderEventLog.CHUNK_SIZE + 50 - 1, subscription.getLastOffset());
+        assertEquals((InMemoryOrderEventLog.CHUNK_SIZE + 50) / 100 * 100 - 1, offsetStore.load("stat").getAsLong());
+    }
+
+    private void append(int from, int to) {
+        for (int i = from; i < to; i++) {
+            MessageProperties properties = new MessageProperties();
+            properties.setMessageId("m" + i);
+            assertTrue(eventLog.append(ROUTING_KEY, new Message(new byte[]{(byte) i}, properties)));
+        }
+    }
+
+    private static List<Long> take(BlockingQueue<Long> received, int count) throws InterruptedException {
+        Long[] offsets = new Long[count];
+        for (int i = 0; i < count; i++) {
+            offsets[i] = received.poll(1, TimeUnit.SECONDS);
+            assertNotNull(offsets[i], "第 " + i + " 条事件未收到");
+        }
+        return List.of(offsets);
+    }
+
+    private static long offsetOf(Message message) {
+        return message.getMessageProperties().getHeader(OrderEventLog.OFFSET_HEADER);
+    }
+
+    /**
+     * 手动推进的时钟
+     */
+    private static final class ManualClock extends Clock {
+
+        private final AtomicLong millis;
+
+        ManualClock(long millis) {
+            this.millis = new AtomicLong(millis);
+        }
+
+        void advance(long delta) {
+            millis.addAndGet(delta);
+        }
+
+        @Override
+        public long millis() {
+            return millis.get();
+        }
+
+        @Override
+        public Instant instant() {
+            return Instant.ofEpochMilli(millis.get());
+        }
+
+        @Override
+        public ZoneId getZone() {
+            return ZoneOffset.UTC;
+        }
+
+        @Override
+        public Clock withZone(ZoneId zone) {
+            return this;
+        }
+    }
+}
@@ -0,0 +1,68 @@
+package com.cy.common.stream;
+
+import com.cy.common.transport.Delivery;
+import com.cy.common.transport.DeliveryHandler;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.List;
+
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class RoutingKeyFilterTest {
+
+    @Mock
+    private Delivery delivery;
+
+    @Mock
+    private DeliveryHandler delegate;
+
+    @Test
+    void testMatchingEventIsHandedToDelegate() {
+        // Given
+        when(delivery.getMessage()).thenReturn(message("order.order_paid.east"));
+
+        // When
+        new RoutingKeyFilter(List.of("order.order_created.*", "order.order_paid.*"), delegate).onDelivery(delivery);
+
+        // Then
+        verify(delegate).onDelivery(delivery);
+        verify(delivery, never()).ack();
+    }
+
+    @Test
+    void testEventOutsideTheSliceIsAckedAndSkipped() {
+        // Given 统计服务不关心 order_created
+        when(delivery.getMessage()).thenReturn(message("order.order_created.east"));
+
+        // When
+        new RoutingKeyFilter(List.of("order.order_paid.*", "order.order_completed.*"), delegate).onDelivery(delivery);
+
+        // Then
+        verify(delivery).ack();
+        verifyNoInteractions(delegate);
+    }
+
+    @Test
+    void testEmptyPatternsHandleEverything() {
+        // Given
+        when(delivery.getMessage()).thenReturn(message("order.order_shipped.west"));
+
+        // When
+        new RoutingKeyFilter(List.of(), delegate).onDelivery(delivery);
+
+        // Then
+        verify(delegate).onDelivery(delivery);
+    }
+
+    private static Message message(String routingKey) {
+        MessageProperties properties = new MessageProperties();
+        properties.setReceivedRoutingKey(routingKey);
+        return new Message(new byte[0], properties);
+    }
+}
@@ -0,0 +1,87 @@
+package com.cy.common.transport;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.BitSet;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class BoundedMpmcQueueTest {
+
+    @Test
+    void testFifoAndCapacity() {
+        // Given 容量向上取整为4
+        BoundedMpmcQueue<Integer> queue = new BoundedMpmcQueue<>(3);
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            assertTrue(queue.offer(i));
+        }
+
+        // Then
+        assertFalse(queue.offer(4));
+        assertEquals(4, queue.size());
+        assertEquals(0, queue.poll());
+        assertTrue(queue.offer(4));
+        for (int i = 1; i <= 4; i++) {
+            assertEquals(i, queue.poll());
+        }
+        assertNull(queue.poll());
+    }
+
+    @Test
+    void testConcurrentProducersAndConsumersLoseNothing() throws Exception {
+        // Given
+        int producers = 4;
+        int perProducer = 100_000;
+        BoundedMpmcQueue<Integer> queue = new BoundedMpmcQueue<>(1024);
+        BitSet seen = new BitSet(producers * perProducer);
+        AtomicInteger consumed = new AtomicInteger();
+        CountDownLatch done = new CountDownLatch(producers);
+        List<Thread> threads = new ArrayList<>();
+        for (int p = 0; p < producers; p++) {
+            int base = p * perProducer;
+            threads.add(new Thread(() -> {
+                for (int i = 0; i < perProducer; i++) {
+                    while (!queue.offer(base + i)) {
+                        Thread.onSpinWait();
+                    }
+                }
+                done.countDown();
+            }));
+        }
+        for (int c = 0; c < 2; c++) {
+            threads.add(new Thread(() -> {
+                while (consumed.get() < producers * perProducer) {
+                    Integer value = queue.poll();
+                    if (value == null) {
+                        Thread.onSpinWait();
+                        continue;
+                    }
+                    synchronized (seen) {
+                        assertFalse(seen.get(value));
+                        seen.set(value);
+                    }
+                    consumed.incrementAndGet();
+                }
+            }));
+        }
+
+        // When
+        threads.forEach(Thread::start);
+        assertTrue(done.await(10, TimeUnit.SECONDS));
+        for (Thread thread : threads) {
+            thread.join(10_000);
+        }
+
+        // Then
+        assertEquals(producers * perProducer, consumed.get());
+        assertEquals(producers * perProducer, seen.cardinality());
+        assertNull(queue.poll());
+    }
+}
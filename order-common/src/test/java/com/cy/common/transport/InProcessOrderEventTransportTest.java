@@ -0,0 +1,226 @@
+package com.cy.common.transport;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.List;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class InProcessOrderEventTransportTest {
+
+    private static final String EXCHANGE = "order.event.exchange";
+
+    private InProcessOrderEventTransport transport;
+
+    @BeforeEach
+    void setUp() {
+        transport = new InProcessOrderEventTransport(8, 2);
+        transport.declareExchange(EXCHANGE);
+        transport.declareQueue("stat");
+        transport.declareQueue("crm");
+        transport.bind("stat", EXCHANGE, "order.order_paid.*");
+        transport.bind("crm", EXCHANGE, "order.#");
+        transport.bind("crm", EXCHANGE, "order.order_paid.east");
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    void testMessageIsRoutedToEveryMatchingQueueOnce() throws Exception {
+        // Given
+        BlockingQueue<Message> stat = new LinkedBlockingQueue<>();
+        BlockingQueue<Message> crm = new LinkedBlockingQueue<>();
+        transport.subscribe("stat", delivery -> {
+            stat.add(delivery.getMessage());
+            delivery.ack();
+        });
+        transport.subscribe("crm", delivery -> {
+            crm.add(delivery.getMessage());
+            delivery.ack();
+        });
+
+        // When
+        assertTrue(transport.publish(EXCHANGE, "order.order_paid.east", message("m1")));
+        assertTrue(transport.publish(EXCHANGE, "order.order_created.east", message("m2")));
+
+        // Then
+        Message paid = stat.poll(1, TimeUnit.SECONDS);
+        assertEquals("m1", paid.getMessageProperties().getMessageId());
+        assertEquals("order.order_paid.east", paid.getMessageProperties().getReceivedRoutingKey());
+        assertEquals("stat", paid.getMessageProperties().getConsumerQueue());
+        assertEquals("m1", crm.poll(1, TimeUnit.SECONDS).getMessageProperties().getMessageId());
+        assertEquals("m2", crm.poll(1, TimeUnit.SECONDS).getMessageProperties().getMessageId());
+        assertNull(stat.poll(50, TimeUnit.MILLISECONDS));
+        assertNull(crm.poll(50, TimeUnit.MILLISECONDS));
+    }
+
+    @Test
+    void testUnroutableMessageIsNotAccepted() {
+        // When
+        boolean accepted = transport.publish(EXCHANGE, "payment.success.east", message("m1"));
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(1, transport.getStats().getUnroutable());
+    }
+
+    @Test
+    void testUnknownExchangeIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> transport.publish("missing", "order.order_paid.east", message("m1")));
+    }
+
+    @Test
+    void testPublishIsRejectedWhenQueueIsFull() {
+        // Given 没有消费者，队列容量为8
+        for (int i = 0; i < 8; i++) {
+            assertTrue(transport.publish(EXCHANGE, "order.order_created.east", message("m" + i)));
+        }
+
+        // When
+        boolean accepted = transport.publish(EXCHANGE, "order.order_created.east", message("m8"));
+
+        // Then
+        assertFalse(accepted);
+        assertEquals(1, transport.getStats().getQueues().get("crm").getRejectedPublishes());
+        assertEquals(8, transport.getStats().getQueues().get("crm").getReady());
+    }
+
+    @Test
+    void testDeliveryPausesAtPrefetchUntilAcked() throws Exception {
+        // Given
+        BlockingQueue<Delivery> deliveries = new LinkedBlockingQueue<>();
+        transport.subscribe("crm", deliveries::add);
+        for (int i = 0; i < 3; i++) {
+            transport.publish(EXCHANGE, "order.order_created.east", message("m" + i));
+        }
+
+        // When
+        Delivery first = deliveries.poll(1, TimeUnit.SECONDS);
+        assertNotNull(deliveries.poll(1, TimeUnit.SECONDS));
+
+        // Then prefetch为2，确认前不再投递
+        assertNull(deliveries.poll(100, TimeUnit.MILLISECONDS));
+        assertEquals(2, transport.getStats().getQueues().get("crm").getUnacked());
+        first.ack();
+        assertEquals("m2", deliveries.poll(1, TimeUnit.SECONDS).getMessage().getMessageProperties().getMessageId());
+    }
+
+    @Test
+    void testRejectedMessageIsRedeliveredOrDiscarded() throws Exception {
+        // Given
+        List<Message> received = new CopyOnWriteArrayList<>();
+        CountDownLatch done = new CountDownLatch(3);
+        transport.subscribe("stat", delivery -> {
+            Message message = delivery.getMessage();
+            received.add(message);
+            String id = message.getMessageProperties().getMessageId();
+            if ("retry".equals(id) && !message.getMessageProperties().isRedelivered()) {
+                delivery.reject(true);
+            } else if ("poison".equals(id)) {
+                delivery.reject(false);
+            } else {
+                delivery.ack();
+            }
+            done.countDown();
+        });
+
+        // When
+        transport.publish(EXCHANGE, "order.order_paid.east", message("retry"));
+        transport.publish(EXCHANGE, "order.order_paid.east", message("poison"));
+
+        // Then
+        assertTrue(done.await(1, TimeUnit.SECONDS));
+        assertEquals("retry", received.get(1).getMessageProperties().getMessageId());
+        assertTrue(received.get(1).getMessageProperties().isRedelivered());
+        InProcessOrderEventTransport.QueueStats stats = transport.getStats().getQueues().get("stat");
+        assertEquals(1, stats.getRedelivered());
+        assertEquals(1, stats.getDiscarded());
+        assertEquals(1, stats.getAcked());
+        assertEquals(0, stats.getUnacked());
+    }
+
+    @Test
+    void testHandlerExceptionRequeuesMessage() throws Exception {
+        // Given
+        BlockingQueue<Boolean> attempts = new LinkedBlockingQueue<>();
+        transport.subscribe("stat", delivery -> {
+            boolean redelivered = delivery.getMessage().getMessageProperties().isRedelivered();
+            attempts.add(redelivered);
+            if (!redelivered) {
+                throw new IllegalStateException("boom");
+            }
+            delivery.ack();
+        });
+
+        // When
+        transport.publish(EXCHANGE, "order.order_paid.east", message("m1"));
+
+        // Then
+        assertEquals(false, attempts.poll(1, TimeUnit.SECONDS));
+        assertEquals(true, attempts.poll(1, TimeUnit.SECONDS));
+    }
+
+    @Test
+    void testDeliveryCannotBeSettledTwice() throws Exception {
+        // Given
+        BlockingQueue<Delivery> deliveries = new LinkedBlockingQueue<>();
+        transport.subscribe("stat", deliveries::add);
+        transport.publish(EXCHANGE, "order.order_paid.east", message("m1"));
+        Delivery delivery = deliveries.poll(1, TimeUnit.SECONDS);
+
+        // When
+        delivery.ack();
+
+        // Then
+        assertThrows(IllegalStateException.class, delivery::ack);
+        assertThrows(IllegalStateException.class, () -> delivery.reject(true));
+    }
+
+    @Test
+    void testCompetingConsumersShareQueue() throws Exception {
+        // Given
+        int messages = 1000;
+        CountDownLatch done = new CountDownLatch(messages);
+        List<String> consumers = new CopyOnWriteArrayList<>();
+        InProcessOrderEventTransport large = new InProcessOrderEventTransport(2048, 10);
+        large.declareExchange(EXCHANGE);
+        large.declareQueue("crm");
+        large.bind("crm", EXCHANGE, "order.#");
+        for (int i = 0; i < 2; i++) {
+            large.subscribe("crm", delivery -> {
+                consumers.add(Thread.currentThread().getName());
+                delivery.ack();
+                done.countDown();
+            });
+        }
+
+        // When
+        for (int i = 0; i < messages; i++) {
+            assertTrue(large.publish(EXCHANGE, "order.order_created.east", message("m" + i)));
+        }
+
+        // Then
+        assertTrue(done.await(5, TimeUnit.SECONDS));
+        assertEquals(messages, large.getStats().getQueues().get("crm").getAcked());
+        assertEquals(messages, consumers.size());
+        large.close();
+    }
+
+    private static Message message(String id) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(id);
+        return new Message(id.getBytes(), properties);
+    }
+}
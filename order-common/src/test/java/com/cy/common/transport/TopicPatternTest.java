@@ -0,0 +1,36 @@
+package com.cy.common.transport;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class TopicPatternTest {
+
+    @Test
+    void testStarMatchesExactlyOneWord() {
+        TopicPattern pattern = TopicPattern.compile("order.order_paid.*");
+
+        assertTrue(pattern.matches("order.order_paid.east"));
+        assertFalse(pattern.matches("order.order_paid"));
+        assertFalse(pattern.matches("order.order_paid.east.1"));
+        assertFalse(pattern.matches("order.order_created.east"));
+    }
+
+    @Test
+    void testHashMatchesZeroOrMoreWords() {
+        assertTrue(TopicPattern.compile("order.#").matches("order"));
+        assertTrue(TopicPattern.compile("order.#").matches("order.order_paid.east"));
+        assertTrue(TopicPattern.compile("#").matches(""));
+        assertTrue(TopicPattern.compile("#.east").matches("order.order_paid.east"));
+        assertTrue(TopicPattern.compile("order.#.east").matches("order.east"));
+        assertFalse(TopicPattern.compile("order.#.east").matches("order.order_paid.west"));
+        assertTrue(TopicPattern.compile("*.#.*").matches("a.b"));
+        assertFalse(TopicPattern.compile("*.#.*").matches("a"));
+    }
+
+    @Test
+    void testLiteralPattern() {
+        assertTrue(TopicPattern.compile("order.stat.created").matches("order.stat.created"));
+        assertFalse(TopicPattern.compile("order.stat.created").matches("order.stat"));
+    }
+}
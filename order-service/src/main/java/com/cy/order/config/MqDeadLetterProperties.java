@@ -0,0 +1,91 @@
+package com.cy.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 死信处理配置属性类
+ * 死信队列中的消息按死信原因分类后批量转存到本地停放区，由管理接口按需限速回放到有消费者的回放目标
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mq.dead-letter")
+public class MqDeadLetterProperties {
+
+    /**
+     * 是否消费死信队列
+     */
+    private boolean enabled = true;
+
+    /**
+     * 死信队列
+     */
+    private String queue = RabbitMQConfig.ORDER_STAT_DLQ;
+
+    /**
+     * 死信缺少 x-death 头、无法确定原交换机时记录的原交换机
+     */
+    private String defaultExchange = RabbitMQConfig.ORDER_STAT_EXCHANGE;
+
+    /**
+     * 回放到的交换机，默认交换机（空字符串）按路由键直接投递到同名队列
+     */
+    private String replayExchange = "";
+
+    /**
+     * 回放使用的路由键，默认投递到统计服务消费的队列；为空时回放到死信的原交换机和原路由键。
+     * order.stat.queue 没有消费者且消息会过期，回放回去只会再次死信
+     */
+    private String replayRoutingKey = "order.notify.queue.stat";
+
+    /**
+     * 停放区目录，每种死信原因一个子目录
+     */
+    private String directory = "data/mq-parking-lot";
+
+    /**
+     * 停放区单个段文件大小（字节）
+     */
+    private int segmentSize = 4 * 1024 * 1024;
+
+    /**
+     * 每种死信原因停放的消息总字节数上限，超过时死信留在死信队列中
+     */
+    private long maxBytes = 256L * 1024 * 1024;
+
+    /**
+     * 每批转存的最大死信数
+     */
+    private int batchSize = 100;
+
+    /**
+     * 凑批的最长等待时间（毫秒）
+     */
+    private long batchTimeout = 1000;
+
+    /**
+     * 转存失败后重新投递前的等待时间（毫秒）
+     */
+    private long parkRetryInterval = 5000;
+
+    /**
+     * 默认回放速率（条/秒）
+     */
+    private double replayRate = 50;
+
+    /**
+     * 管理接口允许的最大回放速率（条/秒）
+     */
+    private double replayMaxRate = 1000;
+
+    /**
+     * 单批回放的最大消息数
+     */
+    private int replayBatchSize = 50;
+
+    /**
+     * 统计死信流入速率的时间窗口（秒）
+     */
+    private int inflowWindowSeconds = 60;
+}
@@ -0,0 +1,70 @@
+package com.cy.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单消息发布配置属性类
+ * 用于配置批量异步发布、发布确认和重试相关参数
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mq.publisher")
+public class MqPublisherProperties {
+
+    /**
+     * 待发布队列容量，队列满时拒绝新消息
+     */
+    private int queueCapacity = 10000;
+
+    /**
+     * 单批最多发布的消息数，同一批消息在一个信道上连续发出
+     */
+    private int batchSize = 100;
+
+    /**
+     * 凑批的最长等待时间（毫秒），0表示有多少发多少
+     */
+    private long batchMaxDelay = 2;
+
+    /**
+     * 已发出但未收到确认的消息上限，达到时暂停发布
+     */
+    private int maxInFlight = 5000;
+
+    /**
+     * 等待发布确认的超时时间（毫秒），超时按未确认处理并重发
+     */
+    private long confirmTimeout = 30000;
+
+    /**
+     * nack或路由失败后的最大重试次数
+     */
+    private int maxRetries = 5;
+
+    /**
+     * 首次重试间隔（毫秒）
+     */
+    private long retryInitialInterval = 200;
+
+    /**
+     * 重试间隔倍数
+     */
+    private double retryMultiplier = 2.0;
+
+    /**
+     * 最大重试间隔（毫秒）
+     */
+    private long retryMaxInterval = 10000;
+
+    /**
+     * 消息体超过该字节数时压缩发送，0表示不压缩
+     */
+    private int compressionThreshold = 2048;
+
+    /**
+     * 停机时等待待发布和未确认消息的最长时间（毫秒）
+     */
+    private long shutdownTimeout = 5000;
+}
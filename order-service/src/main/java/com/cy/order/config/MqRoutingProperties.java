@@ -0,0 +1,40 @@
+package com.cy.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单事件路由配置属性类
+ * 订单事件以 order.{事件代码}.{门店区域} 为路由键发布到主题交换机，各消费者队列按绑定模式只接收自己关心的事件
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mq.routing")
+public class MqRoutingProperties {
+
+    /**
+     * 未配置区域的门店使用的区域
+     */
+    private String defaultRegion = "default";
+
+    /**
+     * 门店所属区域 key: 门店ID
+     */
+    private Map<String, String> storeRegions = new HashMap<>();
+
+    /**
+     * 各消费者队列的绑定模式 key: 消费者名，对应队列 order.notify.queue.{消费者名}
+     */
+    private Map<String, List<String>> bindings = new LinkedHashMap<>(Map.of(
+            "stat", List.of("order.order_paid.*", "order.order_completed.*",
+                    "order.order_cancelled.*", "order.order_refunded.*"),
+            "crm", List.of("order.order_created.*", "order.order_paid.*",
+                    "order.order_completed.*", "order.order_cancelled.*"),
+            "inventory", List.of("order.order_created.*", "order.order_cancelled.*", "order.order_refunded.*")));
+}
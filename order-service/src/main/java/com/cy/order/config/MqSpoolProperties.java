@@ -0,0 +1,65 @@
+package com.cy.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单消息本地缓存配置属性类
+ * broker 不可用时发布失败或未确认的消息写入本地内存映射的段文件，恢复后按写入顺序限速回放
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mq.spool")
+public class MqSpoolProperties {
+
+    /**
+     * 是否启用本地缓存，关闭时重试耗尽的消息直接丢弃
+     */
+    private boolean enabled = true;
+
+    /**
+     * 段文件目录
+     */
+    private String directory = "data/mq-spool";
+
+    /**
+     * 单个段文件大小（字节），超过该大小的单条消息独占一个段
+     */
+    private int segmentSize = 16 * 1024 * 1024;
+
+    /**
+     * 缓存的消息总字节数上限，超过时新消息被丢弃
+     */
+    private long maxBytes = 1024L * 1024 * 1024;
+
+    /**
+     * 每次写入后是否强制刷盘；关闭时由操作系统回写，进程崩溃不丢消息，机器掉电可能丢失最近写入的消息
+     */
+    private boolean forceOnWrite = false;
+
+    /**
+     * 回放速率（条/秒）
+     */
+    private double replayRate = 500;
+
+    /**
+     * 单批回放的最大消息数，也是回放速率允许的突发数
+     */
+    private int replayBatchSize = 100;
+
+    /**
+     * 回放失败后的首次重试间隔（毫秒），之后每次翻倍
+     */
+    private long replayRetryInterval = 1000;
+
+    /**
+     * 回放失败后的最大重试间隔（毫秒）
+     */
+    private long replayRetryMaxInterval = 30000;
+
+    /**
+     * 缓存为空时检查新消息的间隔（毫秒）
+     */
+    private long pollInterval = 500;
+}
@@ -0,0 +1,46 @@
+package com.cy.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单事件流配置属性类
+ * 开启后声明流队列并绑定到订单事件交换机，订单生命周期事件在发布到各消费者队列的同时写入流，
+ * 消费后不删除，按保留策略过期，供统计、CRM服务按偏移量消费和重放
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "mq.stream")
+public class MqStreamProperties {
+
+    /**
+     * 是否启用订单事件流
+     */
+    private boolean enabled = false;
+
+    /**
+     * 流队列名
+     */
+    private String name = "order.event.stream";
+
+    /**
+     * 写入流的事件的绑定模式
+     */
+    private String bindingPattern = "order.#";
+
+    /**
+     * 流的最大字节数（x-max-length-bytes），超过时删除最早的段
+     */
+    private long maxLengthBytes = 20L * 1024 * 1024 * 1024;
+
+    /**
+     * 事件最长保留时间（x-max-age），如 7D、12h
+     */
+    private String maxAge = "7D";
+
+    /**
+     * 段文件大小（x-stream-max-segment-size-bytes），保留策略按段删除
+     */
+    private long maxSegmentSizeBytes = 100L * 1024 * 1024;
+}
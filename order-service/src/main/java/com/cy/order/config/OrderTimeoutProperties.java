@@ -0,0 +1,50 @@
+package com.cy.order.config;
+
+import lombok.Data;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.stereotype.Component;
+
+/**
+ * 订单超时配置属性类
+ * 未支付订单超时自动取消，已支付但门店未接单的订单超时后再次提醒门店
+ */
+@Data
+@Component
+@ConfigurationProperties(prefix = "order.timeout")
+public class OrderTimeoutProperties {
+
+    /**
+     * 是否启用订单超时处理
+     */
+    private boolean enabled = true;
+
+    /**
+     * 支付超时时间（毫秒），超时未支付的订单自动取消
+     */
+    private long paymentTimeout = 900000;
+
+    /**
+     * 接单超时时间（毫秒），已支付的订单超时未接单时提醒门店，之后按同样间隔重复提醒
+     */
+    private long acceptTimeout = 300000;
+
+    /**
+     * 未接单的最多提醒次数
+     */
+    private int maxEscalations = 3;
+
+    /**
+     * 时间轮每个tick的时长（毫秒），即超时的触发精度
+     */
+    private long tickDuration = 100;
+
+    /**
+     * 时间轮槽位数
+     */
+    private int ticksPerWheel = 512;
+
+    /**
+     * 是否同时通过RabbitMQ延迟消息持久化超时，服务重启后仍能触发；需要 rabbitmq_delayed_message_exchange 插件
+     */
+    private boolean durable = false;
+}
@@ -1,9 +1,12 @@
 package com.cy.order.config;
 
+import com.cy.order.mq.OrderMessageConverter;
+import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.core.*;
 import org.springframework.amqp.rabbit.connection.ConnectionFactory;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
 import org.springframework.beans.factory.annotation.Qualifier;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -13,6 +16,7 @@ import org.springframework.context.annotation.Configuration;
  * 配置交换机、队列和绑定关系
  * 订单统计相关配置
  */
+@Slf4j
 @Configuration
 public class RabbitMQConfig {
 
@@ -24,32 +28,29 @@ public class RabbitMQConfig {
     public static final String ORDER_STAT_DLQ = "order.stat.dlq";
 
     /**
-     * Jackson2JsonMessageConverter用于JSON序列化和反序列化消息
+     * 订单消息使用紧凑的二进制格式，其他消息仍由Jackson2JsonMessageConverter序列化为JSON
      */
     @Bean
-    public Jackson2JsonMessageConverter messageConverter() {
-        return new Jackson2JsonMessageConverter();
+    public MessageConverter messageConverter() {
+        return new OrderMessageConverter(new Jackson2JsonMessageConverter());
     }
 
     /**
      * 配置RabbitTemplate
+     * 发布使用 CachingConnectionFactory 的独立发布连接：broker 流控只阻塞发布连接，
+     * 监听容器所在的连接仍能继续消费，跨节点转发给本节点门店的通知不受影响
      */
     @Bean
     public RabbitTemplate rabbitTemplate(ConnectionFactory connectionFactory) {
         RabbitTemplate rabbitTemplate = new RabbitTemplate(connectionFactory);
+        rabbitTemplate.setUsePublisherConnection(true);
         rabbitTemplate.setMessageConverter(messageConverter());
-        // 设置确认回调
-        rabbitTemplate.setConfirmCallback((correlationData, ack, cause) -> {
-            if (ack) {
-                // 消息成功投递到交换机
-            } else {
-                // 消息投递失败，可以进行重试或记录
-            }
-        });
-        // 设置返回回调
-        rabbitTemplate.setReturnsCallback(returned -> {
-            // 消息投递到交换机但路由失败
-        });
+        // 路由失败的消息退回给发布方；订单消息的发布确认和退回由 OrderMessagePublisher 按消息的 CorrelationData 跟踪。
+        // 延迟消息交换机到期前不路由消息，mandatory 发布必然被退回，带 x-delay 头的消息不开启
+        rabbitTemplate.setMandatoryExpressionString("messageProperties.headers['x-delay'] == null");
+        rabbitTemplate.setReturnsCallback(returned ->
+                log.warn("消息路由失败被退回: exchange={}, routingKey={}, replyCode={}, replyText={}",
+                        returned.getExchange(), returned.getRoutingKey(), returned.getReplyCode(), returned.getReplyText()));
         return rabbitTemplate;
     }
 
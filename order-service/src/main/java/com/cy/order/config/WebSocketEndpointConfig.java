@@ -1,5 +1,7 @@
 package com.cy.order.config;
 
+import com.cy.order.websocket.WebSocketClientAddressFilter;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.web.socket.server.standard.ServerEndpointExporter;
@@ -21,4 +23,19 @@ public class WebSocketEndpointConfig {
     public ServerEndpointExporter serverEndpointExporter() {
         return new ServerEndpointExporter();
     }
+
+    /**
+     * 在 Tomcat 的 WebSocket 过滤器之前解析握手请求的客户端地址，用于准入控制
+     *
+     * @param webSocketProperties WebSocket配置
+     * @return 过滤器注册
+     */
+    @Bean
+    public FilterRegistrationBean<WebSocketClientAddressFilter> webSocketClientAddressFilter(
+            WebSocketProperties webSocketProperties) {
+        FilterRegistrationBean<WebSocketClientAddressFilter> registration =
+                new FilterRegistrationBean<>(new WebSocketClientAddressFilter(webSocketProperties));
+        registration.addUrlPatterns("/ws/*");
+        return registration;
+    }
 }
\ No newline at end of file
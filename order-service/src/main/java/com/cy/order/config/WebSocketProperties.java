@@ -4,6 +4,9 @@ import lombok.Data;
 import org.springframework.boot.context.properties.ConfigurationProperties;
 import org.springframework.stereotype.Component;
 
+import java.util.ArrayList;
+import java.util.List;
+
 /**
  * WebSocket配置属性类
  * 用于配置WebSocket相关参数
@@ -12,16 +15,456 @@ import org.springframework.stereotype.Component;
 @Component
 @ConfigurationProperties(prefix = "websocket")
 public class WebSocketProperties {
-    
+
     /**
      * 心跳超时时间（毫秒）
      * 默认300秒
      */
     private long heartbeatTimeout = 300000;
-    
+
     /**
      * 清理任务执行间隔（毫秒）
      * 默认60秒
      */
     private long cleanupInterval = 60000;
-}
\ No newline at end of file
+
+    /**
+     * 合并发送的刷新线程数，门店确认窗口的发送、心跳Ping和间隔推送、排空时的重连提示也在这些线程中执行
+     * 刷新是阻塞发送，个别慢会话只占用其中一个线程，不拖慢其他会话的刷新
+     */
+    private int batchFlushThreads = 4;
+
+    /**
+     * 服务端协议级心跳配置
+     */
+    private Heartbeat heartbeat = new Heartbeat();
+
+    /**
+     * APP端端点（/ws/app）配置
+     */
+    private Endpoint app = new Endpoint();
+
+    /**
+     * 门店端端点（/ws/store）配置
+     */
+    private Endpoint store = new Endpoint();
+
+    /**
+     * 多节点会话路由配置
+     */
+    private Cluster cluster = new Cluster();
+
+    /**
+     * 连接准入控制配置
+     */
+    private Admission admission = new Admission();
+
+    /**
+     * 门店通知确认与重发配置
+     */
+    private StoreAck storeAck = new StoreAck();
+
+    /**
+     * 离线通知信箱配置
+     */
+    private Mailbox mailbox = new Mailbox();
+
+    /**
+     * 在线状态变化推送配置
+     */
+    private Presence presence = new Presence();
+
+    /**
+     * 节点下线排空配置
+     */
+    private Drain drain = new Drain();
+
+    /**
+     * 门店未完结订单看板配置
+     */
+    private Board board = new Board();
+
+    /**
+     * 单个WebSocket端点的传输配置
+     */
+    @Data
+    public static class Endpoint {
+
+        /**
+         * 是否允许协商 permessage-deflate 扩展
+         * 关闭后即使客户端请求也不会启用协议级压缩
+         */
+        private boolean permessageDeflate = true;
+
+        /**
+         * 是否允许客户端在connect时选择二进制帧编码
+         */
+        private boolean binaryFrames = true;
+
+        /**
+         * 二进制编码下的压缩阈值（字节）
+         * 小于该值的通知按原始文本帧发送，避免小消息压缩的CPU开销
+         */
+        private int compressionThreshold = 512;
+
+        /**
+         * 是否允许客户端在connect时开启通知合并发送
+         */
+        private boolean batching = true;
+
+        /**
+         * 合并发送的最大等待时间（毫秒）
+         */
+        private long batchMaxDelay = 50;
+
+        /**
+         * 单个合并帧包含的最大通知条数
+         */
+        private int batchMaxSize = 20;
+
+        /**
+         * 单个会话每秒允许的入站消息数
+         */
+        private double inboundRate = 5;
+
+        /**
+         * 单个会话入站消息的突发上限
+         */
+        private int inboundBurst = 20;
+
+        /**
+         * 单个会话被限流丢弃的消息数超过该值后关闭连接
+         */
+        private int inboundViolationLimit = 100;
+
+        /**
+         * 单个会话最多可订阅的主题数（不含身份主题）
+         */
+        private int maxSubscriptions = 50;
+
+        /**
+         * 同一客户端（用户或门店）允许同时保持的会话数，超出时关闭最早的会话
+         */
+        private int maxSessionsPerClient = 5;
+
+        /**
+         * 一个门店端连接在connect时最多可绑定的门店数（storeIds），APP端不使用
+         */
+        private int maxStoresPerConnection = 500;
+    }
+
+    /**
+     * 多节点会话路由配置
+     * 各节点通过RabbitMQ同步客户端在线位置，并把通知转发到持有该连接的节点
+     */
+    @Data
+    public static class Cluster {
+
+        /**
+         * 是否启用跨节点路由，单节点部署无需开启
+         */
+        private boolean enabled = false;
+
+        /**
+         * 当前节点ID，为空时启动时随机生成
+         */
+        private String nodeId;
+
+        /**
+         * 在线增量的合并发布间隔（毫秒）
+         */
+        private long presenceFlushInterval = 200;
+
+        /**
+         * 全量快照发布间隔（毫秒），同时作为节点存活信号
+         */
+        private long snapshotInterval = 30000;
+
+        /**
+         * 超过该时间未收到快照或增量的节点视为下线（毫秒）
+         */
+        private long nodeExpiry = 90000;
+
+        /**
+         * 转发通知的合并发送间隔（毫秒）
+         */
+        private long deliveryFlushInterval = 20;
+
+        /**
+         * 单个转发批次的最大通知条数
+         */
+        private int deliveryBatchSize = 200;
+    }
+
+    /**
+     * 连接准入控制配置
+     * 对新建连接按全局和来源地址分别限速，超出时以 1013 (Try Again Later) 关闭
+     */
+    @Data
+    public static class Admission {
+
+        /**
+         * 是否启用准入控制
+         */
+        private boolean enabled = true;
+
+        /**
+         * 全局每秒允许新建的连接数
+         */
+        private double connectRate = 200;
+
+        /**
+         * 全局新建连接的突发上限
+         */
+        private int connectBurst = 500;
+
+        /**
+         * 单个来源地址每秒允许新建的连接数
+         */
+        private double perAddressConnectRate = 2;
+
+        /**
+         * 单个来源地址新建连接的突发上限
+         */
+        private int perAddressConnectBurst = 20;
+
+        /**
+         * 可信代理地址，握手请求直接来自这些地址时才采用 X-Forwarded-For / X-Real-IP 中的客户端地址；
+         * 为空时一律按连接的对端地址限速
+         */
+        private List<String> trustedProxies = new ArrayList<>();
+    }
+
+    /**
+     * 门店通知确认与重发配置
+     * 门店在connect时开启确认模式后，通知带上门店内递增的序号，未确认的通知按指数退避重发
+     */
+    @Data
+    public static class StoreAck {
+
+        /**
+         * 是否允许门店开启确认模式
+         */
+        private boolean enabled = true;
+
+        /**
+         * 单个门店同时在途（已发送未确认）的最大通知数
+         */
+        private int maxInFlight = 32;
+
+        /**
+         * 单个门店保留的最大未确认通知数，超出时丢弃最旧的通知
+         */
+        private int bufferSize = 256;
+
+        /**
+         * 首次重发等待时间（毫秒），之后每次翻倍
+         */
+        private long initialRetryDelay = 2000;
+
+        /**
+         * 最大重发等待时间（毫秒）
+         */
+        private long maxRetryDelay = 60000;
+
+        /**
+         * 单条通知的最大发送次数，超过后放弃
+         */
+        private int maxRetries = 10;
+
+        /**
+         * 重发扫描间隔（毫秒）
+         */
+        private long sweepInterval = 250;
+    }
+
+    /**
+     * 离线通知信箱配置
+     * 客户端不在线时暂存通知，重连后合并为一帧发送
+     */
+    @Data
+    public static class Mailbox {
+
+        /**
+         * 是否启用离线信箱
+         */
+        private boolean enabled = true;
+
+        /**
+         * 单个客户端最多暂存的通知数
+         */
+        private int maxMessagesPerClient = 100;
+
+        /**
+         * 单个客户端最多暂存的字节数
+         */
+        private int maxBytesPerClient = 64 * 1024;
+
+        /**
+         * 全部信箱的总字节预算，超出时淘汰最久未使用的客户端信箱
+         */
+        private long maxTotalBytes = 32L * 1024 * 1024;
+    }
+
+    /**
+     * 服务端协议级心跳配置
+     * 服务端定期发送 WebSocket Ping 控制帧，客户端协议栈自动回复 Pong
+     */
+    @Data
+    public static class Heartbeat {
+
+        /**
+         * 是否启用服务端Ping
+         */
+        private boolean enabled = true;
+
+        /**
+         * 每个会话的Ping间隔（毫秒）
+         */
+        private long pingInterval = 25000;
+
+        /**
+         * 时间桶数量，一个Ping间隔被均分为这么多个时间片
+         */
+        private int buckets = 50;
+
+        /**
+         * 是否根据节点负载向客户端建议心跳间隔，关闭时会话过期使用 websocket.heartbeat-timeout
+         */
+        private boolean adaptive = true;
+
+        /**
+         * 建议给客户端的最短心跳间隔（毫秒），节点空闲时使用
+         */
+        private long clientIntervalMin = 30000;
+
+        /**
+         * 建议给客户端的最长心跳间隔（毫秒），会话数或CPU达到高水位时使用
+         */
+        private long clientIntervalMax = 120000;
+
+        /**
+         * 心跳间隔调整的粒度（毫秒），负载小幅波动时不重复下发
+         */
+        private long intervalStep = 10000;
+
+        /**
+         * 会话数高水位，达到时建议最长间隔
+         */
+        private int sessionHighWatermark = 20000;
+
+        /**
+         * 进程CPU使用率高水位（0~1），达到时建议最长间隔
+         */
+        private double cpuHighWatermark = 0.8;
+
+        /**
+         * 重新评估负载的间隔（毫秒）
+         */
+        private long adjustInterval = 10000;
+
+        /**
+         * 连续错过多少个心跳间隔后会话过期
+         */
+        private int missedHeartbeats = 3;
+    }
+
+    /**
+     * 在线状态变化推送配置
+     * 监控面板通过SSE订阅上线/下线增量，不再轮询全量在线列表
+     */
+    @Data
+    public static class Presence {
+
+        /**
+         * 增量合并推送间隔（毫秒）
+         */
+        private long flushInterval = 1000;
+
+        /**
+         * 同时订阅在线变化的客户端上限
+         */
+        private int maxSubscribers = 20;
+
+        /**
+         * SSE连接超时时间（毫秒），0表示不超时
+         */
+        private long subscriberTimeout = 0;
+
+        /**
+         * 分页查询在线列表时的默认每页条数
+         */
+        private int defaultPageSize = 1000;
+
+        /**
+         * 分页查询在线列表时的最大每页条数
+         */
+        private int maxPageSize = 10000;
+
+        /**
+         * 分页查询使用的排序快照最长缓存时间（毫秒），期间在线状态无变化时不重建
+         */
+        private long snapshotTtl = 1000;
+    }
+
+    /**
+     * 节点下线排空配置
+     * 停机时不再接受新连接，向现有连接发送带随机延迟的重连提示后分批关闭，避免客户端同时重连
+     */
+    @Data
+    public static class Drain {
+
+        /**
+         * 停机时是否排空，关闭时所有连接随容器一起断开
+         */
+        private boolean enabled = true;
+
+        /**
+         * 重连提示中的最小延迟（毫秒）
+         */
+        private long reconnectDelayMin = 1000;
+
+        /**
+         * 重连提示中的最大延迟（毫秒），客户端在 [min, max) 间均匀分散重连
+         */
+        private long reconnectDelayMax = 30000;
+
+        /**
+         * 重连提示中建议的目标地址，为空时客户端按原地址重连
+         */
+        private String reconnectTarget;
+
+        /**
+         * 每批关闭的连接数
+         */
+        private int closeBatchSize = 200;
+
+        /**
+         * 两批关闭之间的间隔（毫秒）
+         */
+        private long closeBatchInterval = 100;
+
+        /**
+         * 排空最长耗时（毫秒），超时后立即关闭剩余连接；应小于 spring.lifecycle.timeout-per-shutdown-phase
+         */
+        private long timeout = 20000;
+    }
+
+    /**
+     * 门店未完结订单看板配置
+     * 按订单事件增量维护每个门店的未完结订单，门店connect时下发快照，之后推送带版本号的增量
+     */
+    @Data
+    public static class Board {
+
+        /**
+         * 是否维护看板
+         */
+        private boolean enabled = true;
+
+        /**
+         * 单个门店看板保留的订单上限，超出时移除最早的订单
+         */
+        private int maxOrdersPerStore = 500;
+    }
+}
@@ -0,0 +1,147 @@
+package com.cy.order.controller;
+
+import com.cy.order.mq.OrderMessagePublisher;
+import com.cy.order.mq.deadletter.DeadLetterProcessor;
+import com.cy.order.mq.deadletter.DeadLetterReason;
+import com.cy.order.mq.deadletter.DeadLetterReplayer;
+import com.cy.order.mq.spool.SpoolDrainer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+import java.util.Arrays;
+
+/**
+ * MQ监控控制器
+ * 提供订单消息发布、本地缓存和死信统计，以及死信回放管理
+ */
+@Slf4j
+@RestController
+@RequestMapping("/api/mq")
+public class MqController {
+
+    private final OrderMessagePublisher orderMessagePublisher;
+
+    private final SpoolDrainer spoolDrainer;
+
+    private final DeadLetterProcessor deadLetterProcessor;
+
+    private final DeadLetterReplayer deadLetterReplayer;
+
+    public MqController(OrderMessagePublisher orderMessagePublisher,
+                        ObjectProvider<SpoolDrainer> spoolDrainer,
+                        ObjectProvider<DeadLetterProcessor> deadLetterProcessor,
+                        ObjectProvider<DeadLetterReplayer> deadLetterReplayer) {
+        this.orderMessagePublisher = orderMessagePublisher;
+        this.spoolDrainer = spoolDrainer.getIfAvailable();
+        this.deadLetterProcessor = deadLetterProcessor.getIfAvailable();
+        this.deadLetterReplayer = deadLetterReplayer.getIfAvailable();
+    }
+
+    /**
+     * 获取订单消息发布统计
+     *
+     * @return 待发布、未确认、已确认、nack数和确认延迟
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<OrderMessagePublisher.PublisherStats> getPublisherStats() {
+        return ResponseEntity.ok(orderMessagePublisher.getStats());
+    }
+
+    /**
+     * 获取订单消息本地缓存统计
+     *
+     * @return 待回放的消息数、字节数、最早消息的缓存时长和回放速率，未启用缓存时返回404
+     */
+    @GetMapping("/spool/stats")
+    public ResponseEntity<SpoolDrainer.SpoolStats> getSpoolStats() {
+        if (spoolDrainer == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(spoolDrainer.getStats());
+    }
+
+    /**
+     * 获取死信统计
+     *
+     * @return 死信流入数和流入速率、各原因的停放情况，未启用死信处理时返回404
+     */
+    @GetMapping("/dead-letters/stats")
+    public ResponseEntity<DeadLetterProcessor.DeadLetterStats> getDeadLetterStats() {
+        if (deadLetterProcessor == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(deadLetterProcessor.getStats());
+    }
+
+    /**
+     * 获取最近一次死信回放任务的状态
+     *
+     * @return 回放任务状态，未启用死信处理时返回404
+     */
+    @GetMapping("/dead-letters/replay")
+    public ResponseEntity<DeadLetterReplayer.ReplayStatus> getDeadLetterReplayStatus() {
+        if (deadLetterReplayer == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        return ResponseEntity.ok(deadLetterReplayer.getStatus());
+    }
+
+    /**
+     * 把停放的死信限速回放到原交换机
+     *
+     * @param reason 死信原因代码（expired、rejected、maxlen、delivery_limit、unknown），不传时回放全部
+     * @param limit  最多回放的条数
+     * @param rate   回放速率（条/秒），不传时使用默认速率
+     * @return 回放任务状态；已有任务在运行时返回409
+     */
+    @PostMapping("/dead-letters/replay")
+    public ResponseEntity<?> replayDeadLetters(@RequestParam(required = false) String reason,
+                                               @RequestParam(defaultValue = "1000") int limit,
+                                               @RequestParam(required = false) Double rate) {
+        if (deadLetterReplayer == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        DeadLetterReason deadLetterReason = null;
+        if (reason != null) {
+            deadLetterReason = Arrays.stream(DeadLetterReason.values())
+                    .filter(value -> value.getCode().equals(reason))
+                    .findFirst()
+                    .orElse(null);
+            if (deadLetterReason == null) {
+                return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                        .body("{\"success\": false, \"message\": \"Invalid dead letter reason\"}");
+            }
+        }
+        try {
+            return ResponseEntity.status(HttpStatus.ACCEPTED).body(deadLetterReplayer.replay(deadLetterReason, limit, rate));
+        } catch (IllegalArgumentException e) {
+            log.warn("死信回放参数不合法: reason={}, limit={}, rate={}", reason, limit, rate);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"success\": false, \"message\": \"Invalid limit or rate\"}");
+        } catch (IllegalStateException e) {
+            return ResponseEntity.status(HttpStatus.CONFLICT)
+                    .body("{\"success\": false, \"message\": \"A replay is already running\"}");
+        }
+    }
+
+    /**
+     * 取消正在运行的死信回放任务
+     *
+     * @return 回放任务状态
+     */
+    @PostMapping("/dead-letters/replay/cancel")
+    public ResponseEntity<DeadLetterReplayer.ReplayStatus> cancelDeadLetterReplay() {
+        if (deadLetterReplayer == null) {
+            return ResponseEntity.status(HttpStatus.NOT_FOUND).build();
+        }
+        deadLetterReplayer.cancel();
+        return ResponseEntity.ok(deadLetterReplayer.getStatus());
+    }
+}
@@ -83,6 +83,29 @@ public class OrderController {
         }
     }
     
+    /**
+     * 取消订单接口
+     *
+     * @param orderId 订单ID
+     * @return 响应结果
+     */
+    @PostMapping("/cancel/{orderId}")
+    public ResponseEntity<?> cancelOrder(@PathVariable String orderId) {
+        try {
+            if (orderService.cancelOrder(orderId)) {
+                log.info("取消订单成功: orderId={}", orderId);
+                return ResponseEntity.ok().body("{\"success\": true, \"message\": \"Order cancelled successfully\"}");
+            }
+            log.warn("取消订单失败: orderId={}", orderId);
+            return ResponseEntity.status(HttpStatus.BAD_REQUEST)
+                    .body("{\"success\": false, \"message\": \"Failed to cancel order, order may not exist or cannot be cancelled\"}");
+        } catch (Exception e) {
+            log.error("取消订单时发生错误: orderId={}", orderId, e);
+            return ResponseEntity.status(HttpStatus.INTERNAL_SERVER_ERROR)
+                    .body("{\"success\": false, \"message\": \"Internal server error\"}");
+        }
+    }
+
     /**
      * 获取订单详情接口
      * 
@@ -0,0 +1,30 @@
+package com.cy.order.controller;
+
+import com.cy.order.timeout.OrderTimeoutManager;
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+
+/**
+ * 订单超时监控控制器
+ * 提供订单超时定时器统计
+ */
+@RestController
+@RequestMapping("/api/orders/timeouts")
+@RequiredArgsConstructor
+public class OrderTimeoutController {
+
+    private final OrderTimeoutManager orderTimeoutManager;
+
+    /**
+     * 获取订单超时统计
+     *
+     * @return 定时器数、自动取消数和接单提醒数
+     */
+    @GetMapping("/stats")
+    public ResponseEntity<OrderTimeoutManager.TimeoutStats> getTimeoutStats() {
+        return ResponseEntity.ok(orderTimeoutManager.getStats());
+    }
+}
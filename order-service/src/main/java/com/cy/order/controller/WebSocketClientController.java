@@ -1,12 +1,26 @@
 package com.cy.order.controller;
 
 import com.cy.order.websocket.ClientSessionManager;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.HeartbeatScheduler;
+import com.cy.order.websocket.OfflineMailbox;
+import com.cy.order.websocket.OpenOrdersBoard;
+import com.cy.order.websocket.PresenceFeed;
+import com.cy.order.websocket.StoreDeliveryTracker;
+import com.cy.order.websocket.TopicRegistry;
+import com.cy.order.websocket.WebSocketAdmissionController;
+import com.cy.order.websocket.WebSocketDrainCoordinator;
+import com.cy.order.websocket.WebSocketMessageSender;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
 
-import java.util.Set;
+import java.util.Map;
 
 /**
  * WebSocket客户端管理控制器
@@ -20,28 +34,99 @@ public class WebSocketClientController {
 
     private final ClientSessionManager clientSessionManager;
 
+    private final WebSocketMessageSender messageSender;
+
+    private final ClusterSessionRouter clusterSessionRouter;
+
+    private final WebSocketAdmissionController admissionController;
+
+    private final TopicRegistry topicRegistry;
+
+    private final StoreDeliveryTracker deliveryTracker;
+
+    private final HeartbeatScheduler heartbeatScheduler;
+
+    private final PresenceFeed presenceFeed;
+
+    private final WebSocketDrainCoordinator drainCoordinator;
+
+    private final OpenOrdersBoard openOrdersBoard;
+
     /**
-     * 获取在线用户列表
-     * 
-     * @return 在线用户ID列表
+     * 分页获取在线用户列表
+     *
+     * @param cursor 上一页返回的游标，首页不传
+     * @param limit  每页条数
+     * @return 按用户ID排序的一页在线用户
      */
     @GetMapping("/users/online")
-    public ResponseEntity<Set<String>> getOnlineUsers() {
-        Set<String> onlineUsers = clientSessionManager.getAllUserIds();
-        log.info("获取在线用户列表，共{}个用户在线", onlineUsers.size());
-        return ResponseEntity.ok(onlineUsers);
+    public ResponseEntity<PresenceFeed.PresencePage> getOnlineUsers(@RequestParam(required = false) String cursor,
+                                                                    @RequestParam(required = false) Integer limit) {
+        PresenceFeed.PresencePage page = presenceFeed.getPage(ClientType.USER, cursor, limit);
+        log.debug("获取在线用户列表，共{}个用户在线，本页{}个", page.getTotal(), page.getItems().size());
+        return ResponseEntity.ok(page);
     }
 
     /**
-     * 获取在线门店列表
-     * 
-     * @return 在线门店ID列表
+     * 分页获取在线门店列表
+     *
+     * @param cursor 上一页返回的游标，首页不传
+     * @param limit  每页条数
+     * @return 按门店ID排序的一页在线门店
      */
     @GetMapping("/stores/online")
-    public ResponseEntity<Set<String>> getOnlineStores() {
-        Set<String> onlineStores = clientSessionManager.getAllStoreIds();
-        log.info("获取在线门店列表，共{}个门店在线", onlineStores.size());
-        return ResponseEntity.ok(onlineStores);
+    public ResponseEntity<PresenceFeed.PresencePage> getOnlineStores(@RequestParam(required = false) String cursor,
+                                                                     @RequestParam(required = false) Integer limit) {
+        PresenceFeed.PresencePage page = presenceFeed.getPage(ClientType.STORE, cursor, limit);
+        log.debug("获取在线门店列表，共{}个门店在线，本页{}个", page.getTotal(), page.getItems().size());
+        return ResponseEntity.ok(page);
+    }
+
+    /**
+     * 获取在线数量
+     *
+     * @return 在线用户数、门店数和当前增量序号
+     */
+    @GetMapping("/presence/counts")
+    public ResponseEntity<PresenceFeed.PresenceCounts> getPresenceCounts() {
+        return ResponseEntity.ok(presenceFeed.getCounts());
+    }
+
+    /**
+     * 订阅在线状态变化（SSE）
+     * 先推送 snapshot 事件，之后推送合并后的 delta 事件
+     *
+     * @param snapshot 是否在快照中包含全部在线ID，默认包含
+     * @return SSE连接
+     */
+    @GetMapping(value = "/presence/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public ResponseEntity<SseEmitter> streamPresence(@RequestParam(defaultValue = "true") boolean snapshot) {
+        SseEmitter emitter = presenceFeed.subscribe(snapshot);
+        if (emitter == null) {
+            return ResponseEntity.status(HttpStatus.TOO_MANY_REQUESTS).build();
+        }
+        return ResponseEntity.ok(emitter);
+    }
+
+    /**
+     * 获取各门店的未确认通知数
+     *
+     * @return key: 门店ID, value: 未确认通知数，只包含存在未确认通知的门店
+     */
+    @GetMapping("/stores/unacked")
+    public ResponseEntity<Map<String, Integer>> getUnackedStores() {
+        return ResponseEntity.ok(deliveryTracker.getUnackedCounts());
+    }
+
+    /**
+     * 获取门店未完结订单看板快照，格式与WebSocket下发的 board_snapshot 相同
+     *
+     * @param storeId 门店ID
+     * @return 看板快照
+     */
+    @GetMapping(value = "/stores/{storeId}/board", produces = MediaType.APPLICATION_JSON_VALUE)
+    public ResponseEntity<String> getStoreBoard(@PathVariable String storeId) {
+        return ResponseEntity.ok(openOrdersBoard.getSnapshot(storeId));
     }
 
     /**
@@ -54,11 +139,34 @@ public class WebSocketClientController {
         WebSocketStats stats = WebSocketStats.builder()
                 .onlineUserCount(clientSessionManager.getUserSessionCount())
                 .onlineStoreCount(clientSessionManager.getStoreSessionCount())
+                .connectionCount(clientSessionManager.getConnectionCount())
+                .topicCount(topicRegistry.getTopicCount())
+                .send(messageSender.getStats())
+                .cluster(clusterSessionRouter.getStats())
+                .admission(admissionController.getStats())
+                .ack(deliveryTracker.getStats())
+                .mailbox(clientSessionManager.getMailboxStats())
+                .heartbeat(heartbeatScheduler.getStats())
+                .drain(drainCoordinator.getStats())
+                .board(openOrdersBoard.getStats())
                 .build();
-        log.info("获取WebSocket统计信息: {}", stats);
+        log.debug("获取WebSocket统计信息: {}", stats);
         return ResponseEntity.ok(stats);
     }
 
+    /**
+     * 手动排空本节点的WebSocket连接，用于下线前把客户端提前迁移到其他节点
+     * 排空后本节点不再接受新连接，直到重启
+     *
+     * @return 排空统计信息
+     */
+    @PostMapping("/drain")
+    public ResponseEntity<WebSocketDrainCoordinator.DrainStats> drain() {
+        int closed = drainCoordinator.drain();
+        log.info("手动排空WebSocket连接: closed={}", closed);
+        return ResponseEntity.ok(drainCoordinator.getStats());
+    }
+
     /**
      * 测试WebSocket控制器是否正常工作
      * 
@@ -81,5 +189,25 @@ public class WebSocketClientController {
     public static class WebSocketStats {
         private int onlineUserCount;
         private int onlineStoreCount;
+        // 本节点的连接数，同一客户端的多个会话分别计数
+        private int connectionCount;
+        // 当前有订阅的主题数
+        private int topicCount;
+        // 通知发送与压缩统计
+        private WebSocketMessageSender.SendStats send;
+        // 跨节点路由统计
+        private ClusterSessionRouter.ClusterStats cluster;
+        // 准入控制与入站限流统计
+        private WebSocketAdmissionController.AdmissionStats admission;
+        // 门店通知确认与重发统计
+        private StoreDeliveryTracker.AckStats ack;
+        // 离线信箱统计
+        private OfflineMailbox.MailboxStats mailbox;
+        // 协议级心跳统计
+        private HeartbeatScheduler.HeartbeatStats heartbeat;
+        // 停机排空统计
+        private WebSocketDrainCoordinator.DrainStats drain;
+        // 门店未完结订单看板统计
+        private OpenOrdersBoard.BoardStats board;
     }
 }
\ No newline at end of file
@@ -0,0 +1,119 @@
+package com.cy.order.listener;
+
+import com.cy.common.mq.OrderMessageCodec;
+import com.cy.common.transport.OrderEventTransport;
+import com.cy.common.transport.TopicPattern;
+import com.cy.order.config.MqRoutingProperties;
+import com.cy.order.config.MqStreamProperties;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.event.EventTypeEnum;
+import com.cy.order.event.OrderOperationEvent;
+import com.cy.order.mq.OrderRoutingConfig;
+import com.cy.order.mq.StoreRegionResolver;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.util.Date;
+import java.util.EnumSet;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.stream.Stream;
+
+/**
+ * 订单事件MQ监听器
+ * 订单生命周期事件按 order.{事件代码}.{门店区域} 路由键发布到订单事件主题交换机，
+ * 经 {@link OrderEventTransport} 发布，不依赖具体的传输实现。
+ * 路由键不匹配任何消费者绑定的事件（如默认配置下的 ORDER_UPDATED、ORDER_SHIPPED）不发布：
+ * mandatory 发布必然被退回，只会占用发布队列和本地缓存；开启订单事件流时流队列的绑定模式也计入
+ */
+@Component
+@Slf4j
+public class OrderEventMqListener {
+
+    /**
+     * 发布到MQ的订单生命周期事件
+     */
+    static final Set<EventTypeEnum> LIFECYCLE_EVENTS = EnumSet.of(
+            EventTypeEnum.ORDER_CREATED,
+            EventTypeEnum.ORDER_UPDATED,
+            EventTypeEnum.ORDER_PAID,
+            EventTypeEnum.ORDER_SHIPPED,
+            EventTypeEnum.ORDER_COMPLETED,
+            EventTypeEnum.ORDER_CANCELLED,
+            EventTypeEnum.ORDER_REFUNDED);
+
+    private final OrderEventTransport orderEventTransport;
+
+    private final MessageConverter messageConverter;
+
+    private final StoreRegionResolver storeRegionResolver;
+
+    // 各消费者队列及事件流的绑定模式
+    private final List<TopicPattern> bindings;
+
+    public OrderEventMqListener(OrderEventTransport orderEventTransport,
+                                MessageConverter messageConverter,
+                                StoreRegionResolver storeRegionResolver,
+                                MqRoutingProperties routingProperties,
+                                MqStreamProperties streamProperties) {
+        this.orderEventTransport = orderEventTransport;
+        this.messageConverter = messageConverter;
+        this.storeRegionResolver = storeRegionResolver;
+        this.bindings = Stream.concat(routingProperties.getBindings().values().stream().flatMap(List::stream),
+                        streamProperties.isEnabled() ? Stream.of(streamProperties.getBindingPattern()) : Stream.empty())
+                .distinct()
+                .map(TopicPattern::compile)
+                .toList();
+    }
+
+    /**
+     * 监听订单操作事件，发布到MQ
+     *
+     * @param event 订单操作事件
+     */
+    @Async
+    @EventListener(OrderOperationEvent.class)
+    public void handleOrderEvent(OrderOperationEvent event) {
+        if (!LIFECYCLE_EVENTS.contains(event.getEventType())) {
+            return;
+        }
+        OrderDto order = event.getOrder();
+        String routingKey = OrderRoutingConfig.routingKey(event.getEventType(), storeRegionResolver.resolve(order.getStoreId()));
+        if (!isBound(routingKey)) {
+            log.debug("订单事件没有消费者绑定，不发布: routingKey={}, 订单ID: {}", routingKey, order.getId());
+            return;
+        }
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setHeader(OrderMessageCodec.EVENT_TYPE_HEADER, event.getEventType().getCode());
+        // 重发时消息ID不变，消费者可据此去重
+        messageProperties.setMessageId(UUID.randomUUID().toString());
+        // 事件流按时间点重放时据此跳过早于该时间点的事件
+        messageProperties.setTimestamp(new Date());
+        Message message = messageConverter.toMessage(order, messageProperties);
+        // RabbitMQ 传输下发布确认和重试由发布器跟踪
+        if (orderEventTransport.publish(OrderRoutingConfig.ORDER_EVENT_EXCHANGE, routingKey, message)) {
+            log.debug("订单事件已进入MQ发布队列: routingKey={}, 订单ID: {}", routingKey, order.getId());
+        } else {
+            log.error("订单事件未能进入MQ发布队列: routingKey={}, 订单ID: {}", routingKey, order.getId());
+        }
+    }
+
+    /**
+     * @param routingKey 路由键
+     * @return 是否至少有一个消费者队列或事件流的绑定模式匹配
+     */
+    boolean isBound(String routingKey) {
+        for (TopicPattern binding : bindings) {
+            if (binding.matches(routingKey)) {
+                return true;
+            }
+        }
+        return false;
+    }
+}
@@ -3,12 +3,10 @@ package com.cy.order.listener;
 import com.cy.order.dto.OrderDto;
 import com.cy.order.event.EventTypeEnum;
 import com.cy.order.event.OrderOperationEvent;
-import com.cy.order.mq.FanoutRabbitConfig;
-import com.cy.order.websocket.AppWebSocketEndpoint;
-import com.cy.order.websocket.StoreWebSocketEndpoint;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.OrderTopicRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.core.RabbitTemplate;
 import org.springframework.context.event.EventListener;
 import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
@@ -24,7 +22,7 @@ import java.time.Instant;
 @RequiredArgsConstructor
 public class PaymentNotificationListener {
 
-    private final RabbitTemplate rabbitTemplate;
+    private final OrderTopicRouter orderTopicRouter;
 
     /**
      * 监听订单操作事件，处理支付相关通知
@@ -66,17 +64,10 @@ public class PaymentNotificationListener {
                     + "\"timestamp\": " + Instant.now().toEpochMilli()
                     + "}";
             
-            // 通过WebSocket发送通知给用户
-            AppWebSocketEndpoint.sendMessageToUser(order.getUserId(), notification);
-
-            // 通过WebSocket发送通知给门店
-            StoreWebSocketEndpoint.sendMessageToStore(order.getStoreId(), notification);
-
-            // 发送订单支付成功消息到MQ
-            rabbitTemplate.convertAndSend(FanoutRabbitConfig.FANOUT_EXCHANGE, "", order);
-
-            log.info("支付成功通知已通过 websockert 和 mq发送，订单ID: {}", order.getId());
-            
+            // 通过主题路由发送通知给用户、门店和订单订阅者
+            orderTopicRouter.publish(order, notification, ClientType.USER, ClientType.STORE);
+            // 支付事件发往MQ由 OrderEventMqListener 统一处理
+            log.info("支付成功通知已通过WebSocket发送，订单ID: {}", order.getId());
         } catch (Exception e) {
             log.error("发送支付成功通知失败，订单ID: {}", order.getId(), e);
         }
@@ -3,7 +3,8 @@ package com.cy.order.listener;
 import com.cy.order.dto.OrderDto;
 import com.cy.order.event.EventTypeEnum;
 import com.cy.order.event.OrderOperationEvent;
-import com.cy.order.websocket.StoreWebSocketEndpoint;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.OrderTopicRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.amqp.rabbit.core.RabbitTemplate;
@@ -17,13 +18,14 @@ import java.time.LocalDateTime;
 
 /**
  * 门店通知监听器
- * 负责处理订单操作后的门店通知相关逻辑，通过WebSocket发送通知
+ * 负责处理订单操作后的门店通知相关逻辑，通过订单主题路由推送给门店及订阅了该订单的会话
  */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class StoreNotificationListener {
 
+    private final OrderTopicRouter orderTopicRouter;
 
     /**
      * 监听订单操作事件，向门店发送通知
@@ -53,8 +55,8 @@ public class StoreNotificationListener {
                     + "\"timestamp\": " + Instant.now().toEpochMilli()
                     + "}";
 
-            // 通过WebSocket发送通知给门店
-            StoreWebSocketEndpoint.sendMessageToStore(order.getStoreId(), notification);
+            // 通过主题路由发送通知给门店和订单订阅者
+            orderTopicRouter.publish(order, notification, ClientType.STORE);
             log.info("门店通知已通过WebSocket发送，订单ID: {}", order.getId());
         } catch (Exception e) {
             log.error("发送门店WebSocket通知失败，订单ID: {}", order.getId(), e);
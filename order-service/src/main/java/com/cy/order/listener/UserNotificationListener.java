@@ -3,52 +3,80 @@ package com.cy.order.listener;
 import com.cy.order.dto.OrderDto;
 import com.cy.order.event.EventTypeEnum;
 import com.cy.order.event.OrderOperationEvent;
-import com.cy.order.websocket.AppWebSocketEndpoint;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.OrderTopicRouter;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
 import org.springframework.stereotype.Component;
 
 import java.time.Instant;
+import java.util.EnumSet;
+import java.util.Set;
 
 /**
  * 用户通知监听器
- * 负责处理订单操作后的用户通知相关逻辑
+ * 负责处理订单状态变化后的用户通知，通过订单主题路由推送给用户及订阅了该订单的会话；
+ * 订单创建由 {@link StoreNotificationListener}、支付由 {@link PaymentNotificationListener} 推送，每个事件只经路由推送一次
  */
 @Component
 @Slf4j
 @RequiredArgsConstructor
 public class UserNotificationListener {
 
+    /**
+     * 推送给用户的订单状态事件
+     */
+    static final Set<EventTypeEnum> STATUS_EVENTS = EnumSet.of(
+            EventTypeEnum.ORDER_UPDATED,
+            EventTypeEnum.ORDER_SHIPPED,
+            EventTypeEnum.ORDER_COMPLETED,
+            EventTypeEnum.ORDER_CANCELLED,
+            EventTypeEnum.ORDER_REFUNDED);
+
+    /**
+     * 同时推送给门店的事件，门店需要停止备货
+     */
+    private static final Set<EventTypeEnum> STORE_EVENTS = EnumSet.of(
+            EventTypeEnum.ORDER_CANCELLED,
+            EventTypeEnum.ORDER_REFUNDED);
+
+    private final OrderTopicRouter orderTopicRouter;
+
     /**
      * 监听订单操作事件，向用户发送通知
      * 
      * @param event 订单操作事件
      */
+    @Async
     @EventListener(OrderOperationEvent.class)
     public void handleOrderOperationEvent(OrderOperationEvent event) {
-        // 只处理订单更新事件
-        if (event.getEventType() != EventTypeEnum.ORDER_UPDATED) {
+        if (!STATUS_EVENTS.contains(event.getEventType())) {
             return;
         }
         
         OrderDto order = event.getOrder();
-        log.info("收到订单更新事件，准备通过WebSocket向用户发送通知，订单ID: {}, 用户ID: {}",
-                 order.getId(), order.getUserId());
+        log.info("收到订单状态事件，准备通过WebSocket向用户发送通知，事件: {}, 订单ID: {}, 用户ID: {}",
+                 event.getEventType().getCode(), order.getId(), order.getUserId());
         
         try {
             // 构建WebSocket通知消息
             String notification = "{"
-                    + "\"type\": \"order_created\","
+                    + "\"type\": \"" + event.getEventType().getCode() + "\","
                     + "\"orderId\": \"" + order.getId() + "\","
                     + "\"orderNumber\": \"" + order.getOrderNumber() + "\","
-                    + "\"message\": \"您的订单已更新成功，订单号：" + order.getOrderNumber() + "\","
-                    + "\"status\": \"PENDING\","
+                    + "\"message\": \"您的订单状态已更新，订单号：" + order.getOrderNumber() + "\","
+                    + "\"status\": \"" + order.getStatus() + "\","
                     + "\"timestamp\": " + Instant.now().toEpochMilli()
                     + "}";
             
-            // 通过WebSocket发送通知给用户
-            AppWebSocketEndpoint.sendMessageToUser(order.getUserId(), notification);
+            // 通过主题路由发送通知给用户和订单订阅者，取消、退款同时通知门店
+            if (STORE_EVENTS.contains(event.getEventType())) {
+                orderTopicRouter.publish(order, notification, ClientType.USER, ClientType.STORE);
+            } else {
+                orderTopicRouter.publish(order, notification, ClientType.USER);
+            }
             
             log.info("用户通知已通过WebSocket发送，订单ID: {}", order.getId());
             
@@ -0,0 +1,37 @@
+package com.cy.order.mq;
+
+import com.cy.order.config.MqStreamProperties;
+import org.springframework.amqp.core.Binding;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.Declarables;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.core.TopicExchange;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+/**
+ * 订单事件流
+ * 流队列绑定在订单事件主题交换机上，订单事件由 {@link OrderMessagePublisher} 发布一次，
+ * broker 同时路由到各消费者队列和流，发布确认覆盖流的写入。
+ * 流中的事件由统计、CRM服务按偏移量消费，见 order-common 的 RabbitStreamOrderEventLog
+ */
+@Configuration
+@ConditionalOnProperty(prefix = "mq.stream", name = "enabled", havingValue = "true")
+public class OrderEventStreamConfig {
+
+    @Bean
+    public Declarables orderEventStream(MqStreamProperties properties,
+                                        @Qualifier(OrderRoutingConfig.ORDER_EVENT_EXCHANGE) TopicExchange orderEventExchange) {
+        Queue stream = QueueBuilder.durable(properties.getName())
+                .stream()
+                .withArgument("x-max-length-bytes", properties.getMaxLengthBytes())
+                .withArgument("x-max-age", properties.getMaxAge())
+                .withArgument("x-stream-max-segment-size-bytes", properties.getMaxSegmentSizeBytes())
+                .build();
+        Binding binding = BindingBuilder.bind(stream).to(orderEventExchange).with(properties.getBindingPattern());
+        return new Declarables(stream, binding);
+    }
+}
@@ -0,0 +1,92 @@
+package com.cy.order.mq;
+
+import com.cy.common.mq.OrderMessage;
+import com.cy.common.mq.OrderMessageCodec;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.dto.OrderItemDto;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.MessageConversionException;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+
+/**
+ * 订单消息转换器
+ * 订单按 {@link OrderMessageCodec} 编码为紧凑的二进制消息体，金额转为分、时间转为epoch毫秒；
+ * 其他类型的消息交给委托的转换器处理
+ */
+public class OrderMessageConverter implements MessageConverter {
+
+    private final MessageConverter delegate;
+
+    public OrderMessageConverter(MessageConverter delegate) {
+        this.delegate = delegate;
+    }
+
+    @Override
+    public Message toMessage(Object object, MessageProperties messageProperties) throws MessageConversionException {
+        OrderMessage order;
+        if (object instanceof OrderDto dto) {
+            order = toOrderMessage(dto);
+        } else if (object instanceof OrderMessage message) {
+            order = message;
+        } else {
+            return delegate.toMessage(object, messageProperties);
+        }
+        byte[] body;
+        try {
+            body = OrderMessageCodec.encode(order);
+        } catch (ArithmeticException e) {
+            throw new MessageConversionException("订单消息编码失败，订单ID: " + order.getId(), e);
+        }
+        messageProperties.setContentType(OrderMessageCodec.CONTENT_TYPE);
+        messageProperties.setContentLength(body.length);
+        messageProperties.setHeader(OrderMessageCodec.SCHEMA_ID_HEADER, OrderMessageCodec.SCHEMA_ID);
+        messageProperties.setHeader(OrderMessageCodec.SCHEMA_VERSION_HEADER, OrderMessageCodec.SCHEMA_VERSION);
+        return new Message(body, messageProperties);
+    }
+
+    @Override
+    public Object fromMessage(Message message) throws MessageConversionException {
+        if (!OrderMessageCodec.CONTENT_TYPE.equals(message.getMessageProperties().getContentType())) {
+            return delegate.fromMessage(message);
+        }
+        try {
+            return OrderMessageCodec.decode(message.getBody());
+        } catch (IllegalArgumentException e) {
+            throw new MessageConversionException("订单消息解码失败", e);
+        }
+    }
+
+    /**
+     * 订单转为MQ订单消息
+     */
+    public static OrderMessage toOrderMessage(OrderDto order) {
+        List<OrderMessage.Item> items = order.getItems() == null ? null : order.getItems().stream()
+                .map(OrderMessageConverter::toItem)
+                .toList();
+        return OrderMessage.builder()
+                .id(order.getId())
+                .orderNumber(order.getOrderNumber())
+                .userId(order.getUserId())
+                .storeId(order.getStoreId())
+                .amount(order.getAmount() == null ? null : OrderMessageCodec.toMinorUnits(order.getAmount()))
+                .status(order.getStatus() == null ? null : order.getStatus().name())
+                .items(items)
+                .createTime(toEpochMillis(order.getCreateTime()))
+                .updateTime(toEpochMillis(order.getUpdateTime()))
+                .build();
+    }
+
+    private static OrderMessage.Item toItem(OrderItemDto item) {
+        return new OrderMessage.Item(item.getProductId(), item.getProductName(), item.getQuantity(),
+                item.getPrice() == null ? null : OrderMessageCodec.toMinorUnits(item.getPrice()));
+    }
+
+    private static Long toEpochMillis(LocalDateTime time) {
+        return time == null ? null : time.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+    }
+}
@@ -0,0 +1,529 @@
+package com.cy.order.mq;
+
+import com.cy.common.mq.MessageCompression;
+import com.cy.order.config.MqPublisherProperties;
+import com.cy.order.mq.spool.MessageSpool;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.ConnectionBlockedEvent;
+import org.springframework.amqp.rabbit.connection.ConnectionUnblockedEvent;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.MessageConverter;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单消息发布器
+ * 调用方线程只负责序列化和入队，由发布线程把队列中的消息凑批后在同一个信道上连续发出，
+ * 每条消息带独立的 {@link CorrelationData}，发布确认和路由失败通过其 future 异步回调，不阻塞发布线程。
+ * 已发出未确认的消息保存在以关联ID为键的 ConcurrentHashMap 中，确认、nack、超时三条路径以 remove 的结果决定由谁处理，
+ * nack 和确认超时的消息按指数退避重新入队，超过最大重试次数后记为失败；
+ * 路由失败被退回（NO_ROUTE）是拓扑问题，重试和写入本地缓存都不会成功，记录后直接丢弃。
+ * 消息经 RabbitTemplate 的独立发布连接发出，一批消息在发布线程借用的同一个信道上发完再归还；
+ * broker 对发布连接流控期间发布线程暂停，调用方仍只入队不阻塞，队列满时立即拒绝。
+ * 消息体超过压缩阈值时在入队前压缩，以 content-encoding 标识，消费端透明解压。
+ * 启用本地缓存时，队列满、重试耗尽和停机时仍未确认的消息写入 {@link MessageSpool}，broker 恢复后由回放线程按顺序补发
+ */
+@Slf4j
+@Component
+public class OrderMessagePublisher {
+
+    private final MqPublisherProperties properties;
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final MessageConverter messageConverter;
+
+    private final BlockingQueue<PendingMessage> queue;
+
+    // 已发出未确认的消息 key: 关联ID（消息ID:发送次数）
+    private final Map<String, PendingMessage> inFlight = new ConcurrentHashMap<>();
+
+    private final Semaphore inFlightPermits;
+
+    // 等待退避后重新入队的消息，停机时写入本地缓存
+    private final Set<PendingMessage> retrying = ConcurrentHashMap.newKeySet();
+
+    private final ScheduledExecutorService retryScheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "mq-publisher-retry");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    private final LongAdder published = new LongAdder();
+    private final LongAdder confirmed = new LongAdder();
+    private final LongAdder nacked = new LongAdder();
+    private final LongAdder returned = new LongAdder();
+    private final LongAdder timedOut = new LongAdder();
+    private final LongAdder retried = new LongAdder();
+    private final LongAdder failed = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+    private final LongAdder confirmLatencyMicrosTotal = new LongAdder();
+    private final LongAccumulator confirmLatencyMicrosMax = new LongAccumulator(Math::max, 0);
+    private final LongAdder blockedEvents = new LongAdder();
+    private final LongAdder compressed = new LongAdder();
+    private final LongAdder compressionSavedBytes = new LongAdder();
+    private final LongAdder spooled = new LongAdder();
+
+    private final Object flowLock = new Object();
+
+    private volatile boolean running;
+
+    // broker 是否对连接施加了流控
+    private volatile boolean blocked;
+
+    private Thread publisherThread;
+
+    private MessageSpool spool;
+
+    public OrderMessagePublisher(MqPublisherProperties properties,
+                                 RabbitTemplate rabbitTemplate,
+                                 MessageConverter messageConverter) {
+        this.properties = properties;
+        this.rabbitTemplate = rabbitTemplate;
+        this.messageConverter = messageConverter;
+        this.queue = new ArrayBlockingQueue<>(Math.max(1, properties.getQueueCapacity()));
+        this.inFlightPermits = new Semaphore(Math.max(1, properties.getMaxInFlight()));
+    }
+
+    @Autowired(required = false)
+    public void setSpool(MessageSpool spool) {
+        this.spool = spool;
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        publisherThread = new Thread(this::publishLoop, "mq-publisher");
+        publisherThread.setDaemon(true);
+        publisherThread.start();
+        long sweepInterval = Math.max(100, properties.getConfirmTimeout() / 10);
+        retryScheduler.scheduleWithFixedDelay(this::expireUnconfirmed, sweepInterval, sweepInterval, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 停机时先发完队列中的消息，再在超时内等待未确认的消息
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        long deadline = System.currentTimeMillis() + properties.getShutdownTimeout();
+        if (publisherThread != null) {
+            publisherThread.join(Math.max(1, properties.getShutdownTimeout()));
+        }
+        while (!inFlight.isEmpty() && System.currentTimeMillis() < deadline) {
+            Thread.sleep(10);
+        }
+        retryScheduler.shutdownNow();
+        if (!queue.isEmpty() || !inFlight.isEmpty() || !retrying.isEmpty()) {
+            log.warn("停机时仍有订单消息未确认: queued={}, inFlight={}, retrying={}", queue.size(), inFlight.size(), retrying.size());
+            if (spool != null) {
+                // 未确认的消息可能已到达broker，回放后消费者按messageId去重
+                List<PendingMessage> remaining = new ArrayList<>(queue);
+                remaining.addAll(retrying);
+                remaining.addAll(inFlight.values());
+                remaining.forEach(pending -> spool(pending, "shutdown"));
+            }
+        }
+    }
+
+    /**
+     * 异步发布消息
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由键
+     * @param payload    消息内容，由消息转换器序列化
+     * @return 是否已入队，队列满时返回false
+     */
+    public boolean publish(String exchange, String routingKey, Object payload) {
+        return publish(exchange, routingKey, payload, Map.of());
+    }
+
+    /**
+     * 异步发布带消息头的消息
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由键
+     * @param payload    消息内容，由消息转换器序列化
+     * @param headers    消息头
+     * @return 是否已入队，队列满时返回false
+     */
+    public boolean publish(String exchange, String routingKey, Object payload, Map<String, Object> headers) {
+        MessageProperties messageProperties = new MessageProperties();
+        headers.forEach(messageProperties::setHeader);
+        return publishMessage(exchange, routingKey, messageConverter.toMessage(payload, messageProperties));
+    }
+
+    /**
+     * 异步发布已序列化的消息
+     *
+     * @param exchange   交换机
+     * @param routingKey 路由键
+     * @param message    消息，未设置消息ID时自动生成
+     * @return 是否已入队，队列满时返回false
+     */
+    public boolean publishMessage(String exchange, String routingKey, Message message) {
+        MessageProperties messageProperties = message.getMessageProperties();
+        // 重发时消息ID不变，消费者可据此去重
+        if (messageProperties.getMessageId() == null) {
+            messageProperties.setMessageId(UUID.randomUUID().toString());
+        }
+        message = compress(message);
+        PendingMessage pending = new PendingMessage(messageProperties.getMessageId(), exchange, routingKey, message);
+        if (!queue.offer(pending)) {
+            if (spool(pending, "queue full")) {
+                return true;
+            }
+            rejected.increment();
+            log.error("订单消息发布队列已满，拒绝发布: exchange={}, messageId={}", exchange, pending.id);
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * 消息体超过压缩阈值且压缩后更小时改为发送压缩后的消息
+     */
+    private Message compress(Message message) {
+        int threshold = properties.getCompressionThreshold();
+        byte[] body = message.getBody();
+        if (threshold <= 0 || body.length <= threshold) {
+            return message;
+        }
+        byte[] deflated = MessageCompression.compress(body);
+        if (deflated == null) {
+            return message;
+        }
+        MessageProperties messageProperties = message.getMessageProperties();
+        messageProperties.setContentEncoding(MessageCompression.ENCODING_DEFLATE);
+        messageProperties.setHeader(MessageCompression.ORIGINAL_LENGTH_HEADER, body.length);
+        messageProperties.setContentLength(deflated.length);
+        compressed.increment();
+        compressionSavedBytes.add(body.length - deflated.length);
+        return new Message(deflated, messageProperties);
+    }
+
+    /**
+     * broker 因内存或磁盘告警阻塞连接时暂停发布，消息在队列中等待
+     */
+    @EventListener
+    public void onConnectionBlocked(ConnectionBlockedEvent event) {
+        blocked = true;
+        blockedEvents.increment();
+        log.warn("RabbitMQ连接被流控，暂停订单消息发布: reason={}, queued={}", event.getReason(), queue.size());
+    }
+
+    /**
+     * 流控解除后恢复发布，并重新计算未确认消息的确认超时，避免流控期间的等待被当作超时重发
+     */
+    @EventListener
+    public void onConnectionUnblocked(ConnectionUnblockedEvent event) {
+        blocked = false;
+        long now = System.nanoTime();
+        for (PendingMessage pending : inFlight.values()) {
+            pending.sentAt = now;
+        }
+        synchronized (flowLock) {
+            flowLock.notifyAll();
+        }
+        log.info("RabbitMQ连接流控解除，恢复订单消息发布: queued={}", queue.size());
+    }
+
+    private void publishLoop() {
+        List<PendingMessage> batch = new ArrayList<>(properties.getBatchSize());
+        while (running || !queue.isEmpty()) {
+            try {
+                if (blocked) {
+                    synchronized (flowLock) {
+                        if (blocked) {
+                            flowLock.wait(100);
+                        }
+                    }
+                    continue;
+                }
+                if (nextBatch(batch)) {
+                    sendBatch(batch);
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("订单消息发布线程异常", e);
+            } finally {
+                batch.clear();
+            }
+        }
+    }
+
+    /**
+     * 从队列中凑一批消息，最多等待 batchMaxDelay 毫秒
+     *
+     * @return 是否取到消息
+     */
+    boolean nextBatch(List<PendingMessage> batch) throws InterruptedException {
+        PendingMessage first = queue.poll(100, TimeUnit.MILLISECONDS);
+        if (first == null) {
+            return false;
+        }
+        batch.add(first);
+        int batchSize = Math.max(1, Math.min(properties.getBatchSize(), properties.getMaxInFlight()));
+        queue.drainTo(batch, batchSize - batch.size());
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(properties.getBatchMaxDelay());
+        while (batch.size() < batchSize) {
+            long remaining = deadline - System.nanoTime();
+            PendingMessage next = remaining > 0 ? queue.poll(remaining, TimeUnit.NANOSECONDS) : null;
+            if (next == null) {
+                break;
+            }
+            batch.add(next);
+            queue.drainTo(batch, batchSize - batch.size());
+        }
+        return true;
+    }
+
+    /**
+     * 在一个信道上连续发出一批消息，确认异步到达
+     */
+    void sendBatch(List<PendingMessage> batch) throws InterruptedException {
+        inFlightPermits.acquire(batch.size());
+        List<String> correlationIds = new ArrayList<>(batch.size());
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (PendingMessage pending : batch) {
+                    CorrelationData correlation = track(pending);
+                    correlationIds.add(correlation.getId());
+                    operations.send(pending.exchange, pending.routingKey, pending.message, correlation);
+                }
+                return null;
+            });
+            published.add(batch.size());
+            batches.increment();
+        } catch (AmqpException e) {
+            log.warn("订单消息批量发布失败，稍后重试: size={}, cause={}", batch.size(), e.getMessage());
+            // 已登记的消息由本线程收回重试；尚未登记的消息直接重试
+            for (String correlationId : correlationIds) {
+                PendingMessage pending = inFlight.remove(correlationId);
+                if (pending != null) {
+                    inFlightPermits.release();
+                    retry(pending, e.getMessage());
+                }
+            }
+            inFlightPermits.release(batch.size() - correlationIds.size());
+            for (PendingMessage pending : batch.subList(correlationIds.size(), batch.size())) {
+                // 未发出的消息也计入发送次数，broker 长时间不可用时重试耗尽后转入本地缓存
+                pending.attempts++;
+                retry(pending, e.getMessage());
+            }
+        }
+    }
+
+    private CorrelationData track(PendingMessage pending) {
+        pending.attempts++;
+        pending.sentAt = System.nanoTime();
+        // 每次发送使用新的关联ID，上一次发送迟到的确认不会被误认
+        String correlationId = pending.id + ":" + pending.attempts;
+        CorrelationData correlation = new CorrelationData(correlationId);
+        inFlight.put(correlationId, pending);
+        correlation.getFuture().whenComplete((confirm, error) -> onConfirm(correlation, confirm, error));
+        return correlation;
+    }
+
+    /**
+     * 处理发布确认；开启 mandatory 时路由失败的消息在确认到达前已写入 {@link CorrelationData#getReturned()}
+     */
+    void onConfirm(CorrelationData correlation, CorrelationData.Confirm confirm, Throwable error) {
+        PendingMessage pending = inFlight.remove(correlation.getId());
+        if (pending == null) {
+            // 已按超时重发
+            return;
+        }
+        inFlightPermits.release();
+        ReturnedMessage returnedMessage = correlation.getReturned();
+        if (confirm != null && confirm.isAck() && returnedMessage == null) {
+            confirmed.increment();
+            long latencyMicros = TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - pending.sentAt);
+            confirmLatencyMicrosTotal.add(latencyMicros);
+            confirmLatencyMicrosMax.accumulate(latencyMicros);
+            return;
+        }
+        if (returnedMessage != null) {
+            returned.increment();
+            log.error("订单消息无法路由，已丢弃: exchange={}, routingKey={}, messageId={}, replyCode={}, replyText={}",
+                    pending.exchange, pending.routingKey, pending.id, returnedMessage.getReplyCode(),
+                    returnedMessage.getReplyText());
+        } else {
+            nacked.increment();
+            retry(pending, confirm != null ? confirm.getReason() : String.valueOf(error));
+        }
+    }
+
+    /**
+     * 超过确认超时仍未确认的消息按未确认处理
+     */
+    void expireUnconfirmed() {
+        if (blocked) {
+            return;
+        }
+        long now = System.nanoTime();
+        long timeoutNanos = TimeUnit.MILLISECONDS.toNanos(properties.getConfirmTimeout());
+        for (Map.Entry<String, PendingMessage> entry : inFlight.entrySet()) {
+            PendingMessage pending = entry.getValue();
+            if (now - pending.sentAt > timeoutNanos && inFlight.remove(entry.getKey(), pending)) {
+                inFlightPermits.release();
+                timedOut.increment();
+                retry(pending, "confirm timeout");
+            }
+        }
+    }
+
+    private void retry(PendingMessage pending, String reason) {
+        if (pending.attempts > properties.getMaxRetries()) {
+            if (spool(pending, reason)) {
+                return;
+            }
+            failed.increment();
+            log.error("订单消息发布失败，已达最大重试次数: exchange={}, messageId={}, attempts={}, reason={}",
+                    pending.exchange, pending.id, pending.attempts, reason);
+            return;
+        }
+        retried.increment();
+        long delay = backoff(pending.attempts);
+        log.warn("订单消息未确认，{}ms后重试: messageId={}, attempts={}, reason={}", delay, pending.id, pending.attempts, reason);
+        retrying.add(pending);
+        retryScheduler.schedule(() -> {
+            retrying.remove(pending);
+            if (!queue.offer(pending) && !spool(pending, "queue full")) {
+                failed.increment();
+                log.error("订单消息发布队列已满，放弃重试: messageId={}", pending.id);
+            }
+        }, delay, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * 写入本地缓存，由回放线程在broker恢复后补发
+     *
+     * @return 是否写入成功，未启用缓存或缓存已满时返回false
+     */
+    private boolean spool(PendingMessage pending, String reason) {
+        if (spool == null || !spool.append(pending.id, pending.exchange, pending.routingKey, pending.message)) {
+            return false;
+        }
+        spooled.increment();
+        log.warn("订单消息已写入本地缓存，等待回放: messageId={}, attempts={}, reason={}", pending.id, pending.attempts, reason);
+        return true;
+    }
+
+    long backoff(int attempts) {
+        double delay = properties.getRetryInitialInterval() * Math.pow(properties.getRetryMultiplier(), Math.max(0, attempts - 1));
+        return (long) Math.min(delay, properties.getRetryMaxInterval());
+    }
+
+    /**
+     * 获取发布统计信息
+     *
+     * @return 发布统计信息
+     */
+    public PublisherStats getStats() {
+        long confirmedCount = confirmed.sum();
+        return new PublisherStats(queue.size(), inFlight.size(), published.sum(), confirmedCount, nacked.sum(),
+                returned.sum(), timedOut.sum(), retried.sum(), failed.sum(), rejected.sum(), batches.sum(),
+                confirmedCount > 0 ? confirmLatencyMicrosTotal.sum() / confirmedCount : 0,
+                confirmLatencyMicrosMax.get(), blocked, blockedEvents.sum(), compressed.sum(), compressionSavedBytes.sum(),
+                spooled.sum());
+    }
+
+    /**
+     * 待发布或已发出未确认的消息
+     */
+    static final class PendingMessage {
+
+        private final String id;
+        private final String exchange;
+        private final String routingKey;
+        private final Message message;
+
+        // 已发送次数，只在发布线程中修改
+        private volatile int attempts;
+
+        // 最近一次发送的时间（纳秒）
+        private volatile long sentAt;
+
+        PendingMessage(String id, String exchange, String routingKey, Message message) {
+            this.id = id;
+            this.exchange = exchange;
+            this.routingKey = routingKey;
+            this.message = message;
+        }
+    }
+
+    /**
+     * 发布统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PublisherStats {
+        // 等待发布的消息数
+        private int queued;
+        // 已发出未确认的消息数
+        private int inFlight;
+        // 发出的消息数，重发也计入
+        private long published;
+        // 确认成功的消息数
+        private long confirmed;
+        // 被broker nack的消息数
+        private long nacked;
+        // 路由失败被退回并丢弃的消息数
+        private long returned;
+        // 确认超时的消息数
+        private long timedOut;
+        // 重试次数
+        private long retried;
+        // 超过最大重试次数且未能写入本地缓存的消息数
+        private long failed;
+        // 队列满被拒绝的消息数
+        private long rejected;
+        // 发出的批次数
+        private long batches;
+        // 平均确认延迟（微秒）
+        private long averageConfirmLatencyMicros;
+        // 最大确认延迟（微秒）
+        private long maxConfirmLatencyMicros;
+        // 当前是否处于broker流控
+        private boolean blocked;
+        // 收到的流控次数
+        private long blockedEvents;
+        // 压缩发送的消息数
+        private long compressed;
+        // 压缩节省的字节数
+        private long compressionSavedBytes;
+        // 写入本地缓存的消息数
+        private long spooled;
+    }
+}
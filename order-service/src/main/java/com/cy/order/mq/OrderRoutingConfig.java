@@ -0,0 +1,85 @@
+package com.cy.order.mq;
+
+import com.cy.common.transport.OrderEventTransport;
+import com.cy.common.transport.RabbitOrderEventTransport;
+import com.cy.order.config.MqRoutingProperties;
+import com.cy.order.event.EventTypeEnum;
+import org.springframework.amqp.core.*;
+import org.springframework.amqp.rabbit.config.SimpleRabbitListenerContainerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 订单事件主题交换机
+ * 路由键为 order.{事件代码}.{门店区域}，如 order.order_paid.east；
+ * 各消费者的队列按 mq.routing.bindings 中的模式绑定，只接收自己关心的事件和区域。
+ * 订单事件经 {@link OrderEventTransport} 发布，RabbitMQ 传输的发布交给 {@link OrderMessagePublisher}（批量、发布确认、本地缓存）
+ */
+@Configuration
+public class OrderRoutingConfig {
+
+    public static final String ORDER_EVENT_EXCHANGE = "order.event.exchange";
+
+    public static final String QUEUE_PREFIX = "order.notify.queue.";
+
+    /**
+     * 构建订单事件的路由键
+     *
+     * @param eventType 事件类型
+     * @param region    门店区域
+     * @return 路由键
+     */
+    public static String routingKey(EventTypeEnum eventType, String region) {
+        return "order." + eventType.getCode() + "." + region;
+    }
+
+    /**
+     * 在传输上声明订单事件交换机、各消费者的队列及其绑定，进程内传输使用；
+     * RabbitMQ 上的拓扑由下面的 Declarables 在连接建立时声明
+     *
+     * @param transport  订单事件传输
+     * @param properties 路由配置
+     */
+    public static void declareTopology(OrderEventTransport transport, MqRoutingProperties properties) {
+        transport.declareExchange(ORDER_EVENT_EXCHANGE);
+        for (Map.Entry<String, List<String>> entry : properties.getBindings().entrySet()) {
+            String queue = QUEUE_PREFIX + entry.getKey();
+            transport.declareQueue(queue);
+            for (String pattern : entry.getValue()) {
+                transport.bind(queue, ORDER_EVENT_EXCHANGE, pattern);
+            }
+        }
+    }
+
+    @Bean(destroyMethod = "close")
+    public OrderEventTransport orderEventTransport(AmqpAdmin amqpAdmin,
+                                                   SimpleRabbitListenerContainerFactory rabbitListenerContainerFactory,
+                                                   OrderMessagePublisher orderMessagePublisher) {
+        return new RabbitOrderEventTransport(amqpAdmin, rabbitListenerContainerFactory, orderMessagePublisher::publishMessage);
+    }
+
+    @Bean(ORDER_EVENT_EXCHANGE)
+    public TopicExchange orderEventExchange() {
+        return new TopicExchange(ORDER_EVENT_EXCHANGE);
+    }
+
+    /**
+     * 各消费者的队列及其绑定
+     */
+    @Bean
+    public Declarables orderNotifyQueues(MqRoutingProperties properties) {
+        List<Declarable> declarables = new ArrayList<>();
+        for (Map.Entry<String, List<String>> entry : properties.getBindings().entrySet()) {
+            Queue queue = QueueBuilder.durable(QUEUE_PREFIX + entry.getKey()).build();
+            declarables.add(queue);
+            for (String pattern : entry.getValue()) {
+                declarables.add(BindingBuilder.bind(queue).to(orderEventExchange()).with(pattern));
+            }
+        }
+        return new Declarables(declarables);
+    }
+}
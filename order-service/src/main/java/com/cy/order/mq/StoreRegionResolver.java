@@ -0,0 +1,31 @@
+package com.cy.order.mq;
+
+import com.cy.order.config.MqRoutingProperties;
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+
+/**
+ * 门店区域解析器
+ * 按 mq.routing.store-regions 配置查找门店所属区域，未配置的门店归入默认区域
+ */
+@Component
+@RequiredArgsConstructor
+public class StoreRegionResolver {
+
+    private final MqRoutingProperties properties;
+
+    /**
+     * 解析门店所属区域
+     *
+     * @param storeId 门店ID
+     * @return 区域，可直接用作路由键中的一段
+     */
+    public String resolve(String storeId) {
+        String region = storeId == null ? null : properties.getStoreRegions().get(storeId);
+        if (region == null || region.isBlank()) {
+            region = properties.getDefaultRegion();
+        }
+        // 路由键以点分段，区域中不能含点和通配符
+        return region.replace('.', '_').replace('*', '_').replace('#', '_');
+    }
+}
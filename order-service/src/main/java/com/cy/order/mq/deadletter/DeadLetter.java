@@ -0,0 +1,143 @@
+package com.cy.order.mq.deadletter;
+
+import lombok.Getter;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 按死信头分类的一条死信
+ * RabbitMQ 死信时在 x-death 中按队列和原因记录死信次数，最近一次在最前；
+ * 3.13 起另有 x-first-death-* 和 x-last-death-* 头。原因、原队列、原交换机和原路由键优先取最近一次死信，
+ * 都缺失时原因为 {@link DeadLetterReason#UNKNOWN}，回放到默认交换机
+ */
+@Getter
+public class DeadLetter {
+
+    /**
+     * 停放的消息上记录的死信原因
+     */
+    public static final String REASON_HEADER = "x-dead-letter-reason";
+
+    /**
+     * 停放的消息上记录的原队列
+     */
+    public static final String QUEUE_HEADER = "x-dead-letter-queue";
+
+    /**
+     * 累计死信次数，回放后再次死信时继续累加，可据此发现反复死信的消息
+     */
+    public static final String COUNT_HEADER = "x-dead-letter-count";
+
+    private static final String X_DEATH = "x-death";
+    private static final String FIRST_DEATH_PREFIX = "x-first-death-";
+    private static final String LAST_DEATH_PREFIX = "x-last-death-";
+
+    private final DeadLetterReason reason;
+
+    private final String queue;
+
+    private final String exchange;
+
+    private final String routingKey;
+
+    // 本次死信前在原队列中的死信次数
+    private final long count;
+
+    private final Message message;
+
+    private DeadLetter(DeadLetterReason reason, String queue, String exchange, String routingKey, long count, Message message) {
+        this.reason = reason;
+        this.queue = queue;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.count = count;
+        this.message = message;
+    }
+
+    /**
+     * 按死信头分类
+     *
+     * @param message         死信队列中的消息
+     * @param defaultExchange 无法确定原交换机时使用的交换机
+     * @return 分类后的死信
+     */
+    public static DeadLetter classify(Message message, String defaultExchange) {
+        MessageProperties properties = message.getMessageProperties();
+        List<Map<String, ?>> deaths = properties.getXDeathHeader();
+        Map<String, ?> latest = deaths == null || deaths.isEmpty() ? Map.of() : deaths.get(0);
+        String reason = firstNonNull(properties.getHeader(LAST_DEATH_PREFIX + "reason"), latest.get("reason"),
+                properties.getHeader(FIRST_DEATH_PREFIX + "reason"));
+        String queue = firstNonNull(properties.getHeader(LAST_DEATH_PREFIX + "queue"), latest.get("queue"),
+                properties.getHeader(FIRST_DEATH_PREFIX + "queue"));
+        String exchange = firstNonNull(properties.getHeader(LAST_DEATH_PREFIX + "exchange"), latest.get("exchange"),
+                properties.getHeader(FIRST_DEATH_PREFIX + "exchange"));
+        String routingKey = latest.get("routing-keys") instanceof List<?> keys && !keys.isEmpty()
+                ? String.valueOf(keys.get(0)) : properties.getReceivedRoutingKey();
+        long count = latest.get("count") instanceof Number number ? number.longValue() : 1;
+        return new DeadLetter(reason == null ? DeadLetterReason.UNKNOWN : DeadLetterReason.fromCode(reason),
+                queue, exchange == null ? defaultExchange : exchange, routingKey == null ? "" : routingKey, count, message);
+    }
+
+    /**
+     * 停放用的消息：保留原消息的属性，去掉 broker 的死信头和过期时间，记录原因、原队列和累计死信次数
+     *
+     * @return 停放用的消息
+     */
+    public Message toParked() {
+        MessageProperties source = message.getMessageProperties();
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(source.getMessageId());
+        properties.setContentType(source.getContentType());
+        properties.setContentEncoding(source.getContentEncoding());
+        properties.setTimestamp(source.getTimestamp());
+        properties.setDeliveryMode(source.getReceivedDeliveryMode() != null
+                ? source.getReceivedDeliveryMode() : source.getDeliveryMode());
+        properties.setPriority(source.getPriority());
+        properties.setCorrelationId(source.getCorrelationId());
+        properties.setType(source.getType());
+        properties.setReplyTo(source.getReplyTo());
+        properties.setUserId(source.getUserId());
+        properties.setAppId(source.getAppId());
+        source.getHeaders().forEach((name, value) -> {
+            if (!isDeathHeader(name)) {
+                properties.setHeader(name, value);
+            }
+        });
+        properties.setHeader(REASON_HEADER, reason.getCode());
+        if (queue != null) {
+            properties.setHeader(QUEUE_HEADER, queue);
+        }
+        Object previous = source.getHeader(COUNT_HEADER);
+        properties.setHeader(COUNT_HEADER, (previous instanceof Number number ? number.longValue() : 0) + count);
+        return new Message(message.getBody(), properties);
+    }
+
+    /**
+     * 回放用的消息：去掉停放时记录的原因和原队列，保留累计死信次数
+     *
+     * @param parked 停放的消息
+     * @return 回放用的消息
+     */
+    public static Message toReplay(Message parked) {
+        MessageProperties properties = parked.getMessageProperties();
+        properties.getHeaders().remove(REASON_HEADER);
+        properties.getHeaders().remove(QUEUE_HEADER);
+        return parked;
+    }
+
+    private static boolean isDeathHeader(String name) {
+        return name.equals(X_DEATH) || name.startsWith(FIRST_DEATH_PREFIX) || name.startsWith(LAST_DEATH_PREFIX);
+    }
+
+    private static String firstNonNull(Object... values) {
+        for (Object value : values) {
+            if (value != null) {
+                return value.toString();
+            }
+        }
+        return null;
+    }
+}
@@ -0,0 +1,209 @@
+package com.cy.order.mq.deadletter;
+
+import com.cy.order.config.MqDeadLetterProperties;
+import com.cy.order.support.RateMeter;
+import com.rabbitmq.client.Channel;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.amqp.rabbit.listener.api.ChannelAwareBatchMessageListener;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 死信处理器
+ * 消费死信队列，按死信原因分类后转存到 {@link ParkingLot}：监听容器凑满 batchSize 条或等待 batchTimeout 后整批交给处理器，
+ * 整批停放成功后一次确认（multiple）。停放区已满的死信等待 parkRetryInterval 后重新入队，留在死信队列中；
+ * 写入停放区出错（如无法序列化）的死信重试也不会成功，直接拒绝且不重新入队，避免反复投递。
+ * 死信流入速率按 inflowWindowSeconds 秒的滑动窗口统计，重新投递的死信不重复计入
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "mq.dead-letter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class DeadLetterProcessor implements ChannelAwareBatchMessageListener {
+
+    private final MqDeadLetterProperties properties;
+
+    private final ConnectionFactory connectionFactory;
+
+    private final ParkingLot parkingLot;
+
+    private final RateMeter inflow;
+
+    private final LongAdder received = new LongAdder();
+    private final LongAdder parked = new LongAdder();
+    private final LongAdder parkFailures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder batches = new LongAdder();
+
+    private final Map<DeadLetterReason, LongAdder> receivedByReason = new EnumMap<>(DeadLetterReason.class);
+
+    private SimpleMessageListenerContainer container;
+
+    public DeadLetterProcessor(MqDeadLetterProperties properties, ConnectionFactory connectionFactory, ParkingLot parkingLot) {
+        this.properties = properties;
+        this.connectionFactory = connectionFactory;
+        this.parkingLot = parkingLot;
+        this.inflow = new RateMeter(properties.getInflowWindowSeconds());
+        for (DeadLetterReason reason : DeadLetterReason.values()) {
+            receivedByReason.put(reason, new LongAdder());
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        int batchSize = Math.max(1, properties.getBatchSize());
+        container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueueNames(properties.getQueue());
+        container.setAcknowledgeMode(AcknowledgeMode.MANUAL);
+        container.setPrefetchCount(batchSize);
+        container.setConsumerBatchEnabled(true);
+        container.setBatchSize(batchSize);
+        container.setReceiveTimeout(properties.getBatchTimeout());
+        container.setMessageListener(this);
+        container.afterPropertiesSet();
+        container.start();
+        log.info("死信处理已启动: queue={}, batchSize={}, parkingLot={}", properties.getQueue(), batchSize,
+                properties.getDirectory());
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    @Override
+    public void onMessageBatch(List<Message> messages, Channel channel) {
+        if (messages.isEmpty()) {
+            return;
+        }
+        long firstArrivals = 0;
+        List<Message> failed = new ArrayList<>();
+        List<Message> unparkable = new ArrayList<>();
+        for (Message message : messages) {
+            DeadLetter deadLetter = DeadLetter.classify(message, properties.getDefaultExchange());
+            if (!Boolean.TRUE.equals(message.getMessageProperties().isRedelivered())) {
+                firstArrivals++;
+                receivedByReason.get(deadLetter.getReason()).increment();
+            }
+            boolean stored;
+            try {
+                stored = parkingLot.park(deadLetter);
+            } catch (UncheckedIOException e) {
+                log.error("死信写入停放区出错，拒绝且不重新入队: reason={}, messageId={}", deadLetter.getReason().getCode(),
+                        message.getMessageProperties().getMessageId(), e);
+                unparkable.add(message);
+                continue;
+            }
+            if (stored) {
+                parked.increment();
+                log.debug("死信已停放: reason={}, queue={}, exchange={}, routingKey={}, messageId={}",
+                        deadLetter.getReason().getCode(), deadLetter.getQueue(), deadLetter.getExchange(),
+                        deadLetter.getRoutingKey(), message.getMessageProperties().getMessageId());
+            } else {
+                failed.add(message);
+            }
+        }
+        received.add(firstArrivals);
+        inflow.mark(firstArrivals);
+        batches.increment();
+        try {
+            if (failed.isEmpty() && unparkable.isEmpty()) {
+                channel.basicAck(messages.get(messages.size() - 1).getMessageProperties().getDeliveryTag(), true);
+                return;
+            }
+            settlePartially(messages, failed, unparkable, channel);
+        } catch (IOException e) {
+            // 未确认的死信在信道恢复后重新投递，已停放的会再停放一次，回放时按 messageId 去重
+            log.error("确认死信失败: count={}", messages.size(), e);
+        }
+    }
+
+    private void settlePartially(List<Message> messages, List<Message> failed, List<Message> unparkable, Channel channel)
+            throws IOException {
+        for (Message message : messages) {
+            if (unparkable.contains(message)) {
+                channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, false);
+            } else if (!failed.contains(message)) {
+                channel.basicAck(message.getMessageProperties().getDeliveryTag(), false);
+            }
+        }
+        rejected.add(unparkable.size());
+        if (failed.isEmpty()) {
+            return;
+        }
+        parkFailures.add(failed.size());
+        log.error("死信停放失败，稍后重新投递: failed={}, batch={}", failed.size(), messages.size());
+        try {
+            Thread.sleep(properties.getParkRetryInterval());
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        for (Message message : failed) {
+            channel.basicNack(message.getMessageProperties().getDeliveryTag(), false, true);
+        }
+    }
+
+    /**
+     * 获取死信处理统计
+     *
+     * @return 流入数和流入速率、停放数、停放失败数、拒绝数和各原因的停放情况
+     */
+    public DeadLetterStats getStats() {
+        Map<String, Long> byReason = new LinkedHashMap<>();
+        receivedByReason.forEach((reason, count) -> byReason.put(reason.getCode(), count.sum()));
+        long now = System.currentTimeMillis();
+        return new DeadLetterStats(properties.getQueue(), received.sum(), byReason,
+                Math.round(inflow.getRate(now) * 100) / 100.0, inflow.getCount(now), inflow.getWindowSeconds(),
+                parked.sum(), parkFailures.sum(), rejected.sum(), batches.sum(), parkingLot.getStats());
+    }
+
+    /**
+     * 死信处理统计
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DeadLetterStats {
+        // 死信队列
+        private String queue;
+        // 本次启动以来流入的死信数（不含重新投递）
+        private long received;
+        // 各死信原因的流入数
+        private Map<String, Long> receivedByReason;
+        // 统计窗口内的平均流入速率（条/秒）
+        private double inflowRate;
+        // 统计窗口内流入的死信数
+        private long inflowInWindow;
+        // 统计窗口（秒）
+        private int inflowWindowSeconds;
+        // 停放成功的死信数
+        private long parked;
+        // 停放失败（重新入队）的死信数
+        private long parkFailures;
+        // 写入停放区出错、拒绝且不重新入队的死信数
+        private long rejected;
+        // 处理的批次数
+        private long batches;
+        // 各死信原因的停放区统计
+        private Map<String, ParkingLot.ParkedStats> parkingLot;
+    }
+}
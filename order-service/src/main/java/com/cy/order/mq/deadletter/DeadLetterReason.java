@@ -0,0 +1,75 @@
+package com.cy.order.mq.deadletter;
+
+/**
+ * 死信原因
+ * 与 RabbitMQ 在 x-death、x-first-death-reason、x-last-death-reason 中给出的原因一一对应
+ */
+public enum DeadLetterReason {
+
+    /**
+     * 消息或队列TTL到期
+     */
+    EXPIRED("expired", "过期"),
+
+    /**
+     * 消费者拒绝且不重新入队
+     */
+    REJECTED("rejected", "被拒绝"),
+
+    /**
+     * 队列长度超限被挤出
+     */
+    MAXLEN("maxlen", "队列超长"),
+
+    /**
+     * 仲裁队列投递次数超限
+     */
+    DELIVERY_LIMIT("delivery_limit", "投递次数超限"),
+
+    /**
+     * 缺少死信原因头
+     */
+    UNKNOWN("unknown", "未知");
+
+    private final String code;
+
+    private final String description;
+
+    DeadLetterReason(String code, String description) {
+        this.code = code;
+        this.description = description;
+    }
+
+    /**
+     * 获取原因代码，即 RabbitMQ 死信头中的取值
+     *
+     * @return 原因代码
+     */
+    public String getCode() {
+        return code;
+    }
+
+    /**
+     * 获取原因描述
+     *
+     * @return 原因描述
+     */
+    public String getDescription() {
+        return description;
+    }
+
+    /**
+     * 根据代码获取死信原因
+     *
+     * @param code 原因代码
+     * @return 死信原因，未知代码返回 {@link #UNKNOWN}
+     */
+    public static DeadLetterReason fromCode(String code) {
+        for (DeadLetterReason reason : values()) {
+            if (reason.code.equals(code)) {
+                return reason;
+            }
+        }
+        return UNKNOWN;
+    }
+}
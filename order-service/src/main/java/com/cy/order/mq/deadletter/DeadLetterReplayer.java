@@ -0,0 +1,296 @@
+package com.cy.order.mq.deadletter;
+
+import com.cy.order.config.MqDeadLetterProperties;
+import com.cy.order.config.MqPublisherProperties;
+import com.cy.order.mq.spool.SpooledMessage;
+import com.cy.order.support.TokenBucket;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * 死信批量回放
+ * 管理接口发起一次回放任务：后台线程按停放顺序从 {@link ParkingLot} 读取一批，经令牌桶限速后发到回放目标并等待全部确认，
+ * 全部确认后才从停放区移除；连接失败、nack 或确认超时时该批留在停放区，任务以失败结束。
+ * 回放目标由 replay-exchange / replay-routing-key 配置，须指向有消费者的队列；未配置路由键时回放到原交换机和原路由键。
+ * 回放时无法路由的消息重新停放到队尾，同一时间只允许一个回放任务
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "mq.dead-letter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class DeadLetterReplayer {
+
+    private final MqDeadLetterProperties properties;
+
+    private final MqPublisherProperties publisherProperties;
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final ParkingLot parkingLot;
+
+    private ReplayStatus status = new ReplayStatus(ReplayState.IDLE, null, 0, 0, 0, 0, 0, 0, 0, null);
+
+    private Thread replayThread;
+
+    private volatile boolean cancelled;
+
+    public DeadLetterReplayer(MqDeadLetterProperties properties,
+                              MqPublisherProperties publisherProperties,
+                              RabbitTemplate rabbitTemplate,
+                              ParkingLot parkingLot) {
+        this.properties = properties;
+        this.publisherProperties = publisherProperties;
+        this.rabbitTemplate = rabbitTemplate;
+        this.parkingLot = parkingLot;
+    }
+
+    /**
+     * 发起回放
+     *
+     * @param reason 只回放该原因的死信，为null时按原因依次回放全部
+     * @param limit  最多回放的条数
+     * @param rate   回放速率（条/秒），为null时使用默认速率
+     * @return 回放任务状态
+     * @throws IllegalStateException    已有回放任务在运行
+     * @throws IllegalArgumentException 条数或速率不合法
+     */
+    public synchronized ReplayStatus replay(DeadLetterReason reason, int limit, Double rate) {
+        double permitsPerSecond = rate != null ? rate : properties.getReplayRate();
+        if (limit < 1 || permitsPerSecond <= 0 || permitsPerSecond > properties.getReplayMaxRate()) {
+            throw new IllegalArgumentException("回放条数须大于0，速率须在 (0, " + properties.getReplayMaxRate() + "] 之间");
+        }
+        if (status.getState() == ReplayState.RUNNING) {
+            throw new IllegalStateException("已有死信回放任务在运行");
+        }
+        cancelled = false;
+        status = new ReplayStatus(ReplayState.RUNNING, reason == null ? null : reason.getCode(), limit, permitsPerSecond,
+                0, 0, 0, System.currentTimeMillis(), 0, null);
+        List<DeadLetterReason> reasons = reason != null ? List.of(reason) : List.of(DeadLetterReason.values());
+        TokenBucket rateLimiter = new TokenBucket(permitsPerSecond, Math.max(1, properties.getReplayBatchSize()));
+        replayThread = new Thread(() -> run(reasons, limit, rateLimiter), "mq-dead-letter-replayer");
+        replayThread.setDaemon(true);
+        replayThread.start();
+        log.info("开始回放死信: reason={}, limit={}, rate={}", status.getReason(), limit, permitsPerSecond);
+        return getStatus();
+    }
+
+    /**
+     * 取消正在运行的回放任务，已发出的当前批仍会等待确认
+     *
+     * @return 是否有任务被取消
+     */
+    public synchronized boolean cancel() {
+        if (status.getState() != ReplayState.RUNNING) {
+            return false;
+        }
+        cancelled = true;
+        return true;
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        Thread thread;
+        synchronized (this) {
+            cancelled = true;
+            thread = replayThread;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            thread.join(1000);
+        }
+    }
+
+    /**
+     * 获取回放任务状态
+     *
+     * @return 最近一次回放任务的状态
+     */
+    public synchronized ReplayStatus getStatus() {
+        return new ReplayStatus(status.getState(), status.getReason(), status.getLimit(), status.getRate(),
+                status.getReplayed(), status.getReparked(), status.getSkipped(), status.getStartedAt(),
+                status.getFinishedAt(), status.getError());
+    }
+
+    private void run(List<DeadLetterReason> reasons, int limit, TokenBucket rateLimiter) {
+        int remaining = limit;
+        String error = null;
+        try {
+            for (DeadLetterReason reason : reasons) {
+                // 重新停放的消息追加在队尾，只回放任务开始时已停放的部分
+                long pending = parkingLot.getPendingMessages(reason);
+                while (remaining > 0 && pending > 0 && !cancelled) {
+                    List<SpooledMessage> batch = parkingLot.read(reason,
+                            (int) Math.min(Math.min(remaining, pending), Math.max(1, properties.getReplayBatchSize())));
+                    if (batch.isEmpty()) {
+                        break;
+                    }
+                    acquire(rateLimiter, batch.size());
+                    if (!replayBatch(reason, batch)) {
+                        error = "回放失败，broker可能不可用，未确认的消息仍在停放区";
+                        return;
+                    }
+                    parkingLot.commit(reason, batch);
+                    remaining -= batch.size();
+                    pending -= batch.size();
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            error = "回放被中断";
+        } catch (RuntimeException e) {
+            log.error("死信回放异常", e);
+            error = e.getMessage();
+        } finally {
+            finish(error);
+        }
+    }
+
+    private void acquire(TokenBucket rateLimiter, int permits) throws InterruptedException {
+        for (int i = 0; i < permits; i++) {
+            while (!rateLimiter.tryAcquire()) {
+                Thread.sleep(5);
+            }
+        }
+    }
+
+    /**
+     * 回放一批停放的消息
+     *
+     * @return 是否全部确认
+     */
+    private boolean replayBatch(DeadLetterReason reason, List<SpooledMessage> batch) throws InterruptedException {
+        List<SpooledMessage> sent = new ArrayList<>(batch.size());
+        List<CorrelationData> correlations = new ArrayList<>(batch.size());
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (SpooledMessage parked : batch) {
+                    if (parked.getMessage() == null) {
+                        continue;
+                    }
+                    CorrelationData correlation = new CorrelationData(parked.getId() + ":dlq-replay");
+                    sent.add(parked);
+                    correlations.add(correlation);
+                    operations.send(replayExchange(parked), replayRoutingKey(parked), DeadLetter.toReplay(parked.getMessage()),
+                            correlation);
+                }
+                return null;
+            });
+        } catch (AmqpException e) {
+            log.warn("回放死信失败: reason={}, cause={}", reason.getCode(), e.getMessage());
+            return false;
+        }
+        int skipped = batch.size() - sent.size();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(publisherProperties.getConfirmTimeout());
+        int reparked = 0;
+        for (int i = 0; i < correlations.size(); i++) {
+            CorrelationData correlation = correlations.get(i);
+            CorrelationData.Confirm confirm;
+            try {
+                confirm = correlation.getFuture().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                log.warn("回放的死信未确认: id={}, cause={}", correlation.getId(), e.toString());
+                return false;
+            }
+            if (!confirm.isAck()) {
+                log.warn("回放的死信被nack: id={}, reason={}", correlation.getId(), confirm.getReason());
+                return false;
+            }
+            if (correlation.getReturned() != null) {
+                SpooledMessage parked = sent.get(i);
+                log.error("回放的死信无法路由，重新停放: id={}, exchange={}, routingKey={}, replyText={}",
+                        parked.getId(), replayExchange(parked), replayRoutingKey(parked), correlation.getReturned().getReplyText());
+                repark(reason, parked);
+                reparked++;
+            }
+        }
+        record(correlations.size() - reparked, reparked, skipped);
+        return true;
+    }
+
+    private String replayExchange(SpooledMessage parked) {
+        if (!hasReplayTarget()) {
+            return parked.getExchange();
+        }
+        return properties.getReplayExchange() != null ? properties.getReplayExchange() : "";
+    }
+
+    private String replayRoutingKey(SpooledMessage parked) {
+        return hasReplayTarget() ? properties.getReplayRoutingKey() : parked.getRoutingKey();
+    }
+
+    private boolean hasReplayTarget() {
+        return properties.getReplayRoutingKey() != null && !properties.getReplayRoutingKey().isEmpty();
+    }
+
+    private void repark(DeadLetterReason reason, SpooledMessage parked) {
+        // toReplay 已去掉原因头，重新停放时补回
+        parked.getMessage().getMessageProperties().setHeader(DeadLetter.REASON_HEADER, reason.getCode());
+        if (!parkingLot.repark(reason, parked)) {
+            log.error("死信重新停放失败，已丢弃: id={}", parked.getId());
+        }
+    }
+
+    private synchronized void record(int replayed, int reparked, int skipped) {
+        status.setReplayed(status.getReplayed() + replayed);
+        status.setReparked(status.getReparked() + reparked);
+        status.setSkipped(status.getSkipped() + skipped);
+    }
+
+    private synchronized void finish(String error) {
+        status.setState(error != null ? ReplayState.FAILED : cancelled ? ReplayState.CANCELLED : ReplayState.COMPLETED);
+        status.setError(error);
+        status.setFinishedAt(System.currentTimeMillis());
+        replayThread = null;
+        log.info("死信回放结束: state={}, replayed={}, reparked={}, skipped={}", status.getState(), status.getReplayed(),
+                status.getReparked(), status.getSkipped());
+    }
+
+    /**
+     * 回放任务状态
+     */
+    public enum ReplayState {
+        IDLE, RUNNING, COMPLETED, CANCELLED, FAILED
+    }
+
+    /**
+     * 回放任务状态信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ReplayStatus {
+        // 任务状态
+        private ReplayState state;
+        // 回放的死信原因，为null时回放全部
+        private String reason;
+        // 最多回放的条数
+        private int limit;
+        // 回放速率（条/秒）
+        private double rate;
+        // 已回放并确认的消息数
+        private long replayed;
+        // 无法路由、重新停放的消息数
+        private long reparked;
+        // 无法解析被跳过的记录数
+        private long skipped;
+        // 开始时间（epoch毫秒）
+        private long startedAt;
+        // 结束时间（epoch毫秒），运行中为0
+        private long finishedAt;
+        // 失败原因
+        private String error;
+    }
+}
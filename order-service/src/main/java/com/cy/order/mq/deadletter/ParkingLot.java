@@ -0,0 +1,151 @@
+package com.cy.order.mq.deadletter;
+
+import com.cy.order.config.MqDeadLetterProperties;
+import com.cy.order.config.MqSpoolProperties;
+import com.cy.order.mq.spool.MessageSpool;
+import com.cy.order.mq.spool.SpooledMessage;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.EnumMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * 死信停放区
+ * 每种死信原因一个 {@link MessageSpool}（目录 {directory}/{原因代码}），沿用本地缓存的段文件格式：
+ * 停放的消息按原交换机、原路由键保存，重启后仍在，回放时按停放顺序读取、确认后提交进度。
+ * 死信在停放后才从死信队列确认，每条写入后强制刷盘
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "mq.dead-letter", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class ParkingLot {
+
+    private final MqDeadLetterProperties properties;
+
+    private final Map<DeadLetterReason, MessageSpool> spools = new EnumMap<>(DeadLetterReason.class);
+
+    public ParkingLot(MqDeadLetterProperties properties) {
+        this.properties = properties;
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        for (DeadLetterReason reason : DeadLetterReason.values()) {
+            MqSpoolProperties spoolProperties = new MqSpoolProperties();
+            spoolProperties.setDirectory(Paths.get(properties.getDirectory(), reason.getCode()).toString());
+            spoolProperties.setSegmentSize(properties.getSegmentSize());
+            spoolProperties.setMaxBytes(properties.getMaxBytes());
+            spoolProperties.setForceOnWrite(true);
+            MessageSpool spool = new MessageSpool(spoolProperties);
+            spool.open();
+            spools.put(reason, spool);
+            if (spool.getPendingMessages() > 0) {
+                log.info("死信停放区中有待处理的消息: reason={}, messages={}", reason.getCode(), spool.getPendingMessages());
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        spools.values().forEach(MessageSpool::close);
+    }
+
+    /**
+     * 停放一条死信
+     *
+     * @param deadLetter 死信
+     * @return 是否写入成功，停放区已满或写入失败时返回false
+     */
+    public boolean park(DeadLetter deadLetter) {
+        String messageId = deadLetter.getMessage().getMessageProperties().getMessageId();
+        return spools.get(deadLetter.getReason()).append(messageId != null ? messageId : UUID.randomUUID().toString(),
+                deadLetter.getExchange(), deadLetter.getRoutingKey(), deadLetter.toParked());
+    }
+
+    /**
+     * 把回放时无法路由的消息重新停放到队尾
+     *
+     * @param reason 死信原因
+     * @param parked 停放的消息
+     * @return 是否写入成功
+     */
+    public boolean repark(DeadLetterReason reason, SpooledMessage parked) {
+        return spools.get(reason).append(parked.getId(), parked.getExchange(), parked.getRoutingKey(), parked.getMessage());
+    }
+
+    /**
+     * 按停放顺序读取最多 max 条，不移动进度
+     *
+     * @param reason 死信原因
+     * @param max    最多读取的条数
+     * @return 停放的消息，无法解析的记录 message 为null
+     */
+    public List<SpooledMessage> read(DeadLetterReason reason, int max) {
+        return spools.get(reason).read(max);
+    }
+
+    /**
+     * 移除已回放的消息
+     *
+     * @param reason 死信原因
+     * @param batch  上一次 {@link #read} 返回的前缀
+     */
+    public void commit(DeadLetterReason reason, List<SpooledMessage> batch) {
+        spools.get(reason).commit(batch);
+    }
+
+    /**
+     * @param reason 死信原因
+     * @return 停放的消息数
+     */
+    public long getPendingMessages(DeadLetterReason reason) {
+        return spools.get(reason).getPendingMessages();
+    }
+
+    /**
+     * 获取各原因的停放统计
+     *
+     * @return key: 原因代码
+     */
+    public Map<String, ParkedStats> getStats() {
+        long now = System.currentTimeMillis();
+        Map<String, ParkedStats> stats = new LinkedHashMap<>();
+        spools.forEach((reason, spool) -> {
+            long oldest = spool.getOldestSpooledAt();
+            stats.put(reason.getCode(), new ParkedStats(spool.getPendingMessages(), spool.getPendingBytes(),
+                    oldest > 0 ? Math.max(0, now - oldest) : 0, spool.getAppended(), spool.getDropped()));
+        });
+        return stats;
+    }
+
+    /**
+     * 单个死信原因的停放统计
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class ParkedStats {
+        // 停放的消息数
+        private long messages;
+        // 停放的字节数
+        private long bytes;
+        // 最早一条停放消息的停放时长（毫秒）
+        private long oldestAgeMillis;
+        // 本次启动以来停放的消息数
+        private long parked;
+        // 停放区已满或写入失败的次数
+        private long dropped;
+    }
+}
@@ -0,0 +1,409 @@
+package com.cy.order.mq.spool;
+
+import com.cy.order.config.MqSpoolProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.Message;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * 订单消息本地缓存
+ * 消息按写入顺序追加到内存映射的段文件 {序号}.seg，每条记录为 长度(4字节) | CRC32(4字节) | 记录内容，
+ * 先写内容和校验再写长度，写到一半的记录长度为0，重启时从这里截断。
+ * 回放进度（段序号、段内偏移）保存在内存映射的 checkpoint 文件中，提交后已回放完的段文件随即删除；
+ * 重启时从 checkpoint 继续，未提交的消息会再回放一次，消费者按 messageId 去重
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "mq.spool", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class MessageSpool {
+
+    static final int RECORD_HEADER = 8;
+
+    private static final String SEGMENT_SUFFIX = ".seg";
+
+    private static final String CHECKPOINT_FILE = "checkpoint";
+
+    private final MqSpoolProperties properties;
+
+    private final Path directory;
+
+    // 段文件，按序号从旧到新，最后一个为写入段
+    private final ArrayDeque<Segment> segments = new ArrayDeque<>();
+
+    private FileChannel checkpointChannel;
+
+    private MappedByteBuffer checkpoint;
+
+    // 回放位置：第一个段内的偏移
+    private int readOffset;
+
+    private long nextSequence;
+
+    private long pendingMessages;
+
+    private long pendingBytes;
+
+    private long appended;
+
+    private long dropped;
+
+    private boolean closed;
+
+    public MessageSpool(MqSpoolProperties properties) {
+        this.properties = properties;
+        this.directory = Paths.get(properties.getDirectory());
+    }
+
+    /**
+     * 打开缓存目录，从 checkpoint 恢复回放位置，删除已回放完的段文件
+     */
+    @PostConstruct
+    public synchronized void open() throws IOException {
+        Files.createDirectories(directory);
+        checkpointChannel = FileChannel.open(directory.resolve(CHECKPOINT_FILE),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        checkpoint = checkpointChannel.map(FileChannel.MapMode.READ_WRITE, 0, 12);
+        long checkpointSegment = checkpoint.getLong(0);
+        int checkpointOffset = checkpoint.getInt(8);
+
+        List<Long> sequences = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_SUFFIX))
+                    .forEach(name -> sequences.add(Long.parseLong(name.substring(0, name.length() - SEGMENT_SUFFIX.length()))));
+        }
+        sequences.sort(null);
+        nextSequence = checkpointSegment + 1;
+        for (long sequence : sequences) {
+            Path path = segmentPath(sequence);
+            if (sequence < checkpointSegment) {
+                Files.delete(path);
+                continue;
+            }
+            segments.addLast(Segment.open(path, sequence));
+            nextSequence = Math.max(nextSequence, sequence + 1);
+        }
+        Segment first = segments.peekFirst();
+        readOffset = first != null && first.sequence == checkpointSegment ? Math.min(checkpointOffset, first.writePosition) : 0;
+        countPending();
+        if (pendingMessages > 0) {
+            log.warn("订单消息本地缓存中有未回放的消息: directory={}, messages={}, bytes={}",
+                    directory.toAbsolutePath(), pendingMessages, pendingBytes);
+        }
+    }
+
+    /**
+     * 关闭前把所有段文件和 checkpoint 刷盘
+     */
+    @PreDestroy
+    public synchronized void close() {
+        closed = true;
+        for (Segment segment : segments) {
+            segment.close();
+        }
+        segments.clear();
+        if (checkpoint != null) {
+            checkpoint.force();
+            closeQuietly(checkpointChannel);
+        }
+        notifyAll();
+    }
+
+    /**
+     * 追加一条消息
+     *
+     * @param id         消息ID
+     * @param exchange   交换机
+     * @param routingKey 路由键
+     * @param message    消息
+     * @return 是否写入成功，缓存已满或写入失败时返回false
+     */
+    public boolean append(String id, String exchange, String routingKey, Message message) {
+        byte[] record;
+        try {
+            record = SpooledMessage.encode(System.currentTimeMillis(), id, exchange, routingKey, message);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        int length = RECORD_HEADER + record.length;
+        synchronized (this) {
+            if (closed || pendingBytes + length > properties.getMaxBytes()) {
+                dropped++;
+                log.error("订单消息本地缓存已满或已关闭，消息被丢弃: messageId={}, pendingBytes={}", id, pendingBytes);
+                return false;
+            }
+            try {
+                Segment tail = segments.peekLast();
+                if (tail == null || !tail.hasRoom(length)) {
+                    if (tail != null) {
+                        tail.buffer.force();
+                    }
+                    if (tail == null) {
+                        readOffset = 0;
+                    }
+                    tail = Segment.create(segmentPath(nextSequence), nextSequence, Math.max(properties.getSegmentSize(), length));
+                    nextSequence++;
+                    segments.addLast(tail);
+                }
+                tail.append(record);
+                if (properties.isForceOnWrite()) {
+                    tail.buffer.force();
+                }
+            } catch (IOException e) {
+                dropped++;
+                log.error("写入订单消息本地缓存失败: messageId={}", id, e);
+                return false;
+            }
+            pendingMessages++;
+            pendingBytes += length;
+            appended++;
+            notifyAll();
+            return true;
+        }
+    }
+
+    /**
+     * 从回放位置读取最多 max 条消息，不移动回放位置
+     *
+     * @param max 最多读取的条数
+     * @return 按写入顺序的消息
+     */
+    public synchronized List<SpooledMessage> read(int max) {
+        List<SpooledMessage> batch = new ArrayList<>(Math.min(max, (int) Math.min(pendingMessages, Integer.MAX_VALUE)));
+        int offset = readOffset;
+        Iterator<Segment> iterator = segments.iterator();
+        Segment segment = iterator.hasNext() ? iterator.next() : null;
+        while (segment != null && batch.size() < max) {
+            if (offset >= segment.writePosition) {
+                segment = iterator.hasNext() ? iterator.next() : null;
+                offset = 0;
+                continue;
+            }
+            byte[] record = segment.read(offset);
+            offset += RECORD_HEADER + record.length;
+            try {
+                batch.add(SpooledMessage.decode(record, segment.sequence, offset));
+            } catch (IOException e) {
+                // 校验通过但无法解析，只可能是格式不兼容，以空消息占位，回放时跳过，不阻塞后续消息
+                log.error("无法解析订单消息缓存记录，将跳过: segment={}, offset={}", segment.sequence, offset, e);
+                batch.add(new SpooledMessage(0, null, null, null, null, RECORD_HEADER + record.length, segment.sequence, offset));
+            }
+        }
+        return batch;
+    }
+
+    /**
+     * 提交回放进度到指定消息之后，删除已回放完的段文件
+     *
+     * @param batch 已回放的消息，须为上一次 {@link #read(int)} 返回的前缀
+     */
+    public synchronized void commit(List<SpooledMessage> batch) {
+        if (batch.isEmpty() || closed) {
+            return;
+        }
+        SpooledMessage last = batch.get(batch.size() - 1);
+        while (!segments.isEmpty() && segments.peekFirst().sequence < last.segment) {
+            segments.pollFirst().delete();
+        }
+        readOffset = last.endOffset;
+        // 已读完的段在有后续段时删除，写入段保留
+        while (segments.size() > 1 && readOffset >= segments.peekFirst().writePosition) {
+            segments.pollFirst().delete();
+            readOffset = 0;
+        }
+        Segment first = segments.peekFirst();
+        checkpoint.putLong(0, first != null ? first.sequence : last.segment);
+        checkpoint.putInt(8, readOffset);
+        long bytes = 0;
+        for (SpooledMessage message : batch) {
+            bytes += message.recordLength;
+        }
+        pendingMessages -= batch.size();
+        pendingBytes -= bytes;
+    }
+
+    /**
+     * 等待缓存中有消息
+     *
+     * @param timeoutMillis 最长等待时间（毫秒）
+     * @return 是否有待回放的消息
+     */
+    public synchronized boolean awaitPending(long timeoutMillis) throws InterruptedException {
+        if (pendingMessages == 0 && !closed) {
+            wait(Math.max(1, timeoutMillis));
+        }
+        return pendingMessages > 0 && !closed;
+    }
+
+    public synchronized long getPendingMessages() {
+        return pendingMessages;
+    }
+
+    public synchronized long getPendingBytes() {
+        return pendingBytes;
+    }
+
+    public synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    public synchronized long getAppended() {
+        return appended;
+    }
+
+    public synchronized long getDropped() {
+        return dropped;
+    }
+
+    /**
+     * @return 最早一条未回放消息的缓存时间（epoch毫秒），没有时返回0
+     */
+    public synchronized long getOldestSpooledAt() {
+        if (pendingMessages == 0) {
+            return 0;
+        }
+        int offset = readOffset;
+        for (Segment segment : segments) {
+            if (offset < segment.writePosition) {
+                // 记录内容以缓存时间开头
+                return segment.buffer.getLong(offset + RECORD_HEADER);
+            }
+            offset = 0;
+        }
+        return 0;
+    }
+
+    private void countPending() {
+        int offset = readOffset;
+        for (Segment segment : segments) {
+            while (offset < segment.writePosition) {
+                int length = RECORD_HEADER + segment.buffer.getInt(offset);
+                pendingMessages++;
+                pendingBytes += length;
+                offset += length;
+            }
+            offset = 0;
+        }
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("%020d", sequence) + SEGMENT_SUFFIX);
+    }
+
+    private static void closeQuietly(FileChannel channel) {
+        try {
+            channel.close();
+        } catch (IOException e) {
+            log.warn("关闭订单消息缓存文件失败", e);
+        }
+    }
+
+    /**
+     * 段文件，整个文件映射到内存，只在持有缓存锁时访问
+     */
+    private static final class Segment {
+
+        private final long sequence;
+
+        private final Path path;
+
+        private final FileChannel channel;
+
+        private final MappedByteBuffer buffer;
+
+        private int writePosition;
+
+        private Segment(long sequence, Path path, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.path = path;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+
+        static Segment create(Path path, long sequence, int size) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE_NEW,
+                    StandardOpenOption.READ, StandardOpenOption.WRITE);
+            return new Segment(sequence, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, size));
+        }
+
+        /**
+         * 打开已有段文件，扫描到第一条不完整或校验失败的记录为止
+         */
+        static Segment open(Path path, long sequence) throws IOException {
+            FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+            Segment segment = new Segment(sequence, path, channel, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+            int position = 0;
+            int capacity = segment.buffer.capacity();
+            while (position + RECORD_HEADER <= capacity) {
+                int length = segment.buffer.getInt(position);
+                if (length <= 0 || position + RECORD_HEADER + length > capacity) {
+                    break;
+                }
+                if (crc(segment.buffer, position + RECORD_HEADER, length) != segment.buffer.getInt(position + 4)) {
+                    log.warn("订单消息缓存记录校验失败，从此处截断: segment={}, offset={}", path, position);
+                    break;
+                }
+                position += RECORD_HEADER + length;
+            }
+            segment.writePosition = position;
+            return segment;
+        }
+
+        boolean hasRoom(int length) {
+            return writePosition + length <= buffer.capacity();
+        }
+
+        void append(byte[] record) {
+            int position = writePosition;
+            buffer.put(position + RECORD_HEADER, record);
+            buffer.putInt(position + 4, crc(buffer, position + RECORD_HEADER, record.length));
+            // 长度最后写入，写到一半时长度仍为0
+            buffer.putInt(position, record.length);
+            writePosition = position + RECORD_HEADER + record.length;
+        }
+
+        byte[] read(int offset) {
+            byte[] record = new byte[buffer.getInt(offset)];
+            buffer.get(offset + RECORD_HEADER, record);
+            return record;
+        }
+
+        void close() {
+            buffer.force();
+            closeQuietly(channel);
+        }
+
+        void delete() {
+            closeQuietly(channel);
+            try {
+                Files.deleteIfExists(path);
+            } catch (IOException e) {
+                log.warn("删除已回放的订单消息缓存段失败: {}", path, e);
+            }
+        }
+
+        private static int crc(MappedByteBuffer buffer, int offset, int length) {
+            CRC32 crc = new CRC32();
+            crc.update(buffer.slice(offset, length));
+            return (int) crc.getValue();
+        }
+    }
+}
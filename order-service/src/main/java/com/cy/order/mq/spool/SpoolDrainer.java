@@ -0,0 +1,259 @@
+package com.cy.order.mq.spool;
+
+import com.cy.order.config.MqPublisherProperties;
+import com.cy.order.config.MqSpoolProperties;
+import com.cy.order.support.TokenBucket;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.AmqpException;
+import org.springframework.amqp.rabbit.connection.ConnectionBlockedEvent;
+import org.springframework.amqp.rabbit.connection.ConnectionUnblockedEvent;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 本地缓存回放器
+ * 后台线程按写入顺序从 {@link MessageSpool} 读取一批消息，经令牌桶限速后在一个信道上发出并等待全部确认，
+ * 全部确认后才提交回放进度；连接失败、nack 或确认超时时整批保留，按指数退避重试，因此 broker 恢复前不会跳过任何消息。
+ * 回放时被退回（无法路由）的消息重试也不会成功，记录后跳过，避免阻塞后面的消息
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(prefix = "mq.spool", name = "enabled", havingValue = "true", matchIfMissing = true)
+public class SpoolDrainer {
+
+    private final MqSpoolProperties properties;
+
+    private final MqPublisherProperties publisherProperties;
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final MessageSpool spool;
+
+    private final TokenBucket rateLimiter;
+
+    private final LongAdder replayed = new LongAdder();
+    private final LongAdder replayReturned = new LongAdder();
+    private final LongAdder replayFailures = new LongAdder();
+
+    private volatile double replayRate;
+
+    private volatile boolean blocked;
+
+    private volatile boolean running;
+
+    private Thread drainerThread;
+
+    public SpoolDrainer(MqSpoolProperties properties,
+                        MqPublisherProperties publisherProperties,
+                        RabbitTemplate rabbitTemplate,
+                        MessageSpool spool) {
+        this.properties = properties;
+        this.publisherProperties = publisherProperties;
+        this.rabbitTemplate = rabbitTemplate;
+        this.spool = spool;
+        int burst = Math.max(1, properties.getReplayBatchSize());
+        this.rateLimiter = new TokenBucket(properties.getReplayRate(), burst);
+    }
+
+    @PostConstruct
+    public void start() {
+        running = true;
+        drainerThread = new Thread(this::drainLoop, "mq-spool-drainer");
+        drainerThread.setDaemon(true);
+        drainerThread.start();
+    }
+
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        if (drainerThread != null) {
+            drainerThread.interrupt();
+            drainerThread.join(1000);
+        }
+    }
+
+    @EventListener
+    public void onConnectionBlocked(ConnectionBlockedEvent event) {
+        blocked = true;
+    }
+
+    @EventListener
+    public void onConnectionUnblocked(ConnectionUnblockedEvent event) {
+        blocked = false;
+    }
+
+    private void drainLoop() {
+        int failures = 0;
+        long rateWindowStart = System.nanoTime();
+        long rateWindowReplayed = 0;
+        while (running) {
+            try {
+                long now = System.nanoTime();
+                if (now - rateWindowStart >= TimeUnit.SECONDS.toNanos(1)) {
+                    long total = replayed.sum();
+                    replayRate = (total - rateWindowReplayed) * 1e9 / (now - rateWindowStart);
+                    rateWindowStart = now;
+                    rateWindowReplayed = total;
+                }
+                if (blocked) {
+                    Thread.sleep(100);
+                    continue;
+                }
+                if (!spool.awaitPending(properties.getPollInterval())) {
+                    continue;
+                }
+                int permits = acquirePermits();
+                if (permits == 0) {
+                    Thread.sleep(10);
+                    continue;
+                }
+                if (drainOnce(permits)) {
+                    failures = 0;
+                } else {
+                    failures++;
+                    Thread.sleep(backoff(failures));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            } catch (RuntimeException e) {
+                log.error("订单消息缓存回放线程异常", e);
+            }
+        }
+    }
+
+    /**
+     * 回放一批消息
+     *
+     * @param max 本批最多回放的条数
+     * @return 是否成功，失败时回放进度不变
+     */
+    boolean drainOnce(int max) throws InterruptedException {
+        List<SpooledMessage> batch = spool.read(max);
+        if (batch.isEmpty()) {
+            return true;
+        }
+        if (!replay(batch)) {
+            return false;
+        }
+        spool.commit(batch);
+        return true;
+    }
+
+    private boolean replay(List<SpooledMessage> batch) throws InterruptedException {
+        List<CorrelationData> correlations = new ArrayList<>(batch.size());
+        try {
+            rabbitTemplate.invoke(operations -> {
+                for (SpooledMessage spooled : batch) {
+                    if (spooled.getMessage() == null) {
+                        continue;
+                    }
+                    CorrelationData correlation = new CorrelationData(spooled.getId() + ":spool");
+                    correlations.add(correlation);
+                    operations.send(spooled.getExchange(), spooled.getRoutingKey(), spooled.getMessage(), correlation);
+                }
+                return null;
+            });
+        } catch (AmqpException e) {
+            replayFailures.increment();
+            log.warn("回放订单消息缓存失败，broker可能仍不可用: pending={}, cause={}", spool.getPendingMessages(), e.getMessage());
+            return false;
+        }
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(publisherProperties.getConfirmTimeout());
+        int returned = 0;
+        for (CorrelationData correlation : correlations) {
+            CorrelationData.Confirm confirm;
+            try {
+                confirm = correlation.getFuture().get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            } catch (ExecutionException | TimeoutException e) {
+                replayFailures.increment();
+                log.warn("回放的订单消息未确认，整批重试: id={}, cause={}", correlation.getId(), e.toString());
+                return false;
+            }
+            if (!confirm.isAck()) {
+                replayFailures.increment();
+                log.warn("回放的订单消息被nack，整批重试: id={}, reason={}", correlation.getId(), confirm.getReason());
+                return false;
+            }
+            if (correlation.getReturned() != null) {
+                returned++;
+                log.error("回放的订单消息无法路由，已跳过: id={}, replyText={}",
+                        correlation.getId(), correlation.getReturned().getReplyText());
+            }
+        }
+        replayReturned.add(returned);
+        replayed.add(correlations.size() - returned);
+        return true;
+    }
+
+    private int acquirePermits() {
+        int max = Math.max(1, properties.getReplayBatchSize());
+        int permits = 0;
+        while (permits < max && rateLimiter.tryAcquire()) {
+            permits++;
+        }
+        return permits;
+    }
+
+    long backoff(int failures) {
+        double delay = properties.getReplayRetryInterval() * Math.pow(2, Math.max(0, failures - 1));
+        return (long) Math.min(delay, properties.getReplayRetryMaxInterval());
+    }
+
+    /**
+     * 获取缓存统计信息
+     *
+     * @return 缓存统计信息
+     */
+    public SpoolStats getStats() {
+        long oldest = spool.getOldestSpooledAt();
+        return new SpoolStats(spool.getPendingMessages(), spool.getPendingBytes(), spool.getSegmentCount(),
+                oldest > 0 ? Math.max(0, System.currentTimeMillis() - oldest) : 0,
+                spool.getAppended(), spool.getDropped(), replayed.sum(), replayReturned.sum(), replayFailures.sum(),
+                Math.round(replayRate * 100) / 100.0);
+    }
+
+    /**
+     * 缓存统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class SpoolStats {
+        // 待回放的消息数
+        private long pendingMessages;
+        // 待回放的字节数
+        private long pendingBytes;
+        // 段文件数
+        private int segments;
+        // 最早一条待回放消息已缓存的时间（毫秒）
+        private long oldestAgeMillis;
+        // 写入缓存的消息数
+        private long spooled;
+        // 缓存已满或写入失败被丢弃的消息数
+        private long dropped;
+        // 回放成功的消息数
+        private long replayed;
+        // 回放时无法路由被跳过的消息数
+        private long replayReturned;
+        // 回放失败（整批重试）的次数
+        private long replayFailures;
+        // 最近一秒的回放速率（条/秒）
+        private double replayRate;
+    }
+}
@@ -0,0 +1,191 @@
+package com.cy.order.mq.spool;
+
+import lombok.Getter;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.Date;
+import java.util.Map;
+
+/**
+ * 缓存中的一条消息
+ * 记录格式：格式版本 | 缓存时间 | 消息ID | 交换机 | 路由键 | 消息属性 | 消息头 | 消息体。
+ * 消息属性保存发布时设置的 content-type、content-encoding、时间戳、投递模式、优先级、correlation-id、type、
+ * reply-to、expiration、user-id 和 app-id，回放的消息与原消息一致；消息头的值按 String、Integer、Long、Boolean 保存，
+ * 其他类型转为字符串。升级前的记录没有格式版本，以缓存时间开头，首字节总是0，按旧格式只恢复 content-type、content-encoding 和消息头
+ */
+@Getter
+public class SpooledMessage {
+
+    private static final byte NULL = 0;
+    private static final byte STRING = 1;
+    private static final byte INTEGER = 2;
+    private static final byte LONG = 3;
+    private static final byte BOOLEAN = 4;
+
+    /**
+     * 记录格式版本，升级前的记录首字节为0
+     */
+    private static final byte FORMAT_VERSION = 2;
+
+    private final long spooledAt;
+
+    private final String id;
+
+    private final String exchange;
+
+    private final String routingKey;
+
+    private final Message message;
+
+    // 记录在段文件中占用的字节数和结束位置，提交回放进度时使用
+    final int recordLength;
+
+    final long segment;
+
+    final int endOffset;
+
+    SpooledMessage(long spooledAt, String id, String exchange, String routingKey, Message message,
+                   int recordLength, long segment, int endOffset) {
+        this.spooledAt = spooledAt;
+        this.id = id;
+        this.exchange = exchange;
+        this.routingKey = routingKey;
+        this.message = message;
+        this.recordLength = recordLength;
+        this.segment = segment;
+        this.endOffset = endOffset;
+    }
+
+    static byte[] encode(long spooledAt, String id, String exchange, String routingKey, Message message) throws IOException {
+        MessageProperties properties = message.getMessageProperties();
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream(message.getBody().length + 256);
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeByte(FORMAT_VERSION);
+        out.writeLong(spooledAt);
+        out.writeUTF(id);
+        out.writeUTF(exchange);
+        out.writeUTF(routingKey);
+        writeNullable(out, properties.getContentType());
+        writeNullable(out, properties.getContentEncoding());
+        writeNullable(out, properties.getTimestamp() != null ? properties.getTimestamp().getTime() : null);
+        MessageDeliveryMode deliveryMode = properties.getDeliveryMode();
+        out.writeByte(deliveryMode != null ? MessageDeliveryMode.toInt(deliveryMode) : 0);
+        writeNullable(out, properties.getPriority() != null ? properties.getPriority().longValue() : null);
+        writeNullable(out, properties.getCorrelationId());
+        writeNullable(out, properties.getType());
+        writeNullable(out, properties.getReplyTo());
+        writeNullable(out, properties.getExpiration());
+        writeNullable(out, properties.getUserId());
+        writeNullable(out, properties.getAppId());
+        Map<String, Object> headers = properties.getHeaders();
+        out.writeInt(headers.size());
+        for (Map.Entry<String, Object> header : headers.entrySet()) {
+            out.writeUTF(header.getKey());
+            writeValue(out, header.getValue());
+        }
+        out.writeInt(message.getBody().length);
+        out.write(message.getBody());
+        return bytes.toByteArray();
+    }
+
+    static SpooledMessage decode(byte[] record, long segment, int endOffset) throws IOException {
+        DataInputStream in = new DataInputStream(new ByteArrayInputStream(record));
+        boolean legacy = record.length > 0 && record[0] == 0;
+        if (!legacy) {
+            byte version = in.readByte();
+            if (version != FORMAT_VERSION) {
+                throw new IOException("未知的缓存记录格式: " + version);
+            }
+        }
+        long spooledAt = in.readLong();
+        String id = in.readUTF();
+        String exchange = in.readUTF();
+        String routingKey = in.readUTF();
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId(id);
+        properties.setContentType(readNullable(in));
+        properties.setContentEncoding(readNullable(in));
+        if (!legacy) {
+            Long timestamp = readNullableLong(in);
+            properties.setTimestamp(timestamp != null ? new Date(timestamp) : null);
+            int deliveryMode = in.readByte();
+            properties.setDeliveryMode(deliveryMode != 0 ? MessageDeliveryMode.fromInt(deliveryMode) : null);
+            Long priority = readNullableLong(in);
+            properties.setPriority(priority != null ? priority.intValue() : null);
+            properties.setCorrelationId(readNullable(in));
+            properties.setType(readNullable(in));
+            properties.setReplyTo(readNullable(in));
+            properties.setExpiration(readNullable(in));
+            properties.setUserId(readNullable(in));
+            properties.setAppId(readNullable(in));
+        }
+        int headerCount = in.readInt();
+        for (int i = 0; i < headerCount; i++) {
+            properties.setHeader(in.readUTF(), readValue(in));
+        }
+        byte[] body = new byte[in.readInt()];
+        in.readFully(body);
+        properties.setContentLength(body.length);
+        return new SpooledMessage(spooledAt, id, exchange, routingKey, new Message(body, properties),
+                record.length + MessageSpool.RECORD_HEADER, segment, endOffset);
+    }
+
+    private static void writeNullable(DataOutputStream out, String value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeUTF(value);
+        }
+    }
+
+    private static void writeNullable(DataOutputStream out, Long value) throws IOException {
+        out.writeBoolean(value != null);
+        if (value != null) {
+            out.writeLong(value);
+        }
+    }
+
+    private static String readNullable(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readUTF() : null;
+    }
+
+    private static Long readNullableLong(DataInputStream in) throws IOException {
+        return in.readBoolean() ? in.readLong() : null;
+    }
+
+    private static void writeValue(DataOutputStream out, Object value) throws IOException {
+        if (value == null) {
+            out.writeByte(NULL);
+        } else if (value instanceof Integer i) {
+            out.writeByte(INTEGER);
+            out.writeInt(i);
+        } else if (value instanceof Long l) {
+            out.writeByte(LONG);
+            out.writeLong(l);
+        } else if (value instanceof Boolean b) {
+            out.writeByte(BOOLEAN);
+            out.writeBoolean(b);
+        } else {
+            out.writeByte(STRING);
+            out.writeUTF(value.toString());
+        }
+    }
+
+    private static Object readValue(DataInputStream in) throws IOException {
+        byte type = in.readByte();
+        return switch (type) {
+            case NULL -> null;
+            case INTEGER -> in.readInt();
+            case LONG -> in.readLong();
+            case BOOLEAN -> in.readBoolean();
+            case STRING -> in.readUTF();
+            default -> throw new IOException("未知的消息头类型: " + type);
+        };
+    }
+}
@@ -14,9 +14,11 @@ import org.springframework.transaction.annotation.Transactional;
 import java.math.BigDecimal;
 import java.time.Instant;
 import java.time.LocalDateTime;
-import java.util.HashMap;
+import java.util.EnumSet;
 import java.util.Map;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
 
 /**
  * 订单服务类
@@ -26,10 +28,15 @@ import java.util.UUID;
 @Slf4j
 public class OrderService {
 
+    /**
+     * 系统自动操作的操作者ID
+     */
+    public static final String SYSTEM_OPERATOR = "system";
+
     private final ApplicationEventPublisher eventPublisher;
     
     // 模拟订单存储，实际应用中应使用数据库
-    private static final Map<String, OrderDto> ORDER_STORAGE = new HashMap<>();
+    private static final Map<String, OrderDto> ORDER_STORAGE = new ConcurrentHashMap<>();
 
     /**
      * 创建订单
@@ -76,15 +83,51 @@ public class OrderService {
 
     /**
      * 取消订单
+     * 已创建或已支付的订单可以取消
      * 
      * @param orderId 订单ID
-     * @return 是否成功
+     * @return 是否成功，订单不存在或状态不允许取消时返回false
      */
     @Transactional
     public boolean cancelOrder(String orderId) {
-        // 实际应用中需要从数据库查询订单并更新状态
         log.info("取消订单: {}", orderId);
-        // TODO: 实现订单取消逻辑
+        return cancel(orderId, EnumSet.of(OrderStatusEnum.CREATED, OrderStatusEnum.PAID), null, "订单取消");
+    }
+
+    /**
+     * 支付超时自动取消订单
+     * 只取消仍未支付的订单，已支付或已取消的订单不受影响
+     *
+     * @param orderId 订单ID
+     * @return 是否成功
+     */
+    @Transactional
+    public boolean cancelUnpaidOrder(String orderId) {
+        return cancel(orderId, EnumSet.of(OrderStatusEnum.CREATED), SYSTEM_OPERATOR, "支付超时自动取消");
+    }
+
+    /**
+     * 按状态条件原子地取消订单并发布取消事件
+     */
+    private boolean cancel(String orderId, Set<OrderStatusEnum> cancellable, String operatorId, String description) {
+        OrderDto[] cancelled = new OrderDto[1];
+        ORDER_STORAGE.computeIfPresent(orderId, (id, order) -> {
+            if (!cancellable.contains(order.getStatus())) {
+                return order;
+            }
+            OrderDto updated = copyOf(order);
+            updated.setStatus(OrderStatusEnum.CANCELLED);
+            updated.setUpdateTime(LocalDateTime.now());
+            cancelled[0] = updated;
+            return updated;
+        });
+        if (cancelled[0] == null) {
+            log.warn("订单不存在或当前状态不可取消: orderId={}", orderId);
+            return false;
+        }
+        log.info("订单已取消: orderId={}, reason={}", orderId, description);
+        eventPublisher.publishEvent(new OrderOperationEvent(this, EventTypeEnum.ORDER_CANCELLED,
+                copyOf(cancelled[0]), operatorId, description));
         return true;
     }
 
@@ -99,17 +142,7 @@ public class OrderService {
         OrderDto order = ORDER_STORAGE.get(orderId);
         if (order != null) {
             // 返回订单副本，避免直接修改存储中的对象
-            return OrderDto.builder()
-                    .id(order.getId())
-                    .orderNumber(order.getOrderNumber())
-                    .userId(order.getUserId())
-                    .storeId(order.getStoreId())
-                    .amount(order.getAmount())
-                    .status(order.getStatus())
-                    .items(order.getItems())
-                    .createTime(order.getCreateTime())
-                    .updateTime(order.getUpdateTime())
-                    .build();
+            return copyOf(order);
         }
         return null;
     }
@@ -141,7 +174,7 @@ public class OrderService {
         ORDER_STORAGE.put(orderId, updatedOrder);
         log.info("订单状态已更新: orderId={}, newStatus={}", orderId, newStatus);
 
-        EventTypeEnum typeEnum =newStatus==OrderStatusEnum.PAID? EventTypeEnum.ORDER_PAID:EventTypeEnum.ORDER_COMPLETED;
+        EventTypeEnum typeEnum = statusEventType(newStatus);
 
         // 发布订单状态更新事件
         OrderOperationEvent event = new OrderOperationEvent(this, typeEnum, updatedOrder);
@@ -149,4 +182,34 @@ public class OrderService {
 
         return true;
     }
-}
\ No newline at end of file
+
+    private static OrderDto copyOf(OrderDto order) {
+        return OrderDto.builder()
+                .id(order.getId())
+                .orderNumber(order.getOrderNumber())
+                .userId(order.getUserId())
+                .storeId(order.getStoreId())
+                .amount(order.getAmount())
+                .status(order.getStatus())
+                .items(order.getItems())
+                .createTime(order.getCreateTime())
+                .updateTime(order.getUpdateTime())
+                .build();
+    }
+
+    /**
+     * 订单状态对应的事件类型
+     *
+     * @param status 新状态
+     * @return 事件类型
+     */
+    static EventTypeEnum statusEventType(OrderStatusEnum status) {
+        return switch (status) {
+            case PAID -> EventTypeEnum.ORDER_PAID;
+            case COMPLETED -> EventTypeEnum.ORDER_COMPLETED;
+            case CANCELLED -> EventTypeEnum.ORDER_CANCELLED;
+            case REFUNDED -> EventTypeEnum.ORDER_REFUNDED;
+            default -> EventTypeEnum.ORDER_UPDATED;
+        };
+    }
+}
@@ -0,0 +1,88 @@
+package com.cy.order.support;
+
+/**
+ * 滑动窗口速率计
+ * 按秒分桶计数，环形数组只保留最近 windowSeconds 秒，过期的桶在下次写入时清零；
+ * 读写都加锁，适合死信这类低频事件的流入速率统计
+ */
+public final class RateMeter {
+
+    private final int windowSeconds;
+
+    // 每个桶对应的秒（epoch秒）
+    private final long[] bucketSeconds;
+
+    private final long[] counts;
+
+    /**
+     * @param windowSeconds 时间窗口（秒）
+     */
+    public RateMeter(int windowSeconds) {
+        if (windowSeconds < 1) {
+            throw new IllegalArgumentException("windowSeconds must be at least 1");
+        }
+        this.windowSeconds = windowSeconds;
+        this.bucketSeconds = new long[windowSeconds];
+        this.counts = new long[windowSeconds];
+    }
+
+    /**
+     * 记录事件
+     *
+     * @param count 事件数
+     */
+    public void mark(long count) {
+        mark(count, System.currentTimeMillis());
+    }
+
+    /**
+     * 在指定时刻记录事件
+     *
+     * @param count     事件数
+     * @param nowMillis 当前时间（epoch毫秒）
+     */
+    public synchronized void mark(long count, long nowMillis) {
+        long second = nowMillis / 1000;
+        int index = (int) (second % windowSeconds);
+        if (bucketSeconds[index] != second) {
+            bucketSeconds[index] = second;
+            counts[index] = 0;
+        }
+        counts[index] += count;
+    }
+
+    /**
+     * @return 时间窗口内的平均速率（次/秒）
+     */
+    public double getRate() {
+        return getRate(System.currentTimeMillis());
+    }
+
+    /**
+     * @param nowMillis 当前时间（epoch毫秒）
+     * @return 时间窗口内的平均速率（次/秒）
+     */
+    public double getRate(long nowMillis) {
+        return (double) getCount(nowMillis) / windowSeconds;
+    }
+
+    /**
+     * @param nowMillis 当前时间（epoch毫秒）
+     * @return 时间窗口内的事件数
+     */
+    public synchronized long getCount(long nowMillis) {
+        long second = nowMillis / 1000;
+        long total = 0;
+        for (int i = 0; i < windowSeconds; i++) {
+            long age = second - bucketSeconds[i];
+            if (age >= 0 && age < windowSeconds) {
+                total += counts[i];
+            }
+        }
+        return total;
+    }
+
+    public int getWindowSeconds() {
+        return windowSeconds;
+    }
+}
@@ -0,0 +1,77 @@
+package com.cy.order.support;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLongFieldUpdater;
+
+/**
+ * 无锁令牌桶
+ * 采用GCRA（通用信元速率算法）实现：只记录一个“理论到达时间”，每次获取令牌通过CAS推进，
+ * 每个桶只占一个long字段，适合为大量会话各自限流
+ */
+public final class TokenBucket {
+
+    private static final AtomicLongFieldUpdater<TokenBucket> TAT_UPDATER =
+            AtomicLongFieldUpdater.newUpdater(TokenBucket.class, "theoreticalArrival");
+
+    // 每个令牌的补充间隔（纳秒）
+    private final long emissionInterval;
+
+    // 允许的突发容忍时间（纳秒），对应桶容量
+    private final long burstTolerance;
+
+    // 理论到达时间（纳秒）
+    private volatile long theoreticalArrival;
+
+    /**
+     * 创建令牌桶
+     *
+     * @param permitsPerSecond 每秒补充的令牌数
+     * @param burst            桶容量，即允许的最大突发数
+     */
+    public TokenBucket(double permitsPerSecond, int burst) {
+        if (permitsPerSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("permitsPerSecond must be positive and burst at least 1");
+        }
+        this.emissionInterval = Math.max(1L, (long) (TimeUnit.SECONDS.toNanos(1) / permitsPerSecond));
+        this.burstTolerance = emissionInterval * (burst - 1);
+        this.theoreticalArrival = System.nanoTime();
+    }
+
+    /**
+     * 尝试获取一个令牌
+     *
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire() {
+        return tryAcquire(System.nanoTime());
+    }
+
+    /**
+     * 在指定时刻尝试获取一个令牌
+     *
+     * @param now 当前时间（纳秒，System.nanoTime()）
+     * @return 是否获取成功
+     */
+    public boolean tryAcquire(long now) {
+        while (true) {
+            long tat = theoreticalArrival;
+            long base = tat - now > 0 ? tat : now;
+            if (base - now > burstTolerance) {
+                return false;
+            }
+            if (TAT_UPDATER.compareAndSet(this, tat, base + emissionInterval)) {
+                return true;
+            }
+        }
+    }
+
+    /**
+     * 桶是否已补满（长时间未使用），可用于回收空闲的桶
+     *
+     * @param now 当前时间（纳秒，System.nanoTime()）
+     * @return 是否已补满
+     */
+    public boolean isFull(long now) {
+        return theoreticalArrival - now <= 0;
+    }
+}
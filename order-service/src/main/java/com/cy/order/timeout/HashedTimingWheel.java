@@ -0,0 +1,308 @@
+package com.cy.order.timeout;
+
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * 哈希时间轮
+ * 定时任务按到期的tick散列到环形槽位中，每个槽位是双向链表，工作线程每个tick只处理一个槽位：
+ * 新增和取消只是入队（O(1)，不加锁），由工作线程在下一个tick把新任务挂入槽位、把已取消的任务从链表中摘除（O(1)）。
+ * 超过一圈的延迟用剩余圈数表示，百万级待触发任务只占用链表节点，不会像 ScheduledThreadPoolExecutor 那样维护堆。
+ * 到期的任务交给执行器执行，工作线程不被任务阻塞；触发精度为一个tick
+ */
+@Slf4j
+public class HashedTimingWheel {
+
+    private static final int STATE_INIT = 0;
+    private static final int STATE_CANCELLED = 1;
+    private static final int STATE_EXPIRED = 2;
+
+    /**
+     * 每个tick最多挂入槽位的新任务数，避免突发的大量新增拖慢触发
+     */
+    private static final int MAX_TRANSFER_PER_TICK = 100000;
+
+    private final String name;
+
+    private final long tickNanos;
+
+    private final Bucket[] wheel;
+
+    private final int mask;
+
+    private final Executor taskExecutor;
+
+    private final Queue<Timeout> newTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final Queue<Timeout> cancelledTimeouts = new ConcurrentLinkedQueue<>();
+
+    private final AtomicLong pending = new AtomicLong();
+
+    private final AtomicInteger workerState = new AtomicInteger();
+
+    private volatile long startTime;
+
+    private Thread worker;
+
+    // 当前tick，只在工作线程中修改
+    private long tick;
+
+    /**
+     * @param name          工作线程名
+     * @param tickDuration  每个tick的时长
+     * @param unit          时长单位
+     * @param ticksPerWheel 槽位数，向上取整为2的幂
+     * @param taskExecutor  到期任务的执行器
+     */
+    public HashedTimingWheel(String name, long tickDuration, TimeUnit unit, int ticksPerWheel, Executor taskExecutor) {
+        if (tickDuration <= 0 || ticksPerWheel <= 0) {
+            throw new IllegalArgumentException("tickDuration和ticksPerWheel必须大于0");
+        }
+        this.name = name;
+        this.tickNanos = unit.toNanos(tickDuration);
+        int size = Integer.highestOneBit(Math.min(ticksPerWheel, 1 << 30) - 1) << 1;
+        this.wheel = new Bucket[Math.max(1, size)];
+        for (int i = 0; i < wheel.length; i++) {
+            wheel[i] = new Bucket();
+        }
+        this.mask = wheel.length - 1;
+        this.taskExecutor = taskExecutor;
+    }
+
+    /**
+     * 启动工作线程，重复调用无副作用
+     */
+    public void start() {
+        if (workerState.compareAndSet(0, 1)) {
+            startTime = System.nanoTime();
+            worker = new Thread(this::run, name);
+            worker.setDaemon(true);
+            worker.start();
+        }
+    }
+
+    /**
+     * 停止工作线程，未触发的任务不再执行
+     */
+    public void stop() {
+        if (workerState.getAndSet(2) == 1) {
+            worker.interrupt();
+            try {
+                worker.join(1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+    }
+
+    /**
+     * 新增定时任务
+     *
+     * @param task  到期执行的任务
+     * @param delay 延迟
+     * @param unit  延迟单位
+     * @return 任务句柄，可用于取消
+     */
+    public Timeout newTimeout(Runnable task, long delay, TimeUnit unit) {
+        if (workerState.get() == 2) {
+            throw new IllegalStateException("时间轮已停止: " + name);
+        }
+        start();
+        long deadline = System.nanoTime() + unit.toNanos(Math.max(0, delay)) - startTime;
+        Timeout timeout = new Timeout(this, task, deadline);
+        pending.incrementAndGet();
+        newTimeouts.add(timeout);
+        return timeout;
+    }
+
+    /**
+     * @return 未触发且未取消的任务数（已取消但尚未摘除的任务在下一个tick前仍计入）
+     */
+    public long pendingTimeouts() {
+        return pending.get();
+    }
+
+    private void run() {
+        while (workerState.get() == 1) {
+            if (!waitForNextTick()) {
+                break;
+            }
+            removeCancelled();
+            transferNewTimeouts();
+            wheel[(int) (tick & mask)].expire();
+            tick++;
+        }
+    }
+
+    /**
+     * 等到下一个tick开始
+     *
+     * @return 是否继续运行，停止时返回false
+     */
+    private boolean waitForNextTick() {
+        long deadline = tickNanos * (tick + 1);
+        while (true) {
+            long now = System.nanoTime() - startTime;
+            if (now >= deadline) {
+                return true;
+            }
+            LockSupport.parkNanos(this, deadline - now);
+            if (Thread.interrupted() || workerState.get() != 1) {
+                return false;
+            }
+        }
+    }
+
+    private void transferNewTimeouts() {
+        for (int i = 0; i < MAX_TRANSFER_PER_TICK; i++) {
+            Timeout timeout = newTimeouts.poll();
+            if (timeout == null) {
+                return;
+            }
+            if (timeout.state.get() == STATE_CANCELLED) {
+                // 挂入前已取消，已在取消队列中处理计数
+                continue;
+            }
+            long calculated = timeout.deadline / tickNanos;
+            timeout.remainingRounds = (calculated - tick) / wheel.length;
+            // 已过期的任务放到当前槽位，本tick立即触发
+            long ticks = Math.max(calculated, tick);
+            wheel[(int) (ticks & mask)].add(timeout);
+        }
+    }
+
+    private void removeCancelled() {
+        Timeout timeout;
+        while ((timeout = cancelledTimeouts.poll()) != null) {
+            if (timeout.bucket != null) {
+                timeout.bucket.remove(timeout);
+            }
+            pending.decrementAndGet();
+        }
+    }
+
+    /**
+     * 定时任务句柄
+     */
+    public static final class Timeout {
+
+        private final HashedTimingWheel timer;
+
+        private final Runnable task;
+
+        // 到期时间，相对时间轮启动时间的纳秒
+        private final long deadline;
+
+        private final AtomicInteger state = new AtomicInteger(STATE_INIT);
+
+        // 以下字段只在工作线程中访问
+        private long remainingRounds;
+        private Timeout next;
+        private Timeout prev;
+        private Bucket bucket;
+
+        private Timeout(HashedTimingWheel timer, Runnable task, long deadline) {
+            this.timer = timer;
+            this.task = task;
+            this.deadline = deadline;
+        }
+
+        /**
+         * 取消任务，O(1)：只标记状态并入队，由工作线程在下一个tick摘除
+         *
+         * @return 是否取消成功，已触发或已取消时返回false
+         */
+        public boolean cancel() {
+            if (!state.compareAndSet(STATE_INIT, STATE_CANCELLED)) {
+                return false;
+            }
+            timer.cancelledTimeouts.add(this);
+            return true;
+        }
+
+        public boolean isCancelled() {
+            return state.get() == STATE_CANCELLED;
+        }
+
+        public boolean isExpired() {
+            return state.get() == STATE_EXPIRED;
+        }
+
+        private void expire() {
+            if (!state.compareAndSet(STATE_INIT, STATE_EXPIRED)) {
+                return;
+            }
+            timer.pending.decrementAndGet();
+            try {
+                timer.taskExecutor.execute(task);
+            } catch (RuntimeException e) {
+                log.error("时间轮任务提交失败: timer={}", timer.name, e);
+            }
+        }
+    }
+
+    /**
+     * 槽位：双向链表，只在工作线程中访问
+     */
+    private static final class Bucket {
+
+        private Timeout head;
+
+        private Timeout tail;
+
+        void add(Timeout timeout) {
+            timeout.bucket = this;
+            if (head == null) {
+                head = tail = timeout;
+            } else {
+                tail.next = timeout;
+                timeout.prev = tail;
+                tail = timeout;
+            }
+        }
+
+        /**
+         * 触发本圈到期的任务，其余任务圈数减一
+         * 挂入时已按到期tick计算槽位和圈数，圈数为0的任务到达槽位时必然已到期
+         */
+        void expire() {
+            Timeout timeout = head;
+            while (timeout != null) {
+                Timeout next = timeout.next;
+                if (timeout.remainingRounds <= 0) {
+                    remove(timeout);
+                    timeout.expire();
+                } else if (!timeout.isCancelled()) {
+                    timeout.remainingRounds--;
+                }
+                timeout = next;
+            }
+        }
+
+        void remove(Timeout timeout) {
+            if (timeout.bucket != this) {
+                return;
+            }
+            if (timeout.prev != null) {
+                timeout.prev.next = timeout.next;
+            } else {
+                head = timeout.next;
+            }
+            if (timeout.next != null) {
+                timeout.next.prev = timeout.prev;
+            } else {
+                tail = timeout.prev;
+            }
+            timeout.prev = null;
+            timeout.next = null;
+            timeout.bucket = null;
+        }
+    }
+}
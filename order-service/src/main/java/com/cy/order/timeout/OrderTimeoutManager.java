@@ -0,0 +1,292 @@
+package com.cy.order.timeout;
+
+import com.cy.order.config.OrderTimeoutProperties;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.enums.OrderStatusEnum;
+import com.cy.order.event.OrderOperationEvent;
+import com.cy.order.service.OrderService;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.OrderTopicRouter;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 订单超时管理器
+ * 订单创建后开始计时支付超时，超时仍未支付时自动取消；订单支付后开始计时接单超时，
+ * 门店超时未接单时再次提醒门店，最多提醒 maxEscalations 次。
+ * 每个订单同时最多一个定时器，订单状态变化时替换或取消，取消为O(1)；
+ * 开启持久化时超时同时写入 {@link TimeoutBackup}，服务重启后由备份到期触发
+ */
+@Slf4j
+@Component
+public class OrderTimeoutManager {
+
+    private final OrderTimeoutProperties properties;
+
+    private final OrderService orderService;
+
+    private final OrderTopicRouter orderTopicRouter;
+
+    private final TimeoutBackup backup;
+
+    private final HashedTimingWheel wheel;
+
+    private final ExecutorService taskExecutor;
+
+    // 订单当前的定时器 key: orderId
+    private final Map<String, OrderTimer> timers = new ConcurrentHashMap<>();
+
+    // 已处理的接单超时提醒次数 key: orderId，进程内定时器和持久化备份据此去重；
+    // 订单离开已支付状态时删除，最后一次提醒后再保留一个接单超时周期，等同一次提醒的备份到期
+    private final Map<String, Integer> handledEscalations = new ConcurrentHashMap<>();
+
+    private final LongAdder scheduled = new LongAdder();
+
+    private final LongAdder cancelled = new LongAdder();
+
+    private final LongAdder autoCancelled = new LongAdder();
+
+    private final LongAdder escalations = new LongAdder();
+
+    private final LongAdder backupTriggered = new LongAdder();
+
+    public OrderTimeoutManager(OrderTimeoutProperties properties,
+                               OrderService orderService,
+                               OrderTopicRouter orderTopicRouter,
+                               ObjectProvider<TimeoutBackup> backup) {
+        this.properties = properties;
+        this.orderService = orderService;
+        this.orderTopicRouter = orderTopicRouter;
+        this.backup = properties.isEnabled() && properties.isDurable() ? backup.getIfAvailable() : null;
+        this.taskExecutor = Executors.newFixedThreadPool(2, new TimeoutThreadFactory());
+        this.wheel = new HashedTimingWheel("order-timeout-wheel", properties.getTickDuration(), TimeUnit.MILLISECONDS,
+                properties.getTicksPerWheel(), taskExecutor);
+    }
+
+    @PostConstruct
+    public void start() {
+        if (backup != null) {
+            backup.start(this::onBackupTimeout);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (backup != null) {
+            backup.stop();
+        }
+        wheel.stop();
+        taskExecutor.shutdown();
+    }
+
+    /**
+     * 监听订单操作事件，按订单的新状态设置或取消定时器
+     * 同步处理，保证订单状态变化后定时器立即随之变化
+     *
+     * @param event 订单操作事件
+     */
+    @EventListener(OrderOperationEvent.class)
+    public void handleOrderOperationEvent(OrderOperationEvent event) {
+        OrderDto order = event.getOrder();
+        if (!properties.isEnabled() || order == null || order.getId() == null || order.getStatus() == null) {
+            return;
+        }
+        switch (order.getStatus()) {
+            case CREATED -> schedule(new TimeoutRecord(order.getId(), TimeoutRecord.Kind.PAYMENT, 0),
+                    properties.getPaymentTimeout());
+            case PAID -> schedule(new TimeoutRecord(order.getId(), TimeoutRecord.Kind.ACCEPT, 1),
+                    properties.getAcceptTimeout());
+            default -> cancel(order.getId());
+        }
+    }
+
+    /**
+     * 设置订单的定时器，替换该订单已有的定时器
+     */
+    void schedule(TimeoutRecord record, long delay) {
+        OrderTimer timer = new OrderTimer(record);
+        timer.timeout = wheel.newTimeout(timer, delay, TimeUnit.MILLISECONDS);
+        OrderTimer previous = timers.put(record.getOrderId(), timer);
+        if (previous != null) {
+            previous.timeout.cancel();
+        }
+        scheduled.increment();
+        if (backup != null) {
+            backup.schedule(record, delay);
+        }
+        log.debug("订单定时器已设置: orderId={}, kind={}, escalation={}, delay={}ms",
+                record.getOrderId(), record.getKind(), record.getEscalation(), delay);
+    }
+
+    /**
+     * 取消订单的定时器
+     */
+    void cancel(String orderId) {
+        handledEscalations.remove(orderId);
+        OrderTimer timer = timers.remove(orderId);
+        if (timer != null && timer.timeout.cancel()) {
+            cancelled.increment();
+            log.debug("订单定时器已取消: orderId={}, kind={}", orderId, timer.record.getKind());
+        }
+    }
+
+    /**
+     * 持久化备份到期，进程内定时器仍在时由定时器处理
+     */
+    void onBackupTimeout(TimeoutRecord record) {
+        if (record.getOrderId() == null || record.getKind() == null || timers.containsKey(record.getOrderId())) {
+            return;
+        }
+        backupTriggered.increment();
+        handle(record);
+    }
+
+    private void handle(TimeoutRecord record) {
+        try {
+            if (record.getKind() == TimeoutRecord.Kind.PAYMENT) {
+                onPaymentTimeout(record);
+            } else {
+                onAcceptTimeout(record);
+            }
+        } catch (RuntimeException e) {
+            log.error("处理订单超时失败: orderId={}, kind={}", record.getOrderId(), record.getKind(), e);
+        }
+    }
+
+    private void onPaymentTimeout(TimeoutRecord record) {
+        // 只取消仍未支付的订单，重复触发时不会重复取消
+        if (orderService.cancelUnpaidOrder(record.getOrderId())) {
+            autoCancelled.increment();
+            log.info("订单支付超时，已自动取消: orderId={}", record.getOrderId());
+        }
+    }
+
+    private void onAcceptTimeout(TimeoutRecord record) {
+        String orderId = record.getOrderId();
+        int escalation = record.getEscalation();
+        boolean[] fresh = new boolean[1];
+        handledEscalations.compute(orderId, (id, last) -> {
+            if (last != null && last >= escalation) {
+                return last;
+            }
+            fresh[0] = true;
+            return escalation;
+        });
+        if (!fresh[0]) {
+            return;
+        }
+        OrderDto order = orderService.getOrderById(orderId);
+        if (order == null || order.getStatus() != OrderStatusEnum.PAID) {
+            handledEscalations.remove(orderId, escalation);
+            return;
+        }
+        escalations.increment();
+        log.warn("门店超时未接单，再次提醒门店: orderId={}, storeId={}, escalation={}/{}",
+                orderId, order.getStoreId(), escalation, properties.getMaxEscalations());
+        orderTopicRouter.publish(order, acceptTimeoutNotification(order, escalation), ClientType.STORE);
+        if (escalation < properties.getMaxEscalations()) {
+            schedule(new TimeoutRecord(orderId, TimeoutRecord.Kind.ACCEPT, escalation + 1), properties.getAcceptTimeout());
+        } else {
+            wheel.newTimeout(() -> handledEscalations.remove(orderId, escalation),
+                    properties.getAcceptTimeout(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    private String acceptTimeoutNotification(OrderDto order, int escalation) {
+        return "{"
+                + "\"type\": \"order_accept_timeout\","
+                + "\"orderId\": \"" + order.getId() + "\","
+                + "\"orderNumber\": \"" + order.getOrderNumber() + "\","
+                + "\"message\": \"订单已支付超时未接单，请尽快处理\","
+                + "\"escalation\": " + escalation + ","
+                + "\"maxEscalations\": " + properties.getMaxEscalations() + ","
+                + "\"timestamp\": " + Instant.now().toEpochMilli()
+                + "}";
+    }
+
+    /**
+     * 获取超时统计信息
+     *
+     * @return 超时统计信息
+     */
+    public TimeoutStats getStats() {
+        return new TimeoutStats(timers.size(), handledEscalations.size(), wheel.pendingTimeouts(), scheduled.sum(),
+                cancelled.sum(), autoCancelled.sum(), escalations.sum(), backupTriggered.sum(), backup != null);
+    }
+
+    /**
+     * 订单定时器，到期时先摘除自身再处理，处理中设置的下一次提醒不会被误删
+     */
+    private final class OrderTimer implements Runnable {
+
+        private final TimeoutRecord record;
+
+        private volatile HashedTimingWheel.Timeout timeout;
+
+        private OrderTimer(TimeoutRecord record) {
+            this.record = record;
+        }
+
+        @Override
+        public void run() {
+            timers.remove(record.getOrderId(), this);
+            handle(record);
+        }
+    }
+
+    private static final class TimeoutThreadFactory implements ThreadFactory {
+
+        private final AtomicInteger index = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable) {
+            Thread thread = new Thread(runnable, "order-timeout-" + index.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+
+    /**
+     * 超时统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class TimeoutStats {
+        // 有定时器的订单数
+        private int trackedOrders;
+        // 记录了已处理提醒次数的订单数
+        private int trackedEscalations;
+        // 时间轮中待触发的定时器数
+        private long pendingTimers;
+        // 设置的定时器数
+        private long scheduled;
+        // 因订单状态变化取消的定时器数
+        private long cancelled;
+        // 支付超时自动取消的订单数
+        private long autoCancelled;
+        // 接单超时提醒次数
+        private long escalations;
+        // 由持久化备份触发的超时数
+        private long backupTriggered;
+        // 是否开启持久化
+        private boolean durable;
+    }
+}
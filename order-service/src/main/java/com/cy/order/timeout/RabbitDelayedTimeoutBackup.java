@@ -0,0 +1,86 @@
+package com.cy.order.timeout;
+
+import com.cy.order.mq.OrderMessagePublisher;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.CustomExchange;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * 基于RabbitMQ延迟消息插件的超时备份
+ * 超时记录发往 x-delayed-message 类型的交换机，插件在延迟到期后才把消息路由到超时队列。
+ * 插件在到期前不路由消息，mandatory 发布会立即被退回，因此 RabbitTemplate 对带 x-delay 头的消息不开启 mandatory
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "order.timeout", name = "durable", havingValue = "true")
+public class RabbitDelayedTimeoutBackup implements TimeoutBackup {
+
+    public static final String TIMEOUT_EXCHANGE = "order.timeout.delayed.exchange";
+    public static final String TIMEOUT_QUEUE = "order.timeout.queue";
+    public static final String TIMEOUT_ROUTING_KEY = "order.timeout";
+    public static final String DELAY_HEADER = "x-delay";
+
+    private final ConnectionFactory connectionFactory;
+
+    private final AmqpAdmin amqpAdmin;
+
+    private final OrderMessagePublisher orderMessagePublisher;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SimpleMessageListenerContainer container;
+
+    @Override
+    public void start(Consumer<TimeoutRecord> handler) {
+        CustomExchange exchange = new CustomExchange(TIMEOUT_EXCHANGE, "x-delayed-message", true, false,
+                Map.of("x-delayed-type", "direct"));
+        Queue queue = QueueBuilder.durable(TIMEOUT_QUEUE).build();
+        amqpAdmin.declareExchange(exchange);
+        amqpAdmin.declareQueue(queue);
+        amqpAdmin.declareBinding(BindingBuilder.bind(queue).to(exchange).with(TIMEOUT_ROUTING_KEY).noargs());
+
+        container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(queue);
+        container.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        container.setDefaultRequeueRejected(false);
+        container.setMessageListener(message -> {
+            try {
+                handler.accept(objectMapper.readValue(message.getBody(), TimeoutRecord.class));
+            } catch (IOException e) {
+                log.error("解析订单超时消息失败: messageId={}", message.getMessageProperties().getMessageId(), e);
+            }
+        });
+        container.start();
+        log.info("订单超时持久化已启动: exchange={}, queue={}", TIMEOUT_EXCHANGE, TIMEOUT_QUEUE);
+    }
+
+    @Override
+    public void schedule(TimeoutRecord record, long delay) {
+        if (!orderMessagePublisher.publish(TIMEOUT_EXCHANGE, TIMEOUT_ROUTING_KEY, record,
+                Map.of(DELAY_HEADER, (int) Math.min(delay, Integer.MAX_VALUE)))) {
+            log.warn("订单超时持久化失败，仅由进程内定时器处理: orderId={}, kind={}", record.getOrderId(), record.getKind());
+        }
+    }
+
+    @Override
+    public void stop() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+}
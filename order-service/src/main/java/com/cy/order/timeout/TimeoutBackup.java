@@ -0,0 +1,31 @@
+package com.cy.order.timeout;
+
+import java.util.function.Consumer;
+
+/**
+ * 订单超时的持久化备份
+ * 进程内时间轮在服务重启后丢失，备份在到期时回调，由订单超时管理器按订单状态幂等处理；
+ * 备份中的超时无法取消，订单状态变化后到期的记录会被忽略
+ */
+public interface TimeoutBackup {
+
+    /**
+     * 启动备份并订阅到期的超时
+     *
+     * @param handler 超时到期处理器
+     */
+    void start(Consumer<TimeoutRecord> handler);
+
+    /**
+     * 保存一条超时
+     *
+     * @param record 超时记录
+     * @param delay  延迟（毫秒）
+     */
+    void schedule(TimeoutRecord record, long delay);
+
+    /**
+     * 停止备份
+     */
+    void stop();
+}
@@ -0,0 +1,34 @@
+package com.cy.order.timeout;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * 订单超时记录
+ * 持久化超时时作为延迟消息的内容，到期后由 {@link OrderTimeoutManager} 按订单当前状态决定是否处理
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class TimeoutRecord {
+
+    /**
+     * 超时类型
+     */
+    public enum Kind {
+        PAYMENT,    // 支付超时
+        ACCEPT      // 接单超时
+    }
+
+    private String orderId;
+
+    private Kind kind;
+
+    /**
+     * 接单超时的第几次提醒，从1开始；支付超时为0
+     */
+    private int escalation;
+}
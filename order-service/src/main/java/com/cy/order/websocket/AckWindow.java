@@ -0,0 +1,184 @@
+package com.cy.order.websocket;
+
+import java.util.ArrayDeque;
+import java.util.function.ObjLongConsumer;
+
+/**
+ * 单个门店的待确认通知窗口
+ * 以环形数组保存尚未确认的通知，序号连续分配，因此只需记录队头序号；
+ * 已发送的通知总是队列的前缀，长度即在途数。数组按需从小容量倍增，空闲门店只占很少内存。
+ * 所有方法和字段由调用方在持有本对象锁的情况下访问
+ */
+final class AckWindow {
+
+    private static final int INITIAL_CAPACITY = 8;
+
+    // 队头通知的序号
+    private long headSeq = 1;
+
+    private String[] messages = new String[INITIAL_CAPACITY];
+
+    // 下一次重发时间（毫秒）
+    private long[] retryAt = new long[INITIAL_CAPACITY];
+
+    // 已发送次数
+    private byte[] attempts = new byte[INITIAL_CAPACITY];
+
+    private int head;
+
+    private int size;
+
+    // 已发送（在途）的通知数，总是队列前缀
+    private int sent;
+
+    // 已分配序号、等待在锁外发出的发送任务，按序号顺序排列
+    final ArrayDeque<Runnable> outbox = new ArrayDeque<>();
+
+    // 是否已有发送线程在发送 outbox
+    boolean draining;
+
+    /**
+     * 追加一条通知
+     *
+     * @param message    通知内容
+     * @param bufferSize 窗口最大容量
+     * @return 因窗口已满被丢弃的最旧通知数
+     */
+    int append(String message, int bufferSize) {
+        int dropped = 0;
+        if (size >= bufferSize) {
+            pop();
+            dropped++;
+        }
+        if (size == messages.length) {
+            grow(bufferSize);
+        }
+        messages[index(size)] = message;
+        retryAt[index(size)] = 0;
+        attempts[index(size)] = 0;
+        size++;
+        return dropped;
+    }
+
+    /**
+     * 累计确认，移除序号不大于 seq 的全部已发送通知
+     * 超过已发送最大序号的确认只确认到已发送的最大序号，尚未发出的通知不会被移除
+     *
+     * @param seq 客户端确认的序号
+     * @return 确认的通知数
+     */
+    int ack(long seq) {
+        long upTo = Math.min(seq, lastSentSeq());
+        int acked = 0;
+        while (size > 0 && headSeq <= upTo) {
+            pop();
+            acked++;
+        }
+        return acked;
+    }
+
+    /**
+     * 发送窗口内到期的通知：先重发到期的在途通知，再在在途数未达上限时发送新通知
+     *
+     * @param now            当前时间（毫秒）
+     * @param maxInFlight    最大在途数
+     * @param initialDelay   首次重发等待时间（毫秒）
+     * @param maxDelay       最大重发等待时间（毫秒）
+     * @param sender         发送回调，参数为通知内容和序号
+     * @return 其中重发的通知数
+     */
+    int sendDue(long now, int maxInFlight, long initialDelay, long maxDelay, ObjLongConsumer<String> sender) {
+        int resent = 0;
+        for (int i = 0; i < sent; i++) {
+            int index = index(i);
+            if (retryAt[index] <= now) {
+                sender.accept(messages[index], headSeq + i);
+                schedule(index, now, initialDelay, maxDelay);
+                resent++;
+            }
+        }
+        while (sent < size && sent < maxInFlight) {
+            int index = index(sent);
+            sender.accept(messages[index], headSeq + sent);
+            schedule(index, now, initialDelay, maxDelay);
+            sent++;
+        }
+        return resent;
+    }
+
+    /**
+     * 丢弃队头已达到最大重试次数且再次到期的通知
+     *
+     * @param now        当前时间（毫秒）
+     * @param maxRetries 最大发送次数
+     * @return 丢弃的通知数
+     */
+    int expire(long now, int maxRetries) {
+        int expired = 0;
+        while (sent > 0 && attempts[head] >= maxRetries && retryAt[head] <= now) {
+            pop();
+            expired++;
+        }
+        return expired;
+    }
+
+    /**
+     * 把全部在途通知标记为立即重发，客户端重连时调用
+     */
+    void resetRetry() {
+        for (int i = 0; i < sent; i++) {
+            retryAt[index(i)] = 0;
+        }
+    }
+
+    int size() {
+        return size;
+    }
+
+    /**
+     * @return 已发送的最大序号，没有在途通知时为队头序号减一
+     */
+    long lastSentSeq() {
+        return headSeq + sent - 1;
+    }
+
+    private void schedule(int index, long now, long initialDelay, long maxDelay) {
+        int attempt = attempts[index];
+        long delay = attempt >= 30 ? maxDelay : Math.min(maxDelay, initialDelay << attempt);
+        retryAt[index] = now + delay;
+        if (attempt < Byte.MAX_VALUE) {
+            attempts[index] = (byte) (attempt + 1);
+        }
+    }
+
+    private void pop() {
+        messages[head] = null;
+        head = (head + 1) % messages.length;
+        headSeq++;
+        size--;
+        if (sent > 0) {
+            sent--;
+        }
+    }
+
+    private void grow(int bufferSize) {
+        int capacity = Math.min(Math.max(bufferSize, 1), messages.length * 2);
+        String[] newMessages = new String[capacity];
+        long[] newRetryAt = new long[capacity];
+        byte[] newAttempts = new byte[capacity];
+        for (int i = 0; i < size; i++) {
+            int index = index(i);
+            newMessages[i] = messages[index];
+            newRetryAt[i] = retryAt[index];
+            newAttempts[i] = attempts[index];
+        }
+        messages = newMessages;
+        retryAt = newRetryAt;
+        attempts = newAttempts;
+        head = 0;
+    }
+
+    private int index(int offset) {
+        return (head + offset) % messages.length;
+    }
+}
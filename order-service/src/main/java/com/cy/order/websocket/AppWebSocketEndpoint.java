@@ -2,6 +2,7 @@ package com.cy.order.websocket;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
 import jakarta.websocket.*;
 import jakarta.websocket.server.ServerEndpoint;
 import lombok.extern.slf4j.Slf4j;
@@ -10,6 +11,7 @@ import org.springframework.stereotype.Component;
 import org.springframework.web.socket.WebSocketSession;
 
 import java.io.IOException;
+import java.util.List;
 
 /**
  * APP端WebSocket端点
@@ -17,7 +19,7 @@ import java.io.IOException;
  */
 @Slf4j
 @Component
-@ServerEndpoint("/ws/app")
+@ServerEndpoint(value = "/ws/app", configurator = WebSocketEndpointConfigurator.App.class)
 public class AppWebSocketEndpoint {
 
     private static ClientSessionManager clientSessionManager;
@@ -31,6 +33,41 @@ public class AppWebSocketEndpoint {
         return clientSessionManager;
     }
 
+    private static WebSocketMessageSender messageSender;
+
+    @Autowired
+    public void setMessageSender(WebSocketMessageSender messageSender) {
+        AppWebSocketEndpoint.messageSender = messageSender;
+    }
+
+    private static ClusterSessionRouter clusterSessionRouter;
+
+    @Autowired
+    public void setClusterSessionRouter(ClusterSessionRouter clusterSessionRouter) {
+        AppWebSocketEndpoint.clusterSessionRouter = clusterSessionRouter;
+    }
+
+    private static WebSocketAdmissionController admissionController;
+
+    @Autowired
+    public void setAdmissionController(WebSocketAdmissionController admissionController) {
+        AppWebSocketEndpoint.admissionController = admissionController;
+    }
+
+    private static TopicRegistry topicRegistry;
+
+    @Autowired
+    public void setTopicRegistry(TopicRegistry topicRegistry) {
+        AppWebSocketEndpoint.topicRegistry = topicRegistry;
+    }
+
+    private static HeartbeatScheduler heartbeatScheduler;
+
+    @Autowired
+    public void setHeartbeatScheduler(HeartbeatScheduler heartbeatScheduler) {
+        AppWebSocketEndpoint.heartbeatScheduler = heartbeatScheduler;
+    }
+
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
     /**
@@ -38,6 +75,12 @@ public class AppWebSocketEndpoint {
      */
     @OnOpen
     public void onOpen(Session session) {
+        if (admissionController != null && !admissionController.admit(session)) {
+            return;
+        }
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.register(session);
+        }
         log.info("APP WebSocket连接建立成功: sessionId={}", session.getId());
     }
 
@@ -50,14 +93,15 @@ public class AppWebSocketEndpoint {
             log.warn("APP WebSocket连接关闭: session is null");
             return;
         }
-        String sessionId = session.getId();
-        if (sessionId != null) {
-            // 从用户会话中移除
-            clientSessionManager.removeUserSession(sessionId);
-            log.info("APP WebSocket连接关闭: sessionId={}", sessionId);
-        } else {
-            log.warn("APP WebSocket连接关闭: sessionId is null");
+        if (topicRegistry != null) {
+            topicRegistry.unsubscribeAll(session);
+        }
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.unregister(session);
         }
+        // 只移除关闭的这一个会话，同一用户其他设备上的连接不受影响
+        clientSessionManager.removeSession(session);
+        log.info("APP WebSocket连接关闭: sessionId={}", session.getId());
     }
 
     /**
@@ -65,7 +109,11 @@ public class AppWebSocketEndpoint {
      */
     @OnMessage
     public void onMessage(String message, Session session) {
-        log.info("收到APP WebSocket消息: sessionId={}, message={}", session.getId(), message);
+        // 限流检查放在解析之前，超限消息不再消耗解析和日志开销
+        if (admissionController != null && !admissionController.allowInbound(session)) {
+            return;
+        }
+        log.debug("收到APP WebSocket消息: sessionId={}, message={}", session.getId(), message);
         
         try {
             JsonNode jsonNode = objectMapper.readTree(message);
@@ -90,23 +138,38 @@ public class AppWebSocketEndpoint {
                     String sessionId = session.getId();
                     if (sessionId != null) {
                         clientSessionManager.addUserSession(clientId, session);
-                        sendMessage(session, "{\"type\":\"connection_success\",\"message\":\"Connected successfully\", \"clientId\":\"" + clientId + "\"}");
+                        JsonNode encodingNode = jsonNode.get("encoding");
+                        String encoding = messageSender.negotiateEncoding(session,
+                                encodingNode != null ? encodingNode.asText() : null);
+                        JsonNode batchNode = jsonNode.get("batch");
+                        boolean batch = messageSender.negotiateBatching(session,
+                                batchNode != null && batchNode.asBoolean());
+                        SessionContext.bind(session).setClientId(clientId);
+                        SessionContext.bind(session).setClientType(ClientType.USER);
+                        topicRegistry.subscribe(session, TopicRegistry.identityTopic(ClientType.USER, clientId));
+                        long heartbeatInterval = heartbeatScheduler != null ? heartbeatScheduler.advise(session) : 0;
+                        sendMessage(session, "{\"type\":\"connection_success\",\"message\":\"Connected successfully\", \"clientId\":\"" + clientId
+                                + "\", \"encoding\":\"" + encoding + "\", \"batch\":" + batch + heartbeatReply(heartbeatInterval) + "}");
+                        // 补发离线期间暂存的通知
+                        List<String> offline = clientSessionManager.drainOffline(ClientType.USER, clientId);
+                        if (!offline.isEmpty()) {
+                            messageSender.sendOfflineMessages(session, offline);
+                        }
                         log.info("APP用户连接成功: sessionId={}, clientId={}", sessionId, clientId);
                     } else {
                         log.warn("无法添加会话，sessionId为null");
                     }
                     break;
                 case "ping":
+                    // 兼容不支持协议级Ping的旧客户端；心跳以会话绑定的客户端为准，忽略消息中的clientId
                     sendMessage(session, "{\"type\":\"pong\"}");
-                    // 更新最后活跃时间
-                    String pingSessionId = session.getId();
-                    if (pingSessionId != null) {
-                        // 对于APP端，我们使用userId作为key存储会话
-                        JsonNode userIdNode = jsonNode.get("clientId");
-                        if (userIdNode != null) {
-                            clientSessionManager.updateUserHeartbeat(userIdNode.asText());
-                        }
-                    }
+                    clientSessionManager.updateHeartbeat(session);
+                    break;
+                case "subscribe":
+                    sendMessage(session, topicRegistry.handleSubscription(session, jsonNode, true));
+                    break;
+                case "unsubscribe":
+                    sendMessage(session, topicRegistry.handleSubscription(session, jsonNode, false));
                     break;
                 default:
                     sendMessage(session, "{\"type\":\"error\",\"message\":\"Unknown message type: " + type + "\"}");
@@ -118,6 +181,16 @@ public class AppWebSocketEndpoint {
         }
     }
 
+    /**
+     * 收到Pong控制帧时调用的方法
+     */
+    @OnMessage
+    public void onPong(PongMessage pong, Session session) {
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.onPong(session, pong);
+        }
+    }
+
     /**
      * 发生错误时调用的方法
      */
@@ -129,9 +202,7 @@ public class AppWebSocketEndpoint {
         }
         String sessionId = session.getId();
         log.error("APP WebSocket发生错误: sessionId={}", sessionId, error);
-        if (sessionId != null) {
-            clientSessionManager.removeUserSession(sessionId);
-        }
+        clientSessionManager.removeSession(session);
     }
 
     /**
@@ -140,12 +211,22 @@ public class AppWebSocketEndpoint {
      * @param session 目标会话
      * @param message 消息内容
      */
+    /**
+     * connection_success 中的建议心跳间隔，未开启自适应心跳时不返回
+     */
+    static String heartbeatReply(long heartbeatInterval) {
+        return heartbeatInterval > 0 ? ", \"heartbeatInterval\":" + heartbeatInterval : "";
+    }
+
     private void sendMessage(Session session, String message) {
         try {
             if (session.isOpen()) {
                 // 检查getBasicRemote()是否为null
                 if (session.getBasicRemote() != null) {
-                    session.getBasicRemote().sendText(message);
+                    // 与通知发送共用会话锁，避免BasicRemote并发写
+                    synchronized (session) {
+                        session.getBasicRemote().sendText(message);
+                    }
                 } else {
                     log.warn("无法发送消息，BasicRemote为null: sessionId={}", session.getId());
                 }
@@ -157,20 +238,28 @@ public class AppWebSocketEndpoint {
 
     /**
      * 向特定用户发送消息
+     * 同时由跨节点路由器转发给其他持有该用户连接的节点，都没有连接时暂存到离线信箱
      *
      * @param userId  用户ID
      * @param message 消息内容
      */
     public static void sendMessageToUser(String userId, String message) {
-        // 使用ClientSessionManager获取用户会话并发送消息
-        Session session = (Session) clientSessionManager.getUserSession(userId);
-        if (session != null && session.isOpen()) {
-            try {
-                session.getBasicRemote().sendText(message);
-            } catch (IOException e) {
-                log.error("向用户发送消息失败: userId={}", userId, e);
+        // 同一用户可能在多个设备上在线，通知发往该用户的全部会话
+        List<Session> sessions = clientSessionManager.getUserSessions(userId);
+        int delivered = 0;
+        if (!sessions.isEmpty()) {
+            delivered = messageSender.sendAll(sessions, message);
+            if (delivered == 0) {
+                log.error("向用户发送消息失败: userId={}", userId);
             }
         }
+        boolean forwarded = clusterSessionRouter != null
+                && clusterSessionRouter.forward(ClientType.USER, userId, message);
+        if (forwarded) {
+            log.debug("通知已转发给其他节点: userId={}, local={}", userId, delivered);
+        } else if (sessions.isEmpty()) {
+            clientSessionManager.offerOffline(ClientType.USER, userId, message);
+        }
     }
 
     /**
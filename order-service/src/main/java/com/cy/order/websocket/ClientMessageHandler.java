@@ -0,0 +1,21 @@
+package com.cy.order.websocket;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import jakarta.websocket.Session;
+
+/**
+ * 客户端消息处理器
+ * 端点按消息的 {@code type} 字段在处理器表中查找对应的处理器
+ */
+@FunctionalInterface
+public interface ClientMessageHandler {
+
+    /**
+     * 处理一条客户端消息
+     *
+     * @param session WebSocket会话
+     * @param message 解析后的JSON消息
+     * @throws Exception 处理失败，由端点统一回复错误
+     */
+    void handle(Session session, JsonNode message) throws Exception;
+}
@@ -1,6 +1,7 @@
 package com.cy.order.websocket;
 
 import com.cy.order.config.WebSocketProperties;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.Session;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
@@ -9,13 +10,20 @@ import org.springframework.stereotype.Service;
 
 import java.io.IOException;
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.Map;
 import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 /**
  * 客户端会话管理器
- * 用于缓存和管理WebSocket客户端连接
+ * 用于缓存和管理WebSocket客户端连接，同一用户/门店可以同时有多个连接（多设备、多终端）
  */
 @Service
 @RequiredArgsConstructor
@@ -24,11 +32,23 @@ public class ClientSessionManager {
 
     private final WebSocketProperties webSocketProperties;
 
-    // 存储用户会话 key: clientId, value: SessionInfo
-    private final Map<String, SessionInfo> userSessions = new ConcurrentHashMap<>();
-    
-    // 存储门店会话 key: clientId, value: SessionInfo
-    private final Map<String, SessionInfo> storeSessions = new ConcurrentHashMap<>();
+    // 存储用户会话 key: clientId, value: 该用户的全部会话
+    private final Map<String, ClientSessions> userSessions = new ConcurrentHashMap<>();
+
+    // 存储门店会话 key: clientId, value: 该门店的全部会话
+    private final Map<String, ClientSessions> storeSessions = new ConcurrentHashMap<>();
+
+    // 用户上下线待通知的状态变化 key: clientId
+    private final Map<String, PresenceTransitions> userTransitions = new ConcurrentHashMap<>();
+
+    // 门店上下线待通知的状态变化 key: clientId
+    private final Map<String, PresenceTransitions> storeTransitions = new ConcurrentHashMap<>();
+
+    // 会话生命周期监听器
+    private final List<SessionLifecycleListener> lifecycleListeners = new CopyOnWriteArrayList<>();
+
+    // 离线通知信箱
+    private final OfflineMailbox offlineMailbox = new OfflineMailbox();
 
     /**
      * 会话信息内部类
@@ -40,46 +60,196 @@ public class ClientSessionManager {
         private Session session;
         private LocalDateTime lastHeartbeat;
         private String sessionId;
-        
+
+        /**
+         * 会话是否已超过心跳超时
+         * 超时以服务端建议给该会话的心跳间隔为准，未建议过间隔的会话使用全局超时
+         */
         public boolean isExpired() {
-            long timeout = webSocketProperties.getHeartbeatTimeout() / 1000;
-            return lastHeartbeat != null && 
-                   LocalDateTime.now().isAfter(lastHeartbeat.plusSeconds(timeout));
+            SessionContext context = SessionContext.of(session);
+            long timeout = context != null && context.getHeartbeatTimeout() > 0
+                    ? context.getHeartbeatTimeout() : webSocketProperties.getHeartbeatTimeout();
+            return lastHeartbeat != null &&
+                   LocalDateTime.now().isAfter(lastHeartbeat.plus(timeout, ChronoUnit.MILLIS));
+        }
+
+        private boolean isValid() {
+            return session != null && session.isOpen() && !isExpired();
         }
     }
 
+    /**
+     * 单个客户端的会话集合
+     * 按连接先后顺序保存在写时复制的数组中，读取无需加锁；同一客户端的会话数很少，数组比集合更紧凑
+     */
+    static final class ClientSessions {
+
+        private static final SessionInfo[] EMPTY = new SessionInfo[0];
+
+        private volatile SessionInfo[] sessions = EMPTY;
+
+        SessionInfo[] snapshot() {
+            return sessions;
+        }
+
+        /**
+         * 追加会话，超出上限时移除最早的会话
+         *
+         * @return 被移除的会话
+         */
+        synchronized List<SessionInfo> add(SessionInfo sessionInfo, int limit) {
+            List<SessionInfo> evicted = new ArrayList<>();
+            SessionInfo[] current = sessions;
+            List<SessionInfo> next = new ArrayList<>(current.length + 1);
+            for (SessionInfo existing : current) {
+                if (existing.getSession() != sessionInfo.getSession()) {
+                    next.add(existing);
+                }
+            }
+            next.add(sessionInfo);
+            while (next.size() > Math.max(1, limit)) {
+                evicted.add(next.remove(0));
+            }
+            sessions = next.toArray(EMPTY);
+            return evicted;
+        }
+
+        synchronized SessionInfo remove(Session session) {
+            SessionInfo[] current = sessions;
+            for (int i = 0; i < current.length; i++) {
+                if (current[i].getSession() == session) {
+                    SessionInfo[] next = new SessionInfo[current.length - 1];
+                    System.arraycopy(current, 0, next, 0, i);
+                    System.arraycopy(current, i + 1, next, i, current.length - i - 1);
+                    sessions = next;
+                    return current[i];
+                }
+            }
+            return null;
+        }
+
+        synchronized List<SessionInfo> removeInvalid() {
+            List<SessionInfo> removed = new ArrayList<>();
+            List<SessionInfo> kept = new ArrayList<>();
+            for (SessionInfo sessionInfo : sessions) {
+                (sessionInfo.isValid() ? kept : removed).add(sessionInfo);
+            }
+            if (!removed.isEmpty()) {
+                sessions = kept.toArray(EMPTY);
+            }
+            return removed;
+        }
+
+        synchronized SessionInfo[] clear() {
+            SessionInfo[] current = sessions;
+            sessions = EMPTY;
+            return current;
+        }
+
+        boolean isEmpty() {
+            return sessions.length == 0;
+        }
+    }
+
+    /**
+     * 单个客户端待通知的上下线变化
+     * 变化在修改会话集合的同一个 compute 中入队，顺序与实际发生的顺序一致；
+     * 同一时间只有一个线程按入队顺序通知监听器，其他线程入队后直接返回，由正在通知的线程接着处理
+     */
+    static final class PresenceTransitions {
+
+        // true 上线，false 下线
+        private final ArrayDeque<Boolean> pending = new ArrayDeque<>();
+
+        private boolean publishing;
+
+        synchronized void offer(boolean online) {
+            pending.add(online);
+        }
+
+        /**
+         * @return 下一个待通知的变化，没有时结束本轮通知并返回null
+         */
+        synchronized Boolean next() {
+            Boolean next = pending.poll();
+            if (next == null) {
+                publishing = false;
+            }
+            return next;
+        }
+
+        /**
+         * @return 是否由当前线程负责通知
+         */
+        synchronized boolean tryStartPublishing() {
+            if (publishing) {
+                return false;
+            }
+            publishing = true;
+            return true;
+        }
+
+        synchronized boolean isIdle() {
+            return !publishing && pending.isEmpty();
+        }
+    }
+
+    /**
+     * 注册会话生命周期监听器
+     *
+     * @param listener 监听器
+     */
+    public void addLifecycleListener(SessionLifecycleListener listener) {
+        lifecycleListeners.add(listener);
+    }
+
     /**
      * 添加用户会话
-     * 
+     * 同一用户的会话数超过上限时，关闭最早的会话
+     *
      * @param userId 用户ID
      * @param session WebSocket会话
      */
     public void addUserSession(String userId, Session session) {
-        SessionInfo sessionInfo = new SessionInfo(session, LocalDateTime.now(), session.getId());
-        userSessions.put(userId, sessionInfo);
+        addSession(ClientType.USER, userId, session);
         log.info("用户会话已添加: userId={}, sessionId={}, remoteAddress={}", userId, session.getId(), session.getRequestURI());
     }
 
     /**
      * 添加门店会话
-     * 
+     * 同一门店的会话数超过上限时，关闭最早的会话
+     *
      * @param storeId 门店ID
      * @param session WebSocket会话
      */
     public void addStoreSession(String storeId, Session session) {
-        SessionInfo sessionInfo = new SessionInfo(session, LocalDateTime.now(), session.getId());
-        storeSessions.put(storeId, sessionInfo);
+        addSession(ClientType.STORE, storeId, session);
         log.info("门店会话已添加: storeId={}, sessionId={}, remoteAddress={}", storeId, session.getId(), session.getRequestURI());
     }
 
+    /**
+     * 把一个连接同时绑定到多个门店
+     * 用于连锁后台等同时监控多个门店的客户端，每个门店都把该连接视为自己的一个会话
+     *
+     * @param storeIds 门店ID
+     * @param session  WebSocket会话
+     */
+    public void addStoreSessions(Collection<String> storeIds, Session session) {
+        for (String storeId : storeIds) {
+            addSession(ClientType.STORE, storeId, session);
+        }
+        log.info("门店会话已添加: stores={}, sessionId={}, remoteAddress={}", storeIds.size(), session.getId(), session.getRequestURI());
+    }
+
     /**
      * 根据用户ID获取会话
-     * 
+     * 用户有多个会话时返回最近建立的会话
+     *
      * @param userId 用户ID
      * @return WebSocket会话
      */
     public Session getUserSession(String userId) {
-        SessionInfo sessionInfo = userSessions.get(userId);
+        SessionInfo sessionInfo = latest(userSessions.get(userId));
         if (sessionInfo != null) {
             log.debug("获取用户会话: userId={}, sessionId={}", userId, sessionInfo.getSessionId());
         } else {
@@ -90,12 +260,13 @@ public class ClientSessionManager {
 
     /**
      * 根据门店ID获取会话
-     * 
+     * 门店有多个会话时返回最近建立的会话
+     *
      * @param storeId 门店ID
      * @return WebSocket会话
      */
     public Session getStoreSession(String storeId) {
-        SessionInfo sessionInfo = storeSessions.get(storeId);
+        SessionInfo sessionInfo = latest(storeSessions.get(storeId));
         if (sessionInfo != null) {
             log.debug("获取门店会话: storeId={}, sessionId={}", storeId, sessionInfo.getSessionId());
         } else {
@@ -104,9 +275,29 @@ public class ClientSessionManager {
         return sessionInfo != null ? sessionInfo.getSession() : null;
     }
 
+    /**
+     * 获取用户的全部打开的会话
+     *
+     * @param userId 用户ID
+     * @return 会话列表，按建立顺序排列
+     */
+    public List<Session> getUserSessions(String userId) {
+        return openSessions(userSessions.get(userId));
+    }
+
+    /**
+     * 获取门店的全部打开的会话
+     *
+     * @param storeId 门店ID
+     * @return 会话列表，按建立顺序排列
+     */
+    public List<Session> getStoreSessions(String storeId) {
+        return openSessions(storeSessions.get(storeId));
+    }
+
     /**
      * 获取所有用户ID
-     * 
+     *
      * @return 用户ID集合
      */
     public Set<String> getAllUserIds() {
@@ -115,7 +306,7 @@ public class ClientSessionManager {
 
     /**
      * 获取所有门店ID
-     * 
+     *
      * @return 门店ID集合
      */
     public Set<String> getAllStoreIds() {
@@ -123,106 +314,94 @@ public class ClientSessionManager {
     }
 
     /**
-     * 获取用户会话数量
-     * 
-     * @return 用户会话数量
+     * 获取在线用户数量
+     *
+     * @return 用户数量
      */
     public int getUserSessionCount() {
         return userSessions.size();
     }
 
     /**
-     * 获取门店会话数量
-     * 
-     * @return 门店会话数量
+     * 获取在线门店数量
+     *
+     * @return 门店数量
      */
     public int getStoreSessionCount() {
         return storeSessions.size();
     }
 
     /**
-     * 检查用户是否在线（会话存在且未过期）
-     * 
+     * 获取全部连接数（同一客户端的多个会话分别计数）
+     *
+     * @return 连接数
+     */
+    public int getConnectionCount() {
+        int count = 0;
+        for (ClientSessions sessions : userSessions.values()) {
+            count += sessions.snapshot().length;
+        }
+        for (ClientSessions sessions : storeSessions.values()) {
+            count += sessions.snapshot().length;
+        }
+        return count;
+    }
+
+    /**
+     * 检查用户是否在线（存在打开且未过期的会话）
+     *
      * @param userId 用户ID
      * @return 是否在线
      */
     public boolean isUserOnline(String userId) {
-        SessionInfo sessionInfo = userSessions.get(userId);
-        if (sessionInfo == null) {
-            log.debug("用户不在线（未找到会话）: userId={}", userId);
-            return false;
-        }
-        
-        Session session = sessionInfo.getSession();
-        if (session == null || !session.isOpen()) {
-            log.debug("用户不在线（会话已关闭）: userId={}", userId);
-            return false;
-        }
-        
-        boolean online = !sessionInfo.isExpired();
+        boolean online = hasValidSession(userSessions.get(userId));
         log.debug("用户在线状态: userId={}, isOnline={}", userId, online);
         return online;
     }
 
     /**
-     * 检查门店是否在线（会话存在且未过期）
-     * 
+     * 检查门店是否在线（存在打开且未过期的会话）
+     *
      * @param storeId 门店ID
      * @return 是否在线
      */
     public boolean isStoreOnline(String storeId) {
-        SessionInfo sessionInfo = storeSessions.get(storeId);
-        if (sessionInfo == null) {
-            log.debug("门店不在线（未找到会话）: storeId={}", storeId);
-            return false;
-        }
-        
-        Session session = sessionInfo.getSession();
-        if (session == null || !session.isOpen()) {
-            log.debug("门店不在线（会话已关闭）: storeId={}", storeId);
-            return false;
-        }
-        
-        boolean online = !sessionInfo.isExpired();
+        boolean online = hasValidSession(storeSessions.get(storeId));
         log.debug("门店在线状态: storeId={}, isOnline={}", storeId, online);
         return online;
     }
 
     /**
-     * 获取用户的最后心跳时间
-     * 
+     * 获取用户的最后心跳时间（多个会话中最近的一次）
+     *
      * @param userId 用户ID
      * @return 最后心跳时间
      */
     public LocalDateTime getUserLastHeartbeat(String userId) {
-        SessionInfo sessionInfo = userSessions.get(userId);
-        LocalDateTime lastHeartbeat = sessionInfo != null ? sessionInfo.getLastHeartbeat() : null;
+        LocalDateTime lastHeartbeat = lastHeartbeat(userSessions.get(userId));
         log.debug("获取用户最后心跳时间: userId={}, lastHeartbeat={}", userId, lastHeartbeat);
         return lastHeartbeat;
     }
 
     /**
-     * 获取门店的最后心跳时间
-     * 
+     * 获取门店的最后心跳时间（多个会话中最近的一次）
+     *
      * @param storeId 门店ID
      * @return 最后心跳时间
      */
     public LocalDateTime getStoreLastHeartbeat(String storeId) {
-        SessionInfo sessionInfo = storeSessions.get(storeId);
-        LocalDateTime lastHeartbeat = sessionInfo != null ? sessionInfo.getLastHeartbeat() : null;
+        LocalDateTime lastHeartbeat = lastHeartbeat(storeSessions.get(storeId));
         log.debug("获取门店最后心跳时间: storeId={}, lastHeartbeat={}", storeId, lastHeartbeat);
         return lastHeartbeat;
     }
 
     /**
-     * 更新用户心跳时间
-     * 
+     * 更新用户全部会话的心跳时间
+     *
      * @param userId 用户ID
      */
     public void updateUserHeartbeat(String userId) {
-        SessionInfo sessionInfo = userSessions.get(userId);
-        if (sessionInfo != null) {
-            sessionInfo.setLastHeartbeat(LocalDateTime.now());
+        if (touchAll(userSessions.get(userId))) {
             log.debug("用户心跳更新: userId={}", userId);
         } else {
             log.warn("尝试更新不存在的用户心跳: userId={}", userId);
@@ -230,14 +409,12 @@ public class ClientSessionManager {
     }
 
     /**
-     * 更新门店心跳时间
-     * 
+     * 更新门店全部会话的心跳时间
+     *
      * @param storeId 门店ID
      */
     public void updateStoreHeartbeat(String storeId) {
-        SessionInfo sessionInfo = storeSessions.get(storeId);
-        if (sessionInfo != null) {
-            sessionInfo.setLastHeartbeat(LocalDateTime.now());
+        if (touchAll(storeSessions.get(storeId))) {
             log.debug("门店心跳更新: storeId={}", storeId);
         } else {
             log.warn("尝试更新不存在的门店心跳: storeId={}", storeId);
@@ -245,50 +422,311 @@ public class ClientSessionManager {
     }
 
     /**
-     * 移除用户会话
-     * 
+     * 按会话刷新心跳时间
+     * 客户端以会话connect时绑定的信息为准，不信任消息内容中的客户端ID
+     *
+     * @param session WebSocket会话
+     */
+    public void updateHeartbeat(Session session) {
+        SessionContext context = SessionContext.of(session);
+        if (context == null) {
+            return;
+        }
+        context.onHeartbeat(System.currentTimeMillis());
+        if (context.getClientType() == null) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (String clientId : boundClientIds(context)) {
+            ClientSessions sessions = sessions(context.getClientType()).get(clientId);
+            if (sessions == null) {
+                continue;
+            }
+            for (SessionInfo sessionInfo : sessions.snapshot()) {
+                if (sessionInfo.getSession() == session) {
+                    sessionInfo.setLastHeartbeat(now);
+                    break;
+                }
+            }
+        }
+    }
+
+    /**
+     * 移除用户的全部会话
+     *
      * @param userId 用户ID
      */
     public void removeUserSession(String userId) {
-        SessionInfo removed = userSessions.remove(userId);
-        if (removed != null) {
-            log.info("用户会话已移除: userId={}, sessionId={}", userId, removed.getSessionId());
-            closeSession(removed.getSession());
-        } else {
-            log.warn("尝试移除不存在的用户会话: userId={}", userId);
-        }
+        removeClient(ClientType.USER, userId);
     }
 
     /**
-     * 移除门店会话
-     * 
+     * 移除门店的全部会话
+     *
      * @param storeId 门店ID
      */
     public void removeStoreSession(String storeId) {
-        SessionInfo removed = storeSessions.remove(storeId);
-        if (removed != null) {
-            log.info("门店会话已移除: storeId={}, sessionId={}", storeId, removed.getSessionId());
-            closeSession(removed.getSession());
+        removeClient(ClientType.STORE, storeId);
+    }
+
+    /**
+     * 移除单个会话，连接关闭时调用
+     * 所属客户端根据会话connect时绑定的信息确定，客户端的最后一个会话移除后视为下线
+     *
+     * @param session WebSocket会话
+     */
+    public void removeSession(Session session) {
+        SessionContext context = SessionContext.of(session);
+        if (context == null || context.getClientType() == null) {
+            return;
+        }
+        for (String clientId : boundClientIds(context)) {
+            removeSession(context.getClientType(), clientId, session);
+        }
+    }
+
+    private void removeSession(ClientType type, String clientId, Session session) {
+        SessionInfo[] removed = new SessionInfo[1];
+        PresenceTransitions[] transitions = new PresenceTransitions[1];
+        sessions(type).computeIfPresent(clientId, (key, sessions) -> {
+            removed[0] = sessions.remove(session);
+            if (removed[0] != null && sessions.isEmpty()) {
+                transitions[0] = recordTransition(type, clientId, false);
+            }
+            return sessions.isEmpty() ? null : sessions;
+        });
+        if (removed[0] != null) {
+            log.info("客户端会话已移除: type={}, clientId={}, sessionId={}", type, clientId, removed[0].getSessionId());
+        }
+        publishTransitions(type, clientId, transitions[0]);
+    }
+
+    /**
+     * 客户端不在线时暂存通知，待重连后发送
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     * @param message  通知内容
+     * @return 是否已暂存
+     */
+    public boolean offerOffline(ClientType type, String clientId, String message) {
+        boolean stored = offlineMailbox.offer(type, clientId, message, webSocketProperties.getMailbox());
+        if (stored) {
+            log.debug("客户端不在线，通知已暂存: type={}, clientId={}", type, clientId);
+        }
+        return stored;
+    }
+
+    /**
+     * 取出客户端离线期间暂存的通知
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     * @return 暂存的通知，按暂存顺序排列
+     */
+    public List<String> drainOffline(ClientType type, String clientId) {
+        return offlineMailbox.drain(type, clientId);
+    }
+
+    /**
+     * 获取离线信箱统计信息
+     *
+     * @return 离线信箱统计信息
+     */
+    public OfflineMailbox.MailboxStats getMailboxStats() {
+        return offlineMailbox.getStats();
+    }
+
+    private void addSession(ClientType type, String clientId, Session session) {
+        SessionInfo sessionInfo = new SessionInfo(session, LocalDateTime.now(), session.getId());
+        int limit = sessionLimit(type);
+        PresenceTransitions[] transitions = new PresenceTransitions[1];
+        List<SessionInfo> evicted = new ArrayList<>();
+        sessions(type).compute(clientId, (key, sessions) -> {
+            if (sessions == null) {
+                sessions = new ClientSessions();
+                transitions[0] = recordTransition(type, clientId, true);
+            }
+            evicted.addAll(sessions.add(sessionInfo, limit));
+            return sessions;
+        });
+        for (SessionInfo oldest : evicted) {
+            log.info("客户端会话数超出上限，关闭最早的会话: type={}, clientId={}, sessionId={}",
+                    type, clientId, oldest.getSessionId());
+            closeSession(oldest.getSession(), new CloseReason(CloseReason.CloseCodes.NORMAL_CLOSURE,
+                    "Session limit reached, replaced by a newer session"));
+        }
+        publishTransitions(type, clientId, transitions[0]);
+    }
+
+    private void removeClient(ClientType type, String clientId) {
+        SessionInfo[][] removed = new SessionInfo[1][];
+        PresenceTransitions[] transitions = new PresenceTransitions[1];
+        sessions(type).computeIfPresent(clientId, (key, sessions) -> {
+            removed[0] = sessions.clear();
+            transitions[0] = recordTransition(type, clientId, false);
+            return null;
+        });
+        if (removed[0] != null) {
+            log.info("客户端会话已全部移除: type={}, clientId={}, sessions={}", type, clientId, removed[0].length);
+            for (SessionInfo sessionInfo : removed[0]) {
+                closeSession(sessionInfo.getSession(), null);
+            }
+            publishTransitions(type, clientId, transitions[0]);
         } else {
-            log.warn("尝试移除不存在的门店会话: storeId={}", storeId);
+            log.warn("尝试移除不存在的客户端会话: type={}, clientId={}", type, clientId);
+        }
+    }
+
+    private static Collection<String> boundClientIds(SessionContext context) {
+        if (!context.getClientIds().isEmpty()) {
+            return context.getClientIds();
         }
+        return context.getClientId() != null ? List.of(context.getClientId()) : List.of();
+    }
+
+    private int sessionLimit(ClientType type) {
+        WebSocketProperties.Endpoint endpoint = type == ClientType.USER ? webSocketProperties.getApp() : webSocketProperties.getStore();
+        return endpoint != null ? endpoint.getMaxSessionsPerClient() : new WebSocketProperties.Endpoint().getMaxSessionsPerClient();
+    }
+
+    private Map<String, ClientSessions> sessions(ClientType type) {
+        return type == ClientType.USER ? userSessions : storeSessions;
+    }
+
+    private Map<String, PresenceTransitions> transitions(ClientType type) {
+        return type == ClientType.USER ? userTransitions : storeTransitions;
+    }
+
+    /**
+     * 记录客户端上下线，须在修改该客户端会话集合的 compute 中调用
+     *
+     * @return 记录变化的队列，交给 {@link #publishTransitions} 通知
+     */
+    private PresenceTransitions recordTransition(ClientType type, String clientId, boolean online) {
+        return transitions(type).compute(clientId, (key, transitions) -> {
+            PresenceTransitions next = transitions != null ? transitions : new PresenceTransitions();
+            next.offer(online);
+            return next;
+        });
+    }
+
+    /**
+     * 按发生顺序通知客户端的上下线变化，另一个线程正在通知时由其接着处理
+     */
+    private void publishTransitions(ClientType type, String clientId, PresenceTransitions transitions) {
+        if (transitions == null || !transitions.tryStartPublishing()) {
+            return;
+        }
+        Boolean online;
+        while ((online = transitions.next()) != null) {
+            if (online) {
+                fireSessionAdded(type, clientId);
+            } else {
+                fireSessionRemoved(type, clientId);
+            }
+        }
+        // 没有待通知的变化时回收，入队和回收都在同一个 compute 中，不会丢失变化
+        transitions(type).computeIfPresent(clientId, (key, current) -> current.isIdle() ? null : current);
+    }
+
+    private static SessionInfo latest(ClientSessions sessions) {
+        if (sessions == null) {
+            return null;
+        }
+        SessionInfo[] snapshot = sessions.snapshot();
+        for (int i = snapshot.length - 1; i >= 0; i--) {
+            Session session = snapshot[i].getSession();
+            if (session != null && session.isOpen()) {
+                return snapshot[i];
+            }
+        }
+        return null;
+    }
+
+    private static List<Session> openSessions(ClientSessions sessions) {
+        if (sessions == null) {
+            return List.of();
+        }
+        SessionInfo[] snapshot = sessions.snapshot();
+        List<Session> open = new ArrayList<>(snapshot.length);
+        for (SessionInfo sessionInfo : snapshot) {
+            if (sessionInfo.getSession() != null && sessionInfo.getSession().isOpen()) {
+                open.add(sessionInfo.getSession());
+            }
+        }
+        return open;
+    }
+
+    private static boolean hasValidSession(ClientSessions sessions) {
+        return sessions != null && Arrays.stream(sessions.snapshot()).anyMatch(SessionInfo::isValid);
+    }
+
+    private static LocalDateTime lastHeartbeat(ClientSessions sessions) {
+        if (sessions == null) {
+            return null;
+        }
+        LocalDateTime last = null;
+        for (SessionInfo sessionInfo : sessions.snapshot()) {
+            LocalDateTime heartbeat = sessionInfo.getLastHeartbeat();
+            if (heartbeat != null && (last == null || heartbeat.isAfter(last))) {
+                last = heartbeat;
+            }
+        }
+        return last;
+    }
+
+    private static boolean touchAll(ClientSessions sessions) {
+        if (sessions == null) {
+            return false;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        for (SessionInfo sessionInfo : sessions.snapshot()) {
+            sessionInfo.setLastHeartbeat(now);
+        }
+        return true;
     }
 
     /**
      * 安全关闭会话
-     * 
+     *
      * @param session WebSocket会话
+     * @param reason  关闭原因，为null时使用默认原因
      */
-    private void closeSession(Session session) {
+    private void closeSession(Session session, CloseReason reason) {
         if (session != null && session.isOpen()) {
             try {
-                session.close();
+                if (reason != null) {
+                    session.close(reason);
+                } else {
+                    session.close();
+                }
             } catch (IOException e) {
                 log.warn("关闭WebSocket会话时发生错误: sessionId={}", session.getId(), e);
             }
         }
     }
 
+    private void fireSessionAdded(ClientType type, String clientId) {
+        for (SessionLifecycleListener listener : lifecycleListeners) {
+            try {
+                listener.onSessionAdded(type, clientId);
+            } catch (Exception e) {
+                log.warn("会话添加回调执行失败: type={}, clientId={}", type, clientId, e);
+            }
+        }
+    }
+
+    private void fireSessionRemoved(ClientType type, String clientId) {
+        for (SessionLifecycleListener listener : lifecycleListeners) {
+            try {
+                listener.onSessionRemoved(type, clientId);
+            } catch (Exception e) {
+                log.warn("会话移除回调执行失败: type={}, clientId={}", type, clientId, e);
+            }
+        }
+    }
+
     /**
      * 定期清理无效会话和过期会话
      * 使用配置的清理间隔时间
@@ -298,34 +736,31 @@ public class ClientSessionManager {
         log.debug("开始清理无效会话");
 
         // 清理无效或过期的用户会话
-        userSessions.entrySet().removeIf(entry -> {
-            SessionInfo sessionInfo = entry.getValue();
-            Session session = sessionInfo.getSession();
-            
-            if (session == null || !session.isOpen() || sessionInfo.isExpired()) {
-                log.info("清理无效或过期用户会话: userId={}, sessionId={}", entry.getKey(), 
-                         sessionInfo != null ? sessionInfo.getSessionId() : "null");
-                return true;
-            }
-            return false;
-        });
+        cleanInvalidSessions(ClientType.USER);
 
         // 清理无效或过期的门店会话
-        storeSessions.entrySet().removeIf(entry -> {
-            SessionInfo sessionInfo = entry.getValue();
-            Session session = sessionInfo.getSession();
-            
-            if (session == null || !session.isOpen() || sessionInfo.isExpired()) {
-                log.info("清理无效或过期门店会话: storeId={}, sessionId={}", entry.getKey(), 
-                         sessionInfo != null ? sessionInfo.getSessionId() : "null");
-
-                closeSession(session);
-                return true;
-            }
-            return false;
-        });
+        cleanInvalidSessions(ClientType.STORE);
 
-        log.debug("无效会话清理完成，当前用户会话数: {}, 门店会话数: {}", 
+        log.debug("无效会话清理完成，当前用户数: {}, 门店数: {}",
                   userSessions.size(), storeSessions.size());
     }
-}
\ No newline at end of file
+
+    private void cleanInvalidSessions(ClientType type) {
+        for (String clientId : sessions(type).keySet()) {
+            List<SessionInfo> removed = new ArrayList<>();
+            PresenceTransitions[] transitions = new PresenceTransitions[1];
+            sessions(type).computeIfPresent(clientId, (key, sessions) -> {
+                removed.addAll(sessions.removeInvalid());
+                if (sessions.isEmpty()) {
+                    transitions[0] = recordTransition(type, clientId, false);
+                }
+                return sessions.isEmpty() ? null : sessions;
+            });
+            for (SessionInfo sessionInfo : removed) {
+                log.info("清理无效或过期会话: type={}, clientId={}, sessionId={}", type, clientId, sessionInfo.getSessionId());
+                closeSession(sessionInfo.getSession(), null);
+            }
+            publishTransitions(type, clientId, transitions[0]);
+        }
+    }
+}
@@ -0,0 +1,9 @@
+package com.cy.order.websocket;
+
+/**
+ * WebSocket客户端类型
+ */
+public enum ClientType {
+    USER,   // APP用户
+    STORE   // 门店
+}
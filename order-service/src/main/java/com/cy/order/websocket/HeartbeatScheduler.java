@@ -0,0 +1,346 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.PongMessage;
+import jakarta.websocket.Session;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 服务端协议级心跳
+ * 把会话轮流分配到若干时间桶中，每个时间片只向一个桶内的会话发送 WebSocket Ping 控制帧，
+ * 使一个心跳周期内的 Ping 均匀分布，避免所有连接同时发送造成的瞬时压力；
+ * Ping 和间隔推送可能阻塞在容器的发送路径上，由 {@link WebSocketMessageSender} 的发送线程发出，调度线程不等待，
+ * 上一轮仍未发出的会话跳过本轮，个别慢客户端不会推迟其他时间桶的 Ping；
+ * 收到 Pong 后刷新会话自身的心跳时间，不依赖消息内容中的客户端ID。
+ * 同时根据会话数和CPU使用率计算建议给客户端的心跳间隔：connect时在 connection_success 中下发，
+ * 间隔变化后随各时间桶的Ping轮次以 heartbeat_config 控制消息分批推送，节点繁忙时客户端自动降低心跳频率
+ */
+@Slf4j
+@Component
+public class HeartbeatScheduler {
+
+    private final WebSocketProperties.Heartbeat heartbeat;
+
+    private final ClientSessionManager clientSessionManager;
+
+    private final WebSocketMessageSender messageSender;
+
+    private final OperatingSystemMXBean operatingSystem = ManagementFactory.getOperatingSystemMXBean();
+
+    private final Set<Session>[] buckets;
+
+    private final AtomicInteger nextBucket = new AtomicInteger();
+
+    private final LongAdder pingsSent = new LongAdder();
+    private final LongAdder pongsReceived = new LongAdder();
+    private final LongAdder pingFailures = new LongAdder();
+    private final LongAdder pingsSkipped = new LongAdder();
+    private final LongAdder rttMicrosTotal = new LongAdder();
+    private final LongAdder rttSamples = new LongAdder();
+    private final LongAdder configsSent = new LongAdder();
+
+    // 当前建议给客户端的心跳间隔（毫秒）
+    private volatile long advisedInterval;
+
+    // 最近一次采样的进程CPU使用率，无法获取时为-1
+    private volatile double cpuLoad = -1;
+
+    private int cursor;
+
+    private ScheduledExecutorService scheduler;
+
+    @SuppressWarnings("unchecked")
+    public HeartbeatScheduler(WebSocketProperties webSocketProperties,
+                              ClientSessionManager clientSessionManager,
+                              WebSocketMessageSender messageSender) {
+        this.heartbeat = webSocketProperties.getHeartbeat();
+        this.clientSessionManager = clientSessionManager;
+        this.messageSender = messageSender;
+        this.advisedInterval = heartbeat.getClientIntervalMin();
+        this.buckets = new Set[Math.max(1, heartbeat.getBuckets())];
+        for (int i = 0; i < buckets.length; i++) {
+            buckets[i] = ConcurrentHashMap.newKeySet();
+        }
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!heartbeat.isEnabled() && !heartbeat.isAdaptive()) {
+            return;
+        }
+        long tick = Math.max(1, heartbeat.getPingInterval() / buckets.length);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-heartbeat");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleAtFixedRate(this::tick, tick, tick, TimeUnit.MILLISECONDS);
+        if (heartbeat.isAdaptive()) {
+            scheduler.scheduleWithFixedDelay(this::adjust,
+                    heartbeat.getAdjustInterval(), heartbeat.getAdjustInterval(), TimeUnit.MILLISECONDS);
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+    }
+
+    /**
+     * 会话建立后加入心跳调度
+     *
+     * @param session WebSocket会话
+     */
+    public void register(Session session) {
+        SessionContext context = SessionContext.bind(session);
+        int bucket = Math.floorMod(nextBucket.getAndIncrement(), buckets.length);
+        context.setHeartbeatBucket(bucket);
+        context.onHeartbeat(System.currentTimeMillis());
+        buckets[bucket].add(session);
+    }
+
+    /**
+     * 会话关闭后移出心跳调度
+     *
+     * @param session WebSocket会话
+     */
+    public void unregister(Session session) {
+        SessionContext context = SessionContext.of(session);
+        if (context != null && context.getHeartbeatBucket() >= 0) {
+            buckets[context.getHeartbeatBucket()].remove(session);
+        }
+    }
+
+    /**
+     * 为完成connect的会话确定心跳间隔，结果写入 connection_success
+     *
+     * @param session WebSocket会话
+     * @return 建议的心跳间隔（毫秒），未开启自适应心跳时返回0
+     */
+    public long advise(Session session) {
+        if (!heartbeat.isAdaptive()) {
+            return 0;
+        }
+        long interval = advisedInterval;
+        SessionContext.bind(session).adviseHeartbeat(interval, timeoutFor(interval));
+        return interval;
+    }
+
+    /**
+     * 处理客户端回复的 Pong 控制帧
+     *
+     * @param session WebSocket会话
+     * @param pong    Pong消息，负载为发送Ping时的纳秒时间戳
+     */
+    public void onPong(Session session, PongMessage pong) {
+        pongsReceived.increment();
+        ByteBuffer data = pong.getApplicationData();
+        if (data != null && data.remaining() >= Long.BYTES) {
+            long rttNanos = System.nanoTime() - data.getLong(data.position());
+            // 只统计合理范围内的往返时间，忽略客户端主动发送的 Pong
+            if (rttNanos >= 0 && rttNanos < TimeUnit.MINUTES.toNanos(1)) {
+                rttMicrosTotal.add(TimeUnit.NANOSECONDS.toMicros(rttNanos));
+                rttSamples.increment();
+            }
+        }
+        clientSessionManager.updateHeartbeat(session);
+    }
+
+    /**
+     * 向当前时间桶内的会话发送Ping
+     */
+    void tick() {
+        Set<Session> bucket = buckets[cursor];
+        cursor = (cursor + 1) % buckets.length;
+        long interval = advisedInterval;
+        for (Session session : bucket) {
+            if (!session.isOpen()) {
+                bucket.remove(session);
+                continue;
+            }
+            dispatch(session, interval);
+        }
+    }
+
+    /**
+     * 把间隔推送和Ping交给发送线程，会话上一轮仍未发出时跳过，间隔变化留到下一轮推送
+     */
+    private void dispatch(Session session, long interval) {
+        SessionContext context = SessionContext.bind(session);
+        if (!context.tryStartHeartbeat()) {
+            pingsSkipped.increment();
+            return;
+        }
+        if (!messageSender.execute(() -> {
+            try {
+                // 新间隔先于Ping发出，客户端回复这次Ping时一定已经收到新间隔
+                if (heartbeat.isAdaptive()) {
+                    pushConfig(session, interval);
+                }
+                if (heartbeat.isEnabled()) {
+                    ping(session);
+                }
+            } finally {
+                context.finishHeartbeat();
+            }
+        })) {
+            context.finishHeartbeat();
+        }
+    }
+
+    /**
+     * 按当前负载重新计算建议的心跳间隔
+     */
+    void adjust() {
+        cpuLoad = readCpuLoad();
+        long current = advisedInterval;
+        long interval = computeInterval(getSessionCount(), cpuLoad, current);
+        if (interval != current) {
+            advisedInterval = interval;
+            log.info("调整建议心跳间隔: {}ms -> {}ms, sessions={}, cpuLoad={}", current, interval, getSessionCount(), cpuLoad);
+        }
+    }
+
+    /**
+     * 根据会话数和CPU使用率计算心跳间隔
+     * 负载取两者相对各自高水位的较大值，在 [clientIntervalMin, clientIntervalMax] 间线性插值并按 intervalStep 取整；
+     * 负载上升时立即放宽，负载下降超过一个步长后才收紧，避免在两个档位间反复下发
+     *
+     * @param sessions 会话数
+     * @param cpu      CPU使用率（0~1），无法获取时为负数
+     * @param current  当前建议的间隔
+     * @return 新的建议间隔（毫秒）
+     */
+    long computeInterval(int sessions, double cpu, long current) {
+        long min = heartbeat.getClientIntervalMin();
+        long max = Math.max(min, heartbeat.getClientIntervalMax());
+        long step = Math.max(1, heartbeat.getIntervalStep());
+        double sessionFactor = sessions / (double) Math.max(1, heartbeat.getSessionHighWatermark());
+        double cpuFactor = cpu < 0 || heartbeat.getCpuHighWatermark() <= 0 ? 0 : cpu / heartbeat.getCpuHighWatermark();
+        double factor = Math.min(1, Math.max(sessionFactor, cpuFactor));
+        long raw = min + (long) ((max - min) * factor);
+        long interval = factor >= 1 ? max : min + (raw - min) / step * step;
+        if (interval < current && raw > current - step) {
+            return current;
+        }
+        return interval;
+    }
+
+    private void pushConfig(Session session, long interval) {
+        SessionContext context = SessionContext.of(session);
+        // 只推送给connect时已下发过间隔的会话
+        if (context == null || context.getHeartbeatInterval() == 0 || context.getHeartbeatInterval() == interval) {
+            return;
+        }
+        long timeout = timeoutFor(interval);
+        context.adviseHeartbeat(interval, timeout);
+        if (messageSender.sendNow(session, OutboundFrame.of(
+                "{\"type\":\"heartbeat_config\",\"interval\":" + interval + ",\"timeout\":" + timeout + "}"))) {
+            configsSent.increment();
+        }
+    }
+
+    private long timeoutFor(long interval) {
+        return interval * Math.max(1, heartbeat.getMissedHeartbeats());
+    }
+
+    private double readCpuLoad() {
+        if (operatingSystem instanceof com.sun.management.OperatingSystemMXBean bean) {
+            return bean.getProcessCpuLoad();
+        }
+        double loadAverage = operatingSystem.getSystemLoadAverage();
+        return loadAverage < 0 ? -1 : loadAverage / operatingSystem.getAvailableProcessors();
+    }
+
+    private int getSessionCount() {
+        int sessions = 0;
+        for (Set<Session> bucket : buckets) {
+            sessions += bucket.size();
+        }
+        return sessions;
+    }
+
+    private void ping(Session session) {
+        ByteBuffer payload = ByteBuffer.allocate(Long.BYTES).putLong(0, System.nanoTime());
+        try {
+            session.getAsyncRemote().sendPing(payload);
+            pingsSent.increment();
+        } catch (IOException | IllegalStateException | IllegalArgumentException e) {
+            pingFailures.increment();
+            log.debug("发送WebSocket Ping失败: sessionId={}", session.getId(), e);
+        }
+    }
+
+    /**
+     * 获取本节点全部已建立的会话，包括尚未connect绑定客户端的会话
+     *
+     * @return 会话列表
+     */
+    public List<Session> getSessions() {
+        List<Session> sessions = new ArrayList<>();
+        for (Set<Session> bucket : buckets) {
+            sessions.addAll(bucket);
+        }
+        return sessions;
+    }
+
+    /**
+     * 获取心跳统计信息
+     *
+     * @return 心跳统计信息
+     */
+    public HeartbeatStats getStats() {
+        long samples = rttSamples.sum();
+        return new HeartbeatStats(getSessionCount(), pingsSent.sum(), pongsReceived.sum(), pingFailures.sum(),
+                pingsSkipped.sum(), samples > 0 ? rttMicrosTotal.sum() / samples : 0, advisedInterval, cpuLoad, configsSent.sum());
+    }
+
+    /**
+     * 心跳统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class HeartbeatStats {
+        // 参与心跳调度的会话数
+        private int sessions;
+        // 发送的Ping数
+        private long pingsSent;
+        // 收到的Pong数
+        private long pongsReceived;
+        // 发送失败的Ping数
+        private long pingFailures;
+        // 上一轮仍未发出而跳过的心跳发送次数（Ping和间隔推送）
+        private long pingsSkipped;
+        // 平均往返时间（微秒）
+        private long averageRttMicros;
+        // 当前建议给客户端的心跳间隔（毫秒）
+        private long advisedInterval;
+        // 最近一次采样的进程CPU使用率，无法获取时为-1
+        private double cpuLoad;
+        // 推送的 heartbeat_config 消息数
+        private long configsSent;
+    }
+}
@@ -0,0 +1,79 @@
+package com.cy.order.websocket;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * 单个会话的通知合并缓冲
+ * 多个线程可并发追加，由发送器在达到条数上限或等待超时后合并为一个JSON数组帧发出
+ */
+final class NotificationBatch {
+
+    private final Queue<String> pending = new ConcurrentLinkedQueue<>();
+
+    private final AtomicInteger size = new AtomicInteger();
+
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+
+    /**
+     * 追加一条通知
+     *
+     * @param message JSON消息
+     * @return 追加后的缓冲条数
+     */
+    int add(String message) {
+        pending.add(message);
+        return size.incrementAndGet();
+    }
+
+    /**
+     * 标记已安排定时刷新
+     *
+     * @return 本次调用是否成功抢占到刷新任务
+     */
+    boolean markFlushScheduled() {
+        return flushScheduled.compareAndSet(false, true);
+    }
+
+    /**
+     * 取出当前缓冲的全部通知
+     * 先清除刷新标记，保证取出后追加的通知会重新安排刷新
+     *
+     * @return 缓冲的通知，可能为空
+     */
+    List<String> drain() {
+        flushScheduled.set(false);
+        List<String> messages = new ArrayList<>(Math.max(size.get(), 1));
+        String message;
+        while ((message = pending.poll()) != null) {
+            size.decrementAndGet();
+            messages.add(message);
+        }
+        return messages;
+    }
+
+    /**
+     * 将多条JSON通知拼接为一个JSON数组
+     *
+     * @param messages JSON通知
+     * @return JSON数组文本
+     */
+    static String toJsonArray(List<String> messages) {
+        int length = 2;
+        for (String message : messages) {
+            length += message.length() + 1;
+        }
+        StringBuilder builder = new StringBuilder(length).append('[');
+        for (int i = 0; i < messages.size(); i++) {
+            if (i > 0) {
+                builder.append(',');
+            }
+            builder.append(messages.get(i));
+        }
+        return builder.append(']').toString();
+    }
+}
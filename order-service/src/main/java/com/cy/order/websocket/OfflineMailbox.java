@@ -0,0 +1,171 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * 离线通知信箱
+ * 客户端不在线时暂存发给它的通知，重连后一次性取出。
+ * 单个客户端的信箱按条数和字节数封顶，超出时丢弃最旧的通知；
+ * 全部信箱的总字节数超过全局预算时，按最近最少使用淘汰整个客户端的信箱。
+ * 离线投递远少于在线推送，这里用一把锁保护按访问顺序排列的 LinkedHashMap 即可
+ */
+public class OfflineMailbox {
+
+    // key: 客户端类型 + 客户端ID，按访问顺序排列，队头为最久未使用的信箱
+    private final LinkedHashMap<String, Box> boxes = new LinkedHashMap<>(16, 0.75f, true);
+
+    private long totalBytes;
+
+    private long storedMessages;
+
+    private long droppedMessages;
+
+    private long evictedMessages;
+
+    private long deliveredMessages;
+
+    /**
+     * 暂存一条通知
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     * @param message  通知内容
+     * @param config   信箱配置
+     * @return 是否已暂存
+     */
+    public synchronized boolean offer(ClientType type, String clientId, String message, WebSocketProperties.Mailbox config) {
+        if (config == null || !config.isEnabled() || clientId == null || message == null) {
+            return false;
+        }
+        int bytes = utf8Length(message);
+        if (bytes > config.getMaxBytesPerClient()) {
+            droppedMessages++;
+            return false;
+        }
+        Box box = boxes.computeIfAbsent(key(type, clientId), key -> new Box());
+        while (!box.messages.isEmpty()
+                && (box.messages.size() >= config.getMaxMessagesPerClient() || box.bytes + bytes > config.getMaxBytesPerClient())) {
+            removeOldest(box);
+            droppedMessages++;
+        }
+        box.messages.addLast(message);
+        box.sizes.addLast(bytes);
+        box.bytes += bytes;
+        totalBytes += bytes;
+        storedMessages++;
+        evictOverBudget(config.getMaxTotalBytes());
+        return true;
+    }
+
+    /**
+     * 取出并清空客户端的全部暂存通知
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     * @return 暂存的通知，按暂存顺序排列；没有时返回空列表
+     */
+    public synchronized List<String> drain(ClientType type, String clientId) {
+        Box box = boxes.remove(key(type, clientId));
+        if (box == null) {
+            return List.of();
+        }
+        totalBytes -= box.bytes;
+        deliveredMessages += box.messages.size();
+        return new ArrayList<>(box.messages);
+    }
+
+    /**
+     * 获取信箱统计信息
+     *
+     * @return 信箱统计信息
+     */
+    public synchronized MailboxStats getStats() {
+        long pending = 0;
+        for (Box box : boxes.values()) {
+            pending += box.messages.size();
+        }
+        return new MailboxStats(boxes.size(), pending, totalBytes, storedMessages,
+                deliveredMessages, droppedMessages, evictedMessages);
+    }
+
+    private void evictOverBudget(long maxTotalBytes) {
+        Iterator<Map.Entry<String, Box>> iterator = boxes.entrySet().iterator();
+        while (totalBytes > maxTotalBytes && iterator.hasNext()) {
+            Box eldest = iterator.next().getValue();
+            totalBytes -= eldest.bytes;
+            evictedMessages += eldest.messages.size();
+            iterator.remove();
+        }
+    }
+
+    private void removeOldest(Box box) {
+        box.messages.pollFirst();
+        int bytes = box.sizes.pollFirst();
+        box.bytes -= bytes;
+        totalBytes -= bytes;
+    }
+
+    private static String key(ClientType type, String clientId) {
+        return (type == ClientType.USER ? "U:" : "S:") + clientId;
+    }
+
+    /**
+     * 计算字符串的UTF-8编码长度，不分配字节数组
+     */
+    static int utf8Length(String text) {
+        int length = 0;
+        for (int i = 0; i < text.length(); i++) {
+            char c = text.charAt(i);
+            if (c < 0x80) {
+                length++;
+            } else if (c < 0x800) {
+                length += 2;
+            } else if (Character.isHighSurrogate(c)) {
+                length += 4;
+                i++;
+            } else {
+                length += 3;
+            }
+        }
+        return length;
+    }
+
+    private static final class Box {
+        private final ArrayDeque<String> messages = new ArrayDeque<>();
+        private final ArrayDeque<Integer> sizes = new ArrayDeque<>();
+        private long bytes;
+    }
+
+    /**
+     * 离线信箱统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class MailboxStats {
+        // 有暂存通知的客户端数
+        private int clients;
+        // 暂存中的通知数
+        private long pendingMessages;
+        // 暂存中的通知字节数
+        private long pendingBytes;
+        // 累计暂存的通知数
+        private long storedMessages;
+        // 重连后取出的通知数
+        private long deliveredMessages;
+        // 超出单个信箱上限被丢弃的通知数
+        private long droppedMessages;
+        // 超出全局预算被淘汰的通知数
+        private long evictedMessages;
+    }
+}
@@ -0,0 +1,365 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.enums.OrderStatusEnum;
+import com.cy.order.event.EventTypeEnum;
+import com.cy.order.event.OrderOperationEvent;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.websocket.Session;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.event.EventListener;
+import org.springframework.scheduling.annotation.Async;
+import org.springframework.stereotype.Component;
+
+import java.math.BigDecimal;
+import java.time.ZoneId;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumSet;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 门店未完结订单看板
+ * 按本节点发布的订单事件增量维护每个门店的未完结订单。门店connect时带 {@code "board":true}，
+ * 先收到一次紧凑快照 board_snapshot，之后收到带版本号的增量 board_delta：
+ * 客户端丢弃版本号不大于当前版本的增量，发现版本不连续时发送 board_sync 重新获取快照。
+ * 订单事件在异步线程上处理。同一门店的变更在看板锁内完成，生成的快照和增量按版本号顺序进入门店的待推送队列，
+ * 在锁外由一个线程依次发出，阻塞的发送不占用看板锁，也不阻塞发布事件的线程
+ */
+@Slf4j
+@Component
+public class OpenOrdersBoard {
+
+    /**
+     * 快照和增量中订单行的字段顺序
+     */
+    static final List<String> FIELDS = List.of("orderId", "orderNumber", "userId", "status", "amount", "createTime");
+
+    private static final Set<OrderStatusEnum> CLOSED_STATUSES =
+            EnumSet.of(OrderStatusEnum.CANCELLED, OrderStatusEnum.COMPLETED, OrderStatusEnum.REFUNDED);
+
+    private static final Set<EventTypeEnum> CLOSING_EVENTS =
+            EnumSet.of(EventTypeEnum.ORDER_CANCELLED, EventTypeEnum.ORDER_COMPLETED, EventTypeEnum.ORDER_REFUNDED);
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final WebSocketProperties.Board board;
+
+    private final ClientSessionManager clientSessionManager;
+
+    private final WebSocketMessageSender messageSender;
+
+    // key: 门店ID, value: 该门店的看板
+    private final Map<String, StoreBoard> boards = new ConcurrentHashMap<>();
+
+    // 看板纪元，节点重启后变化，客户端据此丢弃旧的版本号
+    private final long epoch = System.currentTimeMillis();
+
+    private final LongAdder snapshotsSent = new LongAdder();
+
+    private final LongAdder deltasSent = new LongAdder();
+
+    private final LongAdder evictedOrders = new LongAdder();
+
+    public OpenOrdersBoard(WebSocketProperties webSocketProperties,
+                           ClientSessionManager clientSessionManager,
+                           WebSocketMessageSender messageSender) {
+        this.board = webSocketProperties.getBoard();
+        this.clientSessionManager = clientSessionManager;
+        this.messageSender = messageSender;
+    }
+
+    public boolean isEnabled() {
+        return board.isEnabled();
+    }
+
+    /**
+     * 按订单事件更新看板并向订阅看板的门店会话推送增量
+     *
+     * @param event 订单操作事件
+     */
+    @Async
+    @EventListener(OrderOperationEvent.class)
+    public void onOrderEvent(OrderOperationEvent event) {
+        OrderDto order = event.getOrder();
+        if (!board.isEnabled() || order == null || order.getId() == null || order.getStoreId() == null) {
+            return;
+        }
+        String storeId = order.getStoreId();
+        boolean open = isOpen(event.getEventType(), order.getStatus());
+        StoreBoard storeBoard = open ? boards.computeIfAbsent(storeId, id -> new StoreBoard()) : boards.get(storeId);
+        if (storeBoard == null) {
+            return;
+        }
+        synchronized (storeBoard) {
+            List<String> deltas = new ArrayList<>(1);
+            if (open) {
+                Entry entry = storeBoard.orders.computeIfAbsent(order.getId(), Entry::new);
+                entry.merge(order);
+                deltas.add(delta(storeId, ++storeBoard.version).set("upsert", entry.toRow()).toString());
+                evictOverflow(storeId, storeBoard, deltas);
+            } else if (storeBoard.orders.remove(order.getId()) != null) {
+                deltas.add(delta(storeId, ++storeBoard.version).put("remove", order.getId()).toString());
+            }
+            for (String delta : deltas) {
+                storeBoard.outbox.add(new Push(null, delta));
+            }
+        }
+        push(storeId, storeBoard);
+    }
+
+    /**
+     * 向会话发送门店看板快照
+     *
+     * @param session  WebSocket会话
+     * @param storeIds 门店ID
+     */
+    public void sendSnapshots(Session session, Collection<String> storeIds) {
+        for (String storeId : storeIds) {
+            StoreBoard storeBoard = boards.computeIfAbsent(storeId, id -> new StoreBoard());
+            // 快照与增量排在同一个队列中，快照之后发出的第一条增量版本号紧接快照
+            synchronized (storeBoard) {
+                storeBoard.outbox.add(new Push(session, snapshot(storeId, storeBoard)));
+            }
+            push(storeId, storeBoard);
+        }
+    }
+
+    /**
+     * 获取门店看板快照
+     *
+     * @param storeId 门店ID
+     * @return board_snapshot 消息
+     */
+    public String getSnapshot(String storeId) {
+        // 查询不创建看板，没有订单的门店返回版本0的空快照
+        StoreBoard storeBoard = boards.getOrDefault(storeId, new StoreBoard());
+        synchronized (storeBoard) {
+            return snapshot(storeId, storeBoard);
+        }
+    }
+
+    /**
+     * 获取看板统计信息
+     *
+     * @return 看板统计信息
+     */
+    public BoardStats getStats() {
+        long openOrders = 0;
+        for (StoreBoard storeBoard : boards.values()) {
+            synchronized (storeBoard) {
+                openOrders += storeBoard.orders.size();
+            }
+        }
+        return new BoardStats(boards.size(), openOrders, snapshotsSent.sum(), deltasSent.sum(), evictedOrders.sum());
+    }
+
+    /**
+     * 订单是否仍在看板上：有状态时以状态为准，否则以事件类型为准
+     */
+    static boolean isOpen(EventTypeEnum eventType, OrderStatusEnum status) {
+        if (status != null) {
+            return !CLOSED_STATUSES.contains(status);
+        }
+        return !CLOSING_EVENTS.contains(eventType);
+    }
+
+    private String snapshot(String storeId, StoreBoard storeBoard) {
+        ObjectNode snapshot = objectMapper.createObjectNode()
+                .put("type", "board_snapshot")
+                .put("storeId", storeId)
+                .put("epoch", epoch)
+                .put("version", storeBoard.version);
+        ArrayNode fields = snapshot.putArray("fields");
+        FIELDS.forEach(fields::add);
+        ArrayNode orders = snapshot.putArray("orders");
+        for (Entry entry : storeBoard.orders.values()) {
+            orders.add(entry.toRow());
+        }
+        return snapshot.toString();
+    }
+
+    private ObjectNode delta(String storeId, long version) {
+        return objectMapper.createObjectNode()
+                .put("type", "board_delta")
+                .put("storeId", storeId)
+                .put("epoch", epoch)
+                .put("version", version);
+    }
+
+    private void evictOverflow(String storeId, StoreBoard storeBoard, List<String> deltas) {
+        Iterator<Entry> eldest = storeBoard.orders.values().iterator();
+        while (storeBoard.orders.size() > Math.max(1, board.getMaxOrdersPerStore()) && eldest.hasNext()) {
+            String orderId = eldest.next().orderId;
+            eldest.remove();
+            evictedOrders.increment();
+            deltas.add(delta(storeId, ++storeBoard.version).put("remove", orderId).toString());
+            log.warn("门店看板订单数超出上限，移除最早的订单: storeId={}, orderId={}", storeId, orderId);
+        }
+    }
+
+    /**
+     * 在看板锁外按入队顺序发出门店待推送的快照和增量
+     * 同一时间只有一个线程发送某个门店的队列，其他线程入队后直接返回，由正在发送的线程一并发出
+     */
+    private void push(String storeId, StoreBoard storeBoard) {
+        synchronized (storeBoard) {
+            if (storeBoard.pushing) {
+                return;
+            }
+            storeBoard.pushing = true;
+        }
+        boolean done = false;
+        try {
+            while (true) {
+                Push next;
+                synchronized (storeBoard) {
+                    next = storeBoard.outbox.poll();
+                    if (next == null) {
+                        storeBoard.pushing = false;
+                        done = true;
+                        return;
+                    }
+                }
+                if (next.session != null) {
+                    if (messageSender.sendNow(next.session, OutboundFrame.of(next.frame))) {
+                        snapshotsSent.increment();
+                    }
+                } else {
+                    publish(storeId, next.frame);
+                }
+            }
+        } finally {
+            if (!done) {
+                // 发送异常时交还发送权，剩余的推送由下一次入队的线程发出
+                synchronized (storeBoard) {
+                    storeBoard.pushing = false;
+                }
+            }
+        }
+    }
+
+    private void publish(String storeId, String delta) {
+        List<Session> subscribers = new ArrayList<>();
+        for (Session session : clientSessionManager.getStoreSessions(storeId)) {
+            SessionContext context = SessionContext.of(session);
+            if (context != null && context.isBoardEnabled()) {
+                subscribers.add(session);
+            }
+        }
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        messageSender.sendAll(subscribers, delta);
+        deltasSent.increment();
+    }
+
+    /**
+     * 单个门店的看板，按订单进入看板的先后顺序保存
+     */
+    private static final class StoreBoard {
+
+        private final LinkedHashMap<String, Entry> orders = new LinkedHashMap<>();
+
+        private long version;
+
+        // 待推送的快照和增量，按版本号顺序排列
+        private final ArrayDeque<Push> outbox = new ArrayDeque<>();
+
+        // 是否有线程正在发送待推送队列
+        private boolean pushing;
+    }
+
+    /**
+     * 待推送的帧
+     */
+    private static final class Push {
+
+        // 快照的目标会话，增量为null，发送时推给订阅看板的全部会话
+        private final Session session;
+
+        private final String frame;
+
+        private Push(Session session, String frame) {
+            this.session = session;
+            this.frame = frame;
+        }
+    }
+
+    /**
+     * 看板上的订单，只保留终端展示需要的字段；状态更新事件中缺少的字段沿用已有值
+     */
+    private static final class Entry {
+
+        private final String orderId;
+        private String orderNumber;
+        private String userId;
+        private OrderStatusEnum status;
+        private BigDecimal amount;
+        private Long createTime;
+
+        private Entry(String orderId) {
+            this.orderId = orderId;
+        }
+
+        private void merge(OrderDto order) {
+            if (order.getOrderNumber() != null) {
+                orderNumber = order.getOrderNumber();
+            }
+            if (order.getUserId() != null) {
+                userId = order.getUserId();
+            }
+            if (order.getStatus() != null) {
+                status = order.getStatus();
+            }
+            if (order.getAmount() != null) {
+                amount = order.getAmount();
+            }
+            if (order.getCreateTime() != null) {
+                createTime = order.getCreateTime().atZone(ZoneId.systemDefault()).toInstant().toEpochMilli();
+            }
+        }
+
+        private ArrayNode toRow() {
+            return objectMapper.createArrayNode()
+                    .add(orderId)
+                    .add(orderNumber)
+                    .add(userId)
+                    .add(status != null ? status.name() : null)
+                    .add(amount)
+                    .add(createTime);
+        }
+    }
+
+    /**
+     * 看板统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class BoardStats {
+        // 有看板的门店数
+        private int stores;
+        // 看板上的未完结订单总数
+        private long openOrders;
+        // 发送的快照数
+        private long snapshotsSent;
+        // 推送的增量数（按消息计，不按会话计）
+        private long deltasSent;
+        // 超出上限被移除的订单数
+        private long evictedOrders;
+    }
+}
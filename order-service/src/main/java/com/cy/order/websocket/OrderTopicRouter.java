@@ -0,0 +1,87 @@
+package com.cy.order.websocket;
+
+import com.cy.order.dto.OrderDto;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
+import jakarta.websocket.Session;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Set;
+
+/**
+ * 订单通知路由器
+ * 通过主题索引把订单通知推送给相关方：指定的身份主题（下单用户 / 所属门店）以及订阅了该订单主题的会话，
+ * 同一会话只推送一次；身份主题总是交由跨节点路由器转发给其他有该客户端连接的节点（多设备可能分布在多个节点上），
+ * 本节点和其他节点都没有连接时暂存到离线信箱
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class OrderTopicRouter {
+
+    private final TopicRegistry topicRegistry;
+
+    private final WebSocketMessageSender messageSender;
+
+    private final ClusterSessionRouter clusterSessionRouter;
+
+    private final StoreDeliveryTracker deliveryTracker;
+
+    private final ClientSessionManager clientSessionManager;
+
+    /**
+     * 推送订单通知
+     *
+     * @param order     订单信息
+     * @param message   通知内容
+     * @param audiences 需要通知的身份主题类型
+     * @return 本节点推送的会话数
+     */
+    public int publish(OrderDto order, String message, ClientType... audiences) {
+        Set<Session> delivered = Collections.newSetFromMap(new IdentityHashMap<>());
+        for (ClientType audience : audiences) {
+            String clientId = audience == ClientType.USER ? order.getUserId() : order.getStoreId();
+            if (clientId == null) {
+                continue;
+            }
+            String identityTopic = TopicRegistry.identityTopic(audience, clientId);
+            int local = deliver(topicRegistry.getSubscribers(identityTopic), audience, clientId, message, delivered);
+            if (clusterSessionRouter.forward(audience, clientId, message)) {
+                log.debug("订单通知已转发给其他节点: type={}, clientId={}, local={}", audience, clientId, local);
+            } else if (local == 0) {
+                // 客户端不在线，暂存到离线信箱，重连后补发
+                clientSessionManager.offerOffline(audience, clientId, message);
+            }
+        }
+        if (order.getId() != null) {
+            deliver(topicRegistry.getSubscribers(TopicRegistry.orderTopic(order.getId())), null, null, message, delivered);
+        }
+        return delivered.size();
+    }
+
+    private int deliver(Set<Session> sessions, ClientType audience, String clientId, String message, Set<Session> delivered) {
+        List<Session> targets = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            if (session.isOpen() && delivered.add(session)) {
+                targets.add(session);
+            }
+        }
+        if (targets.isEmpty()) {
+            return 0;
+        }
+        // 同一门店的多个终端共用确认窗口，开启确认模式的会话由确认跟踪器分配序号并负责重发
+        int count = audience == ClientType.STORE
+                ? deliveryTracker.deliver(clientId, targets, message)
+                : messageSender.sendAll(targets, message);
+        if (count < targets.size()) {
+            log.warn("订单通知部分推送失败: type={}, clientId={}, sessions={}, delivered={}",
+                    audience, clientId, targets.size(), count);
+        }
+        return count;
+    }
+}
@@ -0,0 +1,106 @@
+package com.cy.order.websocket;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.zip.Deflater;
+
+/**
+ * 待发送的WebSocket帧
+ * 文本内容只保存一份，UTF-8字节和压缩后的二进制帧按需计算并缓存，
+ * 同一条通知发往多个会话时只需编码一次
+ */
+public final class OutboundFrame {
+
+    /**
+     * 二进制帧首字节：负载为 raw deflate 压缩的UTF-8 JSON
+     */
+    public static final byte FORMAT_DEFLATE = 0x01;
+
+    /**
+     * 每个线程复用一个Deflater，避免频繁申请本地内存
+     */
+    private static final ThreadLocal<Deflater> DEFLATER =
+            ThreadLocal.withInitial(() -> new Deflater(Deflater.BEST_SPEED, true));
+
+    private final String text;
+
+    private volatile byte[] utf8;
+
+    private volatile ByteBuffer deflated;
+
+    private OutboundFrame(String text) {
+        this.text = text;
+    }
+
+    /**
+     * 创建待发送帧
+     *
+     * @param text JSON文本
+     * @return 待发送帧
+     */
+    public static OutboundFrame of(String text) {
+        return new OutboundFrame(text);
+    }
+
+    public String getText() {
+        return text;
+    }
+
+    /**
+     * 获取UTF-8编码后的字节长度
+     *
+     * @return 字节长度
+     */
+    public int getUtf8Length() {
+        return utf8().length;
+    }
+
+    /**
+     * 获取压缩后的二进制帧（格式字节 + raw deflate 数据）
+     * 每次返回独立的只读视图，可并发发送给多个会话
+     *
+     * @return 二进制帧
+     */
+    public ByteBuffer getDeflated() {
+        ByteBuffer buffer = deflated;
+        if (buffer == null) {
+            buffer = deflate(utf8());
+            deflated = buffer;
+        }
+        return buffer.asReadOnlyBuffer();
+    }
+
+    private byte[] utf8() {
+        byte[] bytes = utf8;
+        if (bytes == null) {
+            bytes = text.getBytes(StandardCharsets.UTF_8);
+            utf8 = bytes;
+        }
+        return bytes;
+    }
+
+    /**
+     * 使用 raw deflate 压缩数据，首字节写入格式标识
+     *
+     * @param input 原始数据
+     * @return 压缩后的二进制帧
+     */
+    static ByteBuffer deflate(byte[] input) {
+        Deflater deflater = DEFLATER.get();
+        deflater.reset();
+        deflater.setInput(input);
+        deflater.finish();
+
+        byte[] output = new byte[Math.max(64, input.length / 2 + 1)];
+        output[0] = FORMAT_DEFLATE;
+        int length = 1;
+        while (!deflater.finished()) {
+            if (length == output.length) {
+                output = Arrays.copyOf(output, output.length * 2);
+            }
+            length += deflater.deflate(output, length, output.length - length);
+        }
+        return ByteBuffer.wrap(output, 0, length);
+    }
+}
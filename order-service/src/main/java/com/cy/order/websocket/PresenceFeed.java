@@ -0,0 +1,297 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
+import com.cy.order.websocket.cluster.PresenceDelta;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 本节点在线状态变化推送
+ * 监控面板通过SSE订阅：订阅时先收到一次全量快照，之后按 flushInterval 收到合并后的上线/下线增量，
+ * 增量带递增的 {@code sequence}，面板发现序号不连续时重新订阅即可。
+ * 同时提供按客户端ID排序的分页查询，排序快照在在线状态无变化或未超过 snapshotTtl 时复用
+ */
+@Slf4j
+@Component
+public class PresenceFeed implements SessionLifecycleListener {
+
+    private final WebSocketProperties.Presence presence;
+
+    private final ClientSessionManager clientSessionManager;
+
+    private final ClusterSessionRouter clusterSessionRouter;
+
+    // 待推送的在线变化 key: clientId, value: true上线/false下线，同一客户端只保留最后一次变化
+    private final Map<String, Boolean> pendingUsers = new ConcurrentHashMap<>();
+
+    private final Map<String, Boolean> pendingStores = new ConcurrentHashMap<>();
+
+    private final List<SseEmitter> subscribers = new CopyOnWriteArrayList<>();
+
+    private final AtomicLong sequence = new AtomicLong();
+
+    // 在线状态版本，每次上线/下线递增，用于判断排序快照是否需要重建
+    private final AtomicLong userVersion = new AtomicLong();
+
+    private final AtomicLong storeVersion = new AtomicLong();
+
+    private volatile SortedSnapshot userSnapshot = SortedSnapshot.EMPTY;
+
+    private volatile SortedSnapshot storeSnapshot = SortedSnapshot.EMPTY;
+
+    private ScheduledExecutorService scheduler;
+
+    public PresenceFeed(WebSocketProperties webSocketProperties,
+                        ClientSessionManager clientSessionManager,
+                        ClusterSessionRouter clusterSessionRouter) {
+        this.presence = webSocketProperties.getPresence();
+        this.clientSessionManager = clientSessionManager;
+        this.clusterSessionRouter = clusterSessionRouter;
+    }
+
+    @PostConstruct
+    public void start() {
+        clientSessionManager.addLifecycleListener(this);
+        scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-presence-feed");
+            thread.setDaemon(true);
+            return thread;
+        });
+        scheduler.scheduleWithFixedDelay(this::flush,
+                presence.getFlushInterval(), presence.getFlushInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (scheduler != null) {
+            scheduler.shutdown();
+        }
+        for (SseEmitter emitter : subscribers) {
+            emitter.complete();
+        }
+        subscribers.clear();
+    }
+
+    @Override
+    public void onSessionAdded(ClientType type, String clientId) {
+        pending(type).put(clientId, Boolean.TRUE);
+        version(type).incrementAndGet();
+    }
+
+    @Override
+    public void onSessionRemoved(ClientType type, String clientId) {
+        pending(type).put(clientId, Boolean.FALSE);
+        version(type).incrementAndGet();
+    }
+
+    /**
+     * 订阅在线状态变化
+     *
+     * @param includeSnapshot 是否先推送全量快照；在线客户端很多时可以关闭，改用分页查询获取初始列表
+     * @return SSE连接，超过订阅上限时返回null
+     */
+    public SseEmitter subscribe(boolean includeSnapshot) {
+        if (subscribers.size() >= presence.getMaxSubscribers()) {
+            return null;
+        }
+        SseEmitter emitter = new SseEmitter(presence.getSubscriberTimeout());
+        emitter.onCompletion(() -> subscribers.remove(emitter));
+        emitter.onTimeout(() -> subscribers.remove(emitter));
+        emitter.onError(error -> subscribers.remove(emitter));
+        // 与增量推送互斥，保证快照之后收到的第一条增量紧接快照的序号
+        synchronized (this) {
+            PresenceDelta.PresenceDeltaBuilder snapshot = PresenceDelta.builder()
+                    .nodeId(clusterSessionRouter.getNodeId())
+                    .kind(PresenceDelta.Kind.SNAPSHOT)
+                    .sequence(sequence.get());
+            if (includeSnapshot) {
+                snapshot.userJoined(new ArrayList<>(clientSessionManager.getAllUserIds()))
+                        .storeJoined(new ArrayList<>(clientSessionManager.getAllStoreIds()));
+            }
+            if (!send(emitter, "snapshot", snapshot.build())) {
+                return emitter;
+            }
+            subscribers.add(emitter);
+        }
+        log.debug("在线状态订阅已建立: subscribers={}", subscribers.size());
+        return emitter;
+    }
+
+    /**
+     * 推送累积的在线增量
+     * 没有订阅者时直接丢弃，新订阅者从快照开始
+     */
+    synchronized void flush() {
+        List<String> userJoined = new ArrayList<>();
+        List<String> userLeft = new ArrayList<>();
+        List<String> storeJoined = new ArrayList<>();
+        List<String> storeLeft = new ArrayList<>();
+        drain(pendingUsers, userJoined, userLeft);
+        drain(pendingStores, storeJoined, storeLeft);
+        if (subscribers.isEmpty()
+                || (userJoined.isEmpty() && userLeft.isEmpty() && storeJoined.isEmpty() && storeLeft.isEmpty())) {
+            return;
+        }
+        PresenceDelta delta = PresenceDelta.builder()
+                .nodeId(clusterSessionRouter.getNodeId())
+                .kind(PresenceDelta.Kind.DELTA)
+                .sequence(sequence.incrementAndGet())
+                .userJoined(userJoined)
+                .userLeft(userLeft)
+                .storeJoined(storeJoined)
+                .storeLeft(storeLeft)
+                .build();
+        for (SseEmitter emitter : subscribers) {
+            send(emitter, "delta", delta);
+        }
+    }
+
+    /**
+     * 分页查询在线客户端
+     *
+     * @param type   客户端类型
+     * @param cursor 上一页返回的 nextCursor，首页传null
+     * @param limit  每页条数，不大于 maxPageSize，不传时使用 defaultPageSize
+     * @return 按客户端ID排序的一页在线客户端
+     */
+    public PresencePage getPage(ClientType type, String cursor, Integer limit) {
+        int size = limit == null || limit <= 0 ? presence.getDefaultPageSize() : Math.min(limit, presence.getMaxPageSize());
+        String[] ids = sortedSnapshot(type).ids;
+        int from = 0;
+        if (cursor != null && !cursor.isEmpty()) {
+            int index = Arrays.binarySearch(ids, cursor);
+            from = index >= 0 ? index + 1 : -index - 1;
+        }
+        int to = Math.min(ids.length, from + size);
+        List<String> items = Arrays.asList(Arrays.copyOfRange(ids, from, to));
+        String nextCursor = to < ids.length && to > from ? ids[to - 1] : null;
+        return new PresencePage(sequence.get(), ids.length, items, nextCursor);
+    }
+
+    /**
+     * 获取在线数量，不复制在线列表
+     *
+     * @return 在线数量
+     */
+    public PresenceCounts getCounts() {
+        return new PresenceCounts(sequence.get(), clientSessionManager.getUserSessionCount(),
+                clientSessionManager.getStoreSessionCount(), subscribers.size());
+    }
+
+    private SortedSnapshot sortedSnapshot(ClientType type) {
+        SortedSnapshot snapshot = type == ClientType.USER ? userSnapshot : storeSnapshot;
+        long version = version(type).get();
+        long now = System.currentTimeMillis();
+        if (snapshot.version == version || now - snapshot.builtAt < presence.getSnapshotTtl()) {
+            return snapshot;
+        }
+        String[] ids = (type == ClientType.USER ? clientSessionManager.getAllUserIds() : clientSessionManager.getAllStoreIds())
+                .toArray(new String[0]);
+        Arrays.sort(ids);
+        snapshot = new SortedSnapshot(ids, version, now);
+        if (type == ClientType.USER) {
+            userSnapshot = snapshot;
+        } else {
+            storeSnapshot = snapshot;
+        }
+        return snapshot;
+    }
+
+    private boolean send(SseEmitter emitter, String name, PresenceDelta data) {
+        try {
+            emitter.send(SseEmitter.event().name(name).id(String.valueOf(data.getSequence()))
+                    .data(data, MediaType.APPLICATION_JSON));
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("在线状态推送失败，移除订阅: {}", e.getMessage());
+            subscribers.remove(emitter);
+            emitter.completeWithError(e);
+            return false;
+        }
+    }
+
+    private static void drain(Map<String, Boolean> pending, List<String> joined, List<String> left) {
+        for (String clientId : pending.keySet()) {
+            Boolean online = pending.remove(clientId);
+            if (online == null) {
+                continue;
+            }
+            (online ? joined : left).add(clientId);
+        }
+    }
+
+    private Map<String, Boolean> pending(ClientType type) {
+        return type == ClientType.USER ? pendingUsers : pendingStores;
+    }
+
+    private AtomicLong version(ClientType type) {
+        return type == ClientType.USER ? userVersion : storeVersion;
+    }
+
+    private static final class SortedSnapshot {
+
+        // 版本为-1，首次查询时一定重建
+        private static final SortedSnapshot EMPTY = new SortedSnapshot(new String[0], -1, 0);
+
+        private final String[] ids;
+        private final long version;
+        private final long builtAt;
+
+        private SortedSnapshot(String[] ids, long version, long builtAt) {
+            this.ids = ids;
+            this.version = version;
+            this.builtAt = builtAt;
+        }
+    }
+
+    /**
+     * 在线客户端分页结果
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PresencePage {
+        // 查询时的增量序号，面板可据此与SSE增量衔接
+        private long sequence;
+        // 在线总数
+        private int total;
+        // 本页客户端ID
+        private List<String> items;
+        // 下一页游标，没有下一页时为null
+        private String nextCursor;
+    }
+
+    /**
+     * 在线数量
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class PresenceCounts {
+        private long sequence;
+        private int onlineUserCount;
+        private int onlineStoreCount;
+        // 在线状态订阅数
+        private int subscribers;
+    }
+}
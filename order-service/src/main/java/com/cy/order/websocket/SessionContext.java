@@ -0,0 +1,203 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.support.TokenBucket;
+import jakarta.websocket.Session;
+import lombok.AccessLevel;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * WebSocket会话上下文
+ * 保存在 Session 的 userProperties 中，记录单个连接在握手和connect阶段协商出的状态
+ */
+@Getter
+@Setter
+public class SessionContext {
+
+    /**
+     * userProperties 中存放上下文的键
+     */
+    public static final String KEY = SessionContext.class.getName();
+
+    /**
+     * 所属端点的传输配置，握手阶段写入
+     */
+    private volatile WebSocketProperties.Endpoint endpoint;
+
+    /**
+     * 客户端来源地址，取自握手请求的代理头，无法识别时为null
+     */
+    private volatile String remoteAddress;
+
+    /**
+     * 入站消息限流桶，准入通过后创建
+     */
+    private volatile TokenBucket inboundBucket;
+
+    /**
+     * 被限流丢弃的入站消息数
+     */
+    private final AtomicInteger inboundViolations = new AtomicInteger();
+
+    /**
+     * connect消息中绑定的客户端ID（用户ID或门店ID）
+     */
+    private volatile String clientId;
+
+    /**
+     * connect消息中绑定的全部客户端ID，门店端一个连接可以同时绑定多个门店
+     */
+    private final Set<String> clientIds = ConcurrentHashMap.newKeySet();
+
+    /**
+     * connect消息中绑定的客户端类型
+     */
+    private volatile ClientType clientType;
+
+    /**
+     * 最后一次收到心跳（Pong或兼容的JSON ping）的时间（毫秒）
+     */
+    private volatile long lastHeartbeat = System.currentTimeMillis();
+
+    /**
+     * 会话所在的心跳时间桶，未加入心跳调度时为-1
+     */
+    private volatile int heartbeatBucket = -1;
+
+    /**
+     * 最近一次建议给客户端的心跳间隔（毫秒），未建议时为0
+     */
+    private volatile long heartbeatInterval;
+
+    /**
+     * 会话的心跳超时时间（毫秒），为0时使用全局的 websocket.heartbeat-timeout
+     */
+    private volatile long heartbeatTimeout;
+
+    /**
+     * 是否有心跳发送尚未完成，上一轮的发送仍阻塞时跳过本轮
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private final AtomicBoolean heartbeatInFlight = new AtomicBoolean();
+
+    /**
+     * 新建议的间隔变短时，客户端确认前暂不生效的超时时间，没有待生效的超时时为0
+     */
+    @Getter(AccessLevel.NONE)
+    @Setter(AccessLevel.NONE)
+    private volatile long pendingHeartbeatTimeout;
+
+    /**
+     * 客户端是否选择了二进制帧编码
+     */
+    private volatile boolean binaryEncoding;
+
+    /**
+     * 门店是否开启了通知确认模式
+     */
+    private volatile boolean ackEnabled;
+
+    /**
+     * 门店是否订阅了未完结订单看板，由 {@link OpenOrdersBoard} 推送快照和增量
+     */
+    private volatile boolean boardEnabled;
+
+    /**
+     * 会话订阅的主题，由 {@link TopicRegistry} 维护
+     */
+    private final Set<String> topics = ConcurrentHashMap.newKeySet();
+
+    /**
+     * 合并发送缓冲，客户端在connect时选择批量模式后创建
+     */
+    @Getter(AccessLevel.PACKAGE)
+    @Setter(AccessLevel.PACKAGE)
+    private volatile NotificationBatch batch;
+
+    /**
+     * 记录建议给客户端的心跳间隔
+     * 间隔变长时超时立即放宽；变短时客户端可能还未收到新间隔，在下一次心跳到达前保留原超时，避免误判过期
+     *
+     * @param interval 心跳间隔（毫秒）
+     * @param timeout  对应的超时时间（毫秒）
+     */
+    public synchronized void adviseHeartbeat(long interval, long timeout) {
+        heartbeatInterval = interval;
+        if (timeout >= heartbeatTimeout) {
+            heartbeatTimeout = timeout;
+            pendingHeartbeatTimeout = 0;
+        } else {
+            pendingHeartbeatTimeout = timeout;
+        }
+    }
+
+    /**
+     * 收到心跳，记录时间并使待生效的超时生效
+     * 建议间隔先于服务端Ping发出，收到之后的Pong说明客户端已收到新间隔
+     *
+     * @param now 当前时间（毫秒）
+     */
+    public synchronized void onHeartbeat(long now) {
+        lastHeartbeat = now;
+        if (pendingHeartbeatTimeout > 0) {
+            heartbeatTimeout = pendingHeartbeatTimeout;
+            pendingHeartbeatTimeout = 0;
+        }
+    }
+
+    /**
+     * 开始一轮心跳发送
+     *
+     * @return 上一轮已完成时返回true，仍在发送时返回false
+     */
+    boolean tryStartHeartbeat() {
+        return heartbeatInFlight.compareAndSet(false, true);
+    }
+
+    /**
+     * 结束一轮心跳发送
+     */
+    void finishHeartbeat() {
+        heartbeatInFlight.set(false);
+    }
+
+    /**
+     * 连接是否绑定了多个客户端
+     *
+     * @return 绑定多个门店时返回true
+     */
+    public boolean isMultiplexed() {
+        return clientIds.size() > 1;
+    }
+
+    /**
+     * 获取会话上下文
+     *
+     * @param session WebSocket会话
+     * @return 会话上下文，未绑定时返回null
+     */
+    public static SessionContext of(Session session) {
+        if (session == null || session.getUserProperties() == null) {
+            return null;
+        }
+        return (SessionContext) session.getUserProperties().get(KEY);
+    }
+
+    /**
+     * 获取或创建会话上下文
+     *
+     * @param session WebSocket会话
+     * @return 会话上下文
+     */
+    public static SessionContext bind(Session session) {
+        return (SessionContext) session.getUserProperties()
+                .computeIfAbsent(KEY, key -> new SessionContext());
+    }
+}
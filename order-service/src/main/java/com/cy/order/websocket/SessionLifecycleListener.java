@@ -0,0 +1,24 @@
+package com.cy.order.websocket;
+
+/**
+ * 会话生命周期监听器
+ * 客户端完成connect绑定或会话被移除时由 {@link ClientSessionManager} 回调
+ */
+public interface SessionLifecycleListener {
+
+    /**
+     * 客户端会话已添加
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     */
+    void onSessionAdded(ClientType type, String clientId);
+
+    /**
+     * 客户端会话已移除
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     */
+    void onSessionRemoved(ClientType type, String clientId);
+}
@@ -0,0 +1,408 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * 门店通知确认与重发
+ * 门店在connect时开启确认模式后，发往该门店的通知带上门店内递增的 {@code seq}，客户端以 {"type":"ack","seq":N} 累计确认；
+ * 未确认的通知保存在门店的 {@link AckWindow} 中，按指数退避重发，同时在途数不超过 maxInFlight。
+ * 重发扫描只遍历存在未确认通知的门店，空闲门店不产生任何开销。
+ * 持有窗口锁时只分配序号、计算到期的通知，实际发送在锁外由发送线程按序号顺序执行，
+ * 个别门店终端的阻塞发送不会拖住重发扫描线程、其他门店和调用 deliver 的线程
+ */
+@Slf4j
+@Component
+public class StoreDeliveryTracker {
+
+    private final WebSocketProperties.StoreAck storeAck;
+
+    private final ClientSessionManager clientSessionManager;
+
+    private final WebSocketMessageSender messageSender;
+
+    // 本节点的确认纪元，客户端发现纪元变化时应重置已接收的最大序号
+    private final long epoch = ThreadLocalRandom.current().nextLong(1, Long.MAX_VALUE);
+
+    // key: storeId
+    private final Map<String, AckWindow> windows = new ConcurrentHashMap<>();
+
+    // 存在未确认通知的门店
+    private final Set<String> pendingStores = ConcurrentHashMap.newKeySet();
+
+    private final LongAdder sentMessages = new LongAdder();
+    private final LongAdder ackedMessages = new LongAdder();
+    private final LongAdder invalidAcks = new LongAdder();
+    private final LongAdder retransmittedMessages = new LongAdder();
+    private final LongAdder expiredMessages = new LongAdder();
+    private final LongAdder overflowedMessages = new LongAdder();
+
+    private ScheduledExecutorService sweeper;
+
+    public StoreDeliveryTracker(WebSocketProperties webSocketProperties,
+                                ClientSessionManager clientSessionManager,
+                                WebSocketMessageSender messageSender) {
+        this.storeAck = webSocketProperties.getStoreAck();
+        this.clientSessionManager = clientSessionManager;
+        this.messageSender = messageSender;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (!storeAck.isEnabled()) {
+            return;
+        }
+        sweeper = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "ws-ack-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+        sweeper.scheduleWithFixedDelay(this::sweep,
+                storeAck.getSweepInterval(), storeAck.getSweepInterval(), TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (sweeper != null) {
+            sweeper.shutdown();
+        }
+    }
+
+    /**
+     * 协商会话是否开启确认模式
+     *
+     * @param session   门店会话
+     * @param storeId   门店ID
+     * @param requested 客户端是否请求确认模式
+     * @return 是否开启
+     */
+    public boolean negotiate(Session session, String storeId, boolean requested) {
+        return negotiate(session, List.of(storeId), requested);
+    }
+
+    /**
+     * 协商绑定多个门店的会话是否开启确认模式
+     * 确认模式是会话级的，对绑定的全部门店统一开启或关闭；开启时逐个门店重发未确认的通知
+     *
+     * @param session   门店会话
+     * @param storeIds  会话绑定的门店ID
+     * @param requested 客户端是否请求确认模式
+     * @return 是否开启
+     */
+    public boolean negotiate(Session session, List<String> storeIds, boolean requested) {
+        boolean enabled = requested && storeAck.isEnabled();
+        SessionContext.bind(session).setAckEnabled(enabled);
+        if (!enabled) {
+            return false;
+        }
+        long now = System.currentTimeMillis();
+        for (String storeId : storeIds) {
+            AckWindow window = windows.get(storeId);
+            if (window != null) {
+                // 重连后立即重发上一个连接上未确认的通知
+                synchronized (window) {
+                    window.resetRetry();
+                    flush(storeId, window, List.of(session), now);
+                }
+                drain(window);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 向门店的多个会话发送同一条通知
+     * 开启确认模式的会话共用门店的确认窗口：通知只分配一次序号，发往全部开启确认模式的会话，
+     * 任一会话的确认都视为门店已收到；其余会话直接发送
+     *
+     * @param storeId  门店ID
+     * @param sessions 门店会话
+     * @param message  通知内容（JSON对象）
+     * @return 已发送或进入确认窗口的会话数
+     */
+    public int deliver(String storeId, List<Session> sessions, String message) {
+        List<Session> tracked = new ArrayList<>(sessions.size());
+        List<Session> untracked = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            if (session != null && session.isOpen()) {
+                (isTracked(session) ? tracked : untracked).add(session);
+            }
+        }
+        int delivered = sendToSessions(storeId, untracked, message);
+        if (tracked.isEmpty()) {
+            return delivered;
+        }
+        AckWindow window = windows.computeIfAbsent(storeId, key -> new AckWindow());
+        synchronized (window) {
+            int dropped = window.append(message, storeAck.getBufferSize());
+            if (dropped > 0) {
+                overflowedMessages.add(dropped);
+                log.warn("门店未确认通知超出缓冲，丢弃最旧通知: storeId={}", storeId);
+            }
+            flush(storeId, window, tracked, System.currentTimeMillis());
+        }
+        pendingStores.add(storeId);
+        drain(window);
+        return delivered + tracked.size();
+    }
+
+    /**
+     * 处理客户端确认
+     *
+     * @param storeId 门店ID（取自会话绑定的门店，不信任消息内容）
+     * @param seq     累计确认的序号
+     */
+    public void ack(String storeId, long seq) {
+        AckWindow window = storeId != null ? windows.get(storeId) : null;
+        if (window == null) {
+            return;
+        }
+        synchronized (window) {
+            // 过期、重放或伪造的确认可能超过已发送的序号，只确认到已发送的最大序号，未发出的通知不丢弃
+            long lastSent = window.lastSentSeq();
+            if (seq > lastSent) {
+                invalidAcks.increment();
+                log.warn("门店确认的序号超过已发送的最大序号: storeId={}, seq={}, lastSent={}", storeId, seq, lastSent);
+            }
+            ackedMessages.add(window.ack(seq));
+            // 确认腾出了在途名额，继续发送窗口内的后续通知
+            List<Session> sessions = trackedSessions(storeId);
+            if (!sessions.isEmpty()) {
+                flush(storeId, window, sessions, System.currentTimeMillis());
+            }
+        }
+        drain(window);
+    }
+
+    /**
+     * 重发到期的未确认通知
+     */
+    void sweep() {
+        long now = System.currentTimeMillis();
+        for (String storeId : pendingStores) {
+            AckWindow window = windows.get(storeId);
+            if (window == null) {
+                pendingStores.remove(storeId);
+                continue;
+            }
+            synchronized (window) {
+                expiredMessages.add(window.expire(now, storeAck.getMaxRetries()));
+                List<Session> sessions = trackedSessions(storeId);
+                // 门店离线时保留通知，等待重连后重发
+                if (!sessions.isEmpty()) {
+                    retransmittedMessages.add(flush(storeId, window, sessions, now));
+                }
+                if (window.size() == 0) {
+                    pendingStores.remove(storeId);
+                }
+            }
+            drain(window);
+        }
+    }
+
+    /**
+     * 本节点的确认纪元
+     *
+     * @return 确认纪元
+     */
+    public long getEpoch() {
+        return epoch;
+    }
+
+    /**
+     * 获取各门店的未确认通知数
+     *
+     * @return key: storeId, value: 未确认通知数，只包含存在未确认通知的门店
+     */
+    public Map<String, Integer> getUnackedCounts() {
+        Map<String, Integer> counts = new HashMap<>();
+        for (String storeId : pendingStores) {
+            AckWindow window = windows.get(storeId);
+            if (window != null) {
+                synchronized (window) {
+                    if (window.size() > 0) {
+                        counts.put(storeId, window.size());
+                    }
+                }
+            }
+        }
+        return counts;
+    }
+
+    /**
+     * 获取确认统计信息
+     *
+     * @return 确认统计信息
+     */
+    public AckStats getStats() {
+        long unacked = 0;
+        for (Integer count : getUnackedCounts().values()) {
+            unacked += count;
+        }
+        return new AckStats(windows.size(), unacked, sentMessages.sum(), ackedMessages.sum(), invalidAcks.sum(),
+                retransmittedMessages.sum(), expiredMessages.sum(), overflowedMessages.sum());
+    }
+
+    /**
+     * 计算窗口内到期的通知，放入待发送队列，由 {@link #drain(AckWindow)} 在锁外发出；调用方持有窗口锁
+     */
+    private int flush(String storeId, AckWindow window, List<Session> sessions, long now) {
+        return window.sendDue(now, storeAck.getMaxInFlight(), storeAck.getInitialRetryDelay(), storeAck.getMaxRetryDelay(),
+                (message, seq) -> {
+                    sentMessages.increment();
+                    window.outbox.add(() -> {
+                        if (sendToSessions(storeId, sessions, withSeq(message, seq)) == 0) {
+                            log.debug("门店通知发送失败，等待重发: storeId={}, seq={}", storeId, seq);
+                        }
+                    });
+                });
+    }
+
+    /**
+     * 把窗口的待发送队列交给发送线程
+     * 同一窗口同时只有一个发送线程，按入队顺序发出，客户端收到的序号保持递增
+     */
+    private void drain(AckWindow window) {
+        synchronized (window) {
+            if (window.draining || window.outbox.isEmpty()) {
+                return;
+            }
+            window.draining = true;
+        }
+        if (!messageSender.execute(() -> sendOutbox(window))) {
+            synchronized (window) {
+                window.draining = false;
+            }
+        }
+    }
+
+    private void sendOutbox(AckWindow window) {
+        boolean done = false;
+        try {
+            while (true) {
+                Runnable send;
+                synchronized (window) {
+                    send = window.outbox.poll();
+                    if (send == null) {
+                        window.draining = false;
+                        done = true;
+                        return;
+                    }
+                }
+                send.run();
+            }
+        } finally {
+            if (!done) {
+                // 发送异常时交还发送权，剩余的通知由下一次入队时发出，未确认的通知到期后也会重发
+                synchronized (window) {
+                    window.draining = false;
+                }
+            }
+        }
+    }
+
+    /**
+     * 发送门店通知，同时绑定多个门店的连接收到的通知带上 {@code storeId}，以区分通知所属门店
+     */
+    private int sendToSessions(String storeId, List<Session> sessions, String message) {
+        List<Session> single = new ArrayList<>(sessions.size());
+        List<Session> multiplexed = new ArrayList<>();
+        for (Session session : sessions) {
+            SessionContext context = SessionContext.of(session);
+            (context != null && context.isMultiplexed() ? multiplexed : single).add(session);
+        }
+        int sent = single.isEmpty() ? 0 : messageSender.sendAll(single, message);
+        if (!multiplexed.isEmpty()) {
+            sent += messageSender.sendAll(multiplexed, withStoreId(message, storeId));
+        }
+        return sent;
+    }
+
+    private List<Session> trackedSessions(String storeId) {
+        List<Session> sessions = new ArrayList<>();
+        for (Session session : clientSessionManager.getStoreSessions(storeId)) {
+            if (isTracked(session)) {
+                sessions.add(session);
+            }
+        }
+        return sessions;
+    }
+
+    private static boolean isTracked(Session session) {
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        SessionContext context = SessionContext.of(session);
+        return context != null && context.isAckEnabled();
+    }
+
+    /**
+     * 在JSON对象消息中加入序号字段
+     */
+    static String withSeq(String message, long seq) {
+        if (message.startsWith("{}")) {
+            return "{\"seq\":" + seq + "}";
+        }
+        if (message.startsWith("{")) {
+            return "{\"seq\":" + seq + "," + message.substring(1);
+        }
+        return "{\"seq\":" + seq + ",\"data\":" + message + "}";
+    }
+
+    /**
+     * 在JSON对象消息中加入门店ID字段，消息已带门店ID时原样返回
+     */
+    static String withStoreId(String message, String storeId) {
+        if (!message.startsWith("{") || message.contains("\"storeId\"")) {
+            return message;
+        }
+        if (message.startsWith("{}")) {
+            return "{\"storeId\":\"" + storeId + "\"}";
+        }
+        return "{\"storeId\":\"" + storeId + "\"," + message.substring(1);
+    }
+
+    /**
+     * 确认统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AckStats {
+        // 有确认窗口的门店数
+        private int trackedStores;
+        // 未确认的通知总数
+        private long unackedMessages;
+        // 发送的带序号通知数（含重发）
+        private long sentMessages;
+        // 已确认的通知数
+        private long ackedMessages;
+        // 超过已发送最大序号的确认数
+        private long invalidAcks;
+        // 重发的通知数
+        private long retransmittedMessages;
+        // 超过最大重试次数被放弃的通知数
+        private long expiredMessages;
+        // 超出缓冲被丢弃的通知数
+        private long overflowedMessages;
+    }
+}
@@ -2,6 +2,10 @@ package com.cy.order.websocket;
 
 import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.cy.order.enums.OrderStatusEnum;
+import com.cy.order.service.OrderService;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
 import jakarta.websocket.*;
 import jakarta.websocket.server.ServerEndpoint;
 import lombok.extern.slf4j.Slf4j;
@@ -9,6 +13,11 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.stereotype.Component;
 
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 /**
  * 门店端WebSocket端点
@@ -16,7 +25,7 @@ import java.io.IOException;
  */
 @Slf4j
 @Component
-@ServerEndpoint("/ws/store")
+@ServerEndpoint(value = "/ws/store", configurator = WebSocketEndpointConfigurator.Store.class)
 public class StoreWebSocketEndpoint {
 
     private static ClientSessionManager clientSessionManager;
@@ -29,14 +38,88 @@ public class StoreWebSocketEndpoint {
     public static ClientSessionManager getClientSessionManager() {
         return clientSessionManager;
     }
+
+    private static WebSocketMessageSender messageSender;
+
+    @Autowired
+    public void setMessageSender(WebSocketMessageSender messageSender) {
+        StoreWebSocketEndpoint.messageSender = messageSender;
+    }
+
+    private static ClusterSessionRouter clusterSessionRouter;
+
+    @Autowired
+    public void setClusterSessionRouter(ClusterSessionRouter clusterSessionRouter) {
+        StoreWebSocketEndpoint.clusterSessionRouter = clusterSessionRouter;
+    }
+
+    private static WebSocketAdmissionController admissionController;
+
+    @Autowired
+    public void setAdmissionController(WebSocketAdmissionController admissionController) {
+        StoreWebSocketEndpoint.admissionController = admissionController;
+    }
+
+    private static TopicRegistry topicRegistry;
+
+    @Autowired
+    public void setTopicRegistry(TopicRegistry topicRegistry) {
+        StoreWebSocketEndpoint.topicRegistry = topicRegistry;
+    }
+
+    private static HeartbeatScheduler heartbeatScheduler;
+
+    @Autowired
+    public void setHeartbeatScheduler(HeartbeatScheduler heartbeatScheduler) {
+        StoreWebSocketEndpoint.heartbeatScheduler = heartbeatScheduler;
+    }
+
+    private static StoreDeliveryTracker deliveryTracker;
+
+    @Autowired
+    public void setDeliveryTracker(StoreDeliveryTracker deliveryTracker) {
+        StoreWebSocketEndpoint.deliveryTracker = deliveryTracker;
+    }
     
+    private static OrderService orderService;
+
+    @Autowired
+    public void setOrderService(OrderService orderService) {
+        StoreWebSocketEndpoint.orderService = orderService;
+    }
+    
+    private static OpenOrdersBoard openOrdersBoard;
+
+    @Autowired
+    public void setOpenOrdersBoard(OpenOrdersBoard openOrdersBoard) {
+        StoreWebSocketEndpoint.openOrdersBoard = openOrdersBoard;
+    }
+
     private static final ObjectMapper objectMapper = new ObjectMapper();
 
+    /**
+     * 消息处理器表 key: 消息type
+     */
+    private static final Map<String, ClientMessageHandler> HANDLERS = Map.of(
+            "connect", StoreWebSocketEndpoint::handleConnect,
+            "ping", StoreWebSocketEndpoint::handlePing,
+            "ack", StoreWebSocketEndpoint::handleAck,
+            "subscribe", (session, message) -> sendMessage(session, topicRegistry.handleSubscription(session, message, true)),
+            "unsubscribe", (session, message) -> sendMessage(session, topicRegistry.handleSubscription(session, message, false)),
+            "update_status", StoreWebSocketEndpoint::handleUpdateStatus,
+            "board_sync", StoreWebSocketEndpoint::handleBoardSync);
+
     /**
      * 连接建立成功调用的方法
      */
     @OnOpen
     public void onOpen(Session session) {
+        if (admissionController != null && !admissionController.admit(session)) {
+            return;
+        }
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.register(session);
+        }
         log.info("门店 WebSocket连接建立成功: sessionId={}", session.getId());
     }
 
@@ -45,14 +128,17 @@ public class StoreWebSocketEndpoint {
      */
     @OnClose
     public void onClose(Session session) {
-        String sessionId = session.getId();
-        if (clientSessionManager!=null&&sessionId != null) {
-            // 从门店会话中移除
-            clientSessionManager.removeStoreSession(sessionId);
-            log.info("门店 WebSocket连接关闭: sessionId={}", sessionId);
-        } else {
-            log.warn("门店 WebSocket连接关闭: sessionId is null");
+        if (topicRegistry != null) {
+            topicRegistry.unsubscribeAll(session);
+        }
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.unregister(session);
         }
+        if (clientSessionManager != null) {
+            // 只移除关闭的这一个会话，同一门店其他终端上的连接不受影响
+            clientSessionManager.removeSession(session);
+        }
+        log.info("门店 WebSocket连接关闭: sessionId={}", session.getId());
     }
 
     /**
@@ -60,7 +146,11 @@ public class StoreWebSocketEndpoint {
      */
     @OnMessage
     public void onMessage(String message, Session session) {
-        log.info("收到门店 WebSocket消息: sessionId={}, message={}", session.getId(), message);
+        // 限流检查放在解析之前，超限消息不再消耗解析和日志开销
+        if (admissionController != null && !admissionController.allowInbound(session)) {
+            return;
+        }
+        log.debug("收到门店 WebSocket消息: sessionId={}, message={}", session.getId(), message);
         
         try {
             JsonNode jsonNode = objectMapper.readTree(message);
@@ -72,47 +162,246 @@ public class StoreWebSocketEndpoint {
             }
             
             String type = typeNode.asText();
-            
-            switch (type) {
-                case "connect":
-                    JsonNode clientIdNode = jsonNode.get("clientId");
-                    if (clientIdNode == null) {
-                        sendMessage(session, "{\"type\":\"error\",\"message\":\"Missing 'clientId' field in connect message\"}");
-                        return;
-                    }
-                    
-                    String clientId = clientIdNode.asText();
-                    String sessionId = session.getId();
-                    if (sessionId != null) {
-                        clientSessionManager.addStoreSession(clientId, session);
-                        sendMessage(session, "{\"type\":\"connection_success\",\"message\":\"Connected successfully\", \"clientId\":\"" + clientId + "\"}");
-                        log.info("门店连接成功: sessionId={}, clientId={}", sessionId, clientId);
-                    } else {
-                        log.warn("无法添加会话，sessionId为null");
-                    }
-                    break;
-                case "ping":
-                    sendMessage(session, "{\"type\":\"pong\"}");
-                    // 更新最后活跃时间
-                    String pingSessionId = session.getId();
-                    if (pingSessionId != null) {
-                        // 对于门店端，我们使用storeId作为key存储会话
-                        JsonNode storeIdNode = jsonNode.get("clientId");
-                        if (storeIdNode != null) {
-                            clientSessionManager.updateStoreHeartbeat(storeIdNode.asText());
-                        }
-                    }
-                    break;
-                default:
-                    sendMessage(session, "{\"type\":\"error\",\"message\":\"Unknown message type: " + type + "\"}");
-                    break;
+            ClientMessageHandler handler = HANDLERS.get(type);
+            if (handler == null) {
+                sendMessage(session, "{\"type\":\"error\",\"message\":\"Unknown message type: " + type + "\"}");
+                return;
             }
+            handler.handle(session, jsonNode);
         } catch (Exception e) {
             log.error("处理门店 WebSocket消息失败: sessionId={}", session.getId(), e);
             sendMessage(session, "{\"type\":\"error\",\"message\":\"Failed to process message\"}");
         }
     }
 
+    /**
+     * 处理connect消息，绑定门店并协商编码、合并发送和确认模式
+     */
+    private static void handleConnect(Session session, JsonNode jsonNode) throws IOException {
+        List<String> storeIds = parseStoreIds(jsonNode);
+        if (storeIds.isEmpty()) {
+            sendMessage(session, "{\"type\":\"error\",\"message\":\"Missing 'clientId' field in connect message\"}");
+            return;
+        }
+        SessionContext connectContext = SessionContext.of(session);
+        int maxStores = connectContext != null && connectContext.getEndpoint() != null
+                ? connectContext.getEndpoint().getMaxStoresPerConnection() : storeIds.size();
+        if (storeIds.size() > Math.max(1, maxStores)) {
+            sendMessage(session, "{\"type\":\"error\",\"message\":\"Too many storeIds in connect message, max " + maxStores + "\"}");
+            return;
+        }
+
+        String clientId = storeIds.get(0);
+        String sessionId = session.getId();
+        if (sessionId != null) {
+            boolean multiplexed = storeIds.size() > 1;
+            if (multiplexed) {
+                clientSessionManager.addStoreSessions(storeIds, session);
+            } else {
+                clientSessionManager.addStoreSession(clientId, session);
+            }
+            SessionContext context = SessionContext.bind(session);
+            context.getClientIds().addAll(storeIds);
+            context.setClientId(clientId);
+            context.setClientType(ClientType.STORE);
+            JsonNode encodingNode = jsonNode.get("encoding");
+            String encoding = messageSender.negotiateEncoding(session,
+                    encodingNode != null ? encodingNode.asText() : null);
+            // 绑定多个门店的连接默认合并发送，多个门店的通知在同一帧中送达；客户端可显式传 batch=false 关闭
+            JsonNode batchNode = jsonNode.get("batch");
+            boolean batch = messageSender.negotiateBatching(session,
+                    batchNode != null ? batchNode.asBoolean() : multiplexed);
+            for (String storeId : storeIds) {
+                topicRegistry.subscribe(session, TopicRegistry.identityTopic(ClientType.STORE, storeId));
+            }
+            JsonNode ackNode = jsonNode.get("ack");
+            boolean ack = ackNode != null && ackNode.asBoolean();
+            String ackReply = "";
+            if (ack) {
+                ack = deliveryTracker.negotiate(session, storeIds, true);
+                ackReply = ack ? ", \"ack\":true, \"ackEpoch\":" + deliveryTracker.getEpoch() : ", \"ack\":false";
+            }
+            String storesReply = multiplexed ? ", \"storeIds\":" + objectMapper.writeValueAsString(storeIds) : "";
+            // 先标记订阅再发快照，快照之前产生的增量版本号不大于快照版本，客户端直接丢弃
+            JsonNode boardNode = jsonNode.get("board");
+            boolean board = boardNode != null && boardNode.asBoolean() && openOrdersBoard != null && openOrdersBoard.isEnabled();
+            context.setBoardEnabled(board);
+            String boardReply = board ? ", \"board\":true" : "";
+            long heartbeatInterval = heartbeatScheduler != null ? heartbeatScheduler.advise(session) : 0;
+            sendMessage(session, "{\"type\":\"connection_success\",\"message\":\"Connected successfully\", \"clientId\":\"" + clientId
+                    + "\", \"encoding\":\"" + encoding + "\", \"batch\":" + batch + storesReply + ackReply + boardReply
+                    + AppWebSocketEndpoint.heartbeatReply(heartbeatInterval) + "}");
+            if (board) {
+                openOrdersBoard.sendSnapshots(session, storeIds);
+            }
+            // 补发离线期间暂存的通知
+            List<String> offline = drainOffline(storeIds, multiplexed);
+            if (!offline.isEmpty()) {
+                messageSender.sendOfflineMessages(session, offline);
+            }
+            if (multiplexed) {
+                log.info("门店连接成功: sessionId={}, stores={}", sessionId, storeIds.size());
+            } else {
+                log.info("门店连接成功: sessionId={}, clientId={}", sessionId, clientId);
+            }
+        } else {
+            log.warn("无法添加会话，sessionId为null");
+        }
+    }
+
+    /**
+     * 处理兼容旧客户端的JSON心跳
+     */
+    private static void handlePing(Session session, JsonNode jsonNode) {
+        // 兼容不支持协议级Ping的旧客户端；心跳以会话绑定的客户端为准，忽略消息中的clientId
+        sendMessage(session, "{\"type\":\"pong\"}");
+        clientSessionManager.updateHeartbeat(session);
+    }
+
+    /**
+     * 处理通知确认
+     */
+    private static void handleAck(Session session, JsonNode jsonNode) {
+        // 门店ID取自会话绑定信息；绑定多个门店的连接需在消息中指明门店，且只能确认已绑定的门店
+        JsonNode seqNode = jsonNode.get("seq");
+        SessionContext ackContext = SessionContext.of(session);
+        if (seqNode != null && ackContext != null && ackContext.isAckEnabled()) {
+            JsonNode ackStoreNode = jsonNode.get("storeId");
+            String ackStoreId = ackStoreNode != null ? ackStoreNode.asText() : ackContext.getClientId();
+            if (ackStoreId != null && (ackStoreId.equals(ackContext.getClientId())
+                    || ackContext.getClientIds().contains(ackStoreId))) {
+                deliveryTracker.ack(ackStoreId, seqNode.asLong());
+            }
+        }
+    }
+
+    /**
+     * 处理门店修改订单状态的命令，与 {@code POST /api/orders/status/{orderId}} 走同一条服务层路径
+     * 命令格式：{"type":"update_status","requestId":"r1","orderId":"o1","status":"PROCESSING","userId":"u1"}，
+     * 门店ID取自会话绑定信息（绑定多个门店时需带 storeId），处理完成后回复带相同 requestId 的 update_status_ack
+     */
+    private static void handleUpdateStatus(Session session, JsonNode jsonNode) {
+        String requestId = text(jsonNode, "requestId");
+        String orderId = text(jsonNode, "orderId");
+        String status = text(jsonNode, "status");
+        SessionContext context = SessionContext.of(session);
+        if (context == null || context.getClientId() == null) {
+            sendMessage(session, statusAck(requestId, orderId, false, "Not connected"));
+            return;
+        }
+        String storeId = text(jsonNode, "storeId");
+        if (storeId == null) {
+            storeId = context.getClientId();
+        } else if (!storeId.equals(context.getClientId()) && !context.getClientIds().contains(storeId)) {
+            sendMessage(session, statusAck(requestId, orderId, false, "Store not bound to this connection"));
+            return;
+        }
+        if (orderId == null || status == null) {
+            sendMessage(session, statusAck(requestId, orderId, false, "Missing 'orderId' or 'status' field"));
+            return;
+        }
+        OrderStatusEnum newStatus;
+        try {
+            newStatus = OrderStatusEnum.valueOf(status.toUpperCase());
+        } catch (IllegalArgumentException e) {
+            sendMessage(session, statusAck(requestId, orderId, false, "Invalid order status"));
+            return;
+        }
+        boolean success = orderService.updateOrderStatus(orderId, newStatus, storeId, text(jsonNode, "userId"));
+        if (success) {
+            log.info("门店通过WebSocket修改订单状态成功: orderId={}, status={}, storeId={}", orderId, newStatus, storeId);
+        } else {
+            log.warn("门店通过WebSocket修改订单状态失败: orderId={}, status={}, storeId={}", orderId, newStatus, storeId);
+        }
+        sendMessage(session, statusAck(requestId, orderId, success,
+                success ? null : "Failed to update order status, order may not exist or unauthorized"));
+    }
+
+    /**
+     * 处理看板重新同步请求，客户端发现增量版本不连续时发送
+     * 格式：{"type":"board_sync"[,"storeId":"s1"]}，不带 storeId 时重新下发连接绑定的全部门店的快照
+     */
+    private static void handleBoardSync(Session session, JsonNode jsonNode) {
+        SessionContext context = SessionContext.of(session);
+        if (context == null || !context.isBoardEnabled()) {
+            sendMessage(session, "{\"type\":\"error\",\"message\":\"Board not enabled for this connection\"}");
+            return;
+        }
+        String storeId = text(jsonNode, "storeId");
+        if (storeId == null) {
+            openOrdersBoard.sendSnapshots(session, context.getClientIds().isEmpty()
+                    ? List.of(context.getClientId()) : context.getClientIds());
+        } else if (storeId.equals(context.getClientId()) || context.getClientIds().contains(storeId)) {
+            openOrdersBoard.sendSnapshots(session, List.of(storeId));
+        } else {
+            sendMessage(session, "{\"type\":\"error\",\"message\":\"Store not bound to this connection\"}");
+        }
+    }
+
+    private static String statusAck(String requestId, String orderId, boolean success, String error) {
+        ObjectNode ack = objectMapper.createObjectNode()
+                .put("type", "update_status_ack")
+                .put("requestId", requestId)
+                .put("orderId", orderId)
+                .put("success", success);
+        if (error != null) {
+            ack.put("message", error);
+        }
+        return ack.toString();
+    }
+
+    private static String text(JsonNode jsonNode, String field) {
+        JsonNode node = jsonNode.get(field);
+        return node != null && !node.isNull() && !node.asText().isEmpty() ? node.asText() : null;
+    }
+
+    /**
+     * 解析connect消息中的门店ID
+     * {@code clientId} 为单个门店；{@code storeIds} 数组用于一个连接同时绑定多个门店，两者可同时出现，按出现顺序去重
+     */
+    private static List<String> parseStoreIds(JsonNode jsonNode) {
+        Set<String> storeIds = new LinkedHashSet<>();
+        JsonNode clientIdNode = jsonNode.get("clientId");
+        if (clientIdNode != null && !clientIdNode.asText().isEmpty()) {
+            storeIds.add(clientIdNode.asText());
+        }
+        JsonNode storeIdsNode = jsonNode.get("storeIds");
+        if (storeIdsNode != null && storeIdsNode.isArray()) {
+            for (JsonNode storeIdNode : storeIdsNode) {
+                if (!storeIdNode.asText().isEmpty()) {
+                    storeIds.add(storeIdNode.asText());
+                }
+            }
+        }
+        return new ArrayList<>(storeIds);
+    }
+
+    /**
+     * 取出各门店离线期间暂存的通知，绑定多个门店时为每条通知带上所属门店ID
+     */
+    private static List<String> drainOffline(List<String> storeIds, boolean multiplexed) {
+        if (!multiplexed) {
+            return clientSessionManager.drainOffline(ClientType.STORE, storeIds.get(0));
+        }
+        List<String> offline = new ArrayList<>();
+        for (String storeId : storeIds) {
+            for (String message : clientSessionManager.drainOffline(ClientType.STORE, storeId)) {
+                offline.add(StoreDeliveryTracker.withStoreId(message, storeId));
+            }
+        }
+        return offline;
+    }
+
+    /**
+     * 收到Pong控制帧时调用的方法
+     */
+    @OnMessage
+    public void onPong(PongMessage pong, Session session) {
+        if (heartbeatScheduler != null) {
+            heartbeatScheduler.onPong(session, pong);
+        }
+    }
+
     /**
      * 发生错误时调用的方法
      */
@@ -120,8 +409,8 @@ public class StoreWebSocketEndpoint {
     public void onError(Session session, Throwable error) {
         String sessionId = session.getId();
         log.error("门店 WebSocket发生错误: sessionId={}", sessionId, error);
-        if (clientSessionManager!=null&&sessionId != null) {
-            clientSessionManager.removeStoreSession(sessionId);
+        if (clientSessionManager != null) {
+            clientSessionManager.removeSession(session);
         }
     }
 
@@ -131,12 +420,15 @@ public class StoreWebSocketEndpoint {
      * @param session 目标会话
      * @param message 消息内容
      */
-    private void sendMessage(Session session, String message) {
+    private static void sendMessage(Session session, String message) {
         try {
             if (session.isOpen()) {
                 // 检查getBasicRemote()是否为null
                 if (session.getBasicRemote() != null) {
-                    session.getBasicRemote().sendText(message);
+                    // 与通知发送共用会话锁，避免BasicRemote并发写
+                    synchronized (session) {
+                        session.getBasicRemote().sendText(message);
+                    }
                 } else {
                     log.warn("无法发送消息，BasicRemote为null: sessionId={}", session.getId());
                 }
@@ -148,20 +440,43 @@ public class StoreWebSocketEndpoint {
 
     /**
      * 向特定门店发送消息
+     * 同时由跨节点路由器转发给其他持有该门店连接的节点，都没有连接时暂存到离线信箱
      *
      * @param storeId 门店ID
      * @param message 消息内容
      */
     public static void sendMessageToStore(String storeId, String message) {
-        // 使用ClientSessionManager获取门店会话并发送消息
-        Session session = (Session) clientSessionManager.getStoreSession(storeId);
-        if (session != null && session.isOpen()) {
-            try {
-                session.getBasicRemote().sendText(message);
-            } catch (IOException e) {
-                log.error("向门店发送消息失败: storeId={}", storeId, e);
+        // 同一门店可能有多个终端在线，通知发往该门店的全部会话
+        List<Session> sessions = clientSessionManager.getStoreSessions(storeId);
+        int delivered = 0;
+        if (!sessions.isEmpty()) {
+            delivered = deliverToSessions(storeId, sessions, message);
+            if (delivered == 0) {
+                log.error("向门店发送消息失败: storeId={}", storeId);
             }
         }
+        boolean forwarded = clusterSessionRouter != null
+                && clusterSessionRouter.forward(ClientType.STORE, storeId, message);
+        if (forwarded) {
+            log.debug("通知已转发给其他节点: storeId={}, local={}", storeId, delivered);
+        } else if (sessions.isEmpty()) {
+            clientSessionManager.offerOffline(ClientType.STORE, storeId, message);
+        }
+    }
+
+    /**
+     * 向本节点上同一门店的会话发送通知，开启确认模式的会话由确认跟踪器分配序号并负责重发
+     *
+     * @param storeId  门店ID
+     * @param sessions 门店会话
+     * @param message  消息内容
+     * @return 发送成功的会话数（进入确认窗口视为成功）
+     */
+    public static int deliverToSessions(String storeId, List<Session> sessions, String message) {
+        if (deliveryTracker != null) {
+            return deliveryTracker.deliver(storeId, sessions, message);
+        }
+        return messageSender.sendAll(sessions, message);
     }
 
     /**
@@ -0,0 +1,188 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.util.Collections;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArraySet;
+
+/**
+ * WebSocket主题订阅索引
+ * 维护 主题 -> 会话 的并发索引，订阅变更远少于消息推送，订阅集合采用写时复制，推送时遍历无需加锁。
+ * 主题命名：
+ * <ul>
+ *     <li>{@code user.{userId}} / {@code store.{storeId}}：身份主题，connect成功后自动订阅，客户端不可手动订阅</li>
+ *     <li>{@code order.{orderId}}：单个订单的状态变化，用于订单跟踪页，订单的全部通知经 {@link OrderTopicRouter} 推送</li>
+ * </ul>
+ */
+@Slf4j
+@Component
+public class TopicRegistry {
+
+    public static final String USER_PREFIX = "user.";
+    public static final String STORE_PREFIX = "store.";
+    public static final String ORDER_PREFIX = "order.";
+
+    private static final int MAX_TOPIC_LENGTH = 128;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    // key: 主题, value: 订阅该主题的会话
+    private final Map<String, Set<Session>> subscriptions = new ConcurrentHashMap<>();
+
+    /**
+     * 获取客户端的身份主题
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     * @return 身份主题
+     */
+    public static String identityTopic(ClientType type, String clientId) {
+        return (type == ClientType.USER ? USER_PREFIX : STORE_PREFIX) + clientId;
+    }
+
+    /**
+     * 获取订单主题
+     *
+     * @param orderId 订单ID
+     * @return 订单主题
+     */
+    public static String orderTopic(String orderId) {
+        return ORDER_PREFIX + orderId;
+    }
+
+    /**
+     * 会话订阅主题
+     *
+     * @param session WebSocket会话
+     * @param topic   主题
+     * @return 是否新增了订阅
+     */
+    public boolean subscribe(Session session, String topic) {
+        SessionContext context = SessionContext.bind(session);
+        if (!context.getTopics().add(topic)) {
+            return false;
+        }
+        // 在同一个 compute 中加入，避免加入前被并发的取消订阅当作空集合删除
+        subscriptions.compute(topic, (key, sessions) -> {
+            Set<Session> subscribers = sessions != null ? sessions : new CopyOnWriteArraySet<>();
+            subscribers.add(session);
+            return subscribers;
+        });
+        return true;
+    }
+
+    /**
+     * 会话取消订阅主题
+     *
+     * @param session WebSocket会话
+     * @param topic   主题
+     * @return 是否存在该订阅
+     */
+    public boolean unsubscribe(Session session, String topic) {
+        SessionContext context = SessionContext.of(session);
+        if (context == null || !context.getTopics().remove(topic)) {
+            return false;
+        }
+        // 集合为空时原子地删除主题，避免索引中残留大量空主题
+        subscriptions.computeIfPresent(topic, (key, sessions) -> {
+            sessions.remove(session);
+            return sessions.isEmpty() ? null : sessions;
+        });
+        return true;
+    }
+
+    /**
+     * 取消会话的全部订阅，连接关闭时调用
+     *
+     * @param session WebSocket会话
+     */
+    public void unsubscribeAll(Session session) {
+        SessionContext context = SessionContext.of(session);
+        if (context == null) {
+            return;
+        }
+        for (String topic : context.getTopics()) {
+            unsubscribe(session, topic);
+        }
+    }
+
+    /**
+     * 获取主题的订阅会话
+     *
+     * @param topic 主题
+     * @return 订阅会话，无订阅时返回空集合
+     */
+    public Set<Session> getSubscribers(String topic) {
+        Set<Session> sessions = subscriptions.get(topic);
+        return sessions != null ? sessions : Collections.emptySet();
+    }
+
+    /**
+     * 获取当前有订阅的主题数
+     *
+     * @return 主题数
+     */
+    public int getTopicCount() {
+        return subscriptions.size();
+    }
+
+    /**
+     * 处理客户端的 subscribe / unsubscribe 消息
+     * 消息格式：{"type":"subscribe","topics":["order.123","order.456"]}
+     *
+     * @param session   WebSocket会话
+     * @param message   客户端消息
+     * @param subscribe true订阅，false取消订阅
+     * @return 回复给客户端的消息
+     */
+    public String handleSubscription(Session session, JsonNode message, boolean subscribe) {
+        JsonNode topicsNode = message.get("topics");
+        if (topicsNode == null || !topicsNode.isArray()) {
+            return "{\"type\":\"error\",\"message\":\"Missing 'topics' array in " + (subscribe ? "subscribe" : "unsubscribe") + " message\"}";
+        }
+        SessionContext context = SessionContext.bind(session);
+        WebSocketProperties.Endpoint endpoint = context.getEndpoint() != null
+                ? context.getEndpoint() : new WebSocketProperties.Endpoint();
+        ObjectNode reply = objectMapper.createObjectNode();
+        reply.put("type", subscribe ? "subscribed" : "unsubscribed");
+        ArrayNode accepted = reply.putArray("topics");
+        ArrayNode rejected = reply.putArray("rejected");
+        for (JsonNode topicNode : topicsNode) {
+            String topic = topicNode.asText();
+            if (!isClientTopic(topic)) {
+                rejected.add(topic);
+            } else if (!subscribe) {
+                unsubscribe(session, topic);
+                accepted.add(topic);
+            } else if (context.getTopics().size() >= endpoint.getMaxSubscriptions() && !context.getTopics().contains(topic)) {
+                rejected.add(topic);
+            } else {
+                subscribe(session, topic);
+                accepted.add(topic);
+            }
+        }
+        log.debug("会话订阅变更: sessionId={}, subscribe={}, topics={}, rejected={}",
+                session.getId(), subscribe, accepted, rejected);
+        return reply.toString();
+    }
+
+    /**
+     * 客户端是否可以自行订阅该主题，身份主题只能由服务端在connect时绑定
+     */
+    private static boolean isClientTopic(String topic) {
+        if (topic == null || topic.length() > MAX_TOPIC_LENGTH) {
+            return false;
+        }
+        return topic.startsWith(ORDER_PREFIX) && topic.length() > ORDER_PREFIX.length();
+    }
+}
@@ -0,0 +1,179 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.support.TokenBucket;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket准入控制器
+ * 新建连接按全局和来源地址两级令牌桶限速，超出时以 1013 (Try Again Later) 关闭；
+ * 连接建立后为每个会话分配入站消息令牌桶，被限流的消息直接丢弃，累计超过阈值后以 1008 (Policy Violation) 关闭
+ */
+@Slf4j
+@Component
+public class WebSocketAdmissionController {
+
+    private static final String UNKNOWN_ADDRESS = "unknown";
+
+    private final WebSocketProperties webSocketProperties;
+
+    private final TokenBucket connectBucket;
+
+    // 来源地址限速桶 key: 来源地址, value: 令牌桶
+    private final Map<String, TokenBucket> addressBuckets = new ConcurrentHashMap<>();
+
+    private final LongAdder admittedConnections = new LongAdder();
+    private final LongAdder rejectedConnections = new LongAdder();
+    private final LongAdder throttledMessages = new LongAdder();
+    private final LongAdder violationClosures = new LongAdder();
+
+    // 节点下线排空期间拒绝一切新连接
+    private volatile boolean draining;
+
+    public WebSocketAdmissionController(WebSocketProperties webSocketProperties) {
+        this.webSocketProperties = webSocketProperties;
+        WebSocketProperties.Admission admission = webSocketProperties.getAdmission();
+        this.connectBucket = new TokenBucket(admission.getConnectRate(), admission.getConnectBurst());
+    }
+
+    /**
+     * 新连接准入检查，未通过时关闭连接
+     *
+     * @param session 新建立的会话
+     * @return 是否准入
+     */
+    public boolean admit(Session session) {
+        SessionContext context = SessionContext.bind(session);
+        if (draining) {
+            rejectedConnections.increment();
+            close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, "Server is draining, try another node");
+            return false;
+        }
+        WebSocketProperties.Admission admission = webSocketProperties.getAdmission();
+        if (admission.isEnabled()) {
+            // 地址未知的连接共用一个限速桶，不跳过来源地址限速
+            String remoteAddress = context.getRemoteAddress() != null ? context.getRemoteAddress() : UNKNOWN_ADDRESS;
+            long now = System.nanoTime();
+            if (!addressBucket(remoteAddress).tryAcquire(now)) {
+                reject(session, "来源地址连接过于频繁", remoteAddress);
+                return false;
+            }
+            if (!connectBucket.tryAcquire(now)) {
+                reject(session, "服务器连接繁忙", remoteAddress);
+                return false;
+            }
+        }
+        WebSocketProperties.Endpoint endpoint = context.getEndpoint() != null
+                ? context.getEndpoint() : new WebSocketProperties.Endpoint();
+        context.setInboundBucket(new TokenBucket(endpoint.getInboundRate(), endpoint.getInboundBurst()));
+        admittedConnections.increment();
+        return true;
+    }
+
+    /**
+     * 进入排空模式，此后的新连接都以 1013 关闭
+     */
+    public void startDraining() {
+        draining = true;
+    }
+
+    public boolean isDraining() {
+        return draining;
+    }
+
+    /**
+     * 入站消息限流检查
+     * 被限流的消息不做任何回复，避免在客户端异常时放大负载
+     *
+     * @param session 消息所属会话
+     * @return 是否允许处理该消息
+     */
+    public boolean allowInbound(Session session) {
+        SessionContext context = SessionContext.of(session);
+        TokenBucket bucket = context != null ? context.getInboundBucket() : null;
+        if (bucket == null || bucket.tryAcquire()) {
+            return true;
+        }
+        throttledMessages.increment();
+        int violations = context.getInboundViolations().incrementAndGet();
+        int limit = context.getEndpoint() != null ? context.getEndpoint().getInboundViolationLimit()
+                : new WebSocketProperties.Endpoint().getInboundViolationLimit();
+        if (violations == limit + 1) {
+            violationClosures.increment();
+            log.warn("会话入站消息持续超限，关闭连接: sessionId={}, clientId={}, violations={}",
+                    session.getId(), context.getClientId(), violations);
+            close(session, CloseReason.CloseCodes.VIOLATED_POLICY, "Inbound message rate exceeded");
+        }
+        return false;
+    }
+
+    /**
+     * 回收已补满的来源地址限速桶
+     */
+    @Scheduled(fixedRateString = "${websocket.cleanup-interval:30000}")
+    public void evictIdleBuckets() {
+        long now = System.nanoTime();
+        addressBuckets.values().removeIf(bucket -> bucket.isFull(now));
+    }
+
+    /**
+     * 获取准入统计信息
+     *
+     * @return 准入统计信息
+     */
+    public AdmissionStats getStats() {
+        return new AdmissionStats(admittedConnections.sum(), rejectedConnections.sum(),
+                throttledMessages.sum(), violationClosures.sum(), addressBuckets.size());
+    }
+
+    private TokenBucket addressBucket(String remoteAddress) {
+        WebSocketProperties.Admission admission = webSocketProperties.getAdmission();
+        return addressBuckets.computeIfAbsent(remoteAddress,
+                address -> new TokenBucket(admission.getPerAddressConnectRate(), admission.getPerAddressConnectBurst()));
+    }
+
+    private void reject(Session session, String reason, String remoteAddress) {
+        rejectedConnections.increment();
+        log.debug("拒绝WebSocket连接: reason={}, remoteAddress={}, sessionId={}", reason, remoteAddress, session.getId());
+        close(session, CloseReason.CloseCodes.TRY_AGAIN_LATER, "Too many connections, try again later");
+    }
+
+    private static void close(Session session, CloseReason.CloseCode code, String reason) {
+        try {
+            session.close(new CloseReason(code, reason));
+        } catch (IOException e) {
+            log.debug("关闭WebSocket连接失败: sessionId={}", session.getId(), e);
+        }
+    }
+
+    /**
+     * 准入统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class AdmissionStats {
+        // 准入的连接数
+        private long admittedConnections;
+        // 因限速被拒绝的连接数
+        private long rejectedConnections;
+        // 被限流丢弃的入站消息数
+        private long throttledMessages;
+        // 因入站消息持续超限被关闭的连接数
+        private long violationClosures;
+        // 当前跟踪的来源地址数
+        private int trackedAddresses;
+    }
+}
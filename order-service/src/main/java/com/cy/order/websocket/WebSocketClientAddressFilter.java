@@ -0,0 +1,126 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletRequestWrapper;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Enumeration;
+import java.util.List;
+
+/**
+ * WebSocket握手请求的客户端地址过滤器
+ * 握手阶段的 HandshakeRequest 拿不到连接的对端地址，由本过滤器在 Tomcat 的 WebSocket 过滤器之前解析客户端地址，
+ * 写入 {@link #CLIENT_ADDRESS_HEADER} 请求头交给 {@link WebSocketEndpointConfigurator}，客户端自带的同名请求头被覆盖。
+ * 只有对端是可信代理时才采用 X-Forwarded-For / X-Real-IP，否则客户端可以伪造请求头绕过来源地址限速
+ */
+public class WebSocketClientAddressFilter extends OncePerRequestFilter {
+
+    /**
+     * 解析出的客户端地址请求头
+     */
+    public static final String CLIENT_ADDRESS_HEADER = "X-WebSocket-Client-Address";
+
+    private final WebSocketProperties webSocketProperties;
+
+    public WebSocketClientAddressFilter(WebSocketProperties webSocketProperties) {
+        this.webSocketProperties = webSocketProperties;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        String clientAddress = resolveClientAddress(request.getRemoteAddr(), request.getHeader("X-Forwarded-For"),
+                request.getHeader("X-Real-IP"), webSocketProperties.getAdmission().getTrustedProxies());
+        filterChain.doFilter(new ClientAddressRequest(request, clientAddress), response);
+    }
+
+    /**
+     * 解析客户端地址
+     * 对端是可信代理时，从 X-Forwarded-For 右侧向左跳过可信代理，第一个不可信的地址即客户端；
+     * 左侧的地址由客户端自己填写，不可信。没有 X-Forwarded-For 时采用 X-Real-IP
+     *
+     * @param peerAddress    连接的对端地址
+     * @param forwardedFor   X-Forwarded-For 请求头
+     * @param realIp         X-Real-IP 请求头
+     * @param trustedProxies 可信代理地址
+     * @return 客户端地址
+     */
+    static String resolveClientAddress(String peerAddress, String forwardedFor, String realIp,
+                                       Collection<String> trustedProxies) {
+        if (peerAddress == null || !trustedProxies.contains(peerAddress)) {
+            return peerAddress;
+        }
+        if (forwardedFor != null && !forwardedFor.isBlank()) {
+            String[] hops = forwardedFor.split(",");
+            String client = peerAddress;
+            for (int i = hops.length - 1; i >= 0; i--) {
+                String hop = hops[i].trim();
+                if (hop.isEmpty()) {
+                    continue;
+                }
+                client = hop;
+                if (!trustedProxies.contains(hop)) {
+                    break;
+                }
+            }
+            return client;
+        }
+        if (realIp != null && !realIp.isBlank()) {
+            return realIp.trim();
+        }
+        return peerAddress;
+    }
+
+    /**
+     * 带上解析出的客户端地址请求头的握手请求
+     */
+    private static class ClientAddressRequest extends HttpServletRequestWrapper {
+
+        private final String clientAddress;
+
+        ClientAddressRequest(HttpServletRequest request, String clientAddress) {
+            super(request);
+            this.clientAddress = clientAddress;
+        }
+
+        @Override
+        public String getHeader(String name) {
+            if (CLIENT_ADDRESS_HEADER.equalsIgnoreCase(name)) {
+                return clientAddress;
+            }
+            return super.getHeader(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaders(String name) {
+            if (CLIENT_ADDRESS_HEADER.equalsIgnoreCase(name)) {
+                return clientAddress != null ? Collections.enumeration(List.of(clientAddress)) : Collections.emptyEnumeration();
+            }
+            return super.getHeaders(name);
+        }
+
+        @Override
+        public Enumeration<String> getHeaderNames() {
+            List<String> names = new ArrayList<>();
+            Enumeration<String> headerNames = super.getHeaderNames();
+            while (headerNames != null && headerNames.hasMoreElements()) {
+                String name = headerNames.nextElement();
+                if (!CLIENT_ADDRESS_HEADER.equalsIgnoreCase(name)) {
+                    names.add(name);
+                }
+            }
+            if (clientAddress != null) {
+                names.add(CLIENT_ADDRESS_HEADER);
+            }
+            return Collections.enumeration(names);
+        }
+    }
+}
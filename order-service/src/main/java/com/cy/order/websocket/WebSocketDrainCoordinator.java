@@ -0,0 +1,226 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket连接排空
+ * 节点停机时先于Web容器停止：拒绝新连接，发出缓冲中的通知，向每个连接发送带随机延迟的重连提示
+ * {"type":"reconnect","delay":N,"target":"..."}，再按批次间隔关闭连接，
+ * 使客户端的重连分散到 [reconnectDelayMin, reconnectDelayMax) 区间内，而不是在同一秒内全部涌向其他节点。
+ * 重连提示由发送线程并发发出，排空线程最多等到为分批关闭留足时间的截止点，个别慢连接不会让排空超出 timeout
+ */
+@Slf4j
+@Component
+public class WebSocketDrainCoordinator implements SmartLifecycle {
+
+    private final WebSocketProperties.Drain drain;
+
+    private final WebSocketAdmissionController admissionController;
+
+    private final HeartbeatScheduler heartbeatScheduler;
+
+    private final WebSocketMessageSender messageSender;
+
+    private final ClusterSessionRouter clusterSessionRouter;
+
+    private final AtomicBoolean draining = new AtomicBoolean();
+
+    private final LongAdder hintsSent = new LongAdder();
+
+    private final LongAdder closedSessions = new LongAdder();
+
+    private volatile boolean running;
+
+    private volatile long drainStartedAt;
+
+    private volatile long drainDuration = -1;
+
+    public WebSocketDrainCoordinator(WebSocketProperties webSocketProperties,
+                                     WebSocketAdmissionController admissionController,
+                                     HeartbeatScheduler heartbeatScheduler,
+                                     WebSocketMessageSender messageSender,
+                                     ClusterSessionRouter clusterSessionRouter) {
+        this.drain = webSocketProperties.getDrain();
+        this.admissionController = admissionController;
+        this.heartbeatScheduler = heartbeatScheduler;
+        this.messageSender = messageSender;
+        this.clusterSessionRouter = clusterSessionRouter;
+    }
+
+    @Override
+    public void start() {
+        running = true;
+    }
+
+    @Override
+    public void stop() {
+        if (drain.isEnabled()) {
+            drain();
+        }
+        running = false;
+    }
+
+    @Override
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * 在所有其他生命周期组件（包括Web容器）之前停止，排空期间容器仍能收发WebSocket帧
+     */
+    @Override
+    public int getPhase() {
+        return Integer.MAX_VALUE;
+    }
+
+    /**
+     * 排空本节点的全部连接，重复调用时只执行一次
+     *
+     * @return 本次排空关闭的连接数，已在排空时返回-1
+     */
+    public int drain() {
+        if (!draining.compareAndSet(false, true)) {
+            return -1;
+        }
+        drainStartedAt = System.currentTimeMillis();
+        long deadline = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(drain.getTimeout());
+        admissionController.startDraining();
+        clusterSessionRouter.flushDeliveries();
+
+        List<Session> sessions = heartbeatScheduler.getSessions();
+        log.info("开始排空WebSocket连接: sessions={}", sessions.size());
+        int batchSize = Math.max(1, drain.getCloseBatchSize());
+        // 发送提示最多用到为分批关闭留出的时间之前，超时后未发出的连接直接进入分批关闭
+        long pacing = TimeUnit.MILLISECONDS.toNanos(drain.getCloseBatchInterval())
+                * Math.max(0, (sessions.size() - 1) / batchSize);
+        sendHints(sessions, Math.max(System.nanoTime(), deadline - pacing));
+
+        int closed = 0;
+        for (int from = 0; from < sessions.size(); from += batchSize) {
+            for (Session session : sessions.subList(from, Math.min(sessions.size(), from + batchSize))) {
+                if (close(session)) {
+                    closed++;
+                }
+            }
+            // 超时后不再间隔，剩余连接立即关闭
+            if (from + batchSize < sessions.size() && System.nanoTime() < deadline && !pause()) {
+                deadline = 0;
+            }
+        }
+        drainDuration = System.currentTimeMillis() - drainStartedAt;
+        log.info("WebSocket连接排空完成: closed={}, hints={}, duration={}ms", closed, hintsSent.sum(), drainDuration);
+        return closed;
+    }
+
+    /**
+     * 由发送线程并发发出缓冲中的通知和重连提示，等待全部发出或到达截止时间
+     */
+    private void sendHints(List<Session> sessions, long hintDeadline) {
+        CountDownLatch done = new CountDownLatch(sessions.size());
+        for (Session session : sessions) {
+            if (!session.isOpen() || !messageSender.execute(() -> {
+                try {
+                    messageSender.flush(session);
+                    if (messageSender.sendNow(session, OutboundFrame.of(reconnectHint()))) {
+                        hintsSent.increment();
+                    }
+                } finally {
+                    done.countDown();
+                }
+            })) {
+                done.countDown();
+            }
+        }
+        try {
+            if (!done.await(Math.max(0, hintDeadline - System.nanoTime()), TimeUnit.NANOSECONDS)) {
+                log.warn("重连提示未在截止时间前全部发出，开始关闭连接: pending={}", done.getCount());
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 获取排空统计信息
+     *
+     * @return 排空统计信息
+     */
+    public DrainStats getStats() {
+        return new DrainStats(draining.get(), hintsSent.sum(), closedSessions.sum(), drainStartedAt, drainDuration);
+    }
+
+    /**
+     * 生成重连提示，每个连接的延迟独立随机，使重连在时间上均匀分布
+     */
+    String reconnectHint() {
+        long min = Math.max(0, drain.getReconnectDelayMin());
+        long max = Math.max(min + 1, drain.getReconnectDelayMax());
+        long delay = ThreadLocalRandom.current().nextLong(min, max);
+        StringBuilder hint = new StringBuilder("{\"type\":\"reconnect\",\"delay\":").append(delay);
+        if (StringUtils.hasText(drain.getReconnectTarget())) {
+            hint.append(",\"target\":\"").append(drain.getReconnectTarget()).append('"');
+        }
+        return hint.append('}').toString();
+    }
+
+    private boolean close(Session session) {
+        if (!session.isOpen()) {
+            return false;
+        }
+        try {
+            session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "Server draining"));
+            closedSessions.increment();
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.debug("排空时关闭WebSocket连接失败: sessionId={}", session.getId(), e);
+            return false;
+        }
+    }
+
+    private boolean pause() {
+        try {
+            Thread.sleep(drain.getCloseBatchInterval());
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    /**
+     * 排空统计信息
+     */
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    public static class DrainStats {
+        // 是否处于排空状态
+        private boolean draining;
+        // 已发送的重连提示数
+        private long hintsSent;
+        // 排空关闭的连接数
+        private long closedSessions;
+        // 排空开始时间（毫秒），未排空时为0
+        private long startedAt;
+        // 排空耗时（毫秒），未完成时为-1
+        private long duration;
+    }
+}
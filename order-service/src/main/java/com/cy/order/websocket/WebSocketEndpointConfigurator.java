@@ -0,0 +1,102 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import jakarta.websocket.Extension;
+import jakarta.websocket.HandshakeResponse;
+import jakarta.websocket.server.HandshakeRequest;
+import jakarta.websocket.server.ServerEndpointConfig;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * WebSocket端点握手配置器
+ * 按端点配置协商 permessage-deflate 扩展，并在握手阶段为每个会话创建 {@link SessionContext}，
+ * 同时取出 {@link WebSocketClientAddressFilter} 解析的客户端来源地址用于准入控制
+ */
+@Component
+public class WebSocketEndpointConfigurator extends ServerEndpointConfig.Configurator {
+
+    /**
+     * permessage-deflate 扩展名
+     */
+    public static final String PERMESSAGE_DEFLATE = "permessage-deflate";
+
+    private static WebSocketProperties webSocketProperties;
+
+    @Autowired
+    public void setWebSocketProperties(WebSocketProperties webSocketProperties) {
+        WebSocketEndpointConfigurator.webSocketProperties = webSocketProperties;
+    }
+
+    /**
+     * 当前配置器对应的端点配置
+     *
+     * @return 端点配置
+     */
+    protected WebSocketProperties.Endpoint endpoint() {
+        return new WebSocketProperties.Endpoint();
+    }
+
+    @Override
+    public List<Extension> getNegotiatedExtensions(List<Extension> installed, List<Extension> requested) {
+        List<Extension> negotiated = super.getNegotiatedExtensions(installed, requested);
+        if (endpoint().isPermessageDeflate()) {
+            return negotiated;
+        }
+        return negotiated.stream()
+                .filter(extension -> !PERMESSAGE_DEFLATE.equals(extension.getName()))
+                .toList();
+    }
+
+    @Override
+    public void modifyHandshake(ServerEndpointConfig sec, HandshakeRequest request, HandshakeResponse response) {
+        super.modifyHandshake(sec, request, response);
+        // 容器为每次握手提供独立的配置副本，其userProperties会被复制到新会话中
+        SessionContext context = new SessionContext();
+        context.setEndpoint(endpoint());
+        context.setRemoteAddress(resolveRemoteAddress(request.getHeaders()));
+        sec.getUserProperties().put(SessionContext.KEY, context);
+    }
+
+    /**
+     * 取出 {@link WebSocketClientAddressFilter} 解析的客户端地址，过滤器已覆盖客户端自带的同名请求头
+     *
+     * @param headers 握手请求头
+     * @return 客户端地址，无法识别时返回null
+     */
+    static String resolveRemoteAddress(Map<String, List<String>> headers) {
+        if (headers == null) {
+            return null;
+        }
+        for (Map.Entry<String, List<String>> header : headers.entrySet()) {
+            if (WebSocketClientAddressFilter.CLIENT_ADDRESS_HEADER.equalsIgnoreCase(header.getKey())
+                    && header.getValue() != null && !header.getValue().isEmpty()) {
+                return header.getValue().get(0).trim();
+            }
+        }
+        return null;
+    }
+
+    /**
+     * APP端（/ws/app）配置器
+     */
+    public static class App extends WebSocketEndpointConfigurator {
+        @Override
+        protected WebSocketProperties.Endpoint endpoint() {
+            return webSocketProperties != null ? webSocketProperties.getApp() : super.endpoint();
+        }
+    }
+
+    /**
+     * 门店端（/ws/store）配置器
+     */
+    public static class Store extends WebSocketEndpointConfigurator {
+        @Override
+        protected WebSocketProperties.Endpoint endpoint() {
+            return webSocketProperties != null ? webSocketProperties.getStore() : super.endpoint();
+        }
+    }
+}
@@ -0,0 +1,310 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import jakarta.websocket.Extension;
+import jakarta.websocket.Session;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * WebSocket通知发送器
+ * 根据会话协商结果选择文本帧或压缩后的二进制帧发送通知，并统计发送字节数；
+ * 开启合并模式的会话，通知会在缓冲中等待至多 batchMaxDelay 毫秒或 batchMaxSize 条后以JSON数组一次发出；
+ * 定时刷新由 batchFlushThreads 个线程执行，同一会话的刷新按会话串行，合并帧按取出顺序发出；
+ * 其他不能被个别慢会话拖住的发送（如门店确认窗口的发送）也经 {@link #execute(Runnable)} 交给这些线程
+ */
+@Slf4j
+@Component
+public class WebSocketMessageSender {
+
+    /**
+     * connect消息中选择二进制编码的取值
+     */
+    public static final String ENCODING_BINARY = "binary";
+
+    /**
+     * 默认的文本编码
+     */
+    public static final String ENCODING_TEXT = "text";
+
+    private final LongAdder sentFrames = new LongAdder();
+
+    private final LongAdder compressedFrames = new LongAdder();
+
+    private final LongAdder payloadBytes = new LongAdder();
+
+    private final LongAdder wireBytes = new LongAdder();
+
+    private final LongAdder batchedMessages = new LongAdder();
+
+    private final ScheduledExecutorService flushScheduler;
+
+    public WebSocketMessageSender(WebSocketProperties webSocketProperties) {
+        AtomicInteger threadIndex = new AtomicInteger();
+        this.flushScheduler = Executors.newScheduledThreadPool(Math.max(1, webSocketProperties.getBatchFlushThreads()),
+                runnable -> {
+                    Thread thread = new Thread(runnable, "ws-batch-flush-" + threadIndex.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                });
+    }
+
+    /**
+     * 协商会话的通知编码
+     * 仅当端点允许二进制帧且未启用 permessage-deflate 时才使用应用层压缩，避免重复压缩
+     *
+     * @param session   WebSocket会话
+     * @param requested 客户端请求的编码，可为null
+     * @return 实际使用的编码
+     */
+    public String negotiateEncoding(Session session, String requested) {
+        SessionContext context = SessionContext.bind(session);
+        WebSocketProperties.Endpoint endpoint = context.getEndpoint();
+        boolean binary = ENCODING_BINARY.equalsIgnoreCase(requested)
+                && endpoint != null && endpoint.isBinaryFrames()
+                && !isPermessageDeflateNegotiated(session);
+        context.setBinaryEncoding(binary);
+        return binary ? ENCODING_BINARY : ENCODING_TEXT;
+    }
+
+    /**
+     * 协商会话是否合并发送通知
+     *
+     * @param session   WebSocket会话
+     * @param requested 客户端是否请求合并发送
+     * @return 是否启用合并发送
+     */
+    public boolean negotiateBatching(Session session, boolean requested) {
+        SessionContext context = SessionContext.bind(session);
+        WebSocketProperties.Endpoint endpoint = context.getEndpoint();
+        boolean batching = requested && endpoint != null && endpoint.isBatching() && endpoint.getBatchMaxSize() > 1;
+        if (batching && context.getBatch() == null) {
+            context.setBatch(new NotificationBatch());
+        } else if (!batching && context.getBatch() != null) {
+            flush(session);
+            context.setBatch(null);
+        }
+        return batching;
+    }
+
+    /**
+     * 发送通知
+     * 会话开启合并模式时先进入缓冲，否则立即发送
+     *
+     * @param session WebSocket会话
+     * @param message JSON消息
+     * @return 是否发送成功（进入缓冲视为成功）
+     */
+    public boolean send(Session session, String message) {
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        SessionContext context = SessionContext.of(session);
+        NotificationBatch batch = context != null ? context.getBatch() : null;
+        if (batch == null) {
+            return sendNow(session, OutboundFrame.of(message));
+        }
+        WebSocketProperties.Endpoint endpoint = context.getEndpoint();
+        if (batch.add(message) >= endpoint.getBatchMaxSize()) {
+            return flush(session);
+        }
+        if (batch.markFlushScheduled()) {
+            flushScheduler.schedule(() -> flush(session), endpoint.getBatchMaxDelay(), TimeUnit.MILLISECONDS);
+        }
+        return true;
+    }
+
+    /**
+     * 向同一客户端的多个会话发送同一条通知
+     * 通知只编码一次，UTF-8字节和压缩帧在各会话间共享；开启合并模式的会话仍进入各自的缓冲
+     *
+     * @param sessions WebSocket会话
+     * @param message  JSON消息
+     * @return 发送成功的会话数
+     */
+    public int sendAll(List<Session> sessions, String message) {
+        if (sessions.size() == 1) {
+            return send(sessions.get(0), message) ? 1 : 0;
+        }
+        OutboundFrame frame = null;
+        int sent = 0;
+        for (Session session : sessions) {
+            if (session == null || !session.isOpen()) {
+                continue;
+            }
+            SessionContext context = SessionContext.of(session);
+            boolean ok;
+            if (context != null && context.getBatch() != null) {
+                ok = send(session, message);
+            } else {
+                if (frame == null) {
+                    frame = OutboundFrame.of(message);
+                }
+                ok = sendNow(session, frame);
+            }
+            if (ok) {
+                sent++;
+            }
+        }
+        return sent;
+    }
+
+    /**
+     * 立即发出会话缓冲中的全部通知
+     *
+     * @param session WebSocket会话
+     * @return 是否发送成功，缓冲为空时返回true
+     */
+    public boolean flush(Session session) {
+        SessionContext context = SessionContext.of(session);
+        NotificationBatch batch = context != null ? context.getBatch() : null;
+        if (batch == null) {
+            return true;
+        }
+        // 取出和发送在同一把会话锁内，并发的刷新不会让后取出的一批先发出
+        synchronized (session) {
+            List<String> messages = batch.drain();
+            if (messages.isEmpty()) {
+                return true;
+            }
+            batchedMessages.add(messages.size());
+            return sendNow(session, OutboundFrame.of(NotificationBatch.toJsonArray(messages)));
+        }
+    }
+
+    /**
+     * 把离线期间暂存的通知合并为一帧发送
+     * 帧格式：{"type":"offline_messages","count":N,"messages":[...]}
+     *
+     * @param session  WebSocket会话
+     * @param messages 暂存的通知
+     * @return 是否发送成功
+     */
+    public boolean sendOfflineMessages(Session session, List<String> messages) {
+        if (messages.isEmpty()) {
+            return true;
+        }
+        String frame = "{\"type\":\"offline_messages\",\"count\":" + messages.size()
+                + ",\"messages\":" + NotificationBatch.toJsonArray(messages) + "}";
+        return sendNow(session, OutboundFrame.of(frame));
+    }
+
+    /**
+     * 立即发送已编码的通知帧，不经过合并缓冲
+     *
+     * @param session WebSocket会话
+     * @param frame   待发送帧
+     * @return 是否发送成功
+     */
+    public boolean sendNow(Session session, OutboundFrame frame) {
+        if (session == null || !session.isOpen()) {
+            return false;
+        }
+        SessionContext context = SessionContext.of(session);
+        try {
+            // BasicRemote 不支持并发写，同一会话的发送需要串行化
+            synchronized (session) {
+                int payloadLength;
+                int wireLength;
+                if (shouldCompress(context, frame)) {
+                    ByteBuffer binary = frame.getDeflated();
+                    payloadLength = frame.getUtf8Length();
+                    wireLength = binary.remaining();
+                    session.getBasicRemote().sendBinary(binary);
+                    compressedFrames.increment();
+                } else {
+                    session.getBasicRemote().sendText(frame.getText());
+                    payloadLength = frame.getUtf8Length();
+                    wireLength = payloadLength;
+                }
+                sentFrames.increment();
+                payloadBytes.add(payloadLength);
+                wireBytes.add(wireLength);
+            }
+            return true;
+        } catch (IOException | IllegalStateException e) {
+            log.error("发送WebSocket通知失败: sessionId={}", session.getId(), e);
+            return false;
+        }
+    }
+
+    private boolean shouldCompress(SessionContext context, OutboundFrame frame) {
+        if (context == null || !context.isBinaryEncoding() || context.getEndpoint() == null) {
+            return false;
+        }
+        return frame.getUtf8Length() >= context.getEndpoint().getCompressionThreshold();
+    }
+
+    private boolean isPermessageDeflateNegotiated(Session session) {
+        if (session.getNegotiatedExtensions() == null) {
+            return false;
+        }
+        for (Extension extension : session.getNegotiatedExtensions()) {
+            if (WebSocketEndpointConfigurator.PERMESSAGE_DEFLATE.equals(extension.getName())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    /**
+     * 在发送线程中执行阻塞发送，调用方线程不等待
+     *
+     * @param task 发送任务
+     * @return 是否已提交，发送器已关闭时返回false
+     */
+    public boolean execute(Runnable task) {
+        try {
+            flushScheduler.execute(task);
+            return true;
+        } catch (RejectedExecutionException e) {
+            log.warn("发送线程池已关闭，放弃发送任务");
+            return false;
+        }
+    }
+
+    /**
+     * 获取发送统计
+     *
+     * @return 发送统计
+     */
+    public SendStats getStats() {
+        return new SendStats(sentFrames.sum(), compressedFrames.sum(), batchedMessages.sum(),
+                payloadBytes.sum(), wireBytes.sum());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flushScheduler.shutdown();
+    }
+
+    /**
+     * 发送统计信息
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    @lombok.NoArgsConstructor
+    public static class SendStats {
+        // 已发送帧数
+        private long sentFrames;
+        // 其中压缩的二进制帧数
+        private long compressedFrames;
+        // 经合并帧发出的通知条数
+        private long batchedMessages;
+        // 编码前的负载字节数
+        private long payloadBytes;
+        // 应用层发出的字节数（不含协议级压缩）
+        private long wireBytes;
+    }
+}
@@ -0,0 +1,377 @@
+package com.cy.order.websocket.cluster;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.websocket.ClientSessionManager;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.SessionLifecycleListener;
+import com.cy.order.websocket.StoreDeliveryTracker;
+import com.cy.order.websocket.WebSocketMessageSender;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import jakarta.websocket.Session;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+import org.springframework.util.StringUtils;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * 跨节点会话路由器
+ * 发布本节点客户端的上线/下线增量，维护其他节点的在线目录，
+ * 并把通知按节点合并后转发给其他持有该客户端连接的节点
+ */
+@Slf4j
+@Component
+public class ClusterSessionRouter implements SessionLifecycleListener {
+
+    private static final long SYNC_REQUEST_MIN_INTERVAL = 1000;
+
+    private final WebSocketProperties.Cluster cluster;
+
+    private final ClientSessionManager clientSessionManager;
+
+    private final WebSocketMessageSender messageSender;
+
+    private final ClusterTransport transport;
+
+    private final String nodeId;
+
+    private final PresenceDirectory directory;
+
+    // 待发布的在线变化 key: clientId, value: true上线/false下线，同一客户端只保留最后一次变化
+    private final Map<String, Boolean> pendingUsers = new ConcurrentHashMap<>();
+
+    private final Map<String, Boolean> pendingStores = new ConcurrentHashMap<>();
+
+    // 待转发的通知 key: 目标节点ID
+    private final Map<String, OutboundQueue> outbound = new ConcurrentHashMap<>();
+
+    private final AtomicLong presenceSequence = new AtomicLong();
+
+    private final AtomicLong lastSyncRequest = new AtomicLong();
+
+    private final AtomicLong forwardedMessages = new AtomicLong();
+
+    private final AtomicLong receivedMessages = new AtomicLong();
+
+    private StoreDeliveryTracker deliveryTracker;
+
+    private ScheduledExecutorService presenceScheduler;
+
+    private ScheduledExecutorService deliveryScheduler;
+
+    public ClusterSessionRouter(WebSocketProperties webSocketProperties,
+                                ClientSessionManager clientSessionManager,
+                                WebSocketMessageSender messageSender,
+                                ObjectProvider<ClusterTransport> transport) {
+        this.cluster = webSocketProperties.getCluster();
+        this.clientSessionManager = clientSessionManager;
+        this.messageSender = messageSender;
+        this.transport = cluster.isEnabled() ? transport.getIfAvailable() : null;
+        this.nodeId = StringUtils.hasText(cluster.getNodeId()) ? cluster.getNodeId() : UUID.randomUUID().toString();
+        this.directory = new PresenceDirectory(nodeId);
+    }
+
+    @Autowired(required = false)
+    public void setDeliveryTracker(StoreDeliveryTracker deliveryTracker) {
+        this.deliveryTracker = deliveryTracker;
+    }
+
+    @PostConstruct
+    public void start() {
+        if (transport == null) {
+            return;
+        }
+        clientSessionManager.addLifecycleListener(this);
+        transport.start(nodeId, this::onPresence, this::onDelivery);
+        presenceScheduler = newScheduler("ws-cluster-presence");
+        deliveryScheduler = newScheduler("ws-cluster-delivery");
+        presenceScheduler.execute(() -> publish(PresenceDelta.builder().nodeId(nodeId).kind(PresenceDelta.Kind.SYNC).build()));
+        presenceScheduler.execute(this::publishSnapshot);
+        presenceScheduler.scheduleWithFixedDelay(this::flushPresence,
+                cluster.getPresenceFlushInterval(), cluster.getPresenceFlushInterval(), TimeUnit.MILLISECONDS);
+        presenceScheduler.scheduleWithFixedDelay(this::publishSnapshotAndExpire,
+                cluster.getSnapshotInterval(), cluster.getSnapshotInterval(), TimeUnit.MILLISECONDS);
+        deliveryScheduler.scheduleWithFixedDelay(this::flushDeliveries,
+                cluster.getDeliveryFlushInterval(), cluster.getDeliveryFlushInterval(), TimeUnit.MILLISECONDS);
+        log.info("跨节点会话路由已启动: nodeId={}", nodeId);
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (transport == null) {
+            return;
+        }
+        shutdown(presenceScheduler);
+        shutdown(deliveryScheduler);
+        flushDeliveries();
+        publish(PresenceDelta.builder().nodeId(nodeId).kind(PresenceDelta.Kind.LEAVE).build());
+        transport.stop();
+        log.info("跨节点会话路由已停止: nodeId={}", nodeId);
+    }
+
+    /**
+     * 是否启用跨节点路由
+     *
+     * @return 是否启用
+     */
+    public boolean isEnabled() {
+        return transport != null;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Override
+    public void onSessionAdded(ClientType type, String clientId) {
+        pending(type).put(clientId, Boolean.TRUE);
+    }
+
+    @Override
+    public void onSessionRemoved(ClientType type, String clientId) {
+        pending(type).put(clientId, Boolean.FALSE);
+    }
+
+    /**
+     * 把通知转发给其他持有该客户端连接的节点，同一客户端连在多个节点上时每个节点各转发一份
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     * @param message  通知内容
+     * @return 是否已进入转发队列，客户端不在其他节点时返回false
+     */
+    public boolean forward(ClientType type, String clientId, String message) {
+        if (transport == null) {
+            return false;
+        }
+        Set<String> nodes = directory.getNodes(type, clientId);
+        if (nodes.isEmpty()) {
+            return false;
+        }
+        for (String node : nodes) {
+            OutboundQueue queue = outbound.computeIfAbsent(node, key -> new OutboundQueue());
+            if (queue.add(new DeliveryBatch.Delivery(type, clientId, message)) >= cluster.getDeliveryBatchSize()) {
+                flushDeliveries(node, queue);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * 发布累积的在线增量
+     */
+    public void flushPresence() {
+        List<String> userJoined = new ArrayList<>();
+        List<String> userLeft = new ArrayList<>();
+        List<String> storeJoined = new ArrayList<>();
+        List<String> storeLeft = new ArrayList<>();
+        drain(pendingUsers, userJoined, userLeft);
+        drain(pendingStores, storeJoined, storeLeft);
+        if (userJoined.isEmpty() && userLeft.isEmpty() && storeJoined.isEmpty() && storeLeft.isEmpty()) {
+            return;
+        }
+        publish(PresenceDelta.builder()
+                .nodeId(nodeId)
+                .kind(PresenceDelta.Kind.DELTA)
+                .sequence(presenceSequence.incrementAndGet())
+                .userJoined(userJoined)
+                .userLeft(userLeft)
+                .storeJoined(storeJoined)
+                .storeLeft(storeLeft)
+                .build());
+    }
+
+    /**
+     * 发出全部节点的待转发通知
+     */
+    public void flushDeliveries() {
+        outbound.forEach(this::flushDeliveries);
+    }
+
+    /**
+     * 获取路由统计信息
+     *
+     * @return 路由统计信息
+     */
+    public ClusterStats getStats() {
+        return new ClusterStats(nodeId, isEnabled(), directory.getNodeCount(),
+                directory.size(ClientType.USER), directory.size(ClientType.STORE),
+                forwardedMessages.get(), receivedMessages.get());
+    }
+
+    void onPresence(PresenceDelta delta) {
+        if (nodeId.equals(delta.getNodeId())) {
+            return;
+        }
+        if (delta.getKind() == PresenceDelta.Kind.SYNC) {
+            runOnPresenceThread(this::publishSnapshot);
+            return;
+        }
+        if (!directory.apply(delta, System.currentTimeMillis())) {
+            requestSync();
+        }
+    }
+
+    void onDelivery(DeliveryBatch batch) {
+        if (batch.getDeliveries() == null) {
+            return;
+        }
+        for (DeliveryBatch.Delivery delivery : batch.getDeliveries()) {
+            receivedMessages.incrementAndGet();
+            List<Session> sessions = delivery.getType() == ClientType.USER
+                    ? clientSessionManager.getUserSessions(delivery.getClientId())
+                    : clientSessionManager.getStoreSessions(delivery.getClientId());
+            if (sessions.isEmpty()) {
+                log.debug("转发通知的目标客户端已不在本节点: type={}, clientId={}, from={}",
+                        delivery.getType(), delivery.getClientId(), batch.getSourceNodeId());
+                continue;
+            }
+            if (delivery.getType() == ClientType.STORE && deliveryTracker != null) {
+                deliveryTracker.deliver(delivery.getClientId(), sessions, delivery.getMessage());
+            } else {
+                messageSender.sendAll(sessions, delivery.getMessage());
+            }
+        }
+    }
+
+    void publishSnapshot() {
+        publish(PresenceDelta.builder()
+                .nodeId(nodeId)
+                .kind(PresenceDelta.Kind.SNAPSHOT)
+                .sequence(presenceSequence.get())
+                .userJoined(new ArrayList<>(clientSessionManager.getAllUserIds()))
+                .storeJoined(new ArrayList<>(clientSessionManager.getAllStoreIds()))
+                .build());
+    }
+
+    private void publishSnapshotAndExpire() {
+        publishSnapshot();
+        directory.expireNodes(System.currentTimeMillis(), cluster.getNodeExpiry());
+    }
+
+    private void requestSync() {
+        long now = System.currentTimeMillis();
+        long last = lastSyncRequest.get();
+        if (now - last >= SYNC_REQUEST_MIN_INTERVAL && lastSyncRequest.compareAndSet(last, now)) {
+            runOnPresenceThread(() -> publish(PresenceDelta.builder().nodeId(nodeId).kind(PresenceDelta.Kind.SYNC).build()));
+        }
+    }
+
+    private void flushDeliveries(String target, OutboundQueue queue) {
+        List<DeliveryBatch.Delivery> deliveries = queue.drain(cluster.getDeliveryBatchSize());
+        while (!deliveries.isEmpty()) {
+            try {
+                transport.sendDelivery(target, new DeliveryBatch(nodeId, deliveries));
+                forwardedMessages.addAndGet(deliveries.size());
+            } catch (Exception e) {
+                log.error("转发通知失败: target={}, count={}", target, deliveries.size(), e);
+            }
+            deliveries = queue.drain(cluster.getDeliveryBatchSize());
+        }
+    }
+
+    private void publish(PresenceDelta delta) {
+        try {
+            transport.publishPresence(delta);
+        } catch (Exception e) {
+            log.error("发布在线变化失败: kind={}", delta.getKind(), e);
+        }
+    }
+
+    /**
+     * 在线消息需要按序号顺序发布，统一在在线调度线程上执行
+     */
+    private void runOnPresenceThread(Runnable task) {
+        if (presenceScheduler != null) {
+            presenceScheduler.execute(task);
+        } else {
+            task.run();
+        }
+    }
+
+    private Map<String, Boolean> pending(ClientType type) {
+        return type == ClientType.USER ? pendingUsers : pendingStores;
+    }
+
+    private static void drain(Map<String, Boolean> pending, List<String> joined, List<String> left) {
+        for (Map.Entry<String, Boolean> entry : pending.entrySet()) {
+            // 条件移除，避免覆盖取出期间发生的新变化
+            if (pending.remove(entry.getKey(), entry.getValue())) {
+                (entry.getValue() ? joined : left).add(entry.getKey());
+            }
+        }
+    }
+
+    private static ScheduledExecutorService newScheduler(String name) {
+        return Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, name);
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    private static void shutdown(ScheduledExecutorService scheduler) {
+        scheduler.shutdown();
+        try {
+            scheduler.awaitTermination(1, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    /**
+     * 单个目标节点的转发队列
+     */
+    private static final class OutboundQueue {
+
+        private final Queue<DeliveryBatch.Delivery> deliveries = new ConcurrentLinkedQueue<>();
+
+        private final AtomicInteger size = new AtomicInteger();
+
+        int add(DeliveryBatch.Delivery delivery) {
+            deliveries.add(delivery);
+            return size.incrementAndGet();
+        }
+
+        List<DeliveryBatch.Delivery> drain(int max) {
+            List<DeliveryBatch.Delivery> drained = new ArrayList<>(Math.min(Math.max(size.get(), 0), max));
+            DeliveryBatch.Delivery delivery;
+            while (drained.size() < max && (delivery = deliveries.poll()) != null) {
+                size.decrementAndGet();
+                drained.add(delivery);
+            }
+            return drained;
+        }
+    }
+
+    /**
+     * 跨节点路由统计信息
+     */
+    @lombok.Data
+    @lombok.AllArgsConstructor
+    @lombok.NoArgsConstructor
+    public static class ClusterStats {
+        private String nodeId;
+        private boolean enabled;
+        private int remoteNodeCount;
+        private int remoteUserCount;
+        private int remoteStoreCount;
+        private long forwardedMessages;
+        private long receivedMessages;
+    }
+}
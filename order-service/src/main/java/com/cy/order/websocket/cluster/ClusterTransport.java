@@ -0,0 +1,39 @@
+package com.cy.order.websocket.cluster;
+
+import java.util.function.Consumer;
+
+/**
+ * 跨节点消息传输
+ * 负责在线广播和按节点寻址的通知转发，生产环境基于RabbitMQ实现，测试中可替换为进程内实现
+ */
+public interface ClusterTransport {
+
+    /**
+     * 启动传输并订阅本节点的消息
+     *
+     * @param nodeId          当前节点ID
+     * @param presenceHandler 在线变化处理器
+     * @param deliveryHandler 转发通知处理器
+     */
+    void start(String nodeId, Consumer<PresenceDelta> presenceHandler, Consumer<DeliveryBatch> deliveryHandler);
+
+    /**
+     * 向所有节点广播在线变化
+     *
+     * @param delta 在线变化
+     */
+    void publishPresence(PresenceDelta delta);
+
+    /**
+     * 向指定节点投递转发通知
+     *
+     * @param nodeId 目标节点ID
+     * @param batch  通知批次
+     */
+    void sendDelivery(String nodeId, DeliveryBatch batch);
+
+    /**
+     * 停止传输
+     */
+    void stop();
+}
@@ -0,0 +1,34 @@
+package com.cy.order.websocket.cluster;
+
+import com.cy.order.websocket.ClientType;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 跨节点转发的通知批次
+ * 按目标节点合并，一次投递到该节点的转发队列
+ */
+@Data
+@AllArgsConstructor
+@NoArgsConstructor
+public class DeliveryBatch {
+
+    private String sourceNodeId;
+
+    private List<Delivery> deliveries;
+
+    /**
+     * 单条转发通知
+     */
+    @Data
+    @AllArgsConstructor
+    @NoArgsConstructor
+    public static class Delivery {
+        private ClientType type;
+        private String clientId;
+        private String message;
+    }
+}
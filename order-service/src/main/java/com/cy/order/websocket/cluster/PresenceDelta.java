@@ -0,0 +1,46 @@
+package com.cy.order.websocket.cluster;
+
+import lombok.AllArgsConstructor;
+import lombok.Builder;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+/**
+ * 节点在线变化消息
+ * 各节点通过在线广播交换机发布本节点客户端的上线/下线增量，以及定期的全量快照
+ */
+@Data
+@Builder
+@AllArgsConstructor
+@NoArgsConstructor
+public class PresenceDelta {
+
+    /**
+     * 消息类型
+     */
+    public enum Kind {
+        DELTA,      // 增量
+        SNAPSHOT,   // 全量快照，接收方以此替换该节点的全部记录
+        SYNC,       // 请求其他节点发布全量快照
+        LEAVE       // 节点下线
+    }
+
+    private String nodeId;
+
+    private Kind kind;
+
+    /**
+     * 发布节点的增量序号，快照携带当前序号用于重置接收方的期望值
+     */
+    private long sequence;
+
+    private List<String> userJoined;
+
+    private List<String> userLeft;
+
+    private List<String> storeJoined;
+
+    private List<String> storeLeft;
+}
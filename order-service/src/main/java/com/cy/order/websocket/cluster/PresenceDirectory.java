@@ -0,0 +1,192 @@
+package com.cy.order.websocket.cluster;
+
+import com.cy.order.websocket.ClientType;
+import lombok.extern.slf4j.Slf4j;
+
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * 在线目录
+ * 记录其他节点上客户端的连接分布 clientId -> nodeId集合，同一用户、门店可以同时连在多个节点上；
+ * 节点集合不可变，变化时整体替换，读取无需加锁；节点ID统一复用同一个字符串实例以减少内存占用
+ */
+@Slf4j
+public class PresenceDirectory {
+
+    private final String localNodeId;
+
+    // APP用户所在节点 key: userId, value: nodeId集合
+    private final Map<String, Set<String>> userNodes = new ConcurrentHashMap<>();
+
+    // 门店所在节点 key: storeId, value: nodeId集合
+    private final Map<String, Set<String>> storeNodes = new ConcurrentHashMap<>();
+
+    // 节点ID常量池
+    private final Map<String, String> nodeIds = new ConcurrentHashMap<>();
+
+    // 节点最后一次发布在线消息的时间
+    private final Map<String, Long> nodeLastSeen = new ConcurrentHashMap<>();
+
+    // 节点最后一次应用的增量序号
+    private final Map<String, Long> nodeSequences = new ConcurrentHashMap<>();
+
+    public PresenceDirectory(String localNodeId) {
+        this.localNodeId = localNodeId;
+    }
+
+    /**
+     * 应用一条在线变化
+     *
+     * @param delta 在线变化
+     * @param now   当前时间（毫秒）
+     * @return 是否与发布节点保持同步，返回false时需要请求全量快照
+     */
+    public boolean apply(PresenceDelta delta, long now) {
+        if (delta.getNodeId() == null || localNodeId.equals(delta.getNodeId())) {
+            return true;
+        }
+        String nodeId = nodeIds.computeIfAbsent(delta.getNodeId(), id -> id);
+        switch (delta.getKind()) {
+            case LEAVE:
+                removeNode(nodeId);
+                return true;
+            case SNAPSHOT:
+                nodeLastSeen.put(nodeId, now);
+                replace(userNodes, nodeId, delta.getUserJoined());
+                replace(storeNodes, nodeId, delta.getStoreJoined());
+                nodeSequences.put(nodeId, delta.getSequence());
+                return true;
+            case DELTA:
+                nodeLastSeen.put(nodeId, now);
+                Long last = nodeSequences.get(nodeId);
+                join(userNodes, nodeId, delta.getUserJoined());
+                leave(userNodes, nodeId, delta.getUserLeft());
+                join(storeNodes, nodeId, delta.getStoreJoined());
+                leave(storeNodes, nodeId, delta.getStoreLeft());
+                nodeSequences.put(nodeId, delta.getSequence());
+                return last != null && delta.getSequence() == last + 1;
+            default:
+                return true;
+        }
+    }
+
+    /**
+     * 查询客户端连接所在的其他节点
+     *
+     * @param type     客户端类型
+     * @param clientId 客户端ID
+     * @return 节点ID集合，不在其他节点时返回空集合
+     */
+    public Set<String> getNodes(ClientType type, String clientId) {
+        return nodes(type).getOrDefault(clientId, Set.of());
+    }
+
+    /**
+     * 移除长时间未发布在线消息的节点
+     *
+     * @param now    当前时间（毫秒）
+     * @param expiry 过期时间（毫秒）
+     * @return 移除的节点数
+     */
+    public int expireNodes(long now, long expiry) {
+        int expired = 0;
+        for (Map.Entry<String, Long> entry : nodeLastSeen.entrySet()) {
+            if (now - entry.getValue() > expiry) {
+                log.warn("节点在线信息已过期，移除其全部客户端: nodeId={}", entry.getKey());
+                removeNode(entry.getKey());
+                expired++;
+            }
+        }
+        return expired;
+    }
+
+    /**
+     * 获取远程在线的客户端数量
+     *
+     * @param type 客户端类型
+     * @return 客户端数量
+     */
+    public int size(ClientType type) {
+        return nodes(type).size();
+    }
+
+    /**
+     * 获取已知的远程节点数量
+     *
+     * @return 节点数量
+     */
+    public int getNodeCount() {
+        return nodeLastSeen.size();
+    }
+
+    private void removeNode(String nodeId) {
+        nodeLastSeen.remove(nodeId);
+        nodeSequences.remove(nodeId);
+        for (String clientId : userNodes.keySet()) {
+            leave(userNodes, nodeId, clientId);
+        }
+        for (String clientId : storeNodes.keySet()) {
+            leave(storeNodes, nodeId, clientId);
+        }
+    }
+
+    private Map<String, Set<String>> nodes(ClientType type) {
+        return type == ClientType.USER ? userNodes : storeNodes;
+    }
+
+    private static void join(Map<String, Set<String>> nodes, String nodeId, Collection<String> clientIds) {
+        if (clientIds != null) {
+            for (String clientId : clientIds) {
+                nodes.compute(clientId, (key, current) -> {
+                    if (current == null) {
+                        return Set.of(nodeId);
+                    }
+                    if (current.contains(nodeId)) {
+                        return current;
+                    }
+                    Set<String> next = new HashSet<>(current);
+                    next.add(nodeId);
+                    return Set.copyOf(next);
+                });
+            }
+        }
+    }
+
+    private static void leave(Map<String, Set<String>> nodes, String nodeId, Collection<String> clientIds) {
+        if (clientIds != null) {
+            // 只移除该节点，客户端可能同时连在其他节点上
+            for (String clientId : clientIds) {
+                leave(nodes, nodeId, clientId);
+            }
+        }
+    }
+
+    private static void leave(Map<String, Set<String>> nodes, String nodeId, String clientId) {
+        nodes.computeIfPresent(clientId, (key, current) -> {
+            if (!current.contains(nodeId)) {
+                return current;
+            }
+            if (current.size() == 1) {
+                return null;
+            }
+            Set<String> next = new HashSet<>(current);
+            next.remove(nodeId);
+            return Set.copyOf(next);
+        });
+    }
+
+    private static void replace(Map<String, Set<String>> nodes, String nodeId, List<String> clientIds) {
+        Set<String> current = clientIds != null ? new HashSet<>(clientIds) : Set.of();
+        for (Map.Entry<String, Set<String>> entry : nodes.entrySet()) {
+            if (entry.getValue().contains(nodeId) && !current.contains(entry.getKey())) {
+                leave(nodes, nodeId, entry.getKey());
+            }
+        }
+        join(nodes, nodeId, current);
+    }
+}
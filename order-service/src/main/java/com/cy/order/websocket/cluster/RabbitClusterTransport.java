@@ -0,0 +1,110 @@
+package com.cy.order.websocket.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.amqp.core.AcknowledgeMode;
+import org.springframework.amqp.core.AmqpAdmin;
+import org.springframework.amqp.core.AnonymousQueue;
+import org.springframework.amqp.core.BindingBuilder;
+import org.springframework.amqp.core.DirectExchange;
+import org.springframework.amqp.core.FanoutExchange;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.Queue;
+import org.springframework.amqp.core.QueueBuilder;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.rabbit.listener.SimpleMessageListenerContainer;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * 基于RabbitMQ的跨节点消息传输
+ * 在线变化通过广播交换机发往所有节点的匿名队列，转发通知通过直连交换机按节点ID路由到目标节点的队列
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(prefix = "websocket.cluster", name = "enabled", havingValue = "true")
+public class RabbitClusterTransport implements ClusterTransport {
+
+    public static final String PRESENCE_EXCHANGE = "ws.presence.exchange";
+    public static final String DELIVERY_EXCHANGE = "ws.delivery.exchange";
+    public static final String DELIVERY_QUEUE_PREFIX = "ws.delivery.";
+
+    private final ConnectionFactory connectionFactory;
+
+    private final RabbitTemplate rabbitTemplate;
+
+    private final AmqpAdmin amqpAdmin;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private SimpleMessageListenerContainer container;
+
+    @Override
+    public void start(String nodeId, Consumer<PresenceDelta> presenceHandler, Consumer<DeliveryBatch> deliveryHandler) {
+        FanoutExchange presenceExchange = new FanoutExchange(PRESENCE_EXCHANGE, true, false);
+        DirectExchange deliveryExchange = new DirectExchange(DELIVERY_EXCHANGE, true, false);
+        amqpAdmin.declareExchange(presenceExchange);
+        amqpAdmin.declareExchange(deliveryExchange);
+
+        // 每个节点一个临时在线队列，节点断开后自动删除
+        Queue presenceQueue = new AnonymousQueue();
+        amqpAdmin.declareQueue(presenceQueue);
+        amqpAdmin.declareBinding(BindingBuilder.bind(presenceQueue).to(presenceExchange));
+
+        Queue deliveryQueue = QueueBuilder.nonDurable(DELIVERY_QUEUE_PREFIX + nodeId).autoDelete().build();
+        amqpAdmin.declareQueue(deliveryQueue);
+        amqpAdmin.declareBinding(BindingBuilder.bind(deliveryQueue).to(deliveryExchange).with(nodeId));
+
+        container = new SimpleMessageListenerContainer(connectionFactory);
+        container.setQueues(presenceQueue, deliveryQueue);
+        container.setAcknowledgeMode(AcknowledgeMode.AUTO);
+        container.setDefaultRequeueRejected(false);
+        container.setMessageListener(message -> {
+            try {
+                if (presenceQueue.getName().equals(message.getMessageProperties().getConsumerQueue())) {
+                    presenceHandler.accept(objectMapper.readValue(message.getBody(), PresenceDelta.class));
+                } else {
+                    deliveryHandler.accept(objectMapper.readValue(message.getBody(), DeliveryBatch.class));
+                }
+            } catch (IOException e) {
+                log.error("解析跨节点消息失败: queue={}", message.getMessageProperties().getConsumerQueue(), e);
+            }
+        });
+        container.start();
+        log.info("跨节点传输已启动: presenceQueue={}, deliveryQueue={}", presenceQueue.getName(), deliveryQueue.getName());
+    }
+
+    @Override
+    public void publishPresence(PresenceDelta delta) {
+        rabbitTemplate.send(PRESENCE_EXCHANGE, "", toMessage(delta));
+    }
+
+    @Override
+    public void sendDelivery(String nodeId, DeliveryBatch batch) {
+        rabbitTemplate.send(DELIVERY_EXCHANGE, nodeId, toMessage(batch));
+    }
+
+    @Override
+    public void stop() {
+        if (container != null) {
+            container.stop();
+        }
+    }
+
+    private Message toMessage(Object payload) {
+        try {
+            MessageProperties properties = new MessageProperties();
+            properties.setContentType(MessageProperties.CONTENT_TYPE_JSON);
+            return new Message(objectMapper.writeValueAsBytes(payload), properties);
+        } catch (IOException e) {
+            throw new IllegalStateException("序列化跨节点消息失败", e);
+        }
+    }
+}
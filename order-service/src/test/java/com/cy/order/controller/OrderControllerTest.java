@@ -200,4 +200,26 @@ class OrderControllerTest {
                 .andExpect(jsonPath("$.success").value(false))
                 .andExpect(jsonPath("$.message").value("Order not found"));
     }
+
+    @Test
+    void cancelOrder_WhenCancellable_ShouldReturnSuccess() throws Exception {
+        // Given
+        when(orderService.cancelOrder("order1")).thenReturn(true);
+
+        // When & Then
+        mockMvc.perform(post("/api/orders/cancel/{orderId}", "order1"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.success").value(true));
+    }
+
+    @Test
+    void cancelOrder_WhenNotCancellable_ShouldReturnBadRequest() throws Exception {
+        // Given
+        when(orderService.cancelOrder("order1")).thenReturn(false);
+
+        // When & Then
+        mockMvc.perform(post("/api/orders/cancel/{orderId}", "order1"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$.success").value(false));
+    }
 }
\ No newline at end of file
@@ -0,0 +1,116 @@
+package com.cy.order.integration;
+
+import com.cy.common.mq.OrderEventConsumer;
+import com.cy.common.mq.OrderMessageCodec;
+import com.cy.common.transport.InProcessOrderEventTransport;
+import com.cy.order.config.MqRoutingProperties;
+import com.cy.order.config.MqStreamProperties;
+import com.cy.order.dto.OrderItemDto;
+import com.cy.order.dto.OrderRequestDto;
+import com.cy.order.enums.OrderStatusEnum;
+import com.cy.order.event.OrderOperationEvent;
+import com.cy.order.listener.OrderEventMqListener;
+import com.cy.order.mq.OrderMessageConverter;
+import com.cy.order.mq.OrderRoutingConfig;
+import com.cy.order.mq.StoreRegionResolver;
+import com.cy.order.service.OrderService;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CopyOnWriteArrayList;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单服务 → 订单事件交换机 → 统计、CRM、库存队列的端到端流程，全部运行在同一JVM的进程内传输上：
+ * 订单服务的事件监听器与生产环境相同，消费端使用与统计、CRM服务相同的 {@link OrderEventConsumer}，
+ * 每个队列只有一个消费者，投递顺序确定
+ */
+class InProcessOrderEventPipelineIntegrationTest {
+
+    private final MqRoutingProperties routingProperties = new MqRoutingProperties();
+
+    private final InProcessOrderEventTransport transport = new InProcessOrderEventTransport(1024, 10);
+
+    // 各消费者收到的事件 key: 消费者名
+    private final Map<String, List<String>> received = new ConcurrentHashMap<>();
+
+    private OrderService orderService;
+
+    @BeforeEach
+    void setUp() {
+        routingProperties.getStoreRegions().put("store001", "east");
+        OrderRoutingConfig.declareTopology(transport, routingProperties);
+        for (String consumer : routingProperties.getBindings().keySet()) {
+            List<String> events = new CopyOnWriteArrayList<>();
+            received.put(consumer, events);
+            transport.subscribe(OrderRoutingConfig.QUEUE_PREFIX + consumer, new OrderEventConsumer(consumer,
+                    (order, properties) -> events.add(properties.getHeader(OrderMessageCodec.EVENT_TYPE_HEADER)
+                            + "@" + properties.getReceivedRoutingKey().substring(properties.getReceivedRoutingKey().lastIndexOf('.') + 1)
+                            + ":" + order.getStatus())));
+        }
+        OrderEventMqListener listener = new OrderEventMqListener(transport,
+                new OrderMessageConverter(new Jackson2JsonMessageConverter()), new StoreRegionResolver(routingProperties),
+                routingProperties, new MqStreamProperties());
+        orderService = new OrderService(event -> {
+            if (event instanceof OrderOperationEvent operationEvent) {
+                listener.handleOrderEvent(operationEvent);
+            }
+        });
+    }
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    void testOrderLifecycleReachesEachConsumerItsSlice() {
+        // Given
+        OrderRequestDto request = new OrderRequestDto();
+        request.setUserId("user001");
+        request.setStoreId("store001");
+        request.setAmount(new BigDecimal("20.00"));
+        request.setItems(List.of(new OrderItemDto("p1", "拿铁", 2, new BigDecimal("10.00"))));
+
+        // When
+        String orderId = orderService.createOrder(request);
+        orderService.updateOrderStatus(orderId, OrderStatusEnum.PAID, "store001", "user001");
+        orderService.cancelOrder(orderId);
+
+        // Then
+        await().untilAsserted(() -> {
+            assertEquals(List.of("order_paid@east:PAID", "order_cancelled@east:CANCELLED"), received.get("stat"));
+            assertEquals(List.of("order_created@east:CREATED", "order_paid@east:PAID", "order_cancelled@east:CANCELLED"),
+                    received.get("crm"));
+            assertEquals(List.of("order_created@east:CREATED", "order_cancelled@east:CANCELLED"), received.get("inventory"));
+            // 处理完成后才确认
+            transport.getStats().getQueues().values().forEach(queue -> {
+                assertEquals(queue.getDelivered(), queue.getAcked());
+                assertEquals(0, queue.getUnacked());
+            });
+        });
+        assertEquals(3, transport.getStats().getPublished());
+        assertEquals(0, transport.getStats().getUnroutable());
+    }
+
+    @Test
+    void testStatusUpdateWithoutLifecycleEventIsNotRouted() {
+        // When 处理中只产生 ORDER_UPDATED，没有消费者绑定，不发布
+        orderService.updateOrderStatus("o1", OrderStatusEnum.PROCESSING, "store001", "user001");
+        orderService.updateOrderStatus("o1", OrderStatusEnum.COMPLETED, "store001", "user001");
+
+        // Then
+        await().untilAsserted(() -> assertEquals(List.of("order_completed@east:COMPLETED"), received.get("stat")));
+        assertEquals(1, transport.getStats().getPublished());
+        assertEquals(0, transport.getStats().getUnroutable());
+        assertTrue(received.get("inventory").isEmpty());
+    }
+}
@@ -0,0 +1,118 @@
+package com.cy.order.integration;
+
+import com.cy.common.mq.OrderEventConsumer;
+import com.cy.common.mq.OrderMessageCodec;
+import com.cy.common.transport.InProcessOrderEventTransport;
+import com.cy.order.config.MqRoutingProperties;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.dto.OrderItemDto;
+import com.cy.order.enums.OrderStatusEnum;
+import com.cy.order.event.EventTypeEnum;
+import com.cy.order.mq.OrderMessageConverter;
+import com.cy.order.mq.OrderRoutingConfig;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 订单 → 主题交换机 → 统计、CRM、库存队列的进程内吞吐
+ * 多个生产线程编码并发布订单事件，三个消费者解码后确认；队列容量足以容纳全部事件，发布不会因队列满被拒绝。
+ * 统计从第一条发布到最后一条处理完的时间，结果仅输出供对比，断言只要求不丢不重。
+ * 20万条事件耗时较长，只在 benchmark 配置下运行（mvn test -Pbenchmark）
+ */
+@Tag("benchmark")
+class InProcessOrderEventThroughputTest {
+
+    private static final int PRODUCERS = 4;
+
+    private static final int EVENTS_PER_PRODUCER = 50_000;
+
+    private final MqRoutingProperties routingProperties = new MqRoutingProperties();
+
+    private final InProcessOrderEventTransport transport = new InProcessOrderEventTransport(1 << 18, 256);
+
+    private final OrderMessageConverter converter = new OrderMessageConverter(new Jackson2JsonMessageConverter());
+
+    @AfterEach
+    void tearDown() {
+        transport.close();
+    }
+
+    @Test
+    void measureEndToEndThroughput() throws Exception {
+        // Given 付款事件路由到统计和CRM，取消事件路由到全部三个队列
+        OrderRoutingConfig.declareTopology(transport, routingProperties);
+        int events = PRODUCERS * EVENTS_PER_PRODUCER;
+        int deliveries = events / 2 * 2 + events / 2 * 3;
+        CountDownLatch done = new CountDownLatch(deliveries);
+        Map<String, LongAdder> processed = new ConcurrentHashMap<>();
+        for (String consumer : routingProperties.getBindings().keySet()) {
+            LongAdder counter = processed.computeIfAbsent(consumer, name -> new LongAdder());
+            transport.subscribe(OrderRoutingConfig.QUEUE_PREFIX + consumer, new OrderEventConsumer(consumer, (order, properties) -> {
+                counter.increment();
+                done.countDown();
+            }));
+        }
+        OrderDto order = OrderDto.builder()
+                .id("o1")
+                .orderNumber("ORD-o1")
+                .userId("user001")
+                .storeId("store001")
+                .amount(new BigDecimal("128.50"))
+                .status(OrderStatusEnum.PAID)
+                .items(List.of(new OrderItemDto("p1", "拿铁", 2, new BigDecimal("64.25"))))
+                .createTime(LocalDateTime.now())
+                .build();
+        String paid = OrderRoutingConfig.routingKey(EventTypeEnum.ORDER_PAID, "east");
+        String cancelled = OrderRoutingConfig.routingKey(EventTypeEnum.ORDER_CANCELLED, "east");
+
+        // When
+        long start = System.nanoTime();
+        Thread[] producers = new Thread[PRODUCERS];
+        for (int p = 0; p < PRODUCERS; p++) {
+            producers[p] = new Thread(() -> {
+                for (int i = 0; i < EVENTS_PER_PRODUCER; i++) {
+                    boolean isPaid = i % 2 == 0;
+                    MessageProperties properties = new MessageProperties();
+                    properties.setHeader(OrderMessageCodec.EVENT_TYPE_HEADER,
+                            (isPaid ? EventTypeEnum.ORDER_PAID : EventTypeEnum.ORDER_CANCELLED).getCode());
+                    Message message = converter.toMessage(order, properties);
+                    if (!transport.publish(OrderRoutingConfig.ORDER_EVENT_EXCHANGE, isPaid ? paid : cancelled, message)) {
+                        throw new IllegalStateException("发布被拒绝");
+                    }
+                }
+            }, "producer-" + p);
+            producers[p].start();
+        }
+        for (Thread producer : producers) {
+            producer.join();
+        }
+        assertTrue(done.await(60, TimeUnit.SECONDS));
+        long elapsed = System.nanoTime() - start;
+
+        // Then
+        double seconds = elapsed / 1e9;
+        System.out.printf("进程内传输: %d 条事件, %d 次投递, 耗时 %.1f ms, 发布 %.0f 条/秒, 投递 %.0f 次/秒%n",
+                events, deliveries, elapsed / 1e6, events / seconds, deliveries / seconds);
+        InProcessOrderEventTransport.TransportStats stats = transport.getStats();
+        assertEquals(events, stats.getPublished());
+        assertEquals(0, stats.getRejectedPublishes());
+        assertEquals(events, processed.get("stat").sum());
+        assertEquals(events, processed.get("crm").sum());
+        assertEquals(events / 2, processed.get("inventory").sum());
+    }
+}
@@ -0,0 +1,128 @@
+package com.cy.order.integration;
+
+import com.cy.order.OrderServiceApplication;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.ClientEndpoint;
+import jakarta.websocket.ContainerProvider;
+import jakarta.websocket.OnMessage;
+import jakarta.websocket.Session;
+import jakarta.websocket.WebSocketContainer;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.boot.test.web.server.LocalServerPort;
+import org.springframework.http.ResponseEntity;
+
+import java.net.URI;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * 对比门店修改订单状态的两条路径：
+ * 已建立的 /ws/store 连接上发送 update_status 命令，与每次单独发起的 HTTP POST /api/orders/status/{orderId}
+ * 耗时只输出供对比，只在 benchmark 配置下运行（mvn test -Pbenchmark）
+ */
+@Tag("benchmark")
+@SpringBootTest(
+    webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT,
+    classes = OrderServiceApplication.class,
+    properties = {
+        "websocket.store.inbound-rate=100000",
+        "websocket.store.inbound-burst=100000"
+    }
+)
+public class OrderStatusCommandLatencyIntegrationTest {
+
+    private static final int WARMUP = 50;
+
+    private static final int REQUESTS = 500;
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Test
+    public void compareWebSocketCommandWithHttp() throws Exception {
+        // Given
+        StoreClient client = new StoreClient();
+        WebSocketContainer container = ContainerProvider.getWebSocketContainer();
+        try (Session session = container.connectToServer(client,
+                URI.create("ws://localhost:" + port + "/order-service/ws/store"))) {
+            session.getBasicRemote().sendText("{\"type\":\"connect\",\"clientId\":\"store-bench\"}");
+            assertThat(client.next("connection_success")).isNotNull();
+
+            // When
+            runWebSocket(session, client, "warmup", WARMUP);
+            runHttp("warmup", WARMUP);
+            long wsNanos = runWebSocket(session, client, "ws", REQUESTS);
+            long httpNanos = runHttp("http", REQUESTS);
+
+            // Then 两条路径都成功完成，结果仅输出供对比，不对机器相关的耗时做断言
+            System.out.printf("update_status x%d: websocket avg=%dus (%.0f/s), http avg=%dus (%.0f/s)%n",
+                    REQUESTS,
+                    TimeUnit.NANOSECONDS.toMicros(wsNanos / REQUESTS), REQUESTS * 1e9 / wsNanos,
+                    TimeUnit.NANOSECONDS.toMicros(httpNanos / REQUESTS), REQUESTS * 1e9 / httpNanos);
+        }
+    }
+
+    private long runWebSocket(Session session, StoreClient client, String prefix, int count) throws Exception {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            String requestId = prefix + "-" + i;
+            session.getBasicRemote().sendText("{\"type\":\"update_status\",\"requestId\":\"" + requestId
+                    + "\",\"orderId\":\"bench-" + i + "\",\"status\":\"PROCESSING\",\"userId\":\"user-bench\"}");
+            JsonNode ack = client.next("update_status_ack");
+            assertThat(ack).isNotNull();
+            assertThat(ack.get("requestId").asText()).isEqualTo(requestId);
+            assertThat(ack.get("success").asBoolean()).isTrue();
+        }
+        return System.nanoTime() - start;
+    }
+
+    private long runHttp(String prefix, int count) {
+        long start = System.nanoTime();
+        for (int i = 0; i < count; i++) {
+            ResponseEntity<String> response = restTemplate.postForEntity(
+                    "http://localhost:" + port + "/order-service/api/orders/status/" + prefix + "-" + i
+                            + "?status=PROCESSING&userId=user-bench&storeId=store-bench",
+                    null, String.class);
+            assertThat(response.getStatusCode().is2xxSuccessful()).isTrue();
+        }
+        return System.nanoTime() - start;
+    }
+
+    @ClientEndpoint
+    public static class StoreClient {
+
+        private final BlockingQueue<JsonNode> messages = new LinkedBlockingQueue<>();
+
+        @OnMessage
+        public void onMessage(String message) throws Exception {
+            messages.add(objectMapper.readTree(message));
+        }
+
+        /**
+         * 等待指定类型的消息，跳过通知等其他消息
+         */
+        JsonNode next(String type) throws InterruptedException {
+            long deadline = System.nanoTime() + TimeUnit.SECONDS.toNanos(5);
+            while (System.nanoTime() < deadline) {
+                JsonNode message = messages.poll(100, TimeUnit.MILLISECONDS);
+                if (message != null && message.has("type") && type.equals(message.get("type").asText())) {
+                    return message;
+                }
+            }
+            return null;
+        }
+    }
+}
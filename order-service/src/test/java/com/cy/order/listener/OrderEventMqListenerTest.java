@@ -0,0 +1,179 @@
+package com.cy.order.listener;
+
+import com.cy.common.mq.OrderMessage;
+import com.cy.common.mq.OrderMessageCodec;
+import com.cy.common.transport.OrderEventTransport;
+import com.cy.order.config.MqRoutingProperties;
+import com.cy.order.config.MqStreamProperties;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.event.EventTypeEnum;
+import com.cy.order.event.OrderOperationEvent;
+import com.cy.order.mq.OrderMessageConverter;
+import com.cy.order.mq.OrderRoutingConfig;
+import com.cy.order.mq.StoreRegionResolver;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderEventMqListenerTest {
+
+    @Mock
+    private OrderEventTransport orderEventTransport;
+
+    private final MqRoutingProperties properties = new MqRoutingProperties();
+
+    private final MqStreamProperties streamProperties = new MqStreamProperties();
+
+    private OrderEventMqListener listener;
+
+    @BeforeEach
+    void setUp() {
+        properties.getStoreRegions().put("store001", "east");
+        listener = new OrderEventMqListener(orderEventTransport,
+                new OrderMessageConverter(new Jackson2JsonMessageConverter()), new StoreRegionResolver(properties), properties, streamProperties);
+    }
+
+    @Test
+    void testLifecycleEventIsPublishedWithEventAndRegion() {
+        // Given
+        when(orderEventTransport.publish(anyString(), anyString(), any())).thenReturn(true);
+        OrderDto order = order("store001");
+
+        // When
+        listener.handleOrderEvent(new OrderOperationEvent(this, EventTypeEnum.ORDER_CANCELLED, order));
+
+        // Then
+        ArgumentCaptor<Message> message = ArgumentCaptor.forClass(Message.class);
+        verify(orderEventTransport).publish(eq(OrderRoutingConfig.ORDER_EVENT_EXCHANGE), eq("order.order_cancelled.east"),
+                message.capture());
+        assertEquals("order_cancelled", message.getValue().getMessageProperties().getHeader(OrderMessageCodec.EVENT_TYPE_HEADER));
+        assertEquals(OrderMessageCodec.CONTENT_TYPE, message.getValue().getMessageProperties().getContentType());
+        assertNotNull(message.getValue().getMessageProperties().getMessageId());
+        OrderMessage decoded = OrderMessageCodec.decode(message.getValue().getBody());
+        assertEquals("o1", decoded.getId());
+        assertEquals("store001", decoded.getStoreId());
+    }
+
+    @Test
+    void testUnknownStoreUsesDefaultRegion() {
+        // Given
+        when(orderEventTransport.publish(anyString(), anyString(), any())).thenReturn(true);
+
+        // When
+        listener.handleOrderEvent(new OrderOperationEvent(this, EventTypeEnum.ORDER_CREATED, order("store999")));
+
+        // Then
+        verify(orderEventTransport).publish(eq(OrderRoutingConfig.ORDER_EVENT_EXCHANGE), eq("order.order_created.default"),
+                any(Message.class));
+    }
+
+    @Test
+    void testNonOrderEventIsIgnored() {
+        // When
+        listener.handleOrderEvent(new OrderOperationEvent(this, EventTypeEnum.PAYMENT_SUCCESS, order("store001")));
+
+        // Then
+        verifyNoInteractions(orderEventTransport);
+    }
+
+    @Test
+    void testLifecycleEventWithoutBindingIsNotPublished() {
+        // When 默认配置下没有消费者绑定 order_updated 和 order_shipped
+        listener.handleOrderEvent(new OrderOperationEvent(this, EventTypeEnum.ORDER_UPDATED, order("store001")));
+        listener.handleOrderEvent(new OrderOperationEvent(this, EventTypeEnum.ORDER_SHIPPED, order("store001")));
+
+        // Then
+        verifyNoInteractions(orderEventTransport);
+    }
+
+    @Test
+    void testStreamBindingCountsWhenStreamIsEnabled() {
+        // Given 事件流以 order.# 绑定，统计、CRM服务改为消费事件流后去掉了各自的通知队列绑定
+        when(orderEventTransport.publish(anyString(), anyString(), any())).thenReturn(true);
+        streamProperties.setEnabled(true);
+        properties.getBindings().remove("stat");
+        properties.getBindings().remove("crm");
+        listener = new OrderEventMqListener(orderEventTransport,
+                new OrderMessageConverter(new Jackson2JsonMessageConverter()), new StoreRegionResolver(properties), properties,
+                streamProperties);
+
+        // When
+        listener.handleOrderEvent(new OrderOperationEvent(this, EventTypeEnum.ORDER_PAID, order("store001")));
+
+        // Then
+        verify(orderEventTransport).publish(eq(OrderRoutingConfig.ORDER_EVENT_EXCHANGE), eq("order.order_paid.east"),
+                any(Message.class));
+    }
+
+    @Test
+    void testEveryPublishedEventTypeHasAMatchingBinding() {
+        // Given
+        when(orderEventTransport.publish(anyString(), anyString(), any())).thenReturn(true);
+
+        // When
+        for (EventTypeEnum eventType : OrderEventMqListener.LIFECYCLE_EVENTS) {
+            listener.handleOrderEvent(new OrderOperationEvent(this, eventType, order("store001")));
+        }
+
+        // Then 发布出去的路由键都至少匹配一个消费者队列的绑定
+        ArgumentCaptor<String> routingKeys = ArgumentCaptor.forClass(String.class);
+        verify(orderEventTransport, atLeastOnce()).publish(eq(OrderRoutingConfig.ORDER_EVENT_EXCHANGE), routingKeys.capture(),
+                any(Message.class));
+        for (String routingKey : routingKeys.getAllValues()) {
+            assertTrue(properties.getBindings().values().stream().anyMatch(patterns -> matches(patterns, routingKey)),
+                    routingKey);
+        }
+        assertEquals(5, routingKeys.getAllValues().size());
+    }
+
+    @Test
+    void testDefaultBindingsGiveEachConsumerItsSlice() {
+        // Given
+        String created = OrderRoutingConfig.routingKey(EventTypeEnum.ORDER_CREATED, "east");
+        String paid = OrderRoutingConfig.routingKey(EventTypeEnum.ORDER_PAID, "east");
+        String updated = OrderRoutingConfig.routingKey(EventTypeEnum.ORDER_UPDATED, "east");
+
+        // When
+        Map<String, List<String>> bindings = properties.getBindings();
+
+        // Then
+        assertFalse(matches(bindings.get("stat"), created));
+        assertTrue(matches(bindings.get("stat"), paid));
+        assertTrue(matches(bindings.get("crm"), created));
+        assertFalse(matches(bindings.get("inventory"), paid));
+        assertTrue(bindings.values().stream().noneMatch(patterns -> matches(patterns, updated)));
+    }
+
+    /**
+     * 按主题交换机规则匹配：* 匹配一段，# 匹配零或多段
+     */
+    private static boolean matches(List<String> patterns, String routingKey) {
+        return patterns.stream().anyMatch(pattern -> routingKey.matches(
+                pattern.replace(".", "\\.").replace("*", "[^.]+").replace("\\.#", "(\\..+)?").replace("#", ".*")));
+    }
+
+    private static OrderDto order(String storeId) {
+        return OrderDto.builder()
+                .id("o1")
+                .userId("user001")
+                .storeId(storeId)
+                .amount(new BigDecimal("99.99"))
+                .build();
+    }
+}
@@ -1,60 +1,79 @@
 package com.cy.order.listener;
 
 import com.cy.order.dto.OrderDto;
+import com.cy.order.enums.OrderStatusEnum;
 import com.cy.order.event.EventTypeEnum;
 import com.cy.order.event.OrderOperationEvent;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.OrderTopicRouter;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
-import org.mockito.MockedStatic;
+import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.time.LocalDateTime;
 import java.util.UUID;
 
-import static org.junit.jupiter.api.Assertions.assertDoesNotThrow;
+import static org.mockito.AdditionalMatchers.and;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 class UserNotificationListenerTest {
 
+    @Mock
+    private OrderTopicRouter orderTopicRouter;
+
     @Test
     void testHandleOrderOperationEventWithOrderCreated() {
-        // Given
-        UserNotificationListener listener = new UserNotificationListener();
-        OrderDto order = createTestOrder();
+        // Given 订单创建由门店通知监听器推送
+        UserNotificationListener listener = new UserNotificationListener(orderTopicRouter);
+        OrderDto order = createTestOrder(OrderStatusEnum.CREATED);
         OrderOperationEvent event = new OrderOperationEvent(this, EventTypeEnum.ORDER_CREATED, order);
-        
-        // Mock WebSocket endpoint static method
-        try (MockedStatic<com.cy.order.websocket.AppWebSocketEndpoint> mockedWebSocket = 
-                mockStatic(com.cy.order.websocket.AppWebSocketEndpoint.class)) {
-            
-            // When
-            listener.handleOrderOperationEvent(event);
-            
-            // Then
-            mockedWebSocket.verify(() -> 
-                com.cy.order.websocket.AppWebSocketEndpoint.sendMessageToUser(
-                    eq(order.getUserId()), anyString()));
-        }
+
+        // When
+        listener.handleOrderOperationEvent(event);
+
+        // Then
+        verifyNoInteractions(orderTopicRouter);
+    }
+
+    @Test
+    void testStatusEventIsRoutedToUserAndOrderSubscribers() {
+        // Given
+        UserNotificationListener listener = new UserNotificationListener(orderTopicRouter);
+        OrderDto order = createTestOrder(OrderStatusEnum.COMPLETED);
+        OrderOperationEvent event = new OrderOperationEvent(this, EventTypeEnum.ORDER_COMPLETED, order);
+
+        // When
+        listener.handleOrderOperationEvent(event);
+
+        // Then
+        verify(orderTopicRouter).publish(eq(order), and(contains("\"order_completed\""), contains("\"COMPLETED\"")),
+                eq(ClientType.USER));
     }
 
     @Test
     void testHandleOrderOperationEventWithOrderCancelled() {
         // Given
-        UserNotificationListener listener = new UserNotificationListener();
-        OrderDto order = createTestOrder();
+        UserNotificationListener listener = new UserNotificationListener(orderTopicRouter);
+        OrderDto order = createTestOrder(OrderStatusEnum.CANCELLED);
         OrderOperationEvent event = new OrderOperationEvent(this, EventTypeEnum.ORDER_CANCELLED, order);
-        
-        // When & Then
-        assertDoesNotThrow(() -> listener.handleOrderOperationEvent(event));
+
+        // When
+        listener.handleOrderOperationEvent(event);
+
+        // Then 取消同时通知门店
+        verify(orderTopicRouter).publish(eq(order), contains("\"order_cancelled\""), eq(ClientType.USER),
+                eq(ClientType.STORE));
     }
 
-    private OrderDto createTestOrder() {
+    private OrderDto createTestOrder(OrderStatusEnum status) {
         return OrderDto.builder()
                 .id(UUID.randomUUID().toString())
                 .orderNumber("ORD20231029001")
                 .userId("user001")
                 .storeId("store001")
+                .status(status)
                 .createTime(LocalDateTime.now())
                 .build();
     }
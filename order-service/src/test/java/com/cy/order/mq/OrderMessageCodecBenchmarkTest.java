@@ -0,0 +1,94 @@
+package com.cy.order.mq;
+
+import com.cy.order.dto.OrderDto;
+import com.cy.order.dto.OrderItemDto;
+import com.cy.order.enums.OrderStatusEnum;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConverter;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 对比订单消息二进制编码与JSON的消息体大小和编解码耗时
+ * 耗时只输出供对比，只在 benchmark 配置下运行（mvn test -Pbenchmark）；消息体大小由 {@link OrderMessageConverterTest} 断言
+ */
+@Tag("benchmark")
+class OrderMessageCodecBenchmarkTest {
+
+    /**
+     * 每轮处理的订单项总数，订单项越多迭代次数越少
+     */
+    private static final int ITEMS_PER_ROUND = 500000;
+
+    private final MessageConverter json = new Jackson2JsonMessageConverter();
+
+    private final MessageConverter binary = new OrderMessageConverter(new Jackson2JsonMessageConverter());
+
+    @Test
+    void compareWithJson() {
+        for (int items : new int[]{1, 5, 200}) {
+            // Given
+            OrderDto order = order(items);
+            Message jsonMessage = json.toMessage(order, new MessageProperties());
+            Message binaryMessage = binary.toMessage(order, new MessageProperties());
+
+            // When
+            int iterations = ITEMS_PER_ROUND / items;
+            long jsonEncode = measure(iterations, () -> json.toMessage(order, new MessageProperties()));
+            long binaryEncode = measure(iterations, () -> binary.toMessage(order, new MessageProperties()));
+            long jsonDecode = measure(iterations, () -> json.fromMessage(jsonMessage));
+            long binaryDecode = measure(iterations, () -> binary.fromMessage(binaryMessage));
+
+            // Then
+            int jsonBytes = jsonMessage.getBody().length;
+            int binaryBytes = binaryMessage.getBody().length;
+            System.out.printf("order with %d items: json %d bytes, encode %d ns, decode %d ns; "
+                            + "binary %d bytes, encode %d ns, decode %d ns%n",
+                    items, jsonBytes, jsonEncode, jsonDecode, binaryBytes, binaryEncode, binaryDecode);
+            assertTrue(binaryBytes * 2 < jsonBytes, "binary " + binaryBytes + " json " + jsonBytes);
+        }
+    }
+
+    /**
+     * @return 单次平均耗时（纳秒）
+     */
+    private static long measure(int iterations, Runnable task) {
+        for (int i = 0; i < iterations / 5; i++) {
+            task.run();
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < iterations; i++) {
+            task.run();
+        }
+        return (System.nanoTime() - start) / iterations;
+    }
+
+    private static OrderDto order(int itemCount) {
+        List<OrderItemDto> items = new ArrayList<>();
+        for (int i = 0; i < itemCount; i++) {
+            items.add(new OrderItemDto("P" + (10000 + i), "套餐" + i, 1 + i % 3, new BigDecimal("18.50")));
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return OrderDto.builder()
+                .id(UUID.randomUUID().toString())
+                .orderNumber("ORD" + System.currentTimeMillis())
+                .userId("u10001")
+                .storeId("s001")
+                .amount(new BigDecimal("18.50").multiply(BigDecimal.valueOf(itemCount)))
+                .status(OrderStatusEnum.PAID)
+                .items(items)
+                .createTime(now)
+                .updateTime(now)
+                .build();
+    }
+}
@@ -0,0 +1,150 @@
+package com.cy.order.mq;
+
+import com.cy.common.mq.OrderMessage;
+import com.cy.common.mq.OrderMessageCodec;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.dto.OrderItemDto;
+import com.cy.order.enums.OrderStatusEnum;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.support.converter.Jackson2JsonMessageConverter;
+import org.springframework.amqp.support.converter.MessageConversionException;
+
+import java.math.BigDecimal;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OrderMessageConverterTest {
+
+    private final OrderMessageConverter converter = new OrderMessageConverter(new Jackson2JsonMessageConverter());
+
+    @Test
+    void testOrderRoundTrip() {
+        // Given
+        LocalDateTime createTime = LocalDateTime.of(2024, 5, 1, 12, 30, 15, 123_000_000);
+        OrderDto order = OrderDto.builder()
+                .id("o1")
+                .orderNumber("ORD-o1")
+                .userId("u1")
+                .storeId("s1")
+                .amount(new BigDecimal("128.50"))
+                .status(OrderStatusEnum.PAID)
+                .items(List.of(new OrderItemDto("p1", "拿铁", 2, new BigDecimal("64.25"))))
+                .createTime(createTime)
+                .build();
+
+        // When
+        Message message = converter.toMessage(order, new MessageProperties());
+        OrderMessage decoded = (OrderMessage) converter.fromMessage(message);
+
+        // Then
+        MessageProperties properties = message.getMessageProperties();
+        assertEquals(OrderMessageCodec.CONTENT_TYPE, properties.getContentType());
+        assertEquals(OrderMessageCodec.SCHEMA_ID, properties.getHeader(OrderMessageCodec.SCHEMA_ID_HEADER));
+        assertEquals(OrderMessageCodec.SCHEMA_VERSION, (Integer) properties.getHeader(OrderMessageCodec.SCHEMA_VERSION_HEADER));
+        assertEquals("o1", decoded.getId());
+        assertEquals("PAID", decoded.getStatus());
+        assertEquals(12850L, decoded.getAmount());
+        assertEquals(new BigDecimal("128.50"), decoded.amountDecimal());
+        assertEquals(createTime.atZone(ZoneId.systemDefault()).toInstant().toEpochMilli(), decoded.getCreateTime());
+        assertNull(decoded.getUpdateTime());
+        assertEquals(new OrderMessage.Item("p1", "拿铁", 2, 6425L), decoded.getItems().get(0));
+    }
+
+    @Test
+    void testAbsentFieldsStayNull() {
+        // Given 状态更新事件只带部分字段
+        OrderDto order = OrderDto.builder().id("o1").status(OrderStatusEnum.CANCELLED).build();
+
+        // When
+        OrderMessage decoded = OrderMessageCodec.decode(converter.toMessage(order, new MessageProperties()).getBody());
+
+        // Then
+        assertEquals("o1", decoded.getId());
+        assertEquals("CANCELLED", decoded.getStatus());
+        assertNull(decoded.getAmount());
+        assertNull(decoded.getItems());
+        assertNull(decoded.getStoreId());
+    }
+
+    @Test
+    void testTruncatedBodyIsRejected() {
+        // Given
+        byte[] body = converter.toMessage(order(), new MessageProperties()).getBody();
+        Message truncated = new Message(Arrays.copyOf(body, body.length - 3), contentType());
+
+        // When / Then
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(truncated));
+    }
+
+    @Test
+    void testNewerVersionIsRejected() {
+        // Given 不兼容的新版本
+        byte[] body = converter.toMessage(order(), new MessageProperties()).getBody();
+        body[0] = OrderMessageCodec.SCHEMA_VERSION + 1;
+        Message newer = new Message(body, contentType());
+
+        // When / Then
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(newer));
+    }
+
+    @Test
+    void testBinaryBodyIsLessThanHalfOfJson() {
+        // Given 5个订单项的订单
+        List<OrderItemDto> items = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            items.add(new OrderItemDto("P" + (10000 + i), "套餐" + i, 1 + i % 3, new BigDecimal("18.50")));
+        }
+        OrderDto order = OrderDto.builder()
+                .id("o1")
+                .orderNumber("ORD1")
+                .userId("u1")
+                .storeId("s1")
+                .amount(new BigDecimal("92.50"))
+                .status(OrderStatusEnum.PAID)
+                .items(items)
+                .createTime(LocalDateTime.now())
+                .updateTime(LocalDateTime.now())
+                .build();
+
+        // When
+        int binaryBytes = converter.toMessage(order, new MessageProperties()).getBody().length;
+        int jsonBytes = new Jackson2JsonMessageConverter().toMessage(order, new MessageProperties()).getBody().length;
+
+        // Then
+        assertTrue(binaryBytes * 2 < jsonBytes, "binary " + binaryBytes + " json " + jsonBytes);
+    }
+
+    @Test
+    void testOtherPayloadsUseJson() {
+        // When
+        Message message = converter.toMessage(Map.of("type", "ping"), new MessageProperties());
+
+        // Then
+        assertEquals(MessageProperties.CONTENT_TYPE_JSON, message.getMessageProperties().getContentType());
+        assertEquals(Map.of("type", "ping"), converter.fromMessage(message));
+    }
+
+    private static OrderDto order() {
+        return OrderDto.builder()
+                .id("o1")
+                .storeId("s1")
+                .amount(BigDecimal.valueOf(100))
+                .status(OrderStatusEnum.CREATED)
+                .createTime(LocalDateTime.now())
+                .build();
+    }
+
+    private static MessageProperties contentType() {
+        MessageProperties properties = new MessageProperties();
+        properties.setContentType(OrderMessageCodec.CONTENT_TYPE);
+        return properties;
+    }
+}
@@ -0,0 +1,337 @@
+package com.cy.order.mq;
+
+import com.cy.common.mq.DecompressingPostProcessor;
+import com.cy.common.mq.MessageCompression;
+import com.cy.order.config.MqPublisherProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.Connection;
+import org.springframework.amqp.rabbit.connection.ConnectionBlockedEvent;
+import org.springframework.amqp.rabbit.connection.ConnectionUnblockedEvent;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderMessagePublisherTest {
+
+    @Mock
+    private RabbitTemplate rabbitTemplate;
+
+    @Mock
+    private RabbitOperations operations;
+
+    private final MqPublisherProperties properties = new MqPublisherProperties();
+
+    private OrderMessagePublisher publisher;
+
+    // 每次发送的关联数据，按发送顺序
+    private final List<CorrelationData> sent = new ArrayList<>();
+
+    // 每次发送的消息，按发送顺序
+    private final List<Message> sentMessages = new ArrayList<>();
+
+    @BeforeEach
+    void setUp() {
+        properties.setBatchMaxDelay(0);
+        properties.setRetryInitialInterval(0);
+        properties.setShutdownTimeout(0);
+        publisher = new OrderMessagePublisher(properties, rabbitTemplate, new SimpleMessageConverter());
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        publisher.stop();
+    }
+
+    @Test
+    void testBatchIsSentOnOneChannelAndConfirmsTracked() throws Exception {
+        // Given
+        stubChannel();
+        for (int i = 0; i < 3; i++) {
+            assertTrue(publisher.publish("order.fanout.exchange", "", "order-" + i));
+        }
+
+        // When
+        assertEquals(3, sendNextBatch());
+        assertEquals(3, publisher.getStats().getInFlight());
+        for (CorrelationData correlation : sent) {
+            correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }
+
+        // Then
+        verify(rabbitTemplate, times(1)).invoke(any(RabbitOperations.OperationsCallback.class));
+        OrderMessagePublisher.PublisherStats stats = publisher.getStats();
+        assertEquals(3, stats.getConfirmed());
+        assertEquals(0, stats.getInFlight());
+        assertEquals(1, stats.getBatches());
+    }
+
+    @Test
+    void testBurstIsSentInFullBatchesWithOneChannelPerBatch() throws Exception {
+        // Given 批量大小100，在途上限40时每批不超过40条
+        stubChannel();
+        properties.setBatchSize(100);
+        properties.setMaxInFlight(40);
+        publisher = new OrderMessagePublisher(properties, rabbitTemplate, new SimpleMessageConverter());
+        for (int i = 0; i < 100; i++) {
+            assertTrue(publisher.publish("order.fanout.exchange", "", "order-" + i));
+        }
+
+        // When 每批发出后全部确认，归还在途许可
+        List<Integer> batchSizes = new ArrayList<>();
+        int size;
+        while ((size = sendNextBatch()) > 0) {
+            batchSizes.add(size);
+            for (CorrelationData correlation : sent) {
+                correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+            }
+            if (publisher.getStats().getPublished() == 100) {
+                break;
+            }
+        }
+
+        // Then 借用信道的次数等于批数，每批的确认数等于批量大小
+        assertEquals(List.of(40, 40, 20), batchSizes);
+        verify(rabbitTemplate, times(3)).invoke(any(RabbitOperations.OperationsCallback.class));
+        OrderMessagePublisher.PublisherStats stats = publisher.getStats();
+        assertEquals(3, stats.getBatches());
+        assertEquals(100, stats.getConfirmed());
+        assertEquals(0, stats.getInFlight());
+    }
+
+    @Test
+    void testNackIsRetriedWithSameMessageId() throws Exception {
+        // Given
+        stubChannel();
+        publisher.publish("order.fanout.exchange", "", "order");
+        sendNextBatch();
+
+        // When
+        sent.get(0).getFuture().complete(new CorrelationData.Confirm(false, "internal error"));
+
+        // Then 重新入队并以新的关联ID再次发送
+        assertEquals(1, sendNextBatch());
+        assertEquals(1, publisher.getStats().getNacked());
+        assertEquals(1, publisher.getStats().getRetried());
+        String messageId = sent.get(0).getId().substring(0, sent.get(0).getId().indexOf(':'));
+        assertEquals(messageId + ":2", sent.get(1).getId());
+    }
+
+    @Test
+    void testPublishMessageKeepsMessageId() throws Exception {
+        // Given
+        stubChannel();
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setMessageId("m1");
+
+        // When
+        assertTrue(publisher.publishMessage("order.event.exchange", "order.order_paid.east",
+                new Message("order".getBytes(), messageProperties)));
+        sendNextBatch();
+
+        // Then
+        assertEquals("m1:1", sent.get(0).getId());
+        assertEquals("m1", sentMessages.get(0).getMessageProperties().getMessageId());
+    }
+
+    @Test
+    void testReturnedMessageIsDroppedNotRetried() throws Exception {
+        // Given
+        stubChannel();
+        publisher.publish("order.fanout.exchange", "", "order");
+        sendNextBatch();
+
+        // When 路由失败时确认仍为ack，退回信息先于确认写入
+        CorrelationData correlation = sent.get(0);
+        correlation.setReturned(new ReturnedMessage(new Message(new byte[0], new MessageProperties()),
+                312, "NO_ROUTE", "order.fanout.exchange", ""));
+        correlation.getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        // Then 无法路由是拓扑问题，不重试也不写入本地缓存
+        assertEquals(1, publisher.getStats().getReturned());
+        assertEquals(0, publisher.getStats().getConfirmed());
+        assertEquals(0, publisher.getStats().getRetried());
+        assertEquals(0, publisher.getStats().getSpooled());
+        assertEquals(0, sendNextBatch());
+        assertEquals(0, publisher.getStats().getInFlight());
+    }
+
+    @Test
+    void testGivesUpAfterMaxRetries() throws Exception {
+        // Given
+        properties.setMaxRetries(0);
+        stubChannel();
+        publisher.publish("order.fanout.exchange", "", "order");
+        sendNextBatch();
+
+        // When
+        sent.get(0).getFuture().complete(new CorrelationData.Confirm(false, "internal error"));
+
+        // Then
+        assertEquals(1, publisher.getStats().getFailed());
+        assertEquals(0, publisher.getStats().getRetried());
+    }
+
+    @Test
+    void testLateConfirmAfterTimeoutIsIgnored() throws Exception {
+        // Given
+        properties.setConfirmTimeout(0);
+        stubChannel();
+        publisher.publish("order.fanout.exchange", "", "order");
+        sendNextBatch();
+        Thread.sleep(1);
+
+        // When
+        publisher.expireUnconfirmed();
+        sent.get(0).getFuture().complete(new CorrelationData.Confirm(true, null));
+
+        // Then 超时后按重试处理，迟到的确认不计入
+        assertEquals(1, publisher.getStats().getTimedOut());
+        assertEquals(0, publisher.getStats().getConfirmed());
+        assertEquals(1, sendNextBatch());
+    }
+
+    @Test
+    void testConnectionFailureRequeuesWholeBatch() throws Exception {
+        // Given
+        when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class)))
+                .thenThrow(new AmqpConnectException(new java.net.ConnectException("refused")));
+        publisher.publish("order.fanout.exchange", "", "order-1");
+        publisher.publish("order.fanout.exchange", "", "order-2");
+
+        // When
+        List<OrderMessagePublisher.PendingMessage> batch = new ArrayList<>();
+        assertTrue(publisher.nextBatch(batch));
+        publisher.sendBatch(batch);
+
+        // Then
+        assertEquals(2, publisher.getStats().getRetried());
+        assertEquals(0, publisher.getStats().getInFlight());
+    }
+
+    @Test
+    void testPublishingPausesWhileConnectionBlocked() throws Exception {
+        // Given
+        stubChannel();
+        publisher.start();
+        Connection connection = mock(Connection.class);
+        publisher.onConnectionBlocked(new ConnectionBlockedEvent(connection, "low on memory"));
+
+        // When 流控期间发布只入队，不占用信道
+        assertTrue(publisher.publish("order.fanout.exchange", "", "order"));
+        Thread.sleep(200);
+
+        // Then
+        verify(rabbitTemplate, never()).invoke(any(RabbitOperations.OperationsCallback.class));
+        assertTrue(publisher.getStats().isBlocked());
+        assertEquals(1, publisher.getStats().getQueued());
+
+        // When
+        publisher.onConnectionUnblocked(new ConnectionUnblockedEvent(connection));
+
+        // Then
+        verify(rabbitTemplate, timeout(1000)).invoke(any(RabbitOperations.OperationsCallback.class));
+        assertFalse(publisher.getStats().isBlocked());
+        assertEquals(1, publisher.getStats().getBlockedEvents());
+    }
+
+    @Test
+    void testLargeMessageIsCompressed() throws Exception {
+        // Given 大额团餐订单的消息体
+        properties.setCompressionThreshold(1024);
+        stubChannel();
+        String payload = "{\"productId\":\"P10001\",\"quantity\":2,\"price\":1850}".repeat(200);
+
+        // When
+        publisher.publish("order.fanout.exchange", "", payload);
+        publisher.publish("order.fanout.exchange", "", "small");
+        sendNextBatch();
+
+        // Then 消费端解压后与原消息一致
+        Message large = sentMessages.get(0);
+        assertEquals(MessageCompression.ENCODING_DEFLATE, large.getMessageProperties().getContentEncoding());
+        assertTrue(large.getBody().length < payload.length() / 10);
+        Message restored = new DecompressingPostProcessor().postProcessMessage(large);
+        assertEquals(payload, new String(restored.getBody(), StandardCharsets.UTF_8));
+        assertNull(restored.getMessageProperties().getHeader(MessageCompression.ORIGINAL_LENGTH_HEADER));
+        assertNotEquals(MessageCompression.ENCODING_DEFLATE, sentMessages.get(1).getMessageProperties().getContentEncoding());
+        assertEquals(1, publisher.getStats().getCompressed());
+        assertTrue(publisher.getStats().getCompressionSavedBytes() > 0);
+    }
+
+    @Test
+    void testIncompressibleMessageIsSentAsIs() throws Exception {
+        // Given
+        properties.setCompressionThreshold(16);
+        stubChannel();
+        byte[] random = new byte[4096];
+        new java.util.Random(1).nextBytes(random);
+
+        // When
+        publisher.publish("order.fanout.exchange", "", random);
+        sendNextBatch();
+
+        // Then
+        assertArrayEquals(random, sentMessages.get(0).getBody());
+        assertEquals(0, publisher.getStats().getCompressed());
+    }
+
+    @Test
+    void testBackoffIsCapped() {
+        // Given
+        properties.setRetryInitialInterval(200);
+        properties.setRetryMaxInterval(1000);
+
+        // When / Then
+        assertEquals(200, publisher.backoff(1));
+        assertEquals(400, publisher.backoff(2));
+        assertEquals(1000, publisher.backoff(5));
+    }
+
+    @SuppressWarnings("unchecked")
+    private void stubChannel() {
+        when(rabbitTemplate.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation ->
+                ((RabbitOperations.OperationsCallback<Object>) invocation.getArgument(0)).doInRabbit(operations));
+        doAnswer(invocation -> {
+            sentMessages.add(invocation.getArgument(2));
+            sent.add(invocation.getArgument(3));
+            return null;
+        }).when(operations).send(anyString(), anyString(), any(Message.class), any(CorrelationData.class));
+    }
+
+    /**
+     * 等待重试入队后取出一批发送
+     *
+     * @return 本批发送的消息数
+     */
+    private int sendNextBatch() throws Exception {
+        List<OrderMessagePublisher.PendingMessage> batch = new ArrayList<>();
+        long deadline = System.currentTimeMillis() + 1000;
+        while (!publisher.nextBatch(batch) && System.currentTimeMillis() < deadline) {
+            // 重试由调度线程异步入队
+        }
+        if (!batch.isEmpty()) {
+            publisher.sendBatch(batch);
+        }
+        return batch.size();
+    }
+}
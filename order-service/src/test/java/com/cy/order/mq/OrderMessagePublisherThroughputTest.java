@@ -0,0 +1,114 @@
+package com.cy.order.mq;
+
+import com.cy.order.config.MqPublisherProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitOperations;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+/**
+ * 在本地broker替身上对比逐条发送与批量异步发布的吞吐
+ * 替身按固定开销模拟：每次借用信道（连接缓存取信道、confirmSelect等）约100微秒，每条消息写入约2微秒，
+ * 发布确认在1毫秒后异步到达。结果受机器负载影响，只在 benchmark 配置下运行（mvn test -Pbenchmark），
+ * 批量和确认计数由 {@link OrderMessagePublisherTest} 断言
+ */
+@Tag("benchmark")
+class OrderMessagePublisherThroughputTest {
+
+    private static final int MESSAGES = 5000;
+
+    private static final long CHECKOUT_NANOS = TimeUnit.MICROSECONDS.toNanos(100);
+
+    private static final long WRITE_NANOS = TimeUnit.MICROSECONDS.toNanos(2);
+
+    private final ScheduledExecutorService broker = Executors.newSingleThreadScheduledExecutor();
+
+    private OrderMessagePublisher publisher;
+
+    @AfterEach
+    void tearDown() throws Exception {
+        if (publisher != null) {
+            publisher.stop();
+        }
+        broker.shutdownNow();
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void compareBatchedPublisherWithPerMessageSend() throws Exception {
+        // Given
+        RabbitOperations channel = mock(RabbitOperations.class);
+        doAnswer(invocation -> {
+            spin(WRITE_NANOS);
+            CorrelationData correlation = invocation.getArgument(3);
+            if (correlation != null) {
+                broker.schedule(() -> correlation.getFuture().complete(new CorrelationData.Confirm(true, null)),
+                        1, TimeUnit.MILLISECONDS);
+            }
+            return null;
+        }).when(channel).send(anyString(), anyString(), any(Message.class), any());
+        RabbitTemplate template = mock(RabbitTemplate.class);
+        when(template.invoke(any(RabbitOperations.OperationsCallback.class))).thenAnswer(invocation -> {
+            spin(CHECKOUT_NANOS);
+            return ((RabbitOperations.OperationsCallback<Object>) invocation.getArgument(0)).doInRabbit(channel);
+        });
+        Message message = new Message("{\"id\":\"order\"}".getBytes(), new MessageProperties());
+
+        // When 逐条发送：每条消息单独借用信道，与原来的 convertAndSend 相同
+        long start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            template.invoke(operations -> {
+                operations.send("order.fanout.exchange", "", message, null);
+                return null;
+            });
+        }
+        long perMessageNanos = System.nanoTime() - start;
+
+        // When 批量异步发布，直到全部确认
+        MqPublisherProperties properties = new MqPublisherProperties();
+        properties.setShutdownTimeout(0);
+        publisher = new OrderMessagePublisher(properties, template, new SimpleMessageConverter());
+        publisher.start();
+        start = System.nanoTime();
+        for (int i = 0; i < MESSAGES; i++) {
+            assertTrue(publisher.publish("order.fanout.exchange", "", "order-" + i));
+        }
+        long deadline = System.currentTimeMillis() + 30000;
+        while (publisher.getStats().getConfirmed() < MESSAGES && System.currentTimeMillis() < deadline) {
+            Thread.sleep(1);
+        }
+        long batchedNanos = System.nanoTime() - start;
+
+        // Then
+        OrderMessagePublisher.PublisherStats stats = publisher.getStats();
+        double perMessageRate = MESSAGES * 1e9 / perMessageNanos;
+        double batchedRate = MESSAGES * 1e9 / batchedNanos;
+        System.out.printf("publish x%d: per-message %.0f msg/s, batched %.0f msg/s (%.1fx, %d batches, avg confirm %dus)%n",
+                MESSAGES, perMessageRate, batchedRate, batchedRate / perMessageRate,
+                stats.getBatches(), stats.getAverageConfirmLatencyMicros());
+        assertEquals(MESSAGES, stats.getConfirmed());
+        assertTrue(batchedRate > perMessageRate * 3, "batched " + batchedRate + " per-message " + perMessageRate);
+    }
+
+    private static void spin(long nanos) {
+        long end = System.nanoTime() + nanos;
+        while (System.nanoTime() < end) {
+            LockSupport.parkNanos(1000);
+        }
+    }
+}
@@ -0,0 +1,141 @@
+package com.cy.order.mq.deadletter;
+
+import com.cy.order.config.MqDeadLetterProperties;
+import com.rabbitmq.client.Channel;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.rabbit.connection.ConnectionFactory;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+class DeadLetterProcessorTest {
+
+    @TempDir
+    Path directory;
+
+    private final MqDeadLetterProperties properties = new MqDeadLetterProperties();
+
+    private final Channel channel = mock(Channel.class);
+
+    private ParkingLot parkingLot;
+
+    private DeadLetterProcessor processor;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(4096);
+        properties.setParkRetryInterval(0);
+        parkingLot = new ParkingLot(properties);
+        parkingLot.open();
+        processor = new DeadLetterProcessor(properties, mock(ConnectionFactory.class), parkingLot);
+    }
+
+    @AfterEach
+    void tearDown() {
+        parkingLot.close();
+    }
+
+    @Test
+    void testBatchIsParkedByReasonAndAckedOnce() throws Exception {
+        // Given
+        List<Message> batch = List.of(
+                deadLetter(1, "expired", false),
+                deadLetter(2, "rejected", false),
+                deadLetter(3, "expired", false));
+
+        // When
+        processor.onMessageBatch(batch, channel);
+
+        // Then
+        verify(channel).basicAck(3, true);
+        verifyNoMoreInteractions(channel);
+        assertEquals(2, parkingLot.getPendingMessages(DeadLetterReason.EXPIRED));
+        assertEquals(1, parkingLot.getPendingMessages(DeadLetterReason.REJECTED));
+        DeadLetterProcessor.DeadLetterStats stats = processor.getStats();
+        assertEquals(3, stats.getReceived());
+        assertEquals(2, stats.getReceivedByReason().get("expired"));
+        assertEquals(1, stats.getReceivedByReason().get("rejected"));
+        assertEquals(3, stats.getInflowInWindow());
+        assertEquals(3.0 / 60, stats.getInflowRate(), 0.01);
+        assertEquals(3, stats.getParked());
+        assertEquals(2, stats.getParkingLot().get("expired").getMessages());
+    }
+
+    @Test
+    void testRedeliveredDeadLetterIsNotCountedAsInflowAgain() throws Exception {
+        // When
+        processor.onMessageBatch(List.of(deadLetter(1, "expired", false)), channel);
+        processor.onMessageBatch(List.of(deadLetter(2, "expired", true)), channel);
+
+        // Then
+        assertEquals(1, processor.getStats().getReceived());
+        assertEquals(2, processor.getStats().getParked());
+    }
+
+    @Test
+    void testDeadLettersThatCannotBeParkedAreRequeued() throws Exception {
+        // Given 停放区只放得下一条
+        parkingLot.close();
+        properties.setMaxBytes(400);
+        parkingLot = new ParkingLot(properties);
+        parkingLot.open();
+        processor = new DeadLetterProcessor(properties, mock(ConnectionFactory.class), parkingLot);
+
+        // When
+        processor.onMessageBatch(List.of(deadLetter(1, "expired", false), deadLetter(2, "expired", false)), channel);
+
+        // Then
+        verify(channel).basicAck(1, false);
+        verify(channel).basicNack(2, false, true);
+        assertEquals(1, parkingLot.getPendingMessages(DeadLetterReason.EXPIRED));
+        assertEquals(1, processor.getStats().getParkFailures());
+    }
+
+    @Test
+    void testDeadLetterThatFailsToWriteIsRejectedWithoutRequeue() throws Exception {
+        // Given 第二条写入停放区时出错
+        ParkingLot failingParkingLot = mock(ParkingLot.class);
+        when(failingParkingLot.park(any()))
+                .thenReturn(true)
+                .thenThrow(new UncheckedIOException(new IOException("无法序列化")))
+                .thenReturn(true);
+        processor = new DeadLetterProcessor(properties, mock(ConnectionFactory.class), failingParkingLot);
+
+        // When
+        processor.onMessageBatch(List.of(deadLetter(1, "expired", false), deadLetter(2, "expired", false),
+                deadLetter(3, "expired", false)), channel);
+
+        // Then
+        verify(channel).basicAck(1, false);
+        verify(channel).basicNack(2, false, false);
+        verify(channel).basicAck(3, false);
+        verifyNoMoreInteractions(channel);
+        assertEquals(2, processor.getStats().getParked());
+        assertEquals(1, processor.getStats().getRejected());
+        assertEquals(0, processor.getStats().getParkFailures());
+    }
+
+    private static Message deadLetter(long deliveryTag, String reason, boolean redelivered) {
+        MessageProperties properties = new MessageProperties();
+        properties.setMessageId("m" + deliveryTag);
+        properties.setDeliveryTag(deliveryTag);
+        properties.setRedelivered(redelivered);
+        properties.setReceivedRoutingKey("order.stat.#");
+        properties.setHeader("x-death", List.of(Map.of("reason", reason, "queue", "order.stat.queue",
+                "exchange", "order.stat.exchange", "routing-keys", List.of("order.stat.#"), "count", 1L)));
+        return new Message(new byte[100], properties);
+    }
+}
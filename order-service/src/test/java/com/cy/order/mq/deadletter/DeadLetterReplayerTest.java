@@ -0,0 +1,236 @@
+package com.cy.order.mq.deadletter;
+
+import com.cy.order.config.MqDeadLetterProperties;
+import com.cy.order.config.MqPublisherProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+import org.springframework.amqp.core.ReturnedMessage;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+
+import java.net.ConnectException;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 停放的死信经本地模拟的 broker 回放：按停放顺序、限速、确认后才从停放区移除
+ */
+class DeadLetterReplayerTest {
+
+    @TempDir
+    Path directory;
+
+    private final MqDeadLetterProperties properties = new MqDeadLetterProperties();
+
+    private final MqPublisherProperties publisherProperties = new MqPublisherProperties();
+
+    private final StubBroker broker = new StubBroker();
+
+    private ParkingLot parkingLot;
+
+    private DeadLetterReplayer replayer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(4096);
+        properties.setReplayBatchSize(10);
+        publisherProperties.setConfirmTimeout(1000);
+        parkingLot = new ParkingLot(properties);
+        parkingLot.open();
+        replayer = new DeadLetterReplayer(properties, publisherProperties, broker, parkingLot);
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        replayer.stop();
+        parkingLot.close();
+    }
+
+    @Test
+    void testReplaySendsMessagesToConsumedQueueInOrder() {
+        // Given
+        park(30, "expired");
+        park(5, "rejected");
+
+        // When
+        replayer.replay(DeadLetterReason.EXPIRED, 20, 1000.0);
+
+        // Then
+        await().atMost(5, TimeUnit.SECONDS).until(() -> replayer.getStatus().getState() == DeadLetterReplayer.ReplayState.COMPLETED);
+        assertEquals(20, replayer.getStatus().getReplayed());
+        assertEquals(20, broker.received.size());
+        for (int i = 0; i < 20; i++) {
+            Sent sent = broker.received.get(i);
+            assertEquals("expired-" + i, sent.message.getMessageProperties().getMessageId());
+            assertEquals("", sent.exchange);
+            assertEquals("order.notify.queue.stat", sent.routingKey);
+            assertFalse(sent.message.getMessageProperties().getHeaders().containsKey(DeadLetter.REASON_HEADER));
+            assertEquals(1L, (Long) sent.message.getMessageProperties().getHeader(DeadLetter.COUNT_HEADER));
+        }
+        assertEquals(10, parkingLot.getPendingMessages(DeadLetterReason.EXPIRED));
+        assertEquals(5, parkingLot.getPendingMessages(DeadLetterReason.REJECTED));
+    }
+
+    @Test
+    void testReplayTargetIsConfigurable() {
+        // Given
+        properties.setReplayExchange("order.event.exchange");
+        properties.setReplayRoutingKey("order.order_paid.default");
+        park(2, "expired");
+
+        // When
+        replayer.replay(null, 2, 1000.0);
+
+        // Then
+        await().atMost(5, TimeUnit.SECONDS).until(() -> replayer.getStatus().getState() == DeadLetterReplayer.ReplayState.COMPLETED);
+        assertEquals(2, broker.received.size());
+        for (Sent sent : broker.received) {
+            assertEquals("order.event.exchange", sent.exchange);
+            assertEquals("order.order_paid.default", sent.routingKey);
+        }
+    }
+
+    @Test
+    void testReplayToOriginalExchangeWhenNoRoutingKeyIsConfigured() {
+        // Given
+        properties.setReplayRoutingKey("");
+        park(2, "expired");
+
+        // When
+        replayer.replay(null, 2, 1000.0);
+
+        // Then
+        await().atMost(5, TimeUnit.SECONDS).until(() -> replayer.getStatus().getState() == DeadLetterReplayer.ReplayState.COMPLETED);
+        assertEquals(2, broker.received.size());
+        for (Sent sent : broker.received) {
+            assertEquals("order.stat.exchange", sent.exchange);
+            assertEquals("order.stat.#", sent.routingKey);
+        }
+    }
+
+    @Test
+    void testReplayIsRateLimited() {
+        // Given
+        park(60, "expired");
+
+        // When 100条/秒，突发10条
+        long start = System.nanoTime();
+        replayer.replay(null, 60, 100.0);
+        await().atMost(5, TimeUnit.SECONDS).until(() -> replayer.getStatus().getState() == DeadLetterReplayer.ReplayState.COMPLETED);
+
+        // Then 60条至少需要约0.5秒
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(60, broker.received.size());
+        assertEquals(0, parkingLot.getPendingMessages(DeadLetterReason.EXPIRED));
+    }
+
+    @Test
+    void testOnlyOneReplayRunsAtATime() {
+        // Given
+        park(50, "expired");
+        replayer.replay(null, 50, 10.0);
+
+        // When / Then
+        assertThrows(IllegalStateException.class, () -> replayer.replay(null, 50, 10.0));
+        assertTrue(replayer.cancel());
+        await().atMost(5, TimeUnit.SECONDS).until(() -> replayer.getStatus().getState() == DeadLetterReplayer.ReplayState.CANCELLED);
+        assertTrue(parkingLot.getPendingMessages(DeadLetterReason.EXPIRED) > 0);
+    }
+
+    @Test
+    void testRateAboveMaximumIsRejected() {
+        assertThrows(IllegalArgumentException.class, () -> replayer.replay(null, 10, properties.getReplayMaxRate() + 1));
+        assertThrows(IllegalArgumentException.class, () -> replayer.replay(null, 0, null));
+    }
+
+    @Test
+    void testBrokerUnavailableKeepsMessagesParked() {
+        // Given
+        park(5, "expired");
+        broker.down = true;
+
+        // When
+        replayer.replay(null, 5, 1000.0);
+
+        // Then
+        await().atMost(5, TimeUnit.SECONDS).until(() -> replayer.getStatus().getState() == DeadLetterReplayer.ReplayState.FAILED);
+        assertEquals(5, parkingLot.getPendingMessages(DeadLetterReason.EXPIRED));
+        assertEquals(0, replayer.getStatus().getReplayed());
+    }
+
+    @Test
+    void testUnroutableMessageIsReparked() {
+        // Given
+        park(3, "expired");
+        broker.unroutable = "expired-1";
+
+        // When
+        replayer.replay(DeadLetterReason.EXPIRED, 3, 1000.0);
+
+        // Then 只回放开始时已停放的3条，重新停放的不会在本次任务中再次回放
+        await().atMost(5, TimeUnit.SECONDS).until(() -> replayer.getStatus().getState() == DeadLetterReplayer.ReplayState.COMPLETED);
+        assertEquals(2, replayer.getStatus().getReplayed());
+        assertEquals(1, replayer.getStatus().getReparked());
+        assertEquals(3, broker.received.size());
+        assertEquals(1, parkingLot.getPendingMessages(DeadLetterReason.EXPIRED));
+        Message reparked = parkingLot.read(DeadLetterReason.EXPIRED, 1).get(0).getMessage();
+        assertEquals("expired-1", reparked.getMessageProperties().getMessageId());
+        assertEquals("expired", reparked.getMessageProperties().getHeader(DeadLetter.REASON_HEADER));
+    }
+
+    private void park(int count, String reason) {
+        for (int i = 0; i < count; i++) {
+            MessageProperties properties = new MessageProperties();
+            properties.setMessageId(reason + "-" + i);
+            properties.setReceivedRoutingKey("order.stat.#");
+            properties.setHeader("x-death", List.of(Map.of("reason", reason, "queue", "order.stat.queue",
+                    "exchange", "order.stat.exchange", "routing-keys", List.of("order.stat.#"), "count", 1L)));
+            assertTrue(parkingLot.park(DeadLetter.classify(new Message(new byte[]{(byte) i}, properties), "order.stat.exchange")));
+        }
+    }
+
+    private record Sent(String exchange, String routingKey, Message message) {
+    }
+
+    /**
+     * 本地模拟的 broker：不可用时连接失败，可指定一条消息无法路由，其余消息记录后立即确认
+     */
+    private static class StubBroker extends RabbitTemplate {
+
+        private volatile boolean down;
+
+        private volatile String unroutable;
+
+        private final List<Sent> received = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public <T> T invoke(OperationsCallback<T> action) {
+            if (down) {
+                throw new AmqpConnectException(new ConnectException("Connection refused"));
+            }
+            return action.doInRabbit(this);
+        }
+
+        @Override
+        public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+            received.add(new Sent(exchange, routingKey, message));
+            if (message.getMessageProperties().getMessageId().equals(unroutable)) {
+                correlationData.setReturned(new ReturnedMessage(message, 312, "NO_ROUTE", exchange, routingKey));
+            }
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }
+    }
+}
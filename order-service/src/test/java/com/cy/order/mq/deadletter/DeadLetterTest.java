@@ -0,0 +1,126 @@
+package com.cy.order.mq.deadletter;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.util.Date;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class DeadLetterTest {
+
+    private static final String DEFAULT_EXCHANGE = "order.stat.exchange";
+
+    @Test
+    void testExpiredMessageIsClassifiedFromXDeath() {
+        // Given
+        MessageProperties properties = deadLettered();
+        properties.setHeader("x-death", List.of(
+                Map.of("reason", "expired", "queue", "order.stat.queue", "exchange", "order.stat.exchange",
+                        "routing-keys", List.of("order.stat.#"), "count", 2L, "time", new Date()),
+                Map.of("reason", "rejected", "queue", "order.other.queue", "exchange", "order.other.exchange",
+                        "routing-keys", List.of("other"), "count", 1L)));
+
+        // When
+        DeadLetter deadLetter = DeadLetter.classify(new Message(new byte[]{1}, properties), DEFAULT_EXCHANGE);
+
+        // Then 取最近一次死信
+        assertEquals(DeadLetterReason.EXPIRED, deadLetter.getReason());
+        assertEquals("order.stat.queue", deadLetter.getQueue());
+        assertEquals("order.stat.exchange", deadLetter.getExchange());
+        assertEquals("order.stat.#", deadLetter.getRoutingKey());
+        assertEquals(2, deadLetter.getCount());
+    }
+
+    @Test
+    void testLastDeathHeadersTakePrecedence() {
+        // Given
+        MessageProperties properties = deadLettered();
+        properties.setHeader("x-first-death-reason", "expired");
+        properties.setHeader("x-last-death-reason", "maxlen");
+        properties.setHeader("x-last-death-queue", "order.stat.queue");
+        properties.setHeader("x-last-death-exchange", "");
+
+        // When
+        DeadLetter deadLetter = DeadLetter.classify(new Message(new byte[]{1}, properties), DEFAULT_EXCHANGE);
+
+        // Then 默认交换机（空字符串）是合法的原交换机
+        assertEquals(DeadLetterReason.MAXLEN, deadLetter.getReason());
+        assertEquals("", deadLetter.getExchange());
+        assertEquals("order.stat.#", deadLetter.getRoutingKey());
+        assertEquals(1, deadLetter.getCount());
+    }
+
+    @Test
+    void testMessageWithoutDeathHeadersFallsBackToDefaultExchange() {
+        // When
+        DeadLetter deadLetter = DeadLetter.classify(new Message(new byte[]{1}, deadLettered()), DEFAULT_EXCHANGE);
+
+        // Then
+        assertEquals(DeadLetterReason.UNKNOWN, deadLetter.getReason());
+        assertNull(deadLetter.getQueue());
+        assertEquals(DEFAULT_EXCHANGE, deadLetter.getExchange());
+        assertEquals("order.stat.#", deadLetter.getRoutingKey());
+    }
+
+    @Test
+    void testUnrecognisedReasonIsUnknown() {
+        assertEquals(DeadLetterReason.UNKNOWN, DeadLetterReason.fromCode("something_new"));
+        assertEquals(DeadLetterReason.DELIVERY_LIMIT, DeadLetterReason.fromCode("delivery_limit"));
+    }
+
+    @Test
+    void testParkedMessageDropsBrokerHeadersAndAccumulatesCount() {
+        // Given 回放后再次死信
+        MessageProperties properties = deadLettered();
+        properties.setMessageId("m1");
+        properties.setContentType("application/x-cy-order");
+        properties.setTimestamp(new Date(1714537815000L));
+        properties.setCorrelationId("c-1");
+        properties.setExpiration("60000");
+        properties.setHeader("x-event-type", "order_paid");
+        properties.setHeader(DeadLetter.COUNT_HEADER, 1L);
+        properties.setHeader("x-death", List.of(Map.of("reason", "expired", "queue", "order.stat.queue",
+                "exchange", "order.stat.exchange", "routing-keys", List.of("order.stat.#"), "count", 1L)));
+        properties.setHeader("x-first-death-reason", "expired");
+        properties.setHeader("x-last-death-reason", "expired");
+        DeadLetter deadLetter = DeadLetter.classify(new Message(new byte[]{1, 2}, properties), DEFAULT_EXCHANGE);
+
+        // When
+        Message parked = deadLetter.toParked();
+
+        // Then
+        MessageProperties parkedProperties = parked.getMessageProperties();
+        assertEquals("m1", parkedProperties.getMessageId());
+        assertEquals("application/x-cy-order", parkedProperties.getContentType());
+        assertEquals(new Date(1714537815000L), parkedProperties.getTimestamp());
+        assertEquals("c-1", parkedProperties.getCorrelationId());
+        assertNull(parkedProperties.getExpiration());
+        assertEquals("order_paid", parkedProperties.getHeader("x-event-type"));
+        assertEquals("expired", parkedProperties.getHeader(DeadLetter.REASON_HEADER));
+        assertEquals("order.stat.queue", parkedProperties.getHeader(DeadLetter.QUEUE_HEADER));
+        assertEquals(2L, (Long) parkedProperties.getHeader(DeadLetter.COUNT_HEADER));
+        assertFalse(parkedProperties.getHeaders().containsKey("x-death"));
+        assertFalse(parkedProperties.getHeaders().containsKey("x-first-death-reason"));
+        assertFalse(parkedProperties.getHeaders().containsKey("x-last-death-reason"));
+        assertArrayEquals(new byte[]{1, 2}, parked.getBody());
+
+        // When
+        Message replay = DeadLetter.toReplay(parked);
+
+        // Then
+        assertFalse(replay.getMessageProperties().getHeaders().containsKey(DeadLetter.REASON_HEADER));
+        assertFalse(replay.getMessageProperties().getHeaders().containsKey(DeadLetter.QUEUE_HEADER));
+        assertEquals(2L, (Long) replay.getMessageProperties().getHeader(DeadLetter.COUNT_HEADER));
+    }
+
+    private static MessageProperties deadLettered() {
+        MessageProperties properties = new MessageProperties();
+        properties.setReceivedExchange("order.stat.dlx");
+        properties.setReceivedRoutingKey("order.stat.#");
+        return properties;
+    }
+}
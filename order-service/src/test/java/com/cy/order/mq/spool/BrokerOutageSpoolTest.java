@@ -0,0 +1,166 @@
+package com.cy.order.mq.spool;
+
+import com.cy.order.config.MqPublisherProperties;
+import com.cy.order.config.MqSpoolProperties;
+import com.cy.order.mq.OrderMessagePublisher;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.AmqpConnectException;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.rabbit.connection.CorrelationData;
+import org.springframework.amqp.rabbit.core.RabbitTemplate;
+import org.springframework.amqp.support.converter.SimpleMessageConverter;
+
+import java.net.ConnectException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * broker 中断期间的发布：重试耗尽的消息写入本地缓存，服务重启后缓存仍在，broker 恢复后按顺序全部补发
+ */
+class BrokerOutageSpoolTest {
+
+    private static final int MESSAGES = 300;
+
+    @TempDir
+    Path directory;
+
+    private final MqPublisherProperties publisherProperties = new MqPublisherProperties();
+
+    private final MqSpoolProperties spoolProperties = new MqSpoolProperties();
+
+    private final StubBroker broker = new StubBroker();
+
+    private MessageSpool spool;
+
+    private OrderMessagePublisher publisher;
+
+    private SpoolDrainer drainer;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        publisherProperties.setBatchMaxDelay(0);
+        publisherProperties.setMaxRetries(1);
+        publisherProperties.setRetryInitialInterval(10);
+        publisherProperties.setShutdownTimeout(100);
+        publisherProperties.setConfirmTimeout(1000);
+        spoolProperties.setDirectory(directory.toString());
+        spoolProperties.setSegmentSize(4096);
+        spoolProperties.setReplayRate(1000);
+        spoolProperties.setReplayRetryInterval(20);
+        spoolProperties.setReplayRetryMaxInterval(50);
+        spoolProperties.setPollInterval(20);
+        start();
+    }
+
+    @AfterEach
+    void tearDown() throws Exception {
+        drainer.stop();
+        publisher.stop();
+        spool.close();
+    }
+
+    @Test
+    void outage_ShouldSpoolAndReplayAllMessagesInOrder() throws Exception {
+        // Given broker 不可用
+        broker.down = true;
+        for (int i = 0; i < MESSAGES; i++) {
+            assertTrue(publisher.publish("order.event.exchange", "order.order_paid.default", "order-" + i));
+        }
+
+        // When 重试耗尽后写入缓存
+        await().atMost(5, TimeUnit.SECONDS).until(() -> spool.getPendingMessages() == MESSAGES);
+
+        // Then
+        SpoolDrainer.SpoolStats stats = drainer.getStats();
+        assertEquals(MESSAGES, stats.getSpooled());
+        assertTrue(stats.getOldestAgeMillis() >= 0);
+        assertTrue(stats.getSegments() > 1);
+        assertTrue(stats.getReplayFailures() > 0);
+        assertEquals(0, publisher.getStats().getFailed());
+
+        // When 服务重启后 broker 恢复
+        tearDown();
+        start();
+        assertEquals(MESSAGES, spool.getPendingMessages());
+        broker.down = false;
+
+        // Then 全部补发，按写入顺序，无丢失
+        await().atMost(5, TimeUnit.SECONDS).until(() -> spool.getPendingMessages() == 0);
+        assertEquals(MESSAGES, broker.received.size());
+        for (int i = 0; i < MESSAGES; i++) {
+            assertEquals("order-" + i, broker.received.get(i));
+        }
+        assertEquals(MESSAGES, drainer.getStats().getReplayed());
+        assertEquals(1, spool.getSegmentCount());
+    }
+
+    @Test
+    void replay_ShouldBeRateLimited() throws Exception {
+        // Given
+        spoolProperties.setReplayRate(100);
+        spoolProperties.setReplayBatchSize(10);
+        tearDown();
+        start();
+        for (int i = 0; i < 60; i++) {
+            spool.append("m-" + i, "order.event.exchange", "order.order_paid.default",
+                    new Message(("order-" + i).getBytes(StandardCharsets.UTF_8)));
+        }
+
+        // When
+        long start = System.nanoTime();
+        await().atMost(5, TimeUnit.SECONDS).until(() -> spool.getPendingMessages() == 0);
+
+        // Then 100条/秒，突发10条，60条至少需要约0.5秒
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(400));
+        assertEquals(60, broker.received.size());
+    }
+
+    private void start() throws Exception {
+        spool = new MessageSpool(spoolProperties);
+        spool.open();
+        publisher = new OrderMessagePublisher(publisherProperties, broker, new SimpleMessageConverter());
+        publisher.setSpool(spool);
+        publisher.start();
+        drainer = new SpoolDrainer(spoolProperties, publisherProperties, broker, spool);
+        drainer.start();
+    }
+
+    /**
+     * 本地模拟的 broker：不可用时连接失败，恢复后记录收到的消息并立即确认
+     */
+    private static class StubBroker extends RabbitTemplate {
+
+        private volatile boolean down;
+
+        private final List<String> received = Collections.synchronizedList(new ArrayList<>());
+
+        @Override
+        public <T> T invoke(OperationsCallback<T> action) {
+            checkConnection();
+            return action.doInRabbit(this);
+        }
+
+        @Override
+        public void send(String exchange, String routingKey, Message message, CorrelationData correlationData) {
+            checkConnection();
+            received.add(new String(message.getBody(), StandardCharsets.UTF_8));
+            correlationData.getFuture().complete(new CorrelationData.Confirm(true, null));
+        }
+
+        private void checkConnection() {
+            if (down) {
+                throw new AmqpConnectException(new ConnectException("Connection refused"));
+            }
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package com.cy.order.mq.spool;
+
+import com.cy.order.config.MqSpoolProperties;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.amqp.core.Message;
+import org.springframework.amqp.core.MessageDeliveryMode;
+import org.springframework.amqp.core.MessageProperties;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class MessageSpoolTest {
+
+    @TempDir
+    Path directory;
+
+    private MqSpoolProperties properties;
+
+    private MessageSpool spool;
+
+    @BeforeEach
+    void setUp() throws IOException {
+        properties = new MqSpoolProperties();
+        properties.setDirectory(directory.toString());
+        properties.setSegmentSize(1024);
+        spool = new MessageSpool(properties);
+        spool.open();
+    }
+
+    @AfterEach
+    void tearDown() {
+        spool.close();
+    }
+
+    @Test
+    void appendAndRead_ShouldKeepOrderAndMessageProperties() {
+        // Given
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setContentType("application/x-cy-order");
+        messageProperties.setContentEncoding("deflate");
+        messageProperties.setHeader("x-event-type", "order_paid");
+        messageProperties.setHeader("x-original-length", 2048);
+        spool.append("m-1", "order.event.exchange", "order.order_paid.east",
+                new Message("paid".getBytes(StandardCharsets.UTF_8), messageProperties));
+        spool.append("m-2", "order.event.exchange", "order.order_completed.east", message("completed"));
+
+        // When
+        List<SpooledMessage> batch = spool.read(10);
+
+        // Then
+        assertEquals(2, batch.size());
+        SpooledMessage first = batch.get(0);
+        assertEquals("m-1", first.getId());
+        assertEquals("order.order_paid.east", first.getRoutingKey());
+        MessageProperties restored = first.getMessage().getMessageProperties();
+        assertEquals("m-1", restored.getMessageId());
+        assertEquals("application/x-cy-order", restored.getContentType());
+        assertEquals("deflate", restored.getContentEncoding());
+        assertEquals("order_paid", restored.getHeader("x-event-type"));
+        assertEquals(2048, (Integer) restored.getHeader("x-original-length"));
+        assertEquals("completed", new String(batch.get(1).getMessage().getBody(), StandardCharsets.UTF_8));
+        assertEquals(2, spool.getPendingMessages());
+    }
+
+    @Test
+    void appendAndRead_ShouldKeepPublishProperties() {
+        // Given
+        MessageProperties messageProperties = new MessageProperties();
+        messageProperties.setTimestamp(new Date(1714537815000L));
+        messageProperties.setDeliveryMode(MessageDeliveryMode.NON_PERSISTENT);
+        messageProperties.setPriority(5);
+        messageProperties.setCorrelationId("c-1");
+        messageProperties.setType("order_paid");
+        messageProperties.setReplyTo("order.reply");
+        messageProperties.setExpiration("60000");
+        messageProperties.setAppId("order-service");
+        spool.append("m-1", "order.event.exchange", "order.order_paid.east",
+                new Message("paid".getBytes(StandardCharsets.UTF_8), messageProperties));
+        spool.append("m-2", "order.event.exchange", "order.order_paid.east", message("defaults"));
+
+        // When
+        List<SpooledMessage> batch = spool.read(10);
+
+        // Then
+        MessageProperties restored = batch.get(0).getMessage().getMessageProperties();
+        assertEquals(new Date(1714537815000L), restored.getTimestamp());
+        assertEquals(MessageDeliveryMode.NON_PERSISTENT, restored.getDeliveryMode());
+        assertEquals(5, restored.getPriority());
+        assertEquals("c-1", restored.getCorrelationId());
+        assertEquals("order_paid", restored.getType());
+        assertEquals("order.reply", restored.getReplyTo());
+        assertEquals("60000", restored.getExpiration());
+        assertEquals("order-service", restored.getAppId());
+        MessageProperties defaults = batch.get(1).getMessage().getMessageProperties();
+        assertNull(defaults.getTimestamp());
+        assertEquals(MessageDeliveryMode.PERSISTENT, defaults.getDeliveryMode());
+    }
+
+    @Test
+    void decode_ShouldReadRecordsWrittenBeforeFormatVersion() throws IOException {
+        // Given 升级前的记录以缓存时间开头，只有 content-type、content-encoding 和消息头
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        DataOutputStream out = new DataOutputStream(bytes);
+        out.writeLong(1714537815000L);
+        out.writeUTF("m-1");
+        out.writeUTF("order.event.exchange");
+        out.writeUTF("order.order_paid.east");
+        out.writeBoolean(true);
+        out.writeUTF("application/x-cy-order");
+        out.writeBoolean(false);
+        out.writeInt(1);
+        out.writeUTF("x-event-type");
+        out.writeByte(1);
+        out.writeUTF("order_paid");
+        out.writeInt(4);
+        out.write("paid".getBytes(StandardCharsets.UTF_8));
+
+        // When
+        SpooledMessage decoded = SpooledMessage.decode(bytes.toByteArray(), 0, 0);
+
+        // Then
+        assertEquals(1714537815000L, decoded.getSpooledAt());
+        assertEquals("order.order_paid.east", decoded.getRoutingKey());
+        MessageProperties restored = decoded.getMessage().getMessageProperties();
+        assertEquals("application/x-cy-order", restored.getContentType());
+        assertEquals("order_paid", restored.getHeader("x-event-type"));
+        assertEquals(MessageDeliveryMode.PERSISTENT, restored.getDeliveryMode());
+        assertEquals("paid", new String(decoded.getMessage().getBody(), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    void commit_ShouldAdvanceAndDeleteDrainedSegments() throws IOException {
+        // Given 每个段只放得下几条消息
+        for (int i = 0; i < 50; i++) {
+            assertTrue(spool.append("m-" + i, "exchange", "key", message("x".repeat(100))));
+        }
+        assertTrue(spool.getSegmentCount() > 1);
+
+        // When
+        spool.commit(spool.read(45));
+
+        // Then
+        List<SpooledMessage> rest = spool.read(10);
+        assertEquals(5, rest.size());
+        assertEquals("m-45", rest.get(0).getId());
+        assertEquals(5, spool.getPendingMessages());
+        assertEquals(spool.getSegmentCount(), segmentFiles());
+    }
+
+    @Test
+    void open_ShouldResumeFromCheckpoint() throws IOException {
+        // Given
+        for (int i = 0; i < 20; i++) {
+            spool.append("m-" + i, "exchange", "key", message("order-" + i));
+        }
+        spool.commit(spool.read(12));
+        spool.close();
+
+        // When 模拟重启
+        spool = new MessageSpool(properties);
+        spool.open();
+
+        // Then
+        assertEquals(8, spool.getPendingMessages());
+        assertEquals("m-12", spool.read(1).get(0).getId());
+        assertTrue(spool.append("m-20", "exchange", "key", message("order-20")));
+        List<SpooledMessage> all = spool.read(100);
+        assertEquals("m-20", all.get(all.size() - 1).getId());
+    }
+
+    @Test
+    void open_ShouldTruncateTornRecord() throws IOException {
+        // Given
+        spool.append("m-1", "exchange", "key", message("complete"));
+        spool.append("m-2", "exchange", "key", message("torn"));
+        spool.close();
+        Path segment;
+        try (Stream<Path> files = Files.list(directory)) {
+            segment = files.filter(path -> path.toString().endsWith(".seg")).findFirst().orElseThrow();
+        }
+        // 破坏第二条记录的最后一个字节，模拟写到一半时进程崩溃
+        try (RandomAccessFile file = new RandomAccessFile(segment.toFile(), "rw")) {
+            int second = 8 + file.readInt();
+            file.seek(second);
+            long secondEnd = second + 8L + file.readInt();
+            file.seek(secondEnd - 1);
+            int last = file.read();
+            file.seek(secondEnd - 1);
+            file.write(last ^ 0xFF);
+        }
+
+        // When
+        spool = new MessageSpool(properties);
+        spool.open();
+
+        // Then
+        assertEquals(1, spool.getPendingMessages());
+        assertEquals("m-1", spool.read(10).get(0).getId());
+    }
+
+    @Test
+    void append_WhenFull_ShouldDrop() {
+        // Given
+        properties.setMaxBytes(300);
+
+        // When
+        boolean first = spool.append("m-1", "exchange", "key", message("x".repeat(100)));
+        boolean second = spool.append("m-2", "exchange", "key", message("x".repeat(200)));
+
+        // Then
+        assertTrue(first);
+        assertFalse(second);
+        assertEquals(1, spool.getDropped());
+    }
+
+    private Message message(String body) {
+        return new Message(body.getBytes(StandardCharsets.UTF_8), new MessageProperties());
+    }
+
+    private long segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(directory)) {
+            return files.filter(path -> path.toString().endsWith(".seg")).count();
+        }
+    }
+}
@@ -2,6 +2,10 @@ package com.cy.order.service;
 
 import com.cy.order.config.WebSocketProperties;
 import com.cy.order.websocket.ClientSessionManager;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.SessionContext;
+import com.cy.order.websocket.SessionLifecycleListener;
+import jakarta.websocket.CloseReason;
 import jakarta.websocket.Session;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
@@ -10,7 +14,21 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.springframework.web.socket.WebSocketSession;
 
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
 import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
@@ -86,4 +104,143 @@ class ClientSessionManagerTest {
         assertEquals(0, clientSessionManager.getStoreSessionCount());
         assertFalse(clientSessionManager.isStoreOnline(storeId));
     }
-}
\ No newline at end of file
+
+    @Test
+    void testExpiryFollowsAdvisedHeartbeatInterval() throws Exception {
+        // Given 会话被建议了极短的心跳间隔
+        Map<String, Object> userProperties = new HashMap<>();
+        when(webSocketSession.getUserProperties()).thenReturn(userProperties);
+        when(webSocketSession.isOpen()).thenReturn(true);
+        clientSessionManager.addStoreSession("store1", webSocketSession);
+        SessionContext.bind(webSocketSession).adviseHeartbeat(1, 5);
+
+        // When / Then 全局超时未到，但已超过会话自身的超时
+        await().atMost(Duration.ofSeconds(1)).until(() -> !clientSessionManager.isStoreOnline("store1"));
+        verify(webSocketProperties, never()).getHeartbeatTimeout();
+    }
+
+    @Test
+    void testMultipleSessionsPerStore() throws Exception {
+        // Given 同一门店的三个终端，上限为2
+        WebSocketProperties.Endpoint endpoint = new WebSocketProperties.Endpoint();
+        endpoint.setMaxSessionsPerClient(2);
+        when(webSocketProperties.getStore()).thenReturn(endpoint);
+        Session first = storeSession("s1");
+        Session second = storeSession("s2");
+        Session third = storeSession("s3");
+
+        // When
+        clientSessionManager.addStoreSession("store1", first);
+        clientSessionManager.addStoreSession("store1", second);
+        clientSessionManager.addStoreSession("store1", third);
+
+        // Then 超出上限时关闭最早的会话，门店只计一次
+        verify(first).close(any(CloseReason.class));
+        assertEquals(List.of(second, third), clientSessionManager.getStoreSessions("store1"));
+        assertSame(third, clientSessionManager.getStoreSession("store1"));
+        assertEquals(1, clientSessionManager.getStoreSessionCount());
+        assertEquals(2, clientSessionManager.getConnectionCount());
+
+        // When 关闭其中一个终端
+        clientSessionManager.removeSession(third);
+
+        // Then 门店仍然在线
+        assertEquals(List.of(second), clientSessionManager.getStoreSessions("store1"));
+        assertEquals(1, clientSessionManager.getStoreSessionCount());
+
+        // When 关闭最后一个终端
+        clientSessionManager.removeSession(second);
+
+        // Then
+        assertTrue(clientSessionManager.getStoreSessions("store1").isEmpty());
+        assertEquals(0, clientSessionManager.getStoreSessionCount());
+    }
+
+    @Test
+    void testSessionBoundToMultipleStores() {
+        // Given 连锁后台的一个连接同时绑定三个门店
+        Session console = storeSession("console");
+        SessionContext.of(console).getClientIds().addAll(List.of("store1", "store2", "store3"));
+
+        // When
+        clientSessionManager.addStoreSessions(List.of("store1", "store2", "store3"), console);
+
+        // Then
+        assertEquals(3, clientSessionManager.getStoreSessionCount());
+        assertSame(console, clientSessionManager.getStoreSession("store2"));
+
+        // When
+        clientSessionManager.removeSession(console);
+
+        // Then 连接关闭后三个门店同时下线
+        assertEquals(0, clientSessionManager.getStoreSessionCount());
+    }
+
+    @Test
+    void testPresenceEventsAreOrderedPerClient() throws Exception {
+        // Given 同一门店的终端在多个线程上反复连接、断开
+        List<Boolean> events = Collections.synchronizedList(new ArrayList<>());
+        clientSessionManager.addLifecycleListener(new SessionLifecycleListener() {
+            @Override
+            public void onSessionAdded(ClientType type, String clientId) {
+                events.add(true);
+            }
+
+            @Override
+            public void onSessionRemoved(ClientType type, String clientId) {
+                events.add(false);
+            }
+        });
+        int threads = 4;
+        int rounds = 100;
+        List<List<Session>> sessions = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            List<Session> perThread = new ArrayList<>();
+            for (int i = 0; i < rounds; i++) {
+                perThread.add(storeSession("s" + t + "-" + i));
+            }
+            sessions.add(perThread);
+        }
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<?>> futures = new ArrayList<>();
+
+        // When
+        for (List<Session> perThread : sessions) {
+            futures.add(executor.submit(() -> {
+                start.await();
+                for (Session session : perThread) {
+                    clientSessionManager.addStoreSession("store1", session);
+                    clientSessionManager.removeSession(session);
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> future : futures) {
+            future.get(10, TimeUnit.SECONDS);
+        }
+        executor.shutdown();
+
+        // Then 上线、下线严格交替，最后一次是下线
+        assertEquals(0, clientSessionManager.getStoreSessionCount());
+        assertFalse(events.isEmpty());
+        for (int i = 0; i < events.size(); i++) {
+            assertEquals(i % 2 == 0, events.get(i), "event " + i);
+        }
+        assertEquals(0, events.size() % 2);
+    }
+
+    private Session storeSession(String sessionId) {
+        Session session = mock(Session.class);
+        SessionContext context = new SessionContext();
+        context.setClientId("store1");
+        context.setClientType(ClientType.STORE);
+        Map<String, Object> userProperties = new HashMap<>();
+        userProperties.put(SessionContext.KEY, context);
+        lenient().when(session.getId()).thenReturn(sessionId);
+        lenient().when(session.isOpen()).thenReturn(true);
+        lenient().when(session.getUserProperties()).thenReturn(userProperties);
+        return session;
+    }
+}
@@ -98,4 +98,53 @@ class OrderServiceTest {
         // Then
         assertNull(order);
     }
+
+    @Test
+    void updateOrderStatus_ShouldPublishEventMatchingStatus() {
+        // When
+        orderService.updateOrderStatus("order1", OrderStatusEnum.CANCELLED, "store1", "user1");
+        orderService.updateOrderStatus("order1", OrderStatusEnum.PROCESSING, "store1", "user1");
+
+        // Then
+        verify(eventPublisher, times(2)).publishEvent(eventCaptor.capture());
+        assertEquals(EventTypeEnum.ORDER_CANCELLED, eventCaptor.getAllValues().get(0).getEventType());
+        assertEquals(EventTypeEnum.ORDER_UPDATED, eventCaptor.getAllValues().get(1).getEventType());
+    }
+
+    @Test
+    void cancelOrder_WithCreatedOrder_ShouldCancelAndPublishEvent() {
+        // Given
+        String orderId = orderService.createOrder(orderRequestDto);
+
+        // When
+        boolean cancelled = orderService.cancelOrder(orderId);
+
+        // Then
+        assertTrue(cancelled);
+        assertEquals(OrderStatusEnum.CANCELLED, orderService.getOrderById(orderId).getStatus());
+        verify(eventPublisher, times(2)).publishEvent(eventCaptor.capture());
+        assertEquals(EventTypeEnum.ORDER_CANCELLED, eventCaptor.getValue().getEventType());
+        assertFalse(orderService.cancelOrder(orderId));
+        assertFalse(orderService.cancelOrder("non-existing-id"));
+    }
+
+    @Test
+    void cancelUnpaidOrder_ShouldOnlyCancelCreatedOrder() {
+        // Given
+        String unpaid = orderService.createOrder(orderRequestDto);
+        orderService.updateOrderStatus("paid-order", OrderStatusEnum.PAID, "store1", "user1");
+
+        // When
+        boolean unpaidCancelled = orderService.cancelUnpaidOrder(unpaid);
+        boolean paidCancelled = orderService.cancelUnpaidOrder("paid-order");
+
+        // Then
+        assertTrue(unpaidCancelled);
+        assertFalse(paidCancelled);
+        assertEquals(OrderStatusEnum.PAID, orderService.getOrderById("paid-order").getStatus());
+        verify(eventPublisher, times(3)).publishEvent(eventCaptor.capture());
+        OrderOperationEvent cancelEvent = eventCaptor.getValue();
+        assertEquals(EventTypeEnum.ORDER_CANCELLED, cancelEvent.getEventType());
+        assertEquals(OrderService.SYSTEM_OPERATOR, cancelEvent.getOperatorId());
+    }
 }
\ No newline at end of file
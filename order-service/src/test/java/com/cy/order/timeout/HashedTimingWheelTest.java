@@ -0,0 +1,106 @@
+package com.cy.order.timeout;
+
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+
+class HashedTimingWheelTest {
+
+    private final HashedTimingWheel wheel = new HashedTimingWheel("test-wheel", 10, TimeUnit.MILLISECONDS, 8, Runnable::run);
+
+    @AfterEach
+    void tearDown() {
+        wheel.stop();
+    }
+
+    @Test
+    void newTimeout_ShouldFireAfterDelay() throws InterruptedException {
+        // Given
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // When
+        HashedTimingWheel.Timeout timeout = wheel.newTimeout(fired::countDown, 50, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(50));
+        assertTrue(timeout.isExpired());
+        assertFalse(timeout.cancel());
+    }
+
+    @Test
+    void newTimeout_WithDelayLongerThanOneRound_ShouldWaitRemainingRounds() throws InterruptedException {
+        // Given 8个槽位 x 10ms，一圈80ms
+        CountDownLatch fired = new CountDownLatch(1);
+        long start = System.nanoTime();
+
+        // When
+        wheel.newTimeout(fired::countDown, 250, TimeUnit.MILLISECONDS);
+
+        // Then
+        assertTrue(fired.await(1, TimeUnit.SECONDS));
+        assertTrue(System.nanoTime() - start >= TimeUnit.MILLISECONDS.toNanos(250));
+    }
+
+    @Test
+    void cancel_ShouldPreventFiringAndReleasePending() throws InterruptedException {
+        // Given
+        AtomicInteger fired = new AtomicInteger();
+        HashedTimingWheel.Timeout timeout = wheel.newTimeout(fired::incrementAndGet, 50, TimeUnit.MILLISECONDS);
+
+        // When
+        boolean cancelled = timeout.cancel();
+
+        // Then
+        assertTrue(cancelled);
+        assertTrue(timeout.isCancelled());
+        assertFalse(timeout.cancel());
+        await().atMost(1, TimeUnit.SECONDS).until(() -> wheel.pendingTimeouts() == 0);
+        // 之后设置的同延迟任务触发时，时间轮已越过被取消任务的到期tick
+        CountDownLatch passed = new CountDownLatch(1);
+        wheel.newTimeout(passed::countDown, 50, TimeUnit.MILLISECONDS);
+        assertTrue(passed.await(1, TimeUnit.SECONDS));
+        assertEquals(0, fired.get());
+    }
+
+    @Test
+    void newTimeout_WithManyTimers_ShouldFireOnlyUncancelled() {
+        // Given
+        int count = 10000;
+        AtomicInteger fired = new AtomicInteger();
+        HashedTimingWheel.Timeout[] timeouts = new HashedTimingWheel.Timeout[count];
+        for (int i = 0; i < count; i++) {
+            timeouts[i] = wheel.newTimeout(fired::incrementAndGet, 200 + i % 100, TimeUnit.MILLISECONDS);
+        }
+
+        // When
+        int cancelled = 0;
+        for (int i = 0; i < count; i += 2) {
+            if (timeouts[i].cancel()) {
+                cancelled++;
+            }
+        }
+
+        // Then
+        int expected = count - cancelled;
+        await().atMost(2, TimeUnit.SECONDS).until(() -> fired.get() == expected);
+        assertEquals(0, wheel.pendingTimeouts());
+    }
+
+    @Test
+    void newTimeout_AfterStop_ShouldThrow() {
+        // Given
+        wheel.start();
+        wheel.stop();
+
+        // When & Then
+        assertThrows(IllegalStateException.class, () -> wheel.newTimeout(() -> { }, 10, TimeUnit.MILLISECONDS));
+    }
+}
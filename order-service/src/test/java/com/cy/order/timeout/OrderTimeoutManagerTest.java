@@ -0,0 +1,195 @@
+package com.cy.order.timeout;
+
+import com.cy.order.config.OrderTimeoutProperties;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.enums.OrderStatusEnum;
+import com.cy.order.event.EventTypeEnum;
+import com.cy.order.event.OrderOperationEvent;
+import com.cy.order.service.OrderService;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.OrderTopicRouter;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.concurrent.TimeUnit;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.contains;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderTimeoutManagerTest {
+
+    @Mock
+    private OrderService orderService;
+
+    @Mock
+    private OrderTopicRouter orderTopicRouter;
+
+    @Mock
+    private TimeoutBackup backup;
+
+    private OrderTimeoutProperties properties;
+
+    private OrderTimeoutManager manager;
+
+    @BeforeEach
+    void setUp() {
+        properties = new OrderTimeoutProperties();
+        properties.setTickDuration(10);
+        properties.setTicksPerWheel(16);
+        properties.setPaymentTimeout(50);
+        properties.setAcceptTimeout(50);
+        properties.setMaxEscalations(2);
+        manager = new OrderTimeoutManager(properties, orderService, orderTopicRouter, backupProvider(null));
+    }
+
+    @AfterEach
+    void tearDown() {
+        manager.stop();
+    }
+
+    @Test
+    void orderCreated_WhenNotPaidInTime_ShouldCancelOrder() {
+        // Given
+        when(orderService.cancelUnpaidOrder("order1")).thenReturn(true);
+
+        // When
+        manager.handleOrderOperationEvent(event(EventTypeEnum.ORDER_CREATED, OrderStatusEnum.CREATED));
+
+        // Then
+        verify(orderService, timeout(1000)).cancelUnpaidOrder("order1");
+        await().atMost(1, TimeUnit.SECONDS).until(() -> manager.getStats().getAutoCancelled() == 1);
+    }
+
+    @Test
+    void orderPaid_ShouldCancelPaymentTimer() {
+        // Given
+        properties.setAcceptTimeout(60000);
+        manager.handleOrderOperationEvent(event(EventTypeEnum.ORDER_CREATED, OrderStatusEnum.CREATED));
+
+        // When
+        manager.handleOrderOperationEvent(event(EventTypeEnum.ORDER_PAID, OrderStatusEnum.PAID));
+
+        // Then 被取消的支付定时器从时间轮摘除后不会再触发，只剩接单定时器
+        await().atMost(1, TimeUnit.SECONDS).until(() -> manager.getStats().getPendingTimers() == 1);
+        verify(orderService, never()).cancelUnpaidOrder(anyString());
+        assertEquals(1, manager.getStats().getTrackedOrders());
+    }
+
+    @Test
+    void orderAccepted_ShouldCancelTimer() {
+        // Given
+        manager.handleOrderOperationEvent(event(EventTypeEnum.ORDER_PAID, OrderStatusEnum.PAID));
+
+        // When
+        manager.handleOrderOperationEvent(event(EventTypeEnum.ORDER_UPDATED, OrderStatusEnum.PROCESSING));
+
+        // Then
+        await().atMost(1, TimeUnit.SECONDS).until(() -> manager.getStats().getPendingTimers() == 0);
+        verifyNoInteractions(orderTopicRouter);
+        assertEquals(0, manager.getStats().getTrackedOrders());
+        assertEquals(1, manager.getStats().getCancelled());
+    }
+
+    @Test
+    void orderPaid_WhenNotAccepted_ShouldEscalateUpToMax() {
+        // Given
+        when(orderService.getOrderById("order1")).thenReturn(order(OrderStatusEnum.PAID));
+
+        // When
+        manager.handleOrderOperationEvent(event(EventTypeEnum.ORDER_PAID, OrderStatusEnum.PAID));
+
+        // Then 最后一次提醒处理完后不再设置定时器，去重记录在保留期后删除
+        verify(orderTopicRouter, timeout(1000).times(2))
+                .publish(any(OrderDto.class), contains("order_accept_timeout"), eq(ClientType.STORE));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> manager.getStats().getTrackedEscalations() == 0
+                && manager.getStats().getPendingTimers() == 0);
+        verify(orderTopicRouter, times(2)).publish(any(OrderDto.class), anyString(), eq(ClientType.STORE));
+        assertEquals(2, manager.getStats().getEscalations());
+        assertEquals(2, manager.getStats().getScheduled());
+        assertEquals(0, manager.getStats().getTrackedOrders());
+    }
+
+    @Test
+    void onBackupTimeout_WhenOrderAccepted_ShouldForgetEscalation() {
+        // Given
+        properties.setDurable(true);
+        properties.setAcceptTimeout(60000);
+        manager.stop();
+        manager = new OrderTimeoutManager(properties, orderService, orderTopicRouter, backupProvider(backup));
+        when(orderService.getOrderById("order1")).thenReturn(order(OrderStatusEnum.PAID));
+        manager.onBackupTimeout(new TimeoutRecord("order1", TimeoutRecord.Kind.ACCEPT, 1));
+        assertEquals(1, manager.getStats().getTrackedEscalations());
+
+        // When
+        manager.handleOrderOperationEvent(event(EventTypeEnum.ORDER_UPDATED, OrderStatusEnum.PROCESSING));
+
+        // Then
+        assertEquals(0, manager.getStats().getTrackedEscalations());
+        assertEquals(0, manager.getStats().getTrackedOrders());
+    }
+
+    @Test
+    void onBackupTimeout_AfterFinalEscalation_ShouldIgnoreDuplicateUntilRetentionEnds() {
+        // Given
+        properties.setDurable(true);
+        properties.setMaxEscalations(1);
+        manager.stop();
+        manager = new OrderTimeoutManager(properties, orderService, orderTopicRouter, backupProvider(backup));
+        when(orderService.getOrderById("order1")).thenReturn(order(OrderStatusEnum.PAID));
+        TimeoutRecord record = new TimeoutRecord("order1", TimeoutRecord.Kind.ACCEPT, 1);
+
+        // When
+        manager.onBackupTimeout(record);
+        manager.onBackupTimeout(record);
+
+        // Then
+        verify(orderTopicRouter, times(1)).publish(any(OrderDto.class), anyString(), eq(ClientType.STORE));
+        await().atMost(1, TimeUnit.SECONDS).until(() -> manager.getStats().getTrackedEscalations() == 0);
+    }
+
+    @Test
+    void onBackupTimeout_ShouldIgnoreHandledEscalation() {
+        // Given
+        properties.setDurable(true);
+        manager.stop();
+        manager = new OrderTimeoutManager(properties, orderService, orderTopicRouter, backupProvider(backup));
+        when(orderService.getOrderById("order1")).thenReturn(order(OrderStatusEnum.PAID));
+        TimeoutRecord record = new TimeoutRecord("order1", TimeoutRecord.Kind.ACCEPT, 1);
+
+        // When
+        manager.onBackupTimeout(record);
+        manager.onBackupTimeout(record);
+
+        // Then
+        verify(orderTopicRouter, times(1)).publish(any(OrderDto.class), anyString(), eq(ClientType.STORE));
+        verify(backup).schedule(new TimeoutRecord("order1", TimeoutRecord.Kind.ACCEPT, 2), 50);
+    }
+
+    private OrderOperationEvent event(EventTypeEnum type, OrderStatusEnum status) {
+        return new OrderOperationEvent(this, type, order(status));
+    }
+
+    private OrderDto order(OrderStatusEnum status) {
+        return OrderDto.builder().id("order1").orderNumber("ORD1").storeId("store1").userId("user1").status(status).build();
+    }
+
+    private static ObjectProvider<TimeoutBackup> backupProvider(TimeoutBackup backup) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        if (backup != null) {
+            beanFactory.addBean("timeoutBackup", backup);
+        }
+        return beanFactory.getBeanProvider(TimeoutBackup.class);
+    }
+}
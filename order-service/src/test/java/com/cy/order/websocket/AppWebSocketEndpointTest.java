@@ -47,15 +47,14 @@ class AppWebSocketEndpointTest {
         // Given
         when(session.getId()).thenReturn("testSessionId");
         
-        try (MockedStatic<AppWebSocketEndpoint> mocked = mockStatic(AppWebSocketEndpoint.class)) {
-            mocked.when(AppWebSocketEndpoint::getClientSessionManager).thenReturn(clientSessionManager);
-            
-            // When
-            appWebSocketEndpoint.onClose(session);
-            
-            // Then
-            verify(clientSessionManager).removeUserSession("testSessionId");
-        }
+        appWebSocketEndpoint.setClientSessionManager(clientSessionManager);
+
+        // When
+        appWebSocketEndpoint.onClose(session);
+
+        // Then 只移除关闭的这一个会话，同一客户端的其他会话不受影响
+        verify(clientSessionManager).removeSession(session);
+        verify(clientSessionManager, never()).removeUserSession(anyString());
     }
     
     @Test
@@ -64,15 +63,13 @@ class AppWebSocketEndpointTest {
         Throwable throwable = new RuntimeException("Test exception");
         when(session.getId()).thenReturn("testSessionId");
         
-        try (MockedStatic<AppWebSocketEndpoint> mocked = mockStatic(AppWebSocketEndpoint.class)) {
-            mocked.when(AppWebSocketEndpoint::getClientSessionManager).thenReturn(clientSessionManager);
-            
-            // When
-            appWebSocketEndpoint.onError(session, throwable);
-            
-            // Then
-            verify(clientSessionManager).removeUserSession("testSessionId");
-        }
+        appWebSocketEndpoint.setClientSessionManager(clientSessionManager);
+
+        // When
+        appWebSocketEndpoint.onError(session, throwable);
+
+        // Then
+        verify(clientSessionManager).removeSession(session);
     }
     
     @Test
@@ -99,16 +96,14 @@ class AppWebSocketEndpointTest {
         String heartbeatMessage = "{\"type\":\"ping\",\"clientId\":\"testUser123\"}";
         when(session.getId()).thenReturn("testSessionId");
         when(session.isOpen()).thenReturn(true);
-        
-        try (MockedStatic<AppWebSocketEndpoint> mocked = mockStatic(AppWebSocketEndpoint.class)) {
-            mocked.when(AppWebSocketEndpoint::getClientSessionManager).thenReturn(clientSessionManager);
-            
-            // When
-            appWebSocketEndpoint.onMessage(heartbeatMessage, session);
-            
-            // Then
-            verify(clientSessionManager).updateUserHeartbeat("testUser123");
-        }
+        appWebSocketEndpoint.setClientSessionManager(clientSessionManager);
+
+        // When
+        appWebSocketEndpoint.onMessage(heartbeatMessage, session);
+
+        // Then 心跳以会话为准，不再按消息中的clientId更新
+        verify(clientSessionManager).updateHeartbeat(session);
+        verify(clientSessionManager, never()).updateUserHeartbeat("testUser123");
     }
     
     @Test
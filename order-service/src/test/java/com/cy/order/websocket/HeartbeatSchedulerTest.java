@@ -0,0 +1,294 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import jakarta.websocket.PongMessage;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InOrder;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.nio.ByteBuffer;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class HeartbeatSchedulerTest {
+
+    @Mock
+    private ClientSessionManager clientSessionManager;
+
+    @Mock
+    private WebSocketMessageSender messageSender;
+
+    private final WebSocketProperties properties = new WebSocketProperties();
+
+    private HeartbeatScheduler scheduler;
+
+    @BeforeEach
+    void setUp() {
+        properties.getHeartbeat().setBuckets(4);
+        scheduler = new HeartbeatScheduler(properties, clientSessionManager, messageSender);
+        // 发送任务在调用线程中立即执行
+        lenient().when(messageSender.execute(any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        });
+    }
+
+    @Test
+    void testPingsAreSpreadAcrossBuckets() throws Exception {
+        // Given
+        List<RemoteEndpoint.Async> remotes = new ArrayList<>();
+        for (int i = 0; i < 8; i++) {
+            Session session = openSession();
+            RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+            when(session.getAsyncRemote()).thenReturn(remote);
+            remotes.add(remote);
+            scheduler.register(session);
+        }
+
+        // When 一个时间片只Ping一个桶
+        scheduler.tick();
+
+        // Then
+        assertEquals(2, scheduler.getStats().getPingsSent());
+
+        // When 一个完整周期后每个会话恰好Ping一次
+        for (int i = 0; i < 3; i++) {
+            scheduler.tick();
+        }
+
+        // Then
+        for (RemoteEndpoint.Async remote : remotes) {
+            verify(remote, times(1)).sendPing(any(ByteBuffer.class));
+        }
+        assertEquals(8, scheduler.getStats().getPingsSent());
+    }
+
+    @Test
+    void testPongRefreshesSessionHeartbeat() throws Exception {
+        // Given
+        Session session = openSession();
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        when(session.getAsyncRemote()).thenReturn(remote);
+        scheduler.register(session);
+        for (int i = 0; i < 4; i++) {
+            scheduler.tick();
+        }
+        ArgumentCaptor<ByteBuffer> payload = ArgumentCaptor.forClass(ByteBuffer.class);
+        verify(remote).sendPing(payload.capture());
+        PongMessage pong = mock(PongMessage.class);
+        when(pong.getApplicationData()).thenReturn(payload.getValue());
+
+        // When
+        scheduler.onPong(session, pong);
+
+        // Then
+        verify(clientSessionManager).updateHeartbeat(session);
+        assertEquals(1, scheduler.getStats().getPongsReceived());
+    }
+
+    @Test
+    void testClosedAndUnregisteredSessionsAreNotPinged() throws Exception {
+        // Given
+        Session closed = openSession();
+        Session removed = openSession();
+        scheduler.register(closed);
+        scheduler.register(removed);
+        when(closed.isOpen()).thenReturn(false);
+
+        // When
+        scheduler.unregister(removed);
+        for (int i = 0; i < 4; i++) {
+            scheduler.tick();
+        }
+
+        // Then
+        verify(closed, never()).getAsyncRemote();
+        verify(removed, never()).getAsyncRemote();
+        assertEquals(0, scheduler.getStats().getSessions());
+    }
+
+    @Test
+    void testSessionWithPendingPingIsSkipped() throws Exception {
+        // Given 发送线程还没有执行上一轮的Ping
+        List<Runnable> tasks = new ArrayList<>();
+        when(messageSender.execute(any())).thenAnswer(invocation -> tasks.add(invocation.getArgument(0)));
+        Session session = openSession();
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        when(session.getAsyncRemote()).thenReturn(remote);
+        scheduler.register(session);
+        for (int i = 0; i < 4; i++) {
+            scheduler.tick();
+        }
+
+        // When 下一个周期
+        for (int i = 0; i < 4; i++) {
+            scheduler.tick();
+        }
+
+        // Then 不再重复提交
+        assertEquals(1, tasks.size());
+        assertEquals(1, scheduler.getStats().getPingsSkipped());
+
+        // When 上一轮发出后
+        tasks.get(0).run();
+        for (int i = 0; i < 4; i++) {
+            scheduler.tick();
+        }
+
+        // Then
+        assertEquals(2, tasks.size());
+        verify(remote, times(1)).sendPing(any(ByteBuffer.class));
+    }
+
+    @Test
+    void testSlowSessionDoesNotDelayOtherBuckets() throws Exception {
+        // Given 发送在独立线程中执行，第一个会话的Ping一直阻塞
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        when(messageSender.execute(any())).thenAnswer(invocation -> {
+            pool.execute(invocation.getArgument(0));
+            return true;
+        });
+        CountDownLatch release = new CountDownLatch(1);
+        Session slow = openSession();
+        RemoteEndpoint.Async slowRemote = mock(RemoteEndpoint.Async.class);
+        when(slow.getAsyncRemote()).thenReturn(slowRemote);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(slowRemote).sendPing(any(ByteBuffer.class));
+        Session healthy = openSession();
+        RemoteEndpoint.Async healthyRemote = mock(RemoteEndpoint.Async.class);
+        when(healthy.getAsyncRemote()).thenReturn(healthyRemote);
+        scheduler.register(slow);
+        scheduler.register(healthy);
+
+        try {
+            // When
+            for (int i = 0; i < 4; i++) {
+                scheduler.tick();
+            }
+
+            // Then 调度线程不等待慢会话，其他时间桶照常Ping
+            verify(healthyRemote, timeout(1000)).sendPing(any(ByteBuffer.class));
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testAdvisedIntervalFollowsLoad() {
+        // When / Then 空闲时使用最短间隔，会话数或CPU达到高水位时使用最长间隔
+        assertEquals(30000, scheduler.computeInterval(0, 0.0, 30000));
+        assertEquals(120000, scheduler.computeInterval(20000, 0.0, 30000));
+        assertEquals(120000, scheduler.computeInterval(0, 0.8, 30000));
+        // CPU使用率一半高水位，按步长取整
+        assertEquals(70000, scheduler.computeInterval(0, 0.4, 30000));
+        // 无法获取CPU时只看会话数
+        assertEquals(70000, scheduler.computeInterval(10000, -1, 30000));
+
+        // When / Then 负载略有下降时保持原间隔，下降超过一个步长才收紧
+        assertEquals(120000, scheduler.computeInterval(19000, 0.0, 120000));
+        assertEquals(70000, scheduler.computeInterval(10000, 0.0, 120000));
+    }
+
+    @Test
+    void testChangedIntervalIsPushedBeforePing() throws Exception {
+        // Given
+        properties.getHeartbeat().setSessionHighWatermark(1);
+        Session session = openSession();
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        when(session.getAsyncRemote()).thenReturn(remote);
+        when(messageSender.sendNow(eq(session), any(OutboundFrame.class))).thenReturn(true);
+        scheduler.register(session);
+        assertEquals(30000, scheduler.advise(session));
+
+        // When 会话数达到高水位
+        scheduler.adjust();
+        for (int i = 0; i < 4; i++) {
+            scheduler.tick();
+        }
+
+        // Then
+        ArgumentCaptor<OutboundFrame> frame = ArgumentCaptor.forClass(OutboundFrame.class);
+        InOrder order = inOrder(messageSender, remote);
+        order.verify(messageSender).sendNow(eq(session), frame.capture());
+        order.verify(remote).sendPing(any(ByteBuffer.class));
+        assertEquals("{\"type\":\"heartbeat_config\",\"interval\":120000,\"timeout\":360000}", frame.getValue().getText());
+        assertEquals(360000, SessionContext.of(session).getHeartbeatTimeout());
+        assertEquals(1, scheduler.getStats().getConfigsSent());
+    }
+
+    @Test
+    void testChangedIntervalIsPushedOnSenderThreads() throws Exception {
+        // Given 发送任务暂不执行
+        List<Runnable> tasks = new ArrayList<>();
+        when(messageSender.execute(any())).thenAnswer(invocation -> tasks.add(invocation.getArgument(0)));
+        properties.getHeartbeat().setSessionHighWatermark(1);
+        Session session = openSession();
+        RemoteEndpoint.Async remote = mock(RemoteEndpoint.Async.class);
+        when(session.getAsyncRemote()).thenReturn(remote);
+        when(messageSender.sendNow(eq(session), any(OutboundFrame.class))).thenReturn(true);
+        scheduler.register(session);
+        scheduler.advise(session);
+        scheduler.adjust();
+
+        // When
+        for (int i = 0; i < 4; i++) {
+            scheduler.tick();
+        }
+
+        // Then 调度线程不做阻塞发送，新间隔在发出时才生效
+        verify(messageSender, never()).sendNow(any(Session.class), any(OutboundFrame.class));
+        assertEquals(30000, SessionContext.of(session).getHeartbeatInterval());
+
+        // When
+        tasks.forEach(Runnable::run);
+
+        // Then
+        verify(messageSender).sendNow(eq(session), any(OutboundFrame.class));
+        assertEquals(120000, SessionContext.of(session).getHeartbeatInterval());
+        assertEquals(1, scheduler.getStats().getConfigsSent());
+    }
+
+    @Test
+    void testShorterTimeoutAppliesAfterNextHeartbeat() {
+        // Given
+        SessionContext context = new SessionContext();
+        context.adviseHeartbeat(120000, 360000);
+
+        // When 间隔收紧，客户端还未确认
+        context.adviseHeartbeat(30000, 90000);
+
+        // Then
+        assertEquals(360000, context.getHeartbeatTimeout());
+
+        // When 收到心跳
+        context.onHeartbeat(System.currentTimeMillis());
+
+        // Then
+        assertEquals(90000, context.getHeartbeatTimeout());
+    }
+
+    private Session openSession() {
+        Session session = mock(Session.class);
+        HashMap<String, Object> userProperties = new HashMap<>();
+        lenient().when(session.getUserProperties()).thenReturn(userProperties);
+        lenient().when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+}
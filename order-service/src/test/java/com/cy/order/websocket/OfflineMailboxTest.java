@@ -0,0 +1,75 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class OfflineMailboxTest {
+
+    private final OfflineMailbox mailbox = new OfflineMailbox();
+
+    private final WebSocketProperties.Mailbox config = new WebSocketProperties.Mailbox();
+
+    @Test
+    void testDrainReturnsMessagesInOrder() {
+        // Given
+        mailbox.offer(ClientType.STORE, "store001", "{\"n\":1}", config);
+        mailbox.offer(ClientType.STORE, "store001", "{\"n\":2}", config);
+        mailbox.offer(ClientType.USER, "store001", "{\"n\":3}", config);
+
+        // When
+        List<String> messages = mailbox.drain(ClientType.STORE, "store001");
+
+        // Then
+        assertEquals(List.of("{\"n\":1}", "{\"n\":2}"), messages);
+        assertTrue(mailbox.drain(ClientType.STORE, "store001").isEmpty());
+        assertEquals(1, mailbox.getStats().getPendingMessages());
+    }
+
+    @Test
+    void testPerClientCountAndByteCaps() {
+        // Given
+        config.setMaxMessagesPerClient(3);
+        config.setMaxBytesPerClient(20);
+
+        // When
+        for (int i = 0; i < 5; i++) {
+            mailbox.offer(ClientType.STORE, "store001", "{\"n\":" + i + "}", config);
+        }
+        boolean oversized = mailbox.offer(ClientType.STORE, "store001", "x".repeat(21), config);
+
+        // Then 每条7字节，20字节内最多保留最新的两条
+        assertFalse(oversized);
+        assertEquals(List.of("{\"n\":3}", "{\"n\":4}"), mailbox.drain(ClientType.STORE, "store001"));
+        assertEquals(4, mailbox.getStats().getDroppedMessages());
+    }
+
+    @Test
+    void testEvictLeastRecentlyUsedClientOverGlobalBudget() {
+        // Given
+        config.setMaxTotalBytes(30);
+        mailbox.offer(ClientType.STORE, "store001", "0123456789", config);
+        mailbox.offer(ClientType.STORE, "store002", "0123456789", config);
+        mailbox.offer(ClientType.STORE, "store001", "0123456789", config);
+
+        // When store002 最久未使用，超出预算时被整体淘汰
+        mailbox.offer(ClientType.STORE, "store003", "0123456789", config);
+
+        // Then
+        assertTrue(mailbox.drain(ClientType.STORE, "store002").isEmpty());
+        assertEquals(2, mailbox.drain(ClientType.STORE, "store001").size());
+        assertEquals(1, mailbox.drain(ClientType.STORE, "store003").size());
+        assertEquals(1, mailbox.getStats().getEvictedMessages());
+        assertEquals(0, mailbox.getStats().getPendingBytes());
+    }
+
+    @Test
+    void testUtf8Length() {
+        assertEquals(3, OfflineMailbox.utf8Length("abc"));
+        assertEquals(6, OfflineMailbox.utf8Length("订单"));
+        assertEquals(4, OfflineMailbox.utf8Length("😀"));
+    }
+}
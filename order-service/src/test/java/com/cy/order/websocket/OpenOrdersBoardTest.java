@@ -0,0 +1,190 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.enums.OrderStatusEnum;
+import com.cy.order.event.EventTypeEnum;
+import com.cy.order.event.OrderOperationEvent;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.math.BigDecimal;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OpenOrdersBoardTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private ClientSessionManager clientSessionManager;
+
+    @Mock
+    private WebSocketMessageSender messageSender;
+
+    private final WebSocketProperties properties = new WebSocketProperties();
+
+    private OpenOrdersBoard board;
+
+    @BeforeEach
+    void setUp() {
+        board = new OpenOrdersBoard(properties, clientSessionManager, messageSender);
+    }
+
+    @Test
+    void testSnapshotFollowedByVersionedDeltas() throws Exception {
+        // Given 门店已有一个未完结订单，终端带 board 连接
+        Session terminal = session(true);
+        when(clientSessionManager.getStoreSessions("s1")).thenReturn(List.of(terminal));
+        when(messageSender.sendNow(eq(terminal), any(OutboundFrame.class))).thenReturn(true);
+        board.onOrderEvent(event(EventTypeEnum.ORDER_CREATED, order("o1", OrderStatusEnum.CREATED)));
+
+        // When
+        board.sendSnapshots(terminal, List.of("s1"));
+        board.onOrderEvent(event(EventTypeEnum.ORDER_PAID, order("o1", OrderStatusEnum.PAID)));
+        board.onOrderEvent(event(EventTypeEnum.ORDER_COMPLETED, order("o1", OrderStatusEnum.COMPLETED)));
+
+        // Then 快照为紧凑的行数组
+        ArgumentCaptor<OutboundFrame> frame = ArgumentCaptor.forClass(OutboundFrame.class);
+        verify(messageSender).sendNow(eq(terminal), frame.capture());
+        JsonNode snapshot = objectMapper.readTree(frame.getValue().getText());
+        assertEquals("board_snapshot", snapshot.get("type").asText());
+        assertEquals(1, snapshot.get("version").asLong());
+        assertEquals(OpenOrdersBoard.FIELDS.size(), snapshot.get("fields").size());
+        assertEquals("o1", snapshot.get("orders").get(0).get(0).asText());
+        assertEquals("CREATED", snapshot.get("orders").get(0).get(3).asText());
+
+        // Then 增量版本号紧接快照
+        ArgumentCaptor<String> deltas = ArgumentCaptor.forClass(String.class);
+        verify(messageSender, times(3)).sendAll(eq(List.of(terminal)), deltas.capture());
+        JsonNode paid = objectMapper.readTree(deltas.getAllValues().get(1));
+        JsonNode completed = objectMapper.readTree(deltas.getAllValues().get(2));
+        assertEquals(2, paid.get("version").asLong());
+        assertEquals("PAID", paid.get("upsert").get(3).asText());
+        assertEquals(3, completed.get("version").asLong());
+        assertEquals("o1", completed.get("remove").asText());
+        assertEquals(0, board.getStats().getOpenOrders());
+    }
+
+    @Test
+    void testTerminalsWithoutBoardReceiveNoDeltas() {
+        // Given
+        when(clientSessionManager.getStoreSessions("s1")).thenReturn(List.of(session(false)));
+
+        // When
+        board.onOrderEvent(event(EventTypeEnum.ORDER_CREATED, order("o1", OrderStatusEnum.CREATED)));
+
+        // Then
+        verify(messageSender, never()).sendAll(anyList(), anyString());
+        assertEquals(1, board.getStats().getOpenOrders());
+    }
+
+    @Test
+    void testStatusUpdateKeepsFieldsMissingFromEvent() throws Exception {
+        // Given
+        when(clientSessionManager.getStoreSessions("s1")).thenReturn(List.of());
+        board.onOrderEvent(event(EventTypeEnum.ORDER_CREATED, order("o1", OrderStatusEnum.CREATED)));
+
+        // When 状态更新事件不带创建时间
+        OrderDto update = OrderDto.builder().id("o1").storeId("s1").status(OrderStatusEnum.PROCESSING).build();
+        board.onOrderEvent(event(EventTypeEnum.ORDER_UPDATED, update));
+
+        // Then
+        JsonNode row = objectMapper.readTree(board.getSnapshot("s1")).get("orders").get(0);
+        assertEquals("PROCESSING", row.get(3).asText());
+        assertTrue(row.get(5).isNumber());
+    }
+
+    @Test
+    void testOverflowEvictsOldestOrder() throws Exception {
+        // Given
+        properties.getBoard().setMaxOrdersPerStore(2);
+        when(clientSessionManager.getStoreSessions("s1")).thenReturn(List.of());
+
+        // When
+        for (String orderId : List.of("o1", "o2", "o3")) {
+            board.onOrderEvent(event(EventTypeEnum.ORDER_CREATED, order(orderId, OrderStatusEnum.CREATED)));
+        }
+
+        // Then
+        JsonNode snapshot = objectMapper.readTree(board.getSnapshot("s1"));
+        assertEquals(2, snapshot.get("orders").size());
+        assertEquals("o2", snapshot.get("orders").get(0).get(0).asText());
+        assertEquals(1, board.getStats().getEvictedOrders());
+    }
+
+    @Test
+    void testBlockedSendDoesNotHoldBoardLock() throws Exception {
+        // Given 第一条增量的发送一直阻塞
+        Session terminal = session(true);
+        when(clientSessionManager.getStoreSessions("s1")).thenReturn(List.of(terminal));
+        CountDownLatch sending = new CountDownLatch(1);
+        CountDownLatch release = new CountDownLatch(1);
+        List<Long> versions = Collections.synchronizedList(new ArrayList<>());
+        when(messageSender.sendAll(anyList(), anyString())).thenAnswer(invocation -> {
+            versions.add(objectMapper.readTree(invocation.<String>getArgument(1)).get("version").asLong());
+            sending.countDown();
+            release.await(5, TimeUnit.SECONDS);
+            return 1;
+        });
+        Thread publisher = new Thread(() -> board.onOrderEvent(event(EventTypeEnum.ORDER_CREATED, order("o1", OrderStatusEnum.CREATED))));
+        publisher.start();
+        assertTrue(sending.await(5, TimeUnit.SECONDS));
+
+        // When 发送阻塞期间继续处理事件、读取快照
+        assertTimeoutPreemptively(Duration.ofSeconds(1),
+                () -> board.onOrderEvent(event(EventTypeEnum.ORDER_PAID, order("o1", OrderStatusEnum.PAID))));
+        String snapshot = assertTimeoutPreemptively(Duration.ofSeconds(1), () -> board.getSnapshot("s1"));
+        release.countDown();
+        publisher.join(5000);
+
+        // Then 第二条增量由正在发送的线程按版本号顺序发出
+        assertEquals(2, objectMapper.readTree(snapshot).get("version").asLong());
+        assertEquals(List.of(1L, 2L), versions);
+    }
+
+    private static OrderOperationEvent event(EventTypeEnum type, OrderDto order) {
+        return new OrderOperationEvent(OpenOrdersBoardTest.class, type, order);
+    }
+
+    private static OrderDto order(String orderId, OrderStatusEnum status) {
+        return OrderDto.builder()
+                .id(orderId)
+                .orderNumber("ORD-" + orderId)
+                .userId("u1")
+                .storeId("s1")
+                .amount(BigDecimal.valueOf(100))
+                .status(status)
+                .createTime(LocalDateTime.now())
+                .build();
+    }
+
+    private static Session session(boolean boardEnabled) {
+        Session session = mock(Session.class);
+        HashMap<String, Object> userProperties = new HashMap<>();
+        when(session.getUserProperties()).thenReturn(userProperties);
+        SessionContext.bind(session).setBoardEnabled(boardEnabled);
+        return session;
+    }
+}
@@ -0,0 +1,197 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.dto.OrderDto;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class OrderTopicRouterTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    @Mock
+    private WebSocketMessageSender messageSender;
+
+    @Mock
+    private ClusterSessionRouter clusterSessionRouter;
+
+    @Mock
+    private StoreDeliveryTracker deliveryTracker;
+
+    @Mock
+    private ClientSessionManager clientSessionManager;
+
+    private final TopicRegistry topicRegistry = new TopicRegistry();
+
+    private OrderTopicRouter router;
+
+    @BeforeEach
+    void setUp() {
+        router = new OrderTopicRouter(topicRegistry, messageSender, clusterSessionRouter, deliveryTracker, clientSessionManager);
+    }
+
+    @Test
+    void testSubscribeAndUnsubscribeMessages() throws Exception {
+        // Given
+        Session session = openSession();
+
+        // When
+        JsonNode subscribed = objectMapper.readTree(topicRegistry.handleSubscription(session,
+                objectMapper.readTree("{\"type\":\"subscribe\",\"topics\":[\"order.1\",\"order.2\",\"store.s1\",\"channel.kitchen\"]}"), true));
+
+        // Then
+        assertEquals("subscribed", subscribed.get("type").asText());
+        assertEquals(2, subscribed.get("topics").size());
+        assertEquals("store.s1", subscribed.get("rejected").get(0).asText());
+        assertEquals("channel.kitchen", subscribed.get("rejected").get(1).asText());
+        assertTrue(topicRegistry.getSubscribers("order.1").contains(session));
+        assertTrue(topicRegistry.getSubscribers("store.s1").isEmpty());
+
+        // When
+        topicRegistry.handleSubscription(session,
+                objectMapper.readTree("{\"type\":\"unsubscribe\",\"topics\":[\"order.1\"]}"), false);
+
+        // Then
+        assertTrue(topicRegistry.getSubscribers("order.1").isEmpty());
+        assertEquals(1, topicRegistry.getTopicCount());
+    }
+
+    @Test
+    void testSubscriptionLimit() throws Exception {
+        // Given
+        Session session = openSession();
+        SessionContext.of(session).getEndpoint().setMaxSubscriptions(1);
+
+        // When
+        JsonNode reply = objectMapper.readTree(topicRegistry.handleSubscription(session,
+                objectMapper.readTree("{\"type\":\"subscribe\",\"topics\":[\"order.1\",\"order.2\"]}"), true));
+
+        // Then
+        assertEquals(1, reply.get("topics").size());
+        assertEquals("order.2", reply.get("rejected").get(0).asText());
+    }
+
+    @Test
+    void testConcurrentUnsubscribeDoesNotDropNewSubscriber() throws Exception {
+        // Given 最后一个订阅者取消订阅时删除空主题，同时另一个会话订阅同一主题
+        Session leaving = openSession();
+        Session joining = openSession();
+        ExecutorService executor = Executors.newFixedThreadPool(2);
+        try {
+            for (int i = 0; i < 500; i++) {
+                String topic = "order." + i;
+                topicRegistry.subscribe(leaving, topic);
+                CyclicBarrier barrier = new CyclicBarrier(2);
+
+                // When
+                Future<?> unsubscribe = executor.submit(() -> {
+                    barrier.await();
+                    return topicRegistry.unsubscribe(leaving, topic);
+                });
+                Future<?> subscribe = executor.submit(() -> {
+                    barrier.await();
+                    return topicRegistry.subscribe(joining, topic);
+                });
+                unsubscribe.get(5, TimeUnit.SECONDS);
+                subscribe.get(5, TimeUnit.SECONDS);
+
+                // Then
+                assertEquals(Set.of(joining), topicRegistry.getSubscribers(topic), topic);
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void testPublishToStoreAndOrderSubscribersOnce() {
+        // Given
+        Session store = openSession();
+        Session tracker = openSession();
+        Session other = openSession();
+        topicRegistry.subscribe(store, TopicRegistry.identityTopic(ClientType.STORE, "store001"));
+        // 门店同时订阅了该订单，只应收到一次
+        topicRegistry.subscribe(store, TopicRegistry.orderTopic("order001"));
+        topicRegistry.subscribe(tracker, TopicRegistry.orderTopic("order001"));
+        topicRegistry.subscribe(other, TopicRegistry.orderTopic("order002"));
+        when(deliveryTracker.deliver("store001", List.of(store), "{}")).thenReturn(1);
+        when(messageSender.sendAll(List.of(tracker), "{}")).thenReturn(1);
+
+        // When
+        int delivered = router.publish(order(), "{}", ClientType.STORE);
+
+        // Then 门店会话经确认跟踪器发送，订单订阅者直接发送，各一次
+        assertEquals(2, delivered);
+        verify(deliveryTracker, times(1)).deliver("store001", List.of(store), "{}");
+        verify(messageSender, times(1)).sendAll(List.of(tracker), "{}");
+        verify(messageSender, never()).sendAll(List.of(other), "{}");
+        // 门店的其他终端可能连在其他节点上，本节点有连接时也转发
+        verify(clusterSessionRouter).forward(ClientType.STORE, "store001", "{}");
+        verify(clientSessionManager, never()).offerOffline(any(), any(), any());
+    }
+
+    @Test
+    void testForwardOrStoreOfflineWhenStoreNotLocal() {
+        // When
+        router.publish(order(), "{}", ClientType.STORE);
+
+        // Then
+        verify(clusterSessionRouter).forward(ClientType.STORE, "store001", "{}");
+        verify(clientSessionManager).offerOffline(ClientType.STORE, "store001", "{}");
+        verifyNoInteractions(messageSender);
+    }
+
+    @Test
+    void testUnsubscribeAllOnClose() {
+        // Given
+        Session session = openSession();
+        topicRegistry.subscribe(session, TopicRegistry.orderTopic("order001"));
+        topicRegistry.subscribe(session, TopicRegistry.orderTopic("order002"));
+
+        // When
+        topicRegistry.unsubscribeAll(session);
+
+        // Then
+        assertEquals(0, topicRegistry.getTopicCount());
+        assertTrue(SessionContext.of(session).getTopics().isEmpty());
+    }
+
+    private Session openSession() {
+        Session session = mock(Session.class);
+        SessionContext context = new SessionContext();
+        context.setEndpoint(new WebSocketProperties.Endpoint());
+        HashMap<String, Object> userProperties = new HashMap<>();
+        userProperties.put(SessionContext.KEY, context);
+        lenient().when(session.getUserProperties()).thenReturn(userProperties);
+        lenient().when(session.isOpen()).thenReturn(true);
+        return session;
+    }
+
+    private OrderDto order() {
+        return OrderDto.builder()
+                .id("order001")
+                .userId("user001")
+                .storeId("store001")
+                .build();
+    }
+}
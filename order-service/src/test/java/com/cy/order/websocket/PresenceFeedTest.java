@@ -0,0 +1,103 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class PresenceFeedTest {
+
+    @Mock
+    private ClientSessionManager clientSessionManager;
+
+    @Mock
+    private ClusterSessionRouter clusterSessionRouter;
+
+    private final WebSocketProperties properties = new WebSocketProperties();
+
+    private PresenceFeed feed;
+
+    @BeforeEach
+    void setUp() {
+        properties.getPresence().setSnapshotTtl(0);
+        feed = new PresenceFeed(properties, clientSessionManager, clusterSessionRouter);
+    }
+
+    @Test
+    void testPagesAreSortedAndCursorBased() {
+        // Given
+        when(clientSessionManager.getAllUserIds()).thenReturn(Set.of("u3", "u1", "u5", "u2", "u4"));
+
+        // When
+        PresenceFeed.PresencePage first = feed.getPage(ClientType.USER, null, 2);
+        PresenceFeed.PresencePage second = feed.getPage(ClientType.USER, first.getNextCursor(), 2);
+        PresenceFeed.PresencePage last = feed.getPage(ClientType.USER, second.getNextCursor(), 2);
+
+        // Then
+        assertEquals(5, first.getTotal());
+        assertEquals(List.of("u1", "u2"), first.getItems());
+        assertEquals(List.of("u3", "u4"), second.getItems());
+        assertEquals(List.of("u5"), last.getItems());
+        assertNull(last.getNextCursor());
+    }
+
+    @Test
+    void testSortedSnapshotIsReusedWhilePresenceUnchanged() {
+        // Given
+        when(clientSessionManager.getAllStoreIds()).thenReturn(Set.of("s1", "s2"));
+        feed.getPage(ClientType.STORE, null, 10);
+
+        // When 在线状态无变化
+        feed.getPage(ClientType.STORE, null, 10);
+
+        // Then 不重新复制和排序
+        verify(clientSessionManager, times(1)).getAllStoreIds();
+
+        // When 有门店上线
+        feed.onSessionAdded(ClientType.STORE, "s3");
+        feed.getPage(ClientType.STORE, null, 10);
+
+        // Then
+        verify(clientSessionManager, times(2)).getAllStoreIds();
+    }
+
+    @Test
+    void testDeltasAreBatchedWithSequence() {
+        // Given
+        assertNotNull(feed.subscribe(false));
+
+        // When 一个推送周期内的多次变化合并为一条增量
+        feed.onSessionAdded(ClientType.USER, "u1");
+        feed.onSessionAdded(ClientType.STORE, "s1");
+        feed.onSessionRemoved(ClientType.USER, "u1");
+        feed.flush();
+        // 没有变化时不推送
+        feed.flush();
+
+        // Then
+        assertEquals(1, feed.getCounts().getSequence());
+        assertEquals(1, feed.getCounts().getSubscribers());
+    }
+
+    @Test
+    void testSubscriberLimit() {
+        // Given
+        properties.getPresence().setMaxSubscribers(1);
+
+        // When
+        assertNotNull(feed.subscribe(false));
+
+        // Then
+        assertNull(feed.subscribe(false));
+    }
+}
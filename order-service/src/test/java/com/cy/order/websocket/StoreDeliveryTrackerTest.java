@@ -0,0 +1,272 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class StoreDeliveryTrackerTest {
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private ClientSessionManager clientSessionManager;
+
+    @Mock
+    private WebSocketMessageSender messageSender;
+
+    private final WebSocketProperties properties = new WebSocketProperties();
+
+    private StoreDeliveryTracker tracker;
+
+    @BeforeEach
+    void setUp() {
+        Map<String, Object> userProperties = new HashMap<>();
+        SessionContext context = new SessionContext();
+        context.setEndpoint(properties.getStore());
+        userProperties.put(SessionContext.KEY, context);
+        lenient().when(session.getUserProperties()).thenReturn(userProperties);
+        lenient().when(session.isOpen()).thenReturn(true);
+        lenient().when(messageSender.sendAll(eq(List.of(session)), anyString())).thenReturn(1);
+        lenient().when(clientSessionManager.getStoreSessions("store001")).thenReturn(List.of(session));
+        // 发送任务在调用线程中立即执行
+        lenient().when(messageSender.execute(any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        });
+        properties.getStoreAck().setMaxInFlight(2);
+        properties.getStoreAck().setInitialRetryDelay(0);
+        tracker = new StoreDeliveryTracker(properties, clientSessionManager, messageSender);
+    }
+
+    @Test
+    void testUntrackedSessionIsSentDirectly() {
+        // When
+        int delivered = tracker.deliver("store001", List.of(session), "{\"type\":\"order_created\"}");
+
+        // Then 未开启确认模式的会话不分配序号
+        assertEquals(1, delivered);
+        verify(messageSender).sendAll(List.of(session), "{\"type\":\"order_created\"}");
+        assertTrue(tracker.getUnackedCounts().isEmpty());
+    }
+
+    @Test
+    void testSequenceNumbersAndInFlightWindow() {
+        // Given
+        assertTrue(tracker.negotiate(session, "store001", true));
+
+        // When
+        for (int i = 0; i < 3; i++) {
+            assertEquals(1, tracker.deliver("store001", List.of(session), "{\"type\":\"order_created\",\"n\":" + i + "}"));
+        }
+
+        // Then 只发送了在途窗口内的前两条
+        List<String> sent = captureSent(2);
+        assertEquals("{\"seq\":1,\"type\":\"order_created\",\"n\":0}", sent.get(0));
+        assertEquals("{\"seq\":2,\"type\":\"order_created\",\"n\":1}", sent.get(1));
+        assertEquals(Map.of("store001", 3), tracker.getUnackedCounts());
+
+        // When 累计确认后窗口继续发送第三条
+        tracker.ack("store001", 2);
+
+        // Then
+        sent = captureSent(3);
+        assertEquals("{\"seq\":3,\"type\":\"order_created\",\"n\":2}", sent.get(2));
+        assertEquals(Map.of("store001", 1), tracker.getUnackedCounts());
+        assertEquals(2, tracker.getStats().getAckedMessages());
+    }
+
+    @Test
+    void testAckBeyondLastSentKeepsUnsentNotifications() {
+        // Given 在途上限2，第三条通知尚未发出
+        tracker.negotiate(session, "store001", true);
+        for (int i = 0; i < 3; i++) {
+            tracker.deliver("store001", List.of(session), "{\"n\":" + i + "}");
+        }
+
+        // When 伪造的确认序号远超已发送的序号
+        tracker.ack("store001", Long.MAX_VALUE);
+
+        // Then 只确认已发送的两条，第三条随后发出并等待确认
+        assertEquals(2, tracker.getStats().getAckedMessages());
+        assertEquals(1, tracker.getStats().getInvalidAcks());
+        assertEquals(Map.of("store001", 1), tracker.getUnackedCounts());
+        verify(messageSender).sendAll(List.of(session), "{\"seq\":3,\"n\":2}");
+    }
+
+    @Test
+    void testRetransmitUntilAckedAndExpire() {
+        // Given
+        properties.getStoreAck().setMaxRetries(3);
+        tracker.negotiate(session, "store001", true);
+        tracker.deliver("store001", List.of(session), "{\"type\":\"order_created\"}");
+
+        // When 重发等待为0，每次扫描都会重发，直到达到最大发送次数
+        for (int i = 0; i < 5; i++) {
+            tracker.sweep();
+        }
+
+        // Then
+        verify(messageSender, times(3)).sendAll(List.of(session), "{\"seq\":1,\"type\":\"order_created\"}");
+        assertEquals(2, tracker.getStats().getRetransmittedMessages());
+        assertEquals(1, tracker.getStats().getExpiredMessages());
+        assertTrue(tracker.getUnackedCounts().isEmpty());
+    }
+
+    @Test
+    void testKeepUnackedWhileOfflineAndResendOnReconnect() {
+        // Given
+        properties.getStoreAck().setInitialRetryDelay(60_000);
+        tracker.negotiate(session, "store001", true);
+        tracker.deliver("store001", List.of(session), "{\"type\":\"order_created\"}");
+        when(clientSessionManager.getStoreSessions("store001")).thenReturn(List.of());
+
+        // When
+        tracker.sweep();
+        tracker.negotiate(session, "store001", true);
+
+        // Then 离线期间不重发，重连后立即重发
+        verify(messageSender, times(2)).sendAll(List.of(session), "{\"seq\":1,\"type\":\"order_created\"}");
+        assertEquals(Map.of("store001", 1), tracker.getUnackedCounts());
+    }
+
+    @Test
+    void testMultiStoreSessionResendsEveryStoreOnReconnect() {
+        // Given 绑定两个门店的会话重连前，两个门店各有一条未确认的通知
+        properties.getStoreAck().setInitialRetryDelay(60_000);
+        tracker.negotiate(session, List.of("store001", "store002"), true);
+        tracker.deliver("store001", List.of(session), "{\"n\":1}");
+        tracker.deliver("store002", List.of(session), "{\"n\":2}");
+
+        // When
+        boolean enabled = tracker.negotiate(session, List.of("store001", "store002"), true);
+
+        // Then 确认模式只协商一次，两个门店的通知都立即重发
+        assertTrue(enabled);
+        assertTrue(SessionContext.of(session).isAckEnabled());
+        verify(messageSender, times(2)).sendAll(List.of(session), "{\"seq\":1,\"n\":1}");
+        verify(messageSender, times(2)).sendAll(List.of(session), "{\"seq\":1,\"n\":2}");
+        assertEquals(Map.of("store001", 1, "store002", 1), tracker.getUnackedCounts());
+    }
+
+    @Test
+    void testMultiStoreNegotiationDisabledForEveryStore() {
+        // Given
+        properties.getStoreAck().setEnabled(false);
+
+        // When
+        boolean enabled = tracker.negotiate(session, List.of("store001", "store002"), true);
+
+        // Then
+        assertFalse(enabled);
+        assertFalse(SessionContext.of(session).isAckEnabled());
+    }
+
+    @Test
+    void testSlowStoreDoesNotBlockOtherStores() throws Exception {
+        // Given 发送在独立线程中执行，store001 终端的发送一直阻塞
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        when(messageSender.execute(any())).thenAnswer(invocation -> {
+            pool.execute(invocation.getArgument(0));
+            return true;
+        });
+        CountDownLatch release = new CountDownLatch(1);
+        when(messageSender.sendAll(eq(List.of(session)), anyString())).thenAnswer(invocation -> release.await(5, TimeUnit.SECONDS) ? 1 : 0);
+        Session other = mock(Session.class);
+        Map<String, Object> userProperties = new HashMap<>();
+        userProperties.put(SessionContext.KEY, new SessionContext());
+        when(other.getUserProperties()).thenReturn(userProperties);
+        when(other.isOpen()).thenReturn(true);
+        tracker.negotiate(session, "store001", true);
+        tracker.negotiate(other, "store002", true);
+
+        try {
+            // When 阻塞期间继续投递、扫描重发，并向另一个门店投递
+            tracker.deliver("store001", List.of(session), "{\"n\":1}");
+            tracker.deliver("store001", List.of(session), "{\"n\":2}");
+            tracker.sweep();
+            tracker.deliver("store002", List.of(other), "{\"n\":3}");
+
+            // Then
+            verify(messageSender, timeout(1000)).sendAll(List.of(other), "{\"seq\":1,\"n\":3}");
+        } finally {
+            release.countDown();
+        }
+        // 阻塞解除后 store001 的通知按序号顺序发出
+        verify(messageSender, timeout(1000)).sendAll(List.of(session), "{\"seq\":2,\"n\":2}");
+        pool.shutdown();
+    }
+
+    @Test
+    void testBufferOverflowDropsOldest() {
+        // Given
+        properties.getStoreAck().setBufferSize(4);
+        tracker.negotiate(session, "store001", true);
+
+        // When
+        for (int i = 0; i < 20; i++) {
+            tracker.deliver("store001", List.of(session), "{\"n\":" + i + "}");
+        }
+
+        // Then
+        assertEquals(Map.of("store001", 4), tracker.getUnackedCounts());
+        assertEquals(16, tracker.getStats().getOverflowedMessages());
+    }
+
+    @Test
+    void testTerminalsOfOneStoreShareSequence() {
+        // Given 同一门店的两个终端都开启了确认模式
+        Session second = mock(Session.class);
+        Map<String, Object> userProperties = new HashMap<>();
+        userProperties.put(SessionContext.KEY, new SessionContext());
+        when(second.getUserProperties()).thenReturn(userProperties);
+        when(second.isOpen()).thenReturn(true);
+        tracker.negotiate(session, "store001", true);
+        tracker.negotiate(second, "store001", true);
+
+        // When
+        tracker.deliver("store001", List.of(session, second), "{\"type\":\"order_created\"}");
+        tracker.ack("store001", 1);
+
+        // Then 通知只分配一次序号，任一终端确认即视为门店已收到
+        verify(messageSender).sendAll(List.of(session, second), "{\"seq\":1,\"type\":\"order_created\"}");
+        assertTrue(tracker.getUnackedCounts().isEmpty());
+    }
+
+    @Test
+    void testMultiplexedSessionReceivesStoreId() {
+        // Given 一个连接同时绑定了两个门店
+        SessionContext.of(session).getClientIds().addAll(List.of("store001", "store002"));
+
+        // When
+        tracker.deliver("store002", List.of(session), "{\"type\":\"order_created\"}");
+
+        // Then
+        verify(messageSender).sendAll(List.of(session), "{\"storeId\":\"store002\",\"type\":\"order_created\"}");
+    }
+
+    private List<String> captureSent(int times) {
+        ArgumentCaptor<String> captor = ArgumentCaptor.forClass(String.class);
+        verify(messageSender, times(times)).sendAll(eq(List.of(session)), captor.capture());
+        return new ArrayList<>(captor.getAllValues());
+    }
+}
@@ -1,5 +1,7 @@
 package com.cy.order.websocket;
 
+import com.cy.order.enums.OrderStatusEnum;
+import com.cy.order.service.OrderService;
 import jakarta.websocket.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -9,6 +11,8 @@ import org.mockito.MockedStatic;
 import org.mockito.junit.jupiter.MockitoExtension;
 
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.Map;
 
 import static org.junit.jupiter.api.Assertions.*;
 import static org.mockito.Mockito.*;
@@ -46,15 +50,14 @@ class StoreWebSocketEndpointTest {
         // Given
         when(session.getId()).thenReturn("testSessionId");
         
-        try (MockedStatic<StoreWebSocketEndpoint> mocked = mockStatic(StoreWebSocketEndpoint.class)) {
-            mocked.when(StoreWebSocketEndpoint::getClientSessionManager).thenReturn(clientSessionManager);
-            
-            // When
-            storeWebSocketEndpoint.onClose(session);
-            
-            // Then
-            verify(clientSessionManager).removeStoreSession("testSessionId");
-        }
+        storeWebSocketEndpoint.setClientSessionManager(clientSessionManager);
+
+        // When
+        storeWebSocketEndpoint.onClose(session);
+
+        // Then 只移除关闭的这一个会话，同一客户端的其他会话不受影响
+        verify(clientSessionManager).removeSession(session);
+        verify(clientSessionManager, never()).removeStoreSession(anyString());
     }
     
     @Test
@@ -63,15 +66,13 @@ class StoreWebSocketEndpointTest {
         Throwable throwable = new RuntimeException("Test exception");
         when(session.getId()).thenReturn("testSessionId");
         
-        try (MockedStatic<StoreWebSocketEndpoint> mocked = mockStatic(StoreWebSocketEndpoint.class)) {
-            mocked.when(StoreWebSocketEndpoint::getClientSessionManager).thenReturn(clientSessionManager);
-            
-            // When
-            storeWebSocketEndpoint.onError(session, throwable);
-            
-            // Then
-            verify(clientSessionManager).removeStoreSession("testSessionId");
-        }
+        storeWebSocketEndpoint.setClientSessionManager(clientSessionManager);
+
+        // When
+        storeWebSocketEndpoint.onError(session, throwable);
+
+        // Then
+        verify(clientSessionManager).removeSession(session);
     }
     
     @Test
@@ -98,18 +99,65 @@ class StoreWebSocketEndpointTest {
         String heartbeatMessage = "{\"type\":\"ping\",\"clientId\":\"testStore123\"}";
         when(session.getId()).thenReturn("testSessionId");
         when(session.isOpen()).thenReturn(true);
-        
-        try (MockedStatic<StoreWebSocketEndpoint> mocked = mockStatic(StoreWebSocketEndpoint.class)) {
-            mocked.when(StoreWebSocketEndpoint::getClientSessionManager).thenReturn(clientSessionManager);
-            
-            // When
-            storeWebSocketEndpoint.onMessage(heartbeatMessage, session);
-            
-            // Then
-            verify(clientSessionManager).updateStoreHeartbeat("testStore123");
-        }
+        storeWebSocketEndpoint.setClientSessionManager(clientSessionManager);
+
+        // When
+        storeWebSocketEndpoint.onMessage(heartbeatMessage, session);
+
+        // Then 心跳以会话为准，不再按消息中的clientId更新
+        verify(clientSessionManager).updateHeartbeat(session);
+        verify(clientSessionManager, never()).updateStoreHeartbeat("testStore123");
     }
     
+    @Test
+    void testUpdateStatusCommandRepliesWithCorrelatedAck() throws IOException {
+        // Given 已connect的门店会话
+        OrderService orderService = mock(OrderService.class);
+        storeWebSocketEndpoint.setOrderService(orderService);
+        SessionContext context = new SessionContext();
+        context.setClientId("store001");
+        context.getClientIds().add("store001");
+        Map<String, Object> userProperties = new HashMap<>();
+        userProperties.put(SessionContext.KEY, context);
+        RemoteEndpoint.Basic basicRemote = mock(RemoteEndpoint.Basic.class);
+        when(session.getUserProperties()).thenReturn(userProperties);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getBasicRemote()).thenReturn(basicRemote);
+        when(orderService.updateOrderStatus("order001", OrderStatusEnum.PROCESSING, "store001", "user001")).thenReturn(true);
+
+        // When 消息中的storeId不可信，以会话绑定的门店为准
+        storeWebSocketEndpoint.onMessage("{\"type\":\"update_status\",\"requestId\":\"r-1\",\"orderId\":\"order001\","
+                + "\"status\":\"processing\",\"userId\":\"user001\"}", session);
+
+        // Then
+        verify(orderService).updateOrderStatus("order001", OrderStatusEnum.PROCESSING, "store001", "user001");
+        verify(basicRemote).sendText("{\"type\":\"update_status_ack\",\"requestId\":\"r-1\",\"orderId\":\"order001\",\"success\":true}");
+    }
+
+    @Test
+    void testUpdateStatusCommandRejectsUnboundStore() throws IOException {
+        // Given
+        OrderService orderService = mock(OrderService.class);
+        storeWebSocketEndpoint.setOrderService(orderService);
+        SessionContext context = new SessionContext();
+        context.setClientId("store001");
+        context.getClientIds().add("store001");
+        Map<String, Object> userProperties = new HashMap<>();
+        userProperties.put(SessionContext.KEY, context);
+        RemoteEndpoint.Basic basicRemote = mock(RemoteEndpoint.Basic.class);
+        when(session.getUserProperties()).thenReturn(userProperties);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getBasicRemote()).thenReturn(basicRemote);
+
+        // When
+        storeWebSocketEndpoint.onMessage("{\"type\":\"update_status\",\"requestId\":\"r-2\",\"orderId\":\"order001\","
+                + "\"status\":\"COMPLETED\",\"storeId\":\"store999\"}", session);
+
+        // Then
+        verifyNoInteractions(orderService);
+        verify(basicRemote).sendText(contains("\"success\":false"));
+    }
+
     @Test
     void testOnMessageWithUnknownType() throws IOException {
         // Given
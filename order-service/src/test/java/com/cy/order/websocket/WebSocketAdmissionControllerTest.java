@@ -0,0 +1,207 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.support.TokenBucket;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebSocketAdmissionControllerTest {
+
+    @Mock
+    private Session session;
+
+    private final WebSocketProperties properties = new WebSocketProperties();
+
+    private final Map<String, Object> userProperties = new HashMap<>();
+
+    private SessionContext context;
+
+    @BeforeEach
+    void setUp() {
+        context = new SessionContext();
+        context.setEndpoint(properties.getApp());
+        context.setRemoteAddress("10.0.0.1");
+        userProperties.put(SessionContext.KEY, context);
+        lenient().when(session.getUserProperties()).thenReturn(userProperties);
+    }
+
+    @Test
+    void testTokenBucketRefill() {
+        // Given
+        TokenBucket bucket = new TokenBucket(10, 2);
+        long now = System.nanoTime();
+
+        // When & Then
+        assertTrue(bucket.tryAcquire(now));
+        assertTrue(bucket.tryAcquire(now));
+        assertFalse(bucket.tryAcquire(now));
+        // 100ms 后补充一个令牌
+        assertTrue(bucket.tryAcquire(now + 100_000_000L));
+        assertFalse(bucket.tryAcquire(now + 100_000_000L));
+        assertTrue(bucket.isFull(now + 1_000_000_000L));
+    }
+
+    @Test
+    void testRejectConnectionsOverPerAddressBurst() throws Exception {
+        // Given
+        properties.getAdmission().setPerAddressConnectRate(0.001);
+        properties.getAdmission().setPerAddressConnectBurst(2);
+        WebSocketAdmissionController controller = new WebSocketAdmissionController(properties);
+
+        // When
+        assertTrue(controller.admit(session));
+        assertTrue(controller.admit(session));
+        boolean admitted = controller.admit(session);
+
+        // Then
+        assertFalse(admitted);
+        ArgumentCaptor<CloseReason> reason = ArgumentCaptor.forClass(CloseReason.class);
+        verify(session).close(reason.capture());
+        assertEquals(CloseReason.CloseCodes.TRY_AGAIN_LATER, reason.getValue().getCloseCode());
+        assertEquals(2, controller.getStats().getAdmittedConnections());
+        assertEquals(1, controller.getStats().getRejectedConnections());
+    }
+
+    @Test
+    void testAdmitWhenDisabled() throws Exception {
+        // Given
+        properties.getAdmission().setEnabled(false);
+        properties.getAdmission().setPerAddressConnectBurst(1);
+        properties.getAdmission().setPerAddressConnectRate(0.001);
+        WebSocketAdmissionController controller = new WebSocketAdmissionController(properties);
+
+        // When & Then
+        for (int i = 0; i < 5; i++) {
+            assertTrue(controller.admit(session));
+        }
+        verify(session, never()).close(any());
+        assertNotNull(context.getInboundBucket());
+    }
+
+    @Test
+    void testCloseSessionAfterInboundViolationLimit() throws Exception {
+        // Given
+        properties.getApp().setInboundRate(0.001);
+        properties.getApp().setInboundBurst(3);
+        properties.getApp().setInboundViolationLimit(5);
+        WebSocketAdmissionController controller = new WebSocketAdmissionController(properties);
+        assertTrue(controller.admit(session));
+
+        // When
+        List<Boolean> results = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            results.add(controller.allowInbound(session));
+        }
+
+        // Then
+        assertEquals(3, results.stream().filter(Boolean::booleanValue).count());
+        ArgumentCaptor<CloseReason> reason = ArgumentCaptor.forClass(CloseReason.class);
+        verify(session, times(1)).close(reason.capture());
+        assertEquals(CloseReason.CloseCodes.VIOLATED_POLICY, reason.getValue().getCloseCode());
+        assertEquals(7, controller.getStats().getThrottledMessages());
+        assertEquals(1, controller.getStats().getViolationClosures());
+    }
+
+    @Test
+    void testEvictIdleAddressBuckets() {
+        // Given
+        properties.getAdmission().setPerAddressConnectRate(1_000_000);
+        WebSocketAdmissionController controller = new WebSocketAdmissionController(properties);
+        controller.admit(session);
+        assertEquals(1, controller.getStats().getTrackedAddresses());
+
+        // When
+        controller.evictIdleBuckets();
+
+        // Then
+        assertEquals(0, controller.getStats().getTrackedAddresses());
+    }
+
+    @Test
+    void testUnknownAddressIsStillRateLimited() throws Exception {
+        // Given
+        context.setRemoteAddress(null);
+        properties.getAdmission().setPerAddressConnectRate(0.001);
+        properties.getAdmission().setPerAddressConnectBurst(1);
+        WebSocketAdmissionController controller = new WebSocketAdmissionController(properties);
+
+        // When
+        assertTrue(controller.admit(session));
+        boolean admitted = controller.admit(session);
+
+        // Then
+        assertFalse(admitted);
+        assertEquals(1, controller.getStats().getRejectedConnections());
+    }
+
+    @Test
+    void testResolveRemoteAddressFromFilterHeaderOnly() {
+        assertEquals("1.2.3.4", WebSocketEndpointConfigurator.resolveRemoteAddress(
+                Map.of(WebSocketClientAddressFilter.CLIENT_ADDRESS_HEADER, List.of("1.2.3.4"))));
+        assertNull(WebSocketEndpointConfigurator.resolveRemoteAddress(
+                Map.of("X-Forwarded-For", List.of("1.2.3.4"), "x-real-ip", List.of("5.6.7.8"))));
+        assertNull(WebSocketEndpointConfigurator.resolveRemoteAddress(Map.of()));
+    }
+
+    @Test
+    void testForwardingHeadersAreIgnoredFromUntrustedPeer() {
+        assertEquals("203.0.113.9", WebSocketClientAddressFilter.resolveClientAddress(
+                "203.0.113.9", "1.2.3.4", "5.6.7.8", List.of("10.0.0.2")));
+    }
+
+    @Test
+    void testForwardedForFromTrustedProxySkipsTrustedHops() {
+        List<String> trusted = List.of("10.0.0.2", "10.0.0.3");
+        // 客户端 -> 10.0.0.3 -> 10.0.0.2
+        assertEquals("1.2.3.4", WebSocketClientAddressFilter.resolveClientAddress(
+                "10.0.0.2", "1.2.3.4, 10.0.0.3", null, trusted));
+        // 客户端伪造的最左侧地址不被采用
+        assertEquals("1.2.3.4", WebSocketClientAddressFilter.resolveClientAddress(
+                "10.0.0.2", "6.6.6.6, 1.2.3.4", null, trusted));
+        assertEquals("5.6.7.8", WebSocketClientAddressFilter.resolveClientAddress(
+                "10.0.0.2", null, "5.6.7.8", trusted));
+        assertEquals("10.0.0.2", WebSocketClientAddressFilter.resolveClientAddress(
+                "10.0.0.2", null, null, trusted));
+    }
+
+    @Test
+    void testFilterOverridesClientSuppliedAddressHeader() throws Exception {
+        // Given
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/ws/app");
+        request.setRemoteAddr("203.0.113.9");
+        request.addHeader(WebSocketClientAddressFilter.CLIENT_ADDRESS_HEADER, "1.1.1.1");
+        request.addHeader("X-Forwarded-For", "1.2.3.4");
+        List<HttpServletRequest> forwarded = new ArrayList<>();
+
+        // When
+        new WebSocketClientAddressFilter(properties).doFilter(request, new MockHttpServletResponse(),
+                (req, res) -> forwarded.add((HttpServletRequest) req));
+
+        // Then
+        HttpServletRequest filtered = forwarded.get(0);
+        assertEquals("203.0.113.9", filtered.getHeader(WebSocketClientAddressFilter.CLIENT_ADDRESS_HEADER));
+        assertEquals(List.of("203.0.113.9"),
+                Collections.list(filtered.getHeaders(WebSocketClientAddressFilter.CLIENT_ADDRESS_HEADER)));
+        assertEquals(1, Collections.list(filtered.getHeaderNames()).stream()
+                .filter(WebSocketClientAddressFilter.CLIENT_ADDRESS_HEADER::equalsIgnoreCase).count());
+    }
+}
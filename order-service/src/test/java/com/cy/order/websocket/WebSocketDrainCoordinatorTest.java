@@ -0,0 +1,210 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.websocket.cluster.ClusterSessionRouter;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.websocket.CloseReason;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebSocketDrainCoordinatorTest {
+
+    private static final ObjectMapper objectMapper = new ObjectMapper();
+
+    private static final int CLIENTS = 1000;
+
+    // 统计重连峰值的时间窗口（毫秒）
+    private static final long WINDOW = 100;
+
+    @Mock
+    private HeartbeatScheduler heartbeatScheduler;
+
+    @Mock
+    private WebSocketMessageSender messageSender;
+
+    @Mock
+    private ClusterSessionRouter clusterSessionRouter;
+
+    private final WebSocketProperties properties = new WebSocketProperties();
+
+    private WebSocketAdmissionController admissionController;
+
+    private WebSocketDrainCoordinator coordinator;
+
+    // 模拟客户端：收到的重连延迟和连接被关闭的时间
+    private final Map<Session, Long> hintDelays = new IdentityHashMap<>();
+    private final Map<Session, Long> closedAt = new IdentityHashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        properties.getDrain().setReconnectDelayMin(0);
+        properties.getDrain().setReconnectDelayMax(10_000);
+        properties.getDrain().setReconnectTarget("wss://ws-2.example.com/order-service/ws/store");
+        properties.getDrain().setCloseBatchSize(100);
+        properties.getDrain().setCloseBatchInterval(5);
+        // 发送任务在调用线程中立即执行
+        lenient().when(messageSender.execute(any())).thenAnswer(invocation -> {
+            invocation.<Runnable>getArgument(0).run();
+            return true;
+        });
+        admissionController = new WebSocketAdmissionController(properties);
+        coordinator = new WebSocketDrainCoordinator(properties, admissionController, heartbeatScheduler,
+                messageSender, clusterSessionRouter);
+    }
+
+    @Test
+    void testReconnectSpikeWithAndWithoutDrain() throws Exception {
+        // Given
+        List<Session> sessions = clients(CLIENTS);
+        when(heartbeatScheduler.getSessions()).thenReturn(sessions);
+        when(messageSender.sendNow(any(Session.class), any(OutboundFrame.class))).thenAnswer(invocation -> {
+            OutboundFrame frame = invocation.getArgument(1);
+            hintDelays.put(invocation.getArgument(0), objectMapper.readTree(frame.getText()).get("delay").asLong());
+            return true;
+        });
+
+        // When 排空：客户端在连接关闭后按提示的延迟重连
+        long start = System.currentTimeMillis();
+        assertEquals(CLIENTS, coordinator.drain());
+        List<Long> drained = reconnectTimes(sessions, start);
+
+        // When 不排空：同样的客户端在容器停止时被直接关闭，没有重连提示
+        List<Session> abruptSessions = clients(CLIENTS);
+        long abruptStart = System.currentTimeMillis();
+        for (Session session : abruptSessions) {
+            session.close(new CloseReason(CloseReason.CloseCodes.GOING_AWAY, "shutdown"));
+        }
+        List<Long> abrupt = reconnectTimes(abruptSessions, abruptStart);
+
+        // Then
+        int drainedPeak = peak(drained);
+        int abruptPeak = peak(abrupt);
+        assertTrue(abruptPeak > CLIENTS / 2, "abrupt peak per " + WINDOW + "ms " + abruptPeak);
+        assertTrue(drainedPeak * 10 < abruptPeak, "drained peak per " + WINDOW + "ms " + drainedPeak);
+        assertEquals(CLIENTS, coordinator.getStats().getHintsSent());
+    }
+
+    @Test
+    void testSlowHintDoesNotHoldDrainPastTimeout() throws Exception {
+        // Given 提示由两个发送线程发出，第一个连接的发送一直阻塞
+        properties.getDrain().setTimeout(200);
+        ExecutorService pool = Executors.newFixedThreadPool(2);
+        when(messageSender.execute(any())).thenAnswer(invocation -> {
+            pool.execute(invocation.getArgument(0));
+            return true;
+        });
+        List<Session> sessions = clients(10);
+        when(heartbeatScheduler.getSessions()).thenReturn(sessions);
+        CountDownLatch release = new CountDownLatch(1);
+        when(messageSender.sendNow(any(Session.class), any(OutboundFrame.class))).thenAnswer(invocation ->
+                invocation.getArgument(0) != sessions.get(0) || release.await(5, TimeUnit.SECONDS));
+
+        try {
+            // When
+            long start = System.nanoTime();
+            int closed = coordinator.drain();
+
+            // Then 到截止时间后不再等待慢连接，全部连接照常关闭
+            assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(2));
+            assertEquals(10, closed);
+            assertEquals(9, coordinator.getStats().getHintsSent());
+        } finally {
+            release.countDown();
+            pool.shutdown();
+        }
+    }
+
+    @Test
+    void testNewConnectionsRejectedWhileDraining() throws Exception {
+        // Given
+        when(heartbeatScheduler.getSessions()).thenReturn(List.of());
+        coordinator.drain();
+        Session late = clients(1).get(0);
+
+        // When
+        boolean admitted = admissionController.admit(late);
+
+        // Then
+        assertFalse(admitted);
+        verify(late).close(argThat(reason -> reason.getCloseCode() == CloseReason.CloseCodes.TRY_AGAIN_LATER));
+    }
+
+    @Test
+    void testHintCarriesJitteredDelayAndTarget() throws Exception {
+        // When
+        var hint = objectMapper.readTree(coordinator.reconnectHint());
+
+        // Then
+        assertEquals("reconnect", hint.get("type").asText());
+        assertTrue(hint.get("delay").asLong() >= 0 && hint.get("delay").asLong() < 10_000);
+        assertEquals("wss://ws-2.example.com/order-service/ws/store", hint.get("target").asText());
+    }
+
+    @Test
+    void testDrainRunsOnce() {
+        // Given
+        when(heartbeatScheduler.getSessions()).thenReturn(List.of());
+
+        // When
+        coordinator.drain();
+
+        // Then
+        assertEquals(-1, coordinator.drain());
+        verify(heartbeatScheduler, times(1)).getSessions();
+    }
+
+    private List<Session> clients(int count) throws Exception {
+        List<Session> sessions = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            Session session = mock(Session.class);
+            AtomicBoolean open = new AtomicBoolean(true);
+            lenient().when(session.isOpen()).thenAnswer(invocation -> open.get());
+            lenient().when(session.getUserProperties()).thenReturn(new HashMap<>());
+            lenient().doAnswer(invocation -> {
+                open.set(false);
+                closedAt.put(session, System.currentTimeMillis());
+                return null;
+            }).when(session).close(any(CloseReason.class));
+            sessions.add(session);
+        }
+        return sessions;
+    }
+
+    // 客户端在连接关闭后按收到的延迟重连，没有收到提示则立即重连
+    private List<Long> reconnectTimes(List<Session> sessions, long start) {
+        List<Long> times = new ArrayList<>(sessions.size());
+        for (Session session : sessions) {
+            times.add(closedAt.get(session) - start + hintDelays.getOrDefault(session, 0L));
+        }
+        return times;
+    }
+
+    private static int peak(List<Long> reconnectTimes) {
+        Map<Long, Integer> windows = new HashMap<>();
+        int peak = 0;
+        for (long time : reconnectTimes) {
+            peak = Math.max(peak, windows.merge(time / WINDOW, 1, Integer::sum));
+        }
+        return peak;
+    }
+}
@@ -0,0 +1,77 @@
+package com.cy.order.websocket;
+
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.ThreadMXBean;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * 统计1万条通知编码为文本帧和压缩二进制帧的CPU耗时
+ * 耗时只输出供对比，只在 benchmark 配置下运行（mvn test -Pbenchmark）；字节数由 {@link WebSocketMessageSenderTest} 断言
+ */
+@Tag("benchmark")
+class WebSocketFrameEncodingBenchmarkTest {
+
+    private static final int COUNT = 10_000;
+
+    private static final int ROUNDS = 5;
+
+    private final ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+
+    @Test
+    void cpuCostPer10kNotifications() {
+        // Given 通知内容预先生成，不计入编码耗时
+        String[] notifications = new String[COUNT];
+        for (int i = 0; i < COUNT; i++) {
+            notifications[i] = WebSocketMessageSenderTest.buildNotification(i);
+        }
+        encodeText(notifications);
+        encodeDeflate(notifications);
+
+        // When
+        long textBytes = 0;
+        long deflateBytes = 0;
+        long textCpu = Long.MAX_VALUE;
+        long deflateCpu = Long.MAX_VALUE;
+        for (int round = 0; round < ROUNDS; round++) {
+            long start = cpuTime();
+            textBytes = encodeText(notifications);
+            textCpu = Math.min(textCpu, cpuTime() - start);
+
+            start = cpuTime();
+            deflateBytes = encodeDeflate(notifications);
+            deflateCpu = Math.min(deflateCpu, cpuTime() - start);
+        }
+
+        // Then
+        System.out.printf("10k notifications: text %d bytes, encode cpu %d us; deflate %d bytes (%.1f%%), encode cpu %d us%n",
+                textBytes, textCpu / 1000, deflateBytes, deflateBytes * 100.0 / textBytes, deflateCpu / 1000);
+        assertTrue(deflateBytes < textBytes, "deflate " + deflateBytes + " text " + textBytes);
+    }
+
+    private static long encodeText(String[] notifications) {
+        long bytes = 0;
+        for (String notification : notifications) {
+            bytes += OutboundFrame.of(notification).getUtf8Length();
+        }
+        return bytes;
+    }
+
+    private static long encodeDeflate(String[] notifications) {
+        long bytes = 0;
+        for (String notification : notifications) {
+            bytes += OutboundFrame.of(notification).getDeflated().remaining();
+        }
+        return bytes;
+    }
+
+    /**
+     * @return 当前线程的CPU时间（纳秒），不支持时退回墙钟时间
+     */
+    private long cpuTime() {
+        return threads.isCurrentThreadCpuTimeSupported() ? threads.getCurrentThreadCpuTime() : System.nanoTime();
+    }
+}
@@ -0,0 +1,226 @@
+package com.cy.order.websocket;
+
+import com.cy.order.config.WebSocketProperties;
+import jakarta.websocket.Extension;
+import jakarta.websocket.RemoteEndpoint;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+
+import java.io.ByteArrayOutputStream;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Inflater;
+
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class WebSocketMessageSenderTest {
+
+    @Mock
+    private Session session;
+
+    @Mock
+    private RemoteEndpoint.Basic basicRemote;
+
+    @Mock
+    private Extension deflateExtension;
+
+    private final WebSocketMessageSender messageSender = new WebSocketMessageSender(new WebSocketProperties());
+
+    private final Map<String, Object> userProperties = new HashMap<>();
+
+    @BeforeEach
+    void setUp() {
+        SessionContext context = new SessionContext();
+        context.setEndpoint(new WebSocketProperties.Endpoint());
+        userProperties.put(SessionContext.KEY, context);
+        lenient().when(session.getUserProperties()).thenReturn(userProperties);
+    }
+
+    @Test
+    void testTextEncodingByDefault() throws Exception {
+        // Given
+        when(session.isOpen()).thenReturn(true);
+        when(session.getBasicRemote()).thenReturn(basicRemote);
+
+        // When
+        assertTrue(messageSender.send(session, buildNotification(1)));
+
+        // Then
+        verify(basicRemote).sendText(anyString());
+        verify(basicRemote, never()).sendBinary(any());
+    }
+
+    @Test
+    void testBinaryEncodingCompressesAboveThreshold() throws Exception {
+        // Given
+        when(session.isOpen()).thenReturn(true);
+        when(session.getBasicRemote()).thenReturn(basicRemote);
+        assertEquals("binary", messageSender.negotiateEncoding(session, "binary"));
+        String large = buildNotification(1);
+
+        // When
+        messageSender.send(session, large);
+        messageSender.send(session, "{\"type\":\"pong\"}");
+
+        // Then - 大消息压缩为二进制帧，小消息仍为文本帧
+        verify(basicRemote).sendBinary(argThat(buffer -> large.equals(inflate(buffer))));
+        verify(basicRemote).sendText("{\"type\":\"pong\"}");
+    }
+
+    @Test
+    void testPermessageDeflateDisablesApplicationCompression() {
+        // Given
+        when(deflateExtension.getName()).thenReturn(WebSocketEndpointConfigurator.PERMESSAGE_DEFLATE);
+        when(session.getNegotiatedExtensions()).thenReturn(List.of(deflateExtension));
+
+        // When & Then
+        assertEquals("text", messageSender.negotiateEncoding(session, "binary"));
+        assertFalse(SessionContext.of(session).isBinaryEncoding());
+    }
+
+    @Test
+    void testBatchingFlushesWhenMaxSizeReached() throws Exception {
+        // Given
+        SessionContext.of(session).getEndpoint().setBatchMaxSize(3);
+        SessionContext.of(session).getEndpoint().setBatchMaxDelay(60000);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getBasicRemote()).thenReturn(basicRemote);
+        assertTrue(messageSender.negotiateBatching(session, true));
+
+        // When
+        messageSender.send(session, "{\"n\":1}");
+        messageSender.send(session, "{\"n\":2}");
+        verify(basicRemote, never()).sendText(anyString());
+        messageSender.send(session, "{\"n\":3}");
+
+        // Then - 三条通知合并为一个数组帧
+        verify(basicRemote).sendText("[{\"n\":1},{\"n\":2},{\"n\":3}]");
+    }
+
+    @Test
+    void testBatchingFlushesAfterMaxDelay() throws Exception {
+        // Given
+        SessionContext.of(session).getEndpoint().setBatchMaxDelay(10);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getBasicRemote()).thenReturn(basicRemote);
+        messageSender.negotiateBatching(session, true);
+
+        // When
+        messageSender.send(session, "{\"n\":1}");
+
+        // Then
+        verify(basicRemote, timeout(1000)).sendText("[{\"n\":1}]");
+    }
+
+    @Test
+    void testSlowSessionDoesNotDelayOtherSessionsFlush() throws Exception {
+        // Given 慢会话的发送一直阻塞
+        SessionContext.of(session).getEndpoint().setBatchMaxDelay(10);
+        when(session.isOpen()).thenReturn(true);
+        when(session.getBasicRemote()).thenReturn(basicRemote);
+        CountDownLatch release = new CountDownLatch(1);
+        doAnswer(invocation -> release.await(5, TimeUnit.SECONDS)).when(basicRemote).sendText(anyString());
+        messageSender.negotiateBatching(session, true);
+        Session other = mock(Session.class);
+        RemoteEndpoint.Basic otherRemote = mock(RemoteEndpoint.Basic.class);
+        SessionContext otherContext = new SessionContext();
+        otherContext.setEndpoint(new WebSocketProperties.Endpoint());
+        otherContext.getEndpoint().setBatchMaxDelay(10);
+        when(other.getUserProperties()).thenReturn(new HashMap<>(Map.of(SessionContext.KEY, otherContext)));
+        when(other.isOpen()).thenReturn(true);
+        when(other.getBasicRemote()).thenReturn(otherRemote);
+        messageSender.negotiateBatching(other, true);
+
+        // When
+        messageSender.send(session, "{\"n\":1}");
+        verify(basicRemote, timeout(1000)).sendText("[{\"n\":1}]");
+        messageSender.send(other, "{\"n\":2}");
+
+        // Then 另一个会话的定时刷新由其他刷新线程执行
+        try {
+            verify(otherRemote, timeout(1000)).sendText("[{\"n\":2}]");
+        } finally {
+            release.countDown();
+        }
+    }
+
+    @Test
+    void testBatchingRejectedWhenEndpointDisallows() {
+        // Given
+        SessionContext.of(session).getEndpoint().setBatching(false);
+
+        // When & Then
+        assertFalse(messageSender.negotiateBatching(session, true));
+    }
+
+    @Test
+    void testCompressedFramesHalveBytesOnWire() {
+        // Given 1万条带商品明细的通知
+        int count = 10_000;
+        long rawBytes = 0;
+        long compressedBytes = 0;
+
+        // When
+        for (int i = 0; i < count; i++) {
+            OutboundFrame frame = OutboundFrame.of(buildNotification(i));
+            rawBytes += frame.getUtf8Length();
+            compressedBytes += frame.getDeflated().remaining();
+        }
+
+        // Then 压缩二进制帧的字节数不到文本帧的一半
+        assertTrue(compressedBytes < rawBytes / 2, "deflate " + compressedBytes + " raw " + rawBytes);
+    }
+
+    static String buildNotification(int seed) {
+        StringBuilder items = new StringBuilder();
+        for (int i = 0; i < 8; i++) {
+            if (i > 0) {
+                items.append(',');
+            }
+            items.append("{\"productId\":\"P").append(1000 + i)
+                    .append("\",\"productName\":\"招牌牛肉面-加大份\",\"quantity\":").append(i + 1)
+                    .append(",\"price\":").append(18 + i).append(".50}");
+        }
+        return "{\"type\":\"order_created\",\"orderId\":\"order-" + seed
+                + "\",\"orderNumber\":\"ORD" + (1700000000000L + seed)
+                + "\",\"message\":\"新订单已创建，请及时处理\",\"status\":\"NEW\",\"items\":[" + items
+                + "],\"timestamp\":" + (1700000000000L + seed) + "}";
+    }
+
+    private static String inflate(ByteBuffer buffer) {
+        try {
+            ByteBuffer copy = buffer.duplicate();
+            assertEquals(OutboundFrame.FORMAT_DEFLATE, copy.get());
+            byte[] compressed = new byte[copy.remaining()];
+            copy.get(compressed);
+            Inflater inflater = new Inflater(true);
+            inflater.setInput(compressed);
+            ByteArrayOutputStream out = new ByteArrayOutputStream();
+            byte[] chunk = new byte[256];
+            while (!inflater.finished()) {
+                int n = inflater.inflate(chunk);
+                if (n == 0 && inflater.needsInput()) {
+                    break;
+                }
+                out.write(chunk, 0, n);
+            }
+            inflater.end();
+            return out.toString(StandardCharsets.UTF_8);
+        } catch (Exception e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
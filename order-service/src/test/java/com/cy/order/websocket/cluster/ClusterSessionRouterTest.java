@@ -0,0 +1,178 @@
+package com.cy.order.websocket.cluster;
+
+import com.cy.order.config.WebSocketProperties;
+import com.cy.order.websocket.ClientSessionManager;
+import com.cy.order.websocket.ClientType;
+import com.cy.order.websocket.WebSocketMessageSender;
+import jakarta.websocket.Session;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.support.StaticListableBeanFactory;
+
+import java.util.List;
+
+import static org.awaitility.Awaitility.await;
+import static org.junit.jupiter.api.Assertions.*;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+class ClusterSessionRouterTest {
+
+    @Mock
+    private Session storeSession;
+
+    @Mock
+    private WebSocketMessageSender senderA;
+
+    @Mock
+    private WebSocketMessageSender senderB;
+
+    private final InMemoryClusterBus bus = new InMemoryClusterBus();
+
+    private ClientSessionManager managerA;
+    private ClientSessionManager managerB;
+    private ClusterSessionRouter routerA;
+    private ClusterSessionRouter routerB;
+
+    @BeforeEach
+    void setUp() {
+        managerA = new ClientSessionManager(properties("node-a"));
+        managerB = new ClientSessionManager(properties("node-b"));
+        routerA = new ClusterSessionRouter(properties("node-a"), managerA, senderA, transportProvider(bus.newTransport()));
+        routerB = new ClusterSessionRouter(properties("node-b"), managerB, senderB, transportProvider(bus.newTransport()));
+        routerA.start();
+        routerB.start();
+        // 等待两个节点交换初始快照
+        await().until(() -> routerA.getStats().getRemoteNodeCount() == 1
+                && routerB.getStats().getRemoteNodeCount() == 1);
+    }
+
+    @AfterEach
+    void tearDown() {
+        routerA.stop();
+        routerB.stop();
+    }
+
+    @Test
+    void testForwardToOwningNode() {
+        // Given - 门店连接在节点B
+        when(storeSession.getId()).thenReturn("session-1");
+        when(storeSession.isOpen()).thenReturn(true);
+        managerB.addStoreSession("store1", storeSession);
+        routerB.flushPresence();
+
+        // When - 节点A收到该门店的通知
+        assertTrue(routerA.forward(ClientType.STORE, "store1", "{\"type\":\"order_created\"}"));
+        routerA.flushDeliveries();
+
+        // Then - 只由节点B投递
+        verify(senderB).sendAll(List.of(storeSession), "{\"type\":\"order_created\"}");
+        verifyNoInteractions(senderA);
+    }
+
+    @Test
+    void testForwardToEveryNodeWithSessions() {
+        // Given - 同一门店的终端分别连在节点B和节点C
+        Session storeSessionC = mock(Session.class);
+        when(storeSession.getId()).thenReturn("session-1");
+        when(storeSession.isOpen()).thenReturn(true);
+        when(storeSessionC.getId()).thenReturn("session-2");
+        when(storeSessionC.isOpen()).thenReturn(true);
+        WebSocketMessageSender senderC = mock(WebSocketMessageSender.class);
+        ClientSessionManager managerC = new ClientSessionManager(properties("node-c"));
+        ClusterSessionRouter routerC = new ClusterSessionRouter(properties("node-c"), managerC, senderC, transportProvider(bus.newTransport()));
+        routerC.start();
+        try {
+            managerB.addStoreSession("store1", storeSession);
+            managerC.addStoreSession("store1", storeSessionC);
+            routerB.flushPresence();
+            routerC.flushPresence();
+            await().until(() -> routerA.getStats().getRemoteNodeCount() == 2);
+
+            // When
+            assertTrue(routerA.forward(ClientType.STORE, "store1", "{}"));
+            routerA.flushDeliveries();
+
+            // Then - 两个节点各投递一次
+            verify(senderB).sendAll(List.of(storeSession), "{}");
+            verify(senderC).sendAll(List.of(storeSessionC), "{}");
+            assertEquals(2, routerA.getStats().getForwardedMessages());
+
+            // When - 节点C上的终端断开
+            managerC.removeStoreSession("store1");
+            routerC.flushPresence();
+
+            // Then - 门店仍在节点B上
+            assertEquals(1, routerA.getStats().getRemoteStoreCount());
+            assertTrue(routerA.forward(ClientType.STORE, "store1", "{}"));
+        } finally {
+            routerC.stop();
+        }
+    }
+
+    @Test
+    void testUnknownClientIsNotForwarded() {
+        assertFalse(routerA.forward(ClientType.STORE, "store-unknown", "{}"));
+        assertFalse(routerA.forward(ClientType.USER, "user-unknown", "{}"));
+    }
+
+    @Test
+    void testDisconnectRemovesPresence() {
+        // Given
+        when(storeSession.getId()).thenReturn("session-1");
+        managerB.addStoreSession("store1", storeSession);
+        routerB.flushPresence();
+        assertEquals(1, routerA.getStats().getRemoteStoreCount());
+
+        // When
+        managerB.removeStoreSession("store1");
+        routerB.flushPresence();
+
+        // Then
+        assertEquals(0, routerA.getStats().getRemoteStoreCount());
+        assertFalse(routerA.forward(ClientType.STORE, "store1", "{}"));
+    }
+
+    @Test
+    void testForwardingIsBatchedPerNode() {
+        // Given
+        when(storeSession.getId()).thenReturn("session-1");
+        when(storeSession.isOpen()).thenReturn(true);
+        managerB.addStoreSession("store1", storeSession);
+        routerB.flushPresence();
+        int batchesBefore = bus.getDeliveryBatches();
+
+        // When
+        for (int i = 0; i < 50; i++) {
+            routerA.forward(ClientType.STORE, "store1", "{\"n\":" + i + "}");
+        }
+        routerA.flushDeliveries();
+
+        // Then - 50条通知合并为一次投递
+        assertEquals(batchesBefore + 1, bus.getDeliveryBatches());
+        verify(senderB, times(50)).sendAll(eq(List.of(storeSession)), anyString());
+        assertEquals(50, routerA.getStats().getForwardedMessages());
+    }
+
+    private static WebSocketProperties properties(String nodeId) {
+        WebSocketProperties properties = new WebSocketProperties();
+        properties.getCluster().setEnabled(true);
+        properties.getCluster().setNodeId(nodeId);
+        // 定时任务间隔设得足够长，测试中手动触发刷新
+        properties.getCluster().setPresenceFlushInterval(3600_000);
+        properties.getCluster().setDeliveryFlushInterval(3600_000);
+        properties.getCluster().setSnapshotInterval(3600_000);
+        return properties;
+    }
+
+    private static ObjectProvider<ClusterTransport> transportProvider(ClusterTransport transport) {
+        StaticListableBeanFactory beanFactory = new StaticListableBeanFactory();
+        beanFactory.addBean("clusterTransport", transport);
+        return beanFactory.getBeanProvider(ClusterTransport.class);
+    }
+}
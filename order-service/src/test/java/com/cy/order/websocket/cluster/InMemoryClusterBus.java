@@ -0,0 +1,70 @@
+package com.cy.order.websocket.cluster;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import java.io.IOException;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
+
+/**
+ * 进程内的跨节点消息总线，替代RabbitMQ用于测试
+ * 消息经过JSON序列化往返，与真实传输保持一致
+ */
+class InMemoryClusterBus {
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final Map<String, Consumer<PresenceDelta>> presenceHandlers = new ConcurrentHashMap<>();
+
+    private final Map<String, Consumer<DeliveryBatch>> deliveryHandlers = new ConcurrentHashMap<>();
+
+    private final AtomicInteger deliveryBatches = new AtomicInteger();
+
+    int getDeliveryBatches() {
+        return deliveryBatches.get();
+    }
+
+    ClusterTransport newTransport() {
+        return new ClusterTransport() {
+
+            private String nodeId;
+
+            @Override
+            public void start(String nodeId, Consumer<PresenceDelta> presenceHandler, Consumer<DeliveryBatch> deliveryHandler) {
+                this.nodeId = nodeId;
+                presenceHandlers.put(nodeId, presenceHandler);
+                deliveryHandlers.put(nodeId, deliveryHandler);
+            }
+
+            @Override
+            public void publishPresence(PresenceDelta delta) {
+                presenceHandlers.values().forEach(handler -> handler.accept(roundTrip(delta, PresenceDelta.class)));
+            }
+
+            @Override
+            public void sendDelivery(String nodeId, DeliveryBatch batch) {
+                deliveryBatches.incrementAndGet();
+                Consumer<DeliveryBatch> handler = deliveryHandlers.get(nodeId);
+                if (handler != null) {
+                    handler.accept(roundTrip(batch, DeliveryBatch.class));
+                }
+            }
+
+            @Override
+            public void stop() {
+                presenceHandlers.remove(nodeId);
+                deliveryHandlers.remove(nodeId);
+            }
+        };
+    }
+
+    private <T> T roundTrip(Object payload, Class<T> type) {
+        try {
+            return objectMapper.readValue(objectMapper.writeValueAsBytes(payload), type);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
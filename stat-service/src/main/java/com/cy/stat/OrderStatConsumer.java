@@ -1,10 +1,10 @@
 package com.cy.stat;
 
-import com.rabbitmq.client.Channel;
+import com.cy.common.mq.OrderEventProcessor;
+import com.cy.common.mq.OrderMessage;
+import com.cy.common.mq.OrderMessageCodec;
 import lombok.extern.slf4j.Slf4j;
-import org.springframework.amqp.rabbit.annotation.RabbitListener;
-import org.springframework.amqp.support.AmqpHeaders;
-import org.springframework.messaging.handler.annotation.Header;
+import org.springframework.amqp.core.MessageProperties;
 import org.springframework.stereotype.Component;
 
 /**
@@ -13,15 +13,15 @@ import org.springframework.stereotype.Component;
  */
 @Component
 @Slf4j
-public class OrderStatConsumer {
+public class OrderStatConsumer implements OrderEventProcessor {
 
-    @RabbitListener(queues = "order.notify.queue.stat")
-    public void handleOrder(String message, Channel channel, @Header(AmqpHeaders.DELIVERY_TAG) long tag) {
-        try {
-            log.info("【消费者 统计】收到订单通知: {}", message);
-            channel.basicAck(tag, false);
-        }catch (Exception e) {
-            log.error("【消费者 统计】处理订单通知失败: {}", message, e);
-        }
+    public static final String QUEUE = "order.notify.queue.stat";
+
+    @Override
+    public void process(OrderMessage order, MessageProperties properties) {
+        log.info("【消费者 统计】收到订单通知: event={}, routingKey={}, orderId={}, storeId={}, status={}, amount={}, items={}",
+                properties.getHeader(OrderMessageCodec.EVENT_TYPE_HEADER),
+                properties.getReceivedRoutingKey(), order.getId(), order.getStoreId(), order.getStatus(), order.amountDecimal(),
+                order.getItems() == null ? 0 : order.getItems().size());
     }
-}
\ No newline at end of file
+}